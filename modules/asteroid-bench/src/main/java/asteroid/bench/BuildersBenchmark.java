@@ -0,0 +1,71 @@
+package asteroid.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.syntax.Types;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.A;
+import asteroid.Expressions;
+import asteroid.Modifiers;
+import asteroid.Statements;
+
+/**
+ * Measures throughput and allocation of {@link Expressions}, {@link
+ * Statements} and {@link asteroid.Nodes} builders
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuildersBenchmark {
+
+    @Benchmark
+    public Expression expressions() {
+        return Expressions.callX(
+            Expressions.propX(Expressions.varX("this"), Expressions.constX("name")),
+            "plus",
+            Expressions.binX(Expressions.varX("a"), Types.PLUS, Expressions.constX(1)));
+    }
+
+    @Benchmark
+    public Statement statements() {
+        return Statements.blockS(
+            Statements.ifS(Expressions.boolX(Expressions.varX("a")),
+                           Statements.returnS(Expressions.constX(1))),
+            Statements.stmt(Expressions.callX(Expressions.varX("this"), "println", Expressions.constX("x"))),
+            Statements.returnS(Expressions.constX(2)));
+    }
+
+    @Benchmark
+    public MethodNode methodNode() {
+        return A.NODES.method("sample")
+            .modifiers(Modifiers.ACC_PUBLIC)
+            .returnType(String.class)
+            .parameters(A.NODES.param("a").type(ClassHelper.STRING_TYPE).build())
+            .code(Statements.blockS(Statements.returnS(Expressions.varX("a"))))
+            .build();
+    }
+
+    @Benchmark
+    public ClassNode classNode() {
+        return A.NODES.clazz("asteroid.bench.Sample").build();
+    }
+}
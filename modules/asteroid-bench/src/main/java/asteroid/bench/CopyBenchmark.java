@@ -0,0 +1,103 @@
+package asteroid.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.builder.AstBuilder;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.syntax.Types;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.A;
+import asteroid.Expressions;
+import asteroid.Statements;
+
+/**
+ * Compares the different ways of getting a new instance of the same
+ * code block: building it with {@link Statements} and {@link
+ * Expressions} builders, copying an already built block with {@link
+ * asteroid.utils.NodeUtils#deepCopy(ASTNode)}, parsing its source
+ * code every time, or using the cached templates behind {@link
+ * Statements#blockSFromString(String)}
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CopyBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int statements;
+
+    private BlockStatement block;
+    private String code;
+
+    @Setup
+    public void setup() {
+        block = build();
+
+        final StringBuilder source = new StringBuilder();
+
+        for (int i = 0; i < statements; i++) {
+            source.append("if (a > ").append(i).append(") { println(a + ").append(i).append(") }\n");
+        }
+
+        code = source.toString();
+    }
+
+    @Benchmark
+    public BlockStatement rebuild() {
+        return build();
+    }
+
+    @Benchmark
+    public BlockStatement deepCopy() {
+        return A.UTIL.NODE.deepCopy(block);
+    }
+
+    @Benchmark
+    public BlockStatement deepCopyWithoutPositions() {
+        return A.UTIL.NODE.deepCopy(block, false, false);
+    }
+
+    @Benchmark
+    public BlockStatement parse() {
+        final List<ASTNode> nodes = new AstBuilder().buildFromString(CompilePhase.CONVERSION, code);
+
+        return (BlockStatement) nodes.get(0);
+    }
+
+    @Benchmark
+    public BlockStatement blockSFromString() {
+        return Statements.blockSFromString(code);
+    }
+
+    private BlockStatement build() {
+        final BlockStatement result = Statements.blockS();
+
+        for (int i = 0; i < statements; i++) {
+            result.addStatement(
+                Statements.ifS(Expressions.boolX(Expressions.varX("a"), Types.COMPARE_GREATER_THAN, Expressions.constX(i)),
+                               Statements.blockS(Statements.stmt(
+                                   Expressions.callThisX("println", Expressions.binX(Expressions.varX("a"), Types.PLUS, Expressions.constX(i)))))));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package asteroid.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import groovy.lang.Closure;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.Criterias;
+import asteroid.Modifiers;
+import asteroid.criteria.Criteria;
+
+/**
+ * Measures how long it takes to evaluate {@link Criterias}, on their
+ * own and composed with {@link Criterias#and(Closure[])} and {@link
+ * Criterias#or(Closure[])}, both as closures and as {@link Criteria}
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CriteriasBenchmark {
+
+    private MethodNode methodNode;
+
+    private Closure<Boolean> single;
+    private Closure<Boolean> and;
+    private Closure<Boolean> or;
+
+    private Criteria<MethodNode> singleCriteria;
+    private Criteria<MethodNode> andCriteria;
+    private Criteria<MethodNode> orCriteria;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        methodNode = new MethodNode("findByName",
+                                    Modifiers.ACC_PUBLIC,
+                                    ClassHelper.OBJECT_TYPE,
+                                    Parameter.EMPTY_ARRAY,
+                                    ClassNode.EMPTY_ARRAY,
+                                    null);
+        methodNode.addAnnotation(new AnnotationNode(ClassHelper.make(Deprecated.class)));
+
+        single = Criterias.byMethodNodeName("findByName");
+        and = Criterias.and(Criterias.byAnnotation(Deprecated.class),
+                            Criterias.byMethodNodeNameStartsWith("find"),
+                            Criterias.byMethodNodeNameEndsWith("Name"));
+        or = Criterias.or(Criterias.byMethodNodeName("save"),
+                          Criterias.byMethodNodeName("delete"),
+                          Criterias.byMethodNodeName("findByName"));
+
+        singleCriteria = Criteria.from(single);
+        andCriteria = Criteria.from(and);
+        orCriteria = Criteria.from(or);
+    }
+
+    @Benchmark
+    public Boolean singleClosure() {
+        return single.call(methodNode);
+    }
+
+    @Benchmark
+    public Boolean andClosure() {
+        return and.call(methodNode);
+    }
+
+    @Benchmark
+    public Boolean orClosure() {
+        return or.call(methodNode);
+    }
+
+    @Benchmark
+    public boolean singleCriteria() {
+        return singleCriteria.matches(methodNode);
+    }
+
+    @Benchmark
+    public boolean andCriteria() {
+        return andCriteria.matches(methodNode);
+    }
+
+    @Benchmark
+    public boolean orCriteria() {
+        return orCriteria.matches(methodNode);
+    }
+}
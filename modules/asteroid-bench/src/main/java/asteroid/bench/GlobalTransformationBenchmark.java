@@ -0,0 +1,130 @@
+package asteroid.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.control.SourceUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.AbstractGlobalTransformation;
+import asteroid.Criterias;
+import asteroid.Expressions;
+import asteroid.Statements;
+import asteroid.Utils;
+import asteroid.criteria.Criteria;
+import asteroid.transformer.AbstractExpressionTransformer;
+import asteroid.transformer.AbstractMethodNodeTransformer;
+import asteroid.transformer.Transformer;
+
+/**
+ * Measures how long it takes to apply an {@link
+ * AbstractGlobalTransformation} to source units of different sizes.
+ * Parsing the source unit is not measured.
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GlobalTransformationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int classes;
+
+    @Param({"true", "false"})
+    private boolean fused;
+
+    private String code;
+    private SourceUnit sourceUnit;
+
+    @Setup(Level.Trial)
+    public void createCode() {
+        code = Sources.classes(classes);
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        sourceUnit = Sources.compile(code);
+    }
+
+    @Benchmark
+    public SourceUnit transform() {
+        new SampleTransformation(fused).visit(new ASTNode[] { sourceUnit.getAST() }, sourceUnit);
+
+        return sourceUnit;
+    }
+
+    /**
+     * Transformation applying a method transformer and an expression
+     * transformer
+     */
+    public static class SampleTransformation extends AbstractGlobalTransformation {
+
+        private final boolean fused;
+
+        public SampleTransformation(final boolean fused) {
+            this.fused = fused;
+        }
+
+        @Override
+        public List<Class<? extends Transformer>> getTransformers() {
+            return Arrays.<Class<? extends Transformer>>asList(AddStatement.class, XxxToOne.class);
+        }
+
+        @Override
+        protected boolean isFusedTraversal() {
+            return fused;
+        }
+    }
+
+    /**
+     * Adds a statement to every deprecated method
+     */
+    public static class AddStatement extends AbstractMethodNodeTransformer {
+
+        public AddStatement(final SourceUnit sourceUnit) {
+            super(sourceUnit, Criteria.<MethodNode>from(Criterias.byAnnotation(Deprecated.class)));
+        }
+
+        @Override
+        public void transformMethod(final MethodNode methodNode) {
+            Utils.NODE
+                .getCodeBlock(methodNode)
+                .addStatement(Statements.stmt(Expressions.callX(Expressions.varX("this"), "xxx")));
+        }
+    }
+
+    /**
+     * Replaces every call to xxx() by a constant
+     */
+    public static class XxxToOne extends AbstractExpressionTransformer<MethodCallExpression> {
+
+        public XxxToOne(final SourceUnit sourceUnit) {
+            super(MethodCallExpression.class, sourceUnit, Criterias.byExprMethodCallByName("xxx"));
+        }
+
+        @Override
+        public Expression transformExpression(final MethodCallExpression expression) {
+            return Expressions.constX(1);
+        }
+    }
+}
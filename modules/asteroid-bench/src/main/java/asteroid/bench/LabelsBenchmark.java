@@ -0,0 +1,97 @@
+package asteroid.bench;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.Expressions;
+import asteroid.Statements;
+import asteroid.Utils;
+import asteroid.utils.StatementUtils.Group;
+import asteroid.utils.StatementUtils.Label;
+import asteroid.utils.StatementUtils.LabelHandler;
+import groovy.lang.Closure;
+
+/**
+ * Measures how long it takes to group the statements of a block by
+ * their labels using {@link asteroid.utils.StatementUtils#groupStatementsByLabel(BlockStatement)},
+ * and to transform the statements of a label grouping them first or
+ * using {@link asteroid.utils.StatementUtils#rewriteByLabel(BlockStatement, Map)}
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LabelsBenchmark {
+
+    private static final String[] LABELS = {"given", "when", "then"};
+
+    private static final Map<String, Closure<Statement>> MAPPINGS =
+        Collections.<String, Closure<Statement>>singletonMap("then", new Closure<Statement>(null) {
+            public Statement doCall(final Group group, final Statement stmt) {
+                return stmt;
+            }
+        });
+
+    private static final Map<String, LabelHandler> HANDLERS =
+        Collections.<String, LabelHandler>singletonMap("then", new LabelHandler() {
+            @Override
+            public Statement handle(final Label label, final Statement stmt) {
+                return stmt;
+            }
+        });
+
+    @Param({"10", "100"})
+    private int statements;
+
+    private BlockStatement block;
+
+    @Setup
+    public void setup() {
+        block = Statements.blockS();
+
+        for (int i = 0; i < statements; i++) {
+            final Statement statement = Statements.stmt(Expressions.callX(Expressions.varX("this"), "println", Expressions.constX(i)));
+
+            if (i % 3 == 0) {
+                statement.addStatementLabel(LABELS[i / 3 % LABELS.length]);
+            }
+
+            block.addStatement(statement);
+        }
+    }
+
+    @Benchmark
+    public List<Group> groupStatementsByLabel() {
+        return Utils.STMT.groupStatementsByLabel(block);
+    }
+
+    @Benchmark
+    public List<Statement> groupAndApply() {
+        return Utils.STMT.applyToStatementsByLabelFlatten(Utils.STMT.groupStatementsByLabel(block), MAPPINGS);
+    }
+
+    @Benchmark
+    public BlockStatement rewriteByLabel() {
+        return Utils.STMT.rewriteByLabel(block, HANDLERS);
+    }
+}
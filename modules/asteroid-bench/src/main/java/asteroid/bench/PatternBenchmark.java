@@ -0,0 +1,122 @@
+package asteroid.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.Expressions;
+import asteroid.Patterns;
+import asteroid.criteria.Criteria;
+import asteroid.pattern.Pattern;
+import asteroid.pattern.PatternSet;
+
+/**
+ * Measures how long it takes to check a list of expressions against
+ * many method call patterns, compiled together in a {@link
+ * PatternSet} or as criterias combined with {@link
+ * Criteria#anyOf(Criteria[])} that build the list of argument types of
+ * every call they check
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PatternBenchmark {
+
+    private static final String[] METHODS = {"equals", "add", "remove", "put", "get", "contains", "save", "delete"};
+
+    @Param({"2", "8"})
+    private int patterns;
+
+    private List<Expression> expressions;
+    private PatternSet patternSet;
+    private Criteria<Expression> criterias;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        final Pattern[] compiled = new Pattern[patterns];
+        final Criteria<Expression>[] combined = new Criteria[patterns];
+
+        for (int i = 0; i < patterns; i++) {
+            compiled[i] = Patterns.call(Patterns.any(), METHODS[i], Patterns.typed(String.class));
+            combined[i] = byNameAndArgs(METHODS[i], String.class.getName());
+        }
+
+        patternSet = Patterns.compile(compiled);
+        criterias = Criteria.anyOf(combined);
+        expressions = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            expressions.add(Expressions.callX(Expressions.varX("list"), METHODS[i % METHODS.length], Expressions.constX(i % 2 == 0 ? "item" : i)));
+            expressions.add(Expressions.varX("item" + i));
+        }
+    }
+
+    @Benchmark
+    public int patternSet() {
+        int found = 0;
+
+        for (final Expression expression : expressions) {
+            if (patternSet.matches(expression)) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+    @Benchmark
+    public int combinedCriterias() {
+        int found = 0;
+
+        for (final Expression expression : expressions) {
+            if (criterias.matches(expression)) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+    /*
+     * The way method calls were checked by argument types before
+     * patterns: building the list of argument type names every time
+     */
+    private static Criteria<Expression> byNameAndArgs(final String name, final String... argTypes) {
+        return (final Expression expression) -> {
+            if (!(expression instanceof MethodCallExpression)) {
+                return false;
+            }
+
+            final MethodCallExpression call = (MethodCallExpression) expression;
+            final List<String> types = new ArrayList<>();
+
+            for (final Expression arg : ((ArgumentListExpression) call.getArguments()).getExpressions()) {
+                types.add(arg.getType().getName());
+            }
+
+            return name.equals(call.getMethodAsString()) && types.equals(Arrays.asList(argTypes));
+        };
+    }
+}
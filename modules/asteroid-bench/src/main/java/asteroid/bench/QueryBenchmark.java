@@ -0,0 +1,118 @@
+package asteroid.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassCodeVisitorSupport;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.control.SourceUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroid.A;
+
+/**
+ * Measures how long it takes to find nodes with {@link A#QUERY}
+ * selectors compared to the visitors written by hand to find the same
+ * nodes
+ *
+ * @since 0.6.0
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+
+    private static final String DEPRECATED = "method[@Deprecated]";
+    private static final String PRINTLN = "method[name=foo] call[method=println]";
+
+    @Param({"10", "100"})
+    private int classes;
+
+    private SourceUnit sourceUnit;
+    private ModuleNode moduleNode;
+
+    @Setup
+    public void setup() {
+        sourceUnit = Sources.compile(Sources.classes(classes));
+        moduleNode = sourceUnit.getAST();
+    }
+
+    @Benchmark
+    public List<MethodNode> deprecatedQuery() {
+        return A.QUERY.findAll(moduleNode, DEPRECATED);
+    }
+
+    @Benchmark
+    public List<MethodNode> deprecatedVisitor() {
+        final List<MethodNode> found = new ArrayList<>();
+
+        for (final ClassNode classNode : moduleNode.getClasses()) {
+            for (final MethodNode methodNode : classNode.getMethods()) {
+                for (final AnnotationNode annotationNode : methodNode.getAnnotations()) {
+                    if ("Deprecated".equals(annotationNode.getClassNode().getNameWithoutPackage())) {
+                        found.add(methodNode);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    @Benchmark
+    public List<MethodCallExpression> printlnQuery() {
+        return A.QUERY.findAll(moduleNode, PRINTLN);
+    }
+
+    @Benchmark
+    public List<MethodCallExpression> printlnVisitor() {
+        final List<MethodCallExpression> found = new ArrayList<>();
+        final ClassCodeVisitorSupport visitor = new ClassCodeVisitorSupport() {
+            @Override
+            protected SourceUnit getSourceUnit() {
+                return sourceUnit;
+            }
+
+            @Override
+            public void visitMethod(final MethodNode node) {
+                if ("foo".equals(node.getName())) {
+                    super.visitMethod(node);
+                }
+            }
+
+            @Override
+            public void visitMethodCallExpression(final MethodCallExpression call) {
+                if ("println".equals(call.getMethodAsString())) {
+                    found.add(call);
+                }
+
+                super.visitMethodCallExpression(call);
+            }
+        };
+
+        for (final ClassNode classNode : moduleNode.getClasses()) {
+            visitor.visitClass(classNode);
+        }
+
+        return found;
+    }
+}
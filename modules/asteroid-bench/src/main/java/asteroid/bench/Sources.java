@@ -0,0 +1,59 @@
+package asteroid.bench;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+
+/**
+ * Creates synthetic source units used by benchmarks
+ *
+ * @since 0.6.0
+ */
+final class Sources {
+
+    private Sources() {
+        // utility class
+    }
+
+    /**
+     * Returns the code of a source unit with the number of classes
+     * passed as parameter. Every class has a few annotated methods
+     * with method calls, binary expressions and labelled statements.
+     *
+     * @param classes number of classes
+     * @return the source code
+     * @since 0.6.0
+     */
+    static String classes(final int classes) {
+        final StringBuilder builder = new StringBuilder(classes * 256);
+
+        for (int i = 0; i < classes; i++) {
+            builder
+                .append("class Sample").append(i).append(" {\n")
+                .append("    def field = xxx()\n")
+                .append("    @Deprecated def foo() { println(xxx() + ").append(i).append(") }\n")
+                .append("    def bar(int a) { if (a > 1) { return a * 2 }; [1, 2].collect { it + a } }\n")
+                .append("    def baz() { given: def a = 1\n when: def b = a + 1\n then: assert b == 2 }\n")
+                .append("}\n");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Parses the code passed as parameter until the {@link
+     * Phases#CONVERSION} phase
+     *
+     * @param code the source code
+     * @return the resulting source unit
+     * @since 0.6.0
+     */
+    static SourceUnit compile(final String code) {
+        final CompilationUnit unit = new CompilationUnit();
+
+        unit.addSource("Sample.groovy", code);
+        unit.compile(Phases.CONVERSION);
+
+        return unit.iterator().next();
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * JMH benchmarks measuring the hot paths of asteroid: node builders,
+ * criterias, global transformations and statement utilities. Run them
+ * with <code>./gradlew :asteroid-bench:jmh</code>
+ *
+ * @since 0.6.0
+ */
+package asteroid.bench;
@@ -28,13 +28,13 @@ class ToMD5Impl extends AbstractLocalTransformation<ToMD5, FieldNode> { // <2>
     }
 
     private BlockStatement buildMethodCode(final String name) {
-        A.STMT.blockSFromString """
+        A.STMT.blockSFromTemplate('''
             return java.security.MessageDigest
                 .getInstance('MD5')
-                .digest(${name}.getBytes())
+                .digest($field.getBytes())
                 .encodeHex()
                 .toString()
-        """
+        ''', [field: A.EXPR.varX(name)])
     }
 
 }
@@ -0,0 +1,74 @@
+package asteroid
+
+import org.codehaus.groovy.ast.expr.DeclarationExpression
+import org.codehaus.groovy.ast.expr.VariableExpression
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import spock.lang.Specification
+
+import static asteroid.Expressions.varX
+import static asteroid.Statements.blockSFromString
+import static asteroid.Statements.blockSFromTemplate
+
+/**
+ * Checks code blocks created from strings and templates
+ *
+ * @since 0.6.0
+ */
+class StatementsTemplateSpec extends Specification {
+
+    static final String TEMPLATE = '''
+        return java.security.MessageDigest
+            .getInstance('MD5')
+            .digest($field.getBytes())
+            .encodeHex()
+            .toString()
+    '''
+
+    void 'blockSFromString: every call returns a new copy'() {
+        when: 'creating the same block twice'
+        BlockStatement first = blockSFromString('def a = 1; a + 1')
+        BlockStatement second = blockSFromString('def a = 1; a + 1')
+
+        then: 'both should be equivalent but different instances'
+        first.text == second.text
+        !first.is(second)
+        !first.statements.first().is(second.statements.first())
+    }
+
+    void 'blockSFromString: copied variables reference copied declarations'() {
+        when: 'creating a block declaring and using a variable'
+        BlockStatement block = blockSFromString('def a = 1; return a')
+
+        then: 'the returned variable should point to the declaration of the copy'
+        DeclarationExpression declaration = block.statements[0].expression
+        VariableExpression returned = block.statements[1].expression
+
+        returned.accessedVariable.is(declaration.leftExpression)
+    }
+
+    void 'blockSFromTemplate: replaces variable placeholders'() {
+        when: 'creating blocks from the same template'
+        BlockStatement name = blockSFromTemplate(TEMPLATE, [field: varX('name')])
+        BlockStatement other = blockSFromTemplate(TEMPLATE, [field: varX('other')])
+
+        then: 'each block should use its own value'
+        name.text == blockSFromString(TEMPLATE.replace('$field', 'name')).text
+        other.text.contains('other.getBytes()')
+    }
+
+    void 'blockSFromTemplate: replaces method and property placeholders'() {
+        when: 'using placeholders as names'
+        BlockStatement block = blockSFromTemplate('x.$method().$property', [method: 'foo', property: 'bar'])
+
+        then: 'names should have been replaced'
+        block.text.contains('x.foo().bar')
+    }
+
+    void 'blockSFromTemplate: non expression values are constants'() {
+        when: 'using a number as value'
+        BlockStatement block = blockSFromTemplate('return $value + 1', [value: 41])
+
+        then: 'the value should be a constant'
+        block.text.contains('(41 + 1)')
+    }
+}
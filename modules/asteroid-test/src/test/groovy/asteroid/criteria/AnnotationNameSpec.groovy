@@ -0,0 +1,76 @@
+package asteroid.criteria
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+
+/**
+ * Checks annotation criterias comparing names instead of types
+ *
+ * @since 0.6.0
+ */
+class AnnotationNameSpec extends Specification {
+
+    void 'byAnnotationName: matches before types are resolved'() {
+        given: 'a class in CONVERSION'
+        ClassNode classNode = classNodeFrom(source)
+
+        expect:
+        A.CRITERIA.byAnnotationName('groovy.transform.ToString')(classNode) == matches
+
+        where:
+        source                                                            | matches
+        'import groovy.transform.ToString\n@ToString class A { }'         | true
+        '@groovy.transform.ToString class A { }'                          | true
+        'import groovy.transform.*\n@ToString class A { }'                | true
+        'import groovy.transform.ToString as TS\n@TS class A { }'         | true
+        'package groovy.transform\n@ToString class A { }'                 | true
+        '@ToString class A { }'                                           | false
+        'import other.ToString\n@ToString class A { }'                    | false
+        'import other.*\n@ToString class A { }'                           | false
+        '@other.ToString class A { }'                                     | false
+        'import groovy.transform.ToString\n@Canonical class A { }'        | false
+    }
+
+    void 'byAnnotationName: annotations are never loaded'() {
+        given: 'a class annotated with an annotation not in the classpath'
+        ClassNode classNode = classNodeFrom('import x.y.Missing\n@Missing class A { }')
+
+        expect: 'to be able to check it'
+        A.CRITERIA.byAnnotationName('x.y.Missing')(classNode)
+        !A.CRITERIA.byAnnotationName('x.z.Missing')(classNode)
+    }
+
+    void 'byAnnotationName: qualified name is kept in the annotation type'() {
+        given: 'a class annotated using an import'
+        ClassNode classNode = classNodeFrom('import groovy.transform.ToString\n@ToString class A { }')
+
+        when: 'checking the criteria'
+        A.CRITERIA.byAnnotationName('groovy.transform.ToString')(classNode)
+
+        and: 'removing the import'
+        classNode.module.imports.clear()
+
+        then: 'the qualified name found the first time is still used'
+        A.UTIL.NODE.getQualifiedName(classNode.annotations.first(), classNode.module) == 'groovy.transform.ToString'
+    }
+
+    void 'byAnnotation: can be used in CONVERSION'() {
+        given: 'a method annotated with a default import annotation'
+        ClassNode classNode = classNodeFrom('class A { @Deprecated def foo() { } }')
+
+        expect:
+        A.CRITERIA.byAnnotation(Deprecated)(classNode.getMethods('foo').first())
+        !A.CRITERIA.byAnnotation(Override)(classNode.getMethods('foo').first())
+    }
+
+    private ClassNode classNodeFrom(String source) {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('A.groovy', source)
+        unit.compile(Phases.CONVERSION)
+
+        return unit.iterator().next().AST.classes.first()
+    }
+}
@@ -0,0 +1,196 @@
+package asteroid.criteria
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import asteroid.transformer.AbstractExpressionTransformer
+import asteroid.transformer.AbstractMethodNodeTransformer
+import asteroid.transformer.Transformer
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.AnnotationNode
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.Parameter
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.ast.stmt.EmptyStatement
+import org.codehaus.groovy.ast.stmt.ExpressionStatement
+import org.codehaus.groovy.ast.stmt.ReturnStatement
+import org.codehaus.groovy.ast.stmt.Statement
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks how criterias are indexed to avoid checking criterias that
+ * can't match a given node
+ *
+ * @since 0.6.0
+ */
+class CriteriaIndexSpec extends Specification {
+
+    void 'index: method names'() {
+        given: 'an index of different method name criterias'
+        CriteriaIndex<MethodNode> index = CriteriaIndex.of([
+            Criteria.from(A.CRITERIA.byMethodNodeName('save')),
+            Criteria.from(A.CRITERIA.byMethodNodeName('find')),
+            new NameCriteria<MethodNode>(NameCriteria.Target.METHOD_NODE, NameCriteria.Mode.STARTS_WITH, 'find'),
+            new NameCriteria<MethodNode>(NameCriteria.Target.METHOD_NODE, NameCriteria.Mode.ENDS_WITH, 'Name'),
+        ])
+
+        expect: 'only matching criterias to be candidates'
+        index.selective
+        index.candidates(method(name)).stream().toArray() as List == expected
+
+        where:
+        name         | expected
+        'save'       | [0]
+        'find'       | [1, 2]
+        'findByName' | [2, 3]
+        'lastName'   | [3]
+        'delete'     | []
+    }
+
+    void 'index: annotations'() {
+        given: 'an index of annotation criterias'
+        CriteriaIndex<MethodNode> index = CriteriaIndex.of([
+            Criteria.from(A.CRITERIA.byAnnotationSimpleName('Before')),
+            Criteria.from(A.CRITERIA.byAnnotationSimpleName('After')),
+        ])
+
+        and: 'an annotated method'
+        MethodNode methodNode = method('setup')
+        methodNode.addAnnotation(new AnnotationNode(ClassHelper.make('junit.Before')))
+
+        expect: 'only the annotation criteria to be a candidate'
+        index.candidates(methodNode).stream().toArray() as List == [0]
+        index.candidates(method('setup')).empty
+    }
+
+    void 'index: statement types'() {
+        given: 'an index of statement type criterias'
+        CriteriaIndex<Statement> index = CriteriaIndex.of([
+            Criteria.from(A.CRITERIA.byStmtByType(ExpressionStatement)),
+            Criteria.from(A.CRITERIA.byStmtByType(ReturnStatement)),
+        ])
+
+        expect: 'only the criteria of the statement type to be a candidate'
+        index.candidates(new ReturnStatement(A.EXPR.constX(1))).stream().toArray() as List == [1]
+        index.candidates(new EmptyStatement()).empty
+    }
+
+    void 'index: combinators'() {
+        given: 'an index of combined criterias'
+        CriteriaIndex<MethodNode> index = CriteriaIndex.of([
+            Criteria.from(A.CRITERIA.and(A.CRITERIA.byMethodNodeName('save'), { MethodNode node -> node.public })),
+            Criteria.from(A.CRITERIA.or(A.CRITERIA.byMethodNodeName('find'), A.CRITERIA.byMethodNodeName('list'))),
+        ])
+
+        expect: 'and to be indexed by its indexable part'
+        index.candidates(method('save')).stream().toArray() as List == [0]
+
+        and: 'or to be indexed by all its parts'
+        index.candidates(method('find')).stream().toArray() as List == [1]
+        index.candidates(method('list')).stream().toArray() as List == [1]
+        index.candidates(method('delete')).empty
+    }
+
+    void 'index: criterias that always have to be checked'() {
+        given: 'criterias that can not be indexed'
+        CriteriaIndex<MethodNode> index = CriteriaIndex.of([
+            Criteria.from(A.CRITERIA.byMethodNodeNameContains('ave')),
+            Criteria.from({ MethodNode node -> node.name == 'save' }),
+            Criteria.from(A.CRITERIA.byMethodNodeName('find')).negate(),
+        ])
+
+        expect: 'all of them to be candidates for any node'
+        !index.selective
+        index.candidates(method('delete')).stream().toArray() as List == [0, 1, 2]
+    }
+
+    void 'global: indexed criterias give the same result'() {
+        given: 'the same source transformed with and without fusing'
+        SampleTransformation fused = new SampleTransformation(fused: true)
+        SampleTransformation legacy = new SampleTransformation(fused: false)
+
+        when: 'applying both transformations'
+        ClassNode fusedNode = transform(fused)
+        ClassNode legacyNode = transform(legacy)
+
+        then: 'both should give the same code'
+        ['foo', 'bar', 'baz'].every { String name ->
+            fusedNode.getMethods(name).first().code.text == legacyNode.getMethods(name).first().code.text
+        }
+
+        and: 'the fused transformation should have skipped some checks'
+        fused.savedCriteriaChecks > 0
+        legacy.savedCriteriaChecks == 0
+    }
+
+    private static MethodNode method(String name) {
+        return new MethodNode(name, A.ACC.ACC_PUBLIC, ClassHelper.OBJECT_TYPE, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, null)
+    }
+
+    private ClassNode transform(SampleTransformation transformation) {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', '''
+            class Sample {
+                def foo() { println(xxx()) }
+                def bar() { 4.plus(xxx()) }
+                def baz() { [1, 2].collect { it.plus(1) } }
+            }
+        ''')
+        unit.compile(Phases.CONVERSION)
+
+        SourceUnit sourceUnit = unit.iterator().next()
+        transformation.visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        return sourceUnit.AST.classes.first()
+    }
+
+    static class SampleTransformation extends AbstractGlobalTransformation {
+        boolean fused
+
+        @Override
+        List<Class<? extends Transformer>> getTransformers() {
+            return [XxxToPlus, PlusToMinus, Noop]
+        }
+
+        @Override
+        protected boolean isFusedTraversal() {
+            return fused
+        }
+    }
+
+    static class XxxToPlus extends AbstractExpressionTransformer<MethodCallExpression> {
+        XxxToPlus(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('xxx'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callX(A.EXPR.constX(1), 'plus', A.EXPR.constX(2))
+        }
+    }
+
+    static class PlusToMinus extends AbstractExpressionTransformer<MethodCallExpression> {
+        PlusToMinus(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('plus'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callX(expression.objectExpression, 'minus', expression.arguments)
+        }
+    }
+
+    static class Noop extends AbstractMethodNodeTransformer {
+        Noop(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.byMethodNodeName('none'))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) { }
+    }
+}
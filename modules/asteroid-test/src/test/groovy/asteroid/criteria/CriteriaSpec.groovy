@@ -0,0 +1,77 @@
+package asteroid.criteria
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.Parameter
+
+/**
+ * Checks typed criterias and their compatibility with closure criterias
+ *
+ * @since 0.6.0
+ */
+class CriteriaSpec extends Specification {
+
+    void 'criterias: closures returned by Criterias are typed criterias'() {
+        when: 'unwrapping a criteria from Criterias'
+        Criteria<MethodNode> criteria = Criteria.from(A.CRITERIA.byMethodNodeName('save'))
+
+        then: 'it should be the wrapped criteria, not a closure adapter'
+        !(criteria instanceof ClosureCriteria)
+        criteria.matches(method('save'))
+        !criteria.matches(method('find'))
+    }
+
+    void 'criterias: still usable as closures'() {
+        given: 'a list of methods'
+        List<MethodNode> methods = [method('findByName'), method('findAll'), method('save')]
+
+        expect: 'to be able to filter them'
+        methods.findAll(A.CRITERIA.and(A.CRITERIA.byMethodNodeNameStartsWith('find'),
+                                       A.CRITERIA.byMethodNodeNameContains('By')))*.name == ['findByName']
+        methods.findAll(A.CRITERIA.or(A.CRITERIA.byMethodNodeName('save'),
+                                      { MethodNode node -> node.name == 'findAll' }))*.name == ['findAll', 'save']
+    }
+
+    void 'combinators: short circuit'() {
+        given: 'a criteria counting calls'
+        int calls = 0
+        Criteria<MethodNode> counter = { MethodNode node -> calls++; true } as Criteria
+
+        and: 'two simple criterias'
+        Criteria<MethodNode> yes = { MethodNode node -> true } as Criteria
+        Criteria<MethodNode> no  = { MethodNode node -> false } as Criteria
+
+        when: 'combining them'
+        boolean andResult = no.and(counter).matches(method('save'))
+        boolean orResult  = yes.or(counter).matches(method('save'))
+
+        then: 'the counter criteria should never be called'
+        !andResult
+        orResult
+        calls == 0
+
+        and: 'negate should return the opposite'
+        no.negate().matches(method('save'))
+        no.negate().negate().is(no)
+    }
+
+    void 'adapters: closures are evaluated using Groovy truth'() {
+        given: 'a closure not returning a boolean'
+        Criteria<MethodNode> criteria = Criteria.from({ MethodNode node -> node.name.findAll('a') })
+
+        expect:
+        criteria.matches(method('save'))
+        !criteria.matches(method('find'))
+
+        and: 'a criteria can be turned back into a closure'
+        criteria.asClosure().call(method('save'))
+        Criteria.from(criteria.asClosure()).is(criteria)
+    }
+
+    private static MethodNode method(String name) {
+        return new MethodNode(name, A.ACC.ACC_PUBLIC, ClassHelper.OBJECT_TYPE, Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, null)
+    }
+}
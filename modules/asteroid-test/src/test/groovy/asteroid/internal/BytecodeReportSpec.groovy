@@ -0,0 +1,96 @@
+package asteroid.internal
+
+import asteroid.global.samples.ChangeMethodsTransformation
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks the reports written by {@link BytecodeReport}
+ *
+ * @since 0.6.0
+ */
+class BytecodeReportSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def execute() { return xxx() + 1 }
+            def untouched() { return 2 }
+        }
+    '''
+
+    void 'bytecode report: no report unless enabled'() {
+        given: 'a target directory'
+        File directory = File.createTempDir()
+
+        when: 'compiling without the report'
+        compile(new CompilerConfiguration(targetDirectory: directory))
+
+        then: 'no report should have been written'
+        !new File(directory, BytecodeReport.DEFAULT_REPORT).exists()
+    }
+
+    void 'bytecode report: touched methods are reported as JSON'() {
+        given: 'a configuration with the report enabled'
+        File directory = File.createTempDir()
+        CompilerConfiguration configuration = new CompilerConfiguration(targetDirectory: directory)
+        configuration.optimizationOptions.put(BytecodeReport.PROPERTY, true)
+
+        when: 'compiling'
+        compile(configuration)
+
+        then: 'the report should be written in the target directory'
+        File report = new File(directory, BytecodeReport.DEFAULT_REPORT)
+        report.exists()
+
+        and: 'it should only contain the transformed method'
+        def json = new JsonSlurper().parse(report)
+        json.freqInlineSize == 325
+        json.methods*.method == ['execute']
+        json.methods[0].class == 'Sample'
+        json.methods[0].descriptor == '()Ljava/lang/Object;'
+        json.methods[0].origin == 'touched'
+        json.methods[0].bytecodeLength > 0
+        json.methods[0].maxStack > 0
+        json.methods[0].maxLocals > 0
+        !json.methods[0].overFreqInlineSize
+        !json.methods[0].overHugeMethodLimit
+    }
+
+    void 'bytecode report: csv report path from system property'() {
+        given: 'a custom report path'
+        File directory = File.createTempDir()
+        File report = new File(directory, 'reports/bytecode.csv')
+        System.setProperty(BytecodeReport.PROPERTY, report.path)
+
+        when: 'compiling'
+        compile(new CompilerConfiguration(targetDirectory: directory))
+
+        then: 'the report should be written as csv'
+        List<String> lines = report.readLines()
+        lines.size() == 2
+        lines[0].startsWith('class,method,descriptor,origin,bytecodeLength')
+        lines[1].startsWith('Sample,execute,"()Ljava/lang/Object;",touched,')
+
+        cleanup:
+        System.clearProperty(BytecodeReport.PROPERTY)
+    }
+
+    private static void compile(CompilerConfiguration configuration) {
+        CompilationUnit unit = new CompilationUnit(configuration)
+        ChangeMethodsTransformation transformation = new ChangeMethodsTransformation()
+
+        transformation.compilationUnit = unit
+        unit.addPhaseOperation(new CompilationUnit.SourceUnitOperation() {
+            @Override
+            void call(SourceUnit source) {
+                transformation.visit(null, source)
+            }
+        }, Phases.CANONICALIZATION)
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile()
+    }
+}
@@ -0,0 +1,158 @@
+package asteroid.internal
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import asteroid.transformer.AbstractExpressionTransformer
+import asteroid.transformer.AbstractMethodNodeTransformer
+import asteroid.transformer.Transformer
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.expr.BinaryExpression
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+import org.codehaus.groovy.syntax.Types
+
+/**
+ * Checks how expression summaries are used to skip methods
+ *
+ * @since 0.6.0
+ */
+class ExpressionSummarySpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def foo() { 1 + 2 }
+            def bar() { println('bar') }
+            def baz() { [1, 2].collect { it * 2 } }
+        }
+    '''
+
+    void 'summary: only when enabled'() {
+        given: 'a class node'
+        ClassNode classNode = compile(SOURCE).AST.classes.first()
+        MethodNode bar = classNode.getMethods('bar').first()
+
+        expect: 'every method may contain anything when not enabled'
+        ExpressionSummary.mayContain(bar, BinaryExpression)
+
+        when: 'enabling summaries'
+        ExpressionSummary.enable(classNode)
+
+        then: 'only methods with the expression type may contain it'
+        ExpressionSummary.mayContain(classNode.getMethods('foo').first(), BinaryExpression)
+        ExpressionSummary.mayContain(classNode.getMethods('baz').first(), BinaryExpression)
+        !ExpressionSummary.mayContain(bar, BinaryExpression)
+        ExpressionSummary.mayContain(bar, MethodCallExpression)
+
+        and: 'types that can not be summarized are always expected'
+        ExpressionSummary.mayContain(bar, Expression)
+
+        when: 'disabling summaries'
+        ExpressionSummary.disable(classNode)
+
+        then: 'every method may contain anything again'
+        ExpressionSummary.mayContain(bar, BinaryExpression)
+    }
+
+    void 'global: methods without the expression type are skipped'() {
+        given: 'a source unit'
+        SourceUnit direct = compile(SOURCE)
+        SourceUnit global = compile(SOURCE)
+
+        and: 'a transformer counting how many expressions it visits'
+        CountingPlusToMinus directTransformer = new CountingPlusToMinus(direct)
+
+        when: 'applying the transformer directly and through a global transformation'
+        directTransformer.visitClass(direct.AST.classes.first())
+
+        SampleTransformation transformation = new SampleTransformation(transformers: [CountingPlusToMinus])
+        transformation.visit([global.AST] as ASTNode[], global)
+
+        then: 'the global transformation should have visited less expressions'
+        CountingPlusToMinus.lastVisited < directTransformer.visited
+
+        and: 'both should give the same result'
+        ['foo', 'bar', 'baz'].every { String name -> codeOf(direct, name) == codeOf(global, name) }
+        codeOf(global, 'foo').contains('1 - 2')
+    }
+
+    void 'global: methods changed by other transformers are visited again'() {
+        given: 'a source unit'
+        SourceUnit sourceUnit = compile(SOURCE)
+
+        when: 'adding a binary expression to a method that did not have any'
+        new SampleTransformation(fused: fused, transformers: [PlusToMinus, AddSum, PlusToMinus])
+            .visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'the new binary expression should have been transformed'
+        codeOf(sourceUnit, 'bar').contains('3 - 4')
+
+        where:
+        fused << [true, false]
+    }
+
+    private static SourceUnit compile(String source) {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', source)
+        unit.compile(Phases.CONVERSION)
+
+        return unit.iterator().next()
+    }
+
+    private static String codeOf(SourceUnit sourceUnit, String method) {
+        return sourceUnit.AST.classes.first().getMethods(method).first().code.text
+    }
+
+    static class SampleTransformation extends AbstractGlobalTransformation {
+        boolean fused = false
+        List<Class<? extends Transformer>> transformers
+
+        @Override
+        protected boolean isFusedTraversal() {
+            return fused
+        }
+    }
+
+    static class PlusToMinus extends AbstractExpressionTransformer<BinaryExpression> {
+        PlusToMinus(SourceUnit sourceUnit) {
+            super(BinaryExpression, sourceUnit, { BinaryExpression expr -> expr.operation.text == '+' })
+        }
+
+        @Override
+        Expression transformExpression(BinaryExpression expression) {
+            return A.EXPR.binX(expression.leftExpression, Types.MINUS, expression.rightExpression)
+        }
+    }
+
+    static class CountingPlusToMinus extends PlusToMinus {
+        static int lastVisited
+        int visited
+
+        CountingPlusToMinus(SourceUnit sourceUnit) {
+            super(sourceUnit)
+        }
+
+        @Override
+        Expression transform(Expression expression) {
+            lastVisited = ++visited
+            return super.transform(expression)
+        }
+    }
+
+    static class AddSum extends AbstractMethodNodeTransformer {
+        AddSum(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.byMethodNodeName('bar'))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            A.UTIL.NODE.getCodeBlock(methodNode)
+                .addStatement(A.STMT.stmt(A.EXPR.binX(A.EXPR.constX(3), Types.PLUS, A.EXPR.constX(4))))
+        }
+    }
+}
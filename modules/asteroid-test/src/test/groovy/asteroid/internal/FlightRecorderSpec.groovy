@@ -0,0 +1,87 @@
+package asteroid.internal
+
+import asteroid.global.samples.ChangeMethodsTransformation
+import java.nio.file.Files
+import java.nio.file.Path
+import spock.lang.Requires
+import spock.lang.Specification
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks the Java Flight Recorder events emitted through {@link
+ * FlightRecorder}. JFR classes are used dynamically so the spec
+ * compiles in JVMs without JFR.
+ *
+ * @since 0.6.0
+ */
+class FlightRecorderSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def execute() { return xxx() + 1 }
+        }
+    '''
+
+    void 'flight recorder: no events unless recording'() {
+        expect: 'events not to be enabled'
+        !FlightRecorder.isEnabled(FlightRecorder.Type.GLOBAL_TRANSFORMATION)
+        FlightRecorder.begin(FlightRecorder.Type.TRANSFORMER_VISIT) == null
+    }
+
+    @Requires({ FlightRecorderSpec.isAvailable() })
+    void 'flight recorder: global transformation events'() {
+        given: 'a recording of asteroid events'
+        def recording = Class.forName('jdk.jfr.Recording').newInstance()
+        FlightRecorder.Type.values().each { recording.enable(it.eventName) }
+        recording.start()
+
+        when: 'compiling with a global transformation'
+        compile()
+        recording.stop()
+
+        and: 'reading the recorded events'
+        Path file = Files.createTempFile('asteroid', '.jfr')
+        recording.dump(file)
+        List events = Class.forName('jdk.jfr.consumer.RecordingFile').readAllEvents(file)
+
+        then: 'there should be an event for the source unit'
+        def global = events.find { it.eventType.name == 'asteroid.GlobalTransformation' }
+        global.getString('transformation') == ChangeMethodsTransformation.name
+        global.getLong('nodesVisited') == 1
+
+        and: 'an event for the transformer visiting the class'
+        def visit = events.find { it.eventType.name == 'asteroid.TransformerVisit' }
+        visit.getString('className') == 'Sample'
+        visit.getString('sourceUnit') == 'Sample.groovy'
+        visit.getLong('nodesVisited') > 0
+        visit.getLong('nodesRewritten') == 1
+
+        cleanup:
+        recording?.close()
+    }
+
+    static boolean isAvailable() {
+        try {
+            Class.forName('jdk.jfr.EventFactory')
+            return true
+        } catch (ClassNotFoundException ignored) {
+            return false
+        }
+    }
+
+    private static void compile() {
+        CompilationUnit unit = new CompilationUnit()
+        ChangeMethodsTransformation transformation = new ChangeMethodsTransformation()
+
+        unit.addPhaseOperation(new CompilationUnit.SourceUnitOperation() {
+            @Override
+            void call(SourceUnit source) {
+                transformation.visit(null, source)
+            }
+        }, Phases.CANONICALIZATION)
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile(Phases.CANONICALIZATION)
+    }
+}
@@ -0,0 +1,54 @@
+package asteroid.internal
+
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks which source units are translated to global transformations
+ *
+ * @since 0.6.0
+ */
+class GlobalTransformationTransformationSpec extends Specification {
+
+    void 'accepts: source units with classes annotated with @Phase'() {
+        expect:
+        new GlobalTransformationTransformation().accepts(compile(source)) == accepted
+
+        where:
+        source                                                           | accepted
+        'class A { }'                                                    | false
+        '@Deprecated class A { }'                                        | false
+        '@Phase(Phase.GLOBAL.CONVERSION) class A { }'                    | true
+        '@asteroid.Phase(Phase.GLOBAL.CONVERSION) class A { }'           | true
+        'class A { static class B { } }; @Phase(CONVERSION) class C { }' | true
+        'class A { @Phase(CONVERSION) static class B { } }'              | true
+    }
+
+    void 'visit: annotated classes are still translated'() {
+        given: 'a source unit with a global transformation'
+        SourceUnit sourceUnit = compile('''
+            @Phase(Phase.GLOBAL.CONVERSION)
+            class A extends AbstractGlobalTransformation { }
+        ''')
+
+        when: 'applying the transformation'
+        new GlobalTransformationTransformation().visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'the @Phase annotation should have been replaced'
+        ClassNode classNode = sourceUnit.AST.classes.first()
+        !classNode.annotations.any { it.classNode.nameWithoutPackage == 'Phase' }
+        classNode.annotations.any { it.classNode.nameWithoutPackage == 'GroovyASTTransformation' }
+    }
+
+    private SourceUnit compile(String source) {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', source)
+        unit.compile(Phases.CONVERSION)
+
+        return unit.iterator().next()
+    }
+}
@@ -0,0 +1,88 @@
+package asteroid.internal
+
+import asteroid.global.samples.ChangeMethodsTransformation
+import groovy.json.JsonSlurper
+import spock.lang.Specification
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks the reports written by {@link Profiler}
+ *
+ * @since 0.6.0
+ */
+class ProfilerSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def execute() { return 1 }
+        }
+    '''
+
+    void 'profiler: no report unless enabled'() {
+        given: 'a target directory'
+        File directory = File.createTempDir()
+
+        when: 'compiling without profiling'
+        compile(new CompilerConfiguration(targetDirectory: directory))
+
+        then: 'no report should have been written'
+        !new File(directory, Profiler.DEFAULT_REPORT).exists()
+    }
+
+    void 'profiler: report enabled with an optimization option'() {
+        given: 'a configuration with profiling enabled'
+        File directory = File.createTempDir()
+        CompilerConfiguration configuration = new CompilerConfiguration(targetDirectory: directory)
+        configuration.optimizationOptions.put(Profiler.PROPERTY, true)
+
+        when: 'compiling'
+        compile(configuration)
+
+        then: 'the report should be written in the target directory'
+        File report = new File(directory, Profiler.DEFAULT_REPORT)
+        report.exists()
+
+        and: 'it should contain the transformation counters'
+        def json = new JsonSlurper().parse(report)
+        json.transformations*.name == [ChangeMethodsTransformation.name]
+        json.transformations[0].invocations == 1
+        json.transformations[0].nodesVisited > 0
+        json.transformations[0].transformers.size() == 1
+        json.sources*.transformations*.name == [[ChangeMethodsTransformation.name]]
+    }
+
+    void 'profiler: report path from system property'() {
+        given: 'a custom report path'
+        File directory = File.createTempDir()
+        File report = new File(directory, 'reports/custom.json')
+        System.setProperty(Profiler.PROPERTY, report.path)
+
+        when: 'compiling'
+        compile(new CompilerConfiguration(targetDirectory: directory))
+
+        then: 'the report should be written in the custom path'
+        report.exists()
+        !new File(directory, Profiler.DEFAULT_REPORT).exists()
+
+        cleanup:
+        System.clearProperty(Profiler.PROPERTY)
+    }
+
+    private static void compile(CompilerConfiguration configuration) {
+        CompilationUnit unit = new CompilationUnit(configuration)
+        ChangeMethodsTransformation transformation = new ChangeMethodsTransformation()
+
+        transformation.compilationUnit = unit
+        unit.addPhaseOperation(new CompilationUnit.SourceUnitOperation() {
+            @Override
+            void call(SourceUnit source) {
+                transformation.visit(null, source)
+            }
+        }, Phases.CANONICALIZATION)
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile()
+    }
+}
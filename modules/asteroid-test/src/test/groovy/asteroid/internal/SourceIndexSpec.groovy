@@ -0,0 +1,187 @@
+package asteroid.internal
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import asteroid.Criterias
+import asteroid.criteria.AnnotationCriteria
+import asteroid.criteria.Criteria
+import asteroid.criteria.NameCriteria
+import asteroid.transformer.AbstractExpressionTransformer
+import asteroid.transformer.Transformer
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import org.codehaus.groovy.ast.stmt.ReturnStatement
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+import org.codehaus.groovy.transform.ASTTransformation
+
+/**
+ * Checks the nodes found by {@link SourceIndex}
+ *
+ * @since 0.6.0
+ */
+class SourceIndexSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            @Deprecated
+            String greet(String name) {
+                println "hello $name"
+                return name
+            }
+
+            def other() {
+                println 'other'
+            }
+        }
+    '''
+
+    static final Criteria<MethodNode> STARTS_WITH_ADDED =
+        new NameCriteria<MethodNode>(NameCriteria.Target.METHOD_NODE, NameCriteria.Mode.STARTS_WITH, 'added')
+
+    void 'source index: nodes by type, annotation and method call'() {
+        given: 'an indexed source unit'
+        SourceIndex index = SourceIndex.of(compile())
+
+        expect: 'to find nodes by type'
+        index.getNodes(MethodNode)*.name.containsAll(['greet', 'other'])
+        index.getNodes(ReturnStatement).size() == 1
+
+        and: 'annotated nodes by simple or qualified name'
+        index.getAnnotatedNodes('Deprecated')*.name == ['greet']
+        index.getAnnotatedNodes('java.lang.Deprecated')*.name == ['greet']
+        index.getAnnotatedNodes('other.Deprecated').isEmpty()
+
+        and: 'method calls by method name'
+        index.getMethodCalls('println').size() == 2
+        index.getMethodCalls('println').every { it instanceof MethodCallExpression }
+        index.getMethodCalls('print').isEmpty()
+    }
+
+    void 'source index: criterias matching any node of a class'() {
+        given: 'a class being transformed'
+        ClassNode sample = compile().AST.classes.find { it.name == 'Sample' }
+        SourceIndex.enable(sample)
+
+        expect: 'indexable criterias to be checked against the class nodes'
+        SourceIndex.mayMatch(sample, Criteria.from(Criterias.byExprMethodCallByName('println')))
+        !SourceIndex.mayMatch(sample, Criteria.from(Criterias.byExprMethodCallByName('print')))
+        SourceIndex.mayMatch(sample, new AnnotationCriteria('Deprecated'))
+        !SourceIndex.mayMatch(sample, new AnnotationCriteria('Immutable'))
+
+        and: 'any other criteria to be a candidate'
+        SourceIndex.mayMatch(sample, Criteria.from(Criterias.byMethodNodeNameContains('xxx')))
+
+        when: 'the class is not being transformed anymore'
+        SourceIndex.disable(sample)
+
+        then: 'any criteria may match'
+        SourceIndex.mayMatch(sample, Criteria.from(Criterias.byExprMethodCallByName('print')))
+    }
+
+    void 'source index: asteroid helpers invalidate the index'() {
+        given: 'a class already indexed'
+        ClassNode sample = compile().AST.classes.find { it.name == 'Sample' }
+        SourceIndex.enable(sample)
+        assert !SourceIndex.mayMatch(sample, STARTS_WITH_ADDED)
+
+        when: 'adding a method'
+        A.UTIL.NODE.addMethod(sample, A.NODES.method('addedMethod')
+                              .modifiers(A.ACC.ACC_PUBLIC)
+                              .returnType(Object)
+                              .code(A.STMT.blockS())
+                              .build())
+
+        then: 'the index should find it'
+        SourceIndex.mayMatch(sample, STARTS_WITH_ADDED)
+    }
+
+    void 'source index: changes done by other means are detected'() {
+        given: 'a class already indexed'
+        ClassNode sample = compile().AST.classes.find { it.name == 'Sample' }
+        SourceIndex.enable(sample)
+        assert !SourceIndex.mayMatch(sample, STARTS_WITH_ADDED)
+        assert !SourceIndex.mayMatch(sample, Criteria.from(Criterias.byExprMethodCallByName('print')))
+
+        when: 'adding a method directly'
+        sample.addMethod(A.NODES.method('addedMethod')
+                         .modifiers(A.ACC.ACC_PUBLIC)
+                         .returnType(Object)
+                         .code(A.STMT.blockS())
+                         .build())
+
+        then: 'the index should find it'
+        SourceIndex.mayMatch(sample, STARTS_WITH_ADDED)
+
+        when: 'replacing the code of a method directly'
+        sample.getMethods('other').first().code = A.STMT.blockS(
+            A.STMT.stmt(A.EXPR.callX(A.EXPR.varX('this'), 'print', A.EXPR.constX('other'))))
+
+        then: 'the index should find the new call'
+        SourceIndex.mayMatch(sample, Criteria.from(Criterias.byExprMethodCallByName('print')))
+    }
+
+    void 'source index: local transformations between global transformations'() {
+        given: 'a source unit'
+        SourceUnit sourceUnit = compile()
+        ASTNode[] nodes = [sourceUnit.AST] as ASTNode[]
+
+        when: 'a local transformation adds a call between two global transformations'
+        new PlusToMinusTransformation().visit(nodes, sourceUnit)
+        new AddPlusCall().visit(nodes, sourceUnit)
+        new PlusToMinusTransformation().visit(nodes, sourceUnit)
+
+        and: 'looking at the changed method'
+        String code = sourceUnit.AST.classes.find { it.name == 'Sample' }.getMethods('other').first().code.text
+
+        then: 'the second global transformation should transform the call added'
+        code.contains('minus')
+        !code.contains('plus')
+    }
+
+    private static SourceUnit compile() {
+        CompilationUnit unit = new CompilationUnit()
+        SourceUnit source = unit.addSource('Sample.groovy', SOURCE)
+
+        unit.compile(Phases.SEMANTIC_ANALYSIS)
+
+        return source
+    }
+
+    static class PlusToMinusTransformation extends AbstractGlobalTransformation {
+        @Override
+        List<Class<? extends Transformer>> getTransformers() {
+            return [PlusToMinus]
+        }
+    }
+
+    static class PlusToMinus extends AbstractExpressionTransformer<MethodCallExpression> {
+        PlusToMinus(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('plus'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callX(expression.objectExpression, 'minus', expression.arguments)
+        }
+    }
+
+    /**
+     * Changes the code of a method without any asteroid helper, like
+     * local transformations or other libraries do
+     */
+    static class AddPlusCall implements ASTTransformation {
+        @Override
+        void visit(ASTNode[] nodes, SourceUnit sourceUnit) {
+            MethodNode other = sourceUnit.AST.classes.find { it.name == 'Sample' }.getMethods('other').first()
+
+            ((BlockStatement) other.code).addStatement(A.STMT.stmt(A.EXPR.callX(A.EXPR.constX(1), 'plus', A.EXPR.constX(2))))
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package asteroid.nodes
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks class nodes built from classes are interned while a
+ * {@link ClassNodeRegistry} is active
+ *
+ * @since 0.6.0
+ */
+class ClassNodeRegistrySpec extends Specification {
+
+    void 'class nodes are not interned outside a registry'() {
+        expect: 'a new node every time'
+        ClassNodeRegistry.current() == null
+        !A.NODES.clazz(String).shared().build().is(A.NODES.clazz(String).shared().build())
+    }
+
+    void 'shared class nodes are interned inside a registry'() {
+        given: 'an active registry'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit())
+
+        when: 'asking for shared nodes of the same types several times'
+        ClassNode string = A.NODES.clazz(String).shared().build()
+        ClassNode list = A.NODES.clazz(List).shared().build()
+
+        then: 'the same nodes should be returned'
+        string.is(A.NODES.clazz(String).shared().build())
+        list.is(A.NODES.clazz(List).shared().build())
+        ClassNodeRegistry.current().size() == 2
+
+        and: 'they should not be the nodes cached for the whole JVM'
+        !string.is(ClassHelper.STRING_TYPE)
+        string.name == 'java.lang.String'
+        !list.is(ClassHelper.LIST_TYPE)
+
+        and: 'primitive types should be the ones Groovy uses'
+        A.NODES.clazz(int).shared().build().is(ClassHelper.int_TYPE)
+
+        cleanup:
+        ClassNodeRegistry.exit(previous)
+    }
+
+    void 'new nodes are built unless asked for shared ones'() {
+        given: 'an active registry'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit())
+
+        when: 'building nodes'
+        ClassNode string = A.NODES.clazz(String).build()
+        ClassNode generic = A.NODES.clazz(List)
+            .shared()
+            .genericsTypes(A.NODES.generics(A.NODES.clazz(String).build()).build())
+            .build()
+
+        then: 'they should not be shared'
+        !string.is(A.NODES.clazz(String).build())
+        !string.is(A.NODES.clazz(String).shared().build())
+        !generic.is(A.NODES.clazz(List).shared().build())
+        generic.genericsTypes*.type*.name == ['java.lang.String']
+        ClassHelper.LIST_TYPE.genericsTypes*.name == ['E']
+
+        cleanup:
+        ClassNodeRegistry.exit(previous)
+    }
+
+    void 'the previous registry is restored on exit'() {
+        when: 'entering and exiting a registry'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit())
+        ClassNodeRegistry.exit(previous)
+
+        then: 'there should be no active registry'
+        ClassNodeRegistry.current() == null
+    }
+
+    private static SourceUnit sourceUnit() {
+        CompilationUnit unit = new CompilationUnit()
+        SourceUnit sourceUnit = unit.addSource('Sample.groovy', 'class Sample {}')
+        unit.compile(Phases.CONVERSION)
+
+        return sourceUnit
+    }
+}
@@ -0,0 +1,131 @@
+package asteroid.pattern
+
+import static asteroid.Patterns.any
+import static asteroid.Patterns.binary
+import static asteroid.Patterns.call
+import static asteroid.Patterns.capture
+import static asteroid.Patterns.constant
+import static asteroid.Patterns.node
+import static asteroid.Patterns.prop
+import static asteroid.Patterns.typed
+import static asteroid.Patterns.var
+
+import asteroid.A
+import asteroid.criteria.CriteriaIndex
+import spock.lang.Specification
+import org.codehaus.groovy.ast.expr.ClosureExpression
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.ast.stmt.EmptyStatement
+import org.codehaus.groovy.syntax.Types
+
+/**
+ * Checks how expressions are matched against compiled patterns
+ *
+ * @since 0.6.0
+ */
+class PatternSetSpec extends Specification {
+
+    void 'pattern: capturing arguments'() {
+        given: 'a pattern looking for equals calls'
+        PatternSet patterns = A.PATTERN.compile(call(any(), 'equals', capture('arg')))
+
+        when: 'matching a call to equals'
+        Match match = patterns.match(A.EXPR.callX(A.EXPR.varX('a'), 'equals', A.EXPR.varX('b')))
+
+        then: 'the argument should be captured'
+        match.index == 0
+        match.node instanceof MethodCallExpression
+        match.get('arg').text == 'b'
+
+        and: 'calls with a different name or arity should not match'
+        !patterns.match(A.EXPR.callX(A.EXPR.varX('a'), 'same', A.EXPR.varX('b')))
+        !patterns.match(A.EXPR.callX(A.EXPR.varX('a'), 'equals'))
+        !patterns.matches(A.EXPR.varX('equals'))
+    }
+
+    void 'pattern: first matching pattern wins'() {
+        given: 'patterns sharing expression types'
+        PatternSet patterns = A.PATTERN.compile(
+            call(var('list'), 'add', capture('item', typed(String))),
+            call(capture('receiver'), null, any()),
+            binary(capture('left'), '==', constant(null)),
+            prop(var('this'), 'name'),
+            capture('closure', node(ClosureExpression)))
+
+        expect: 'the first pattern matching each expression to be found'
+        patterns.match(expression)?.index == expected
+
+        where: 'expressions are'
+        expression                                                                            | expected
+        A.EXPR.callX(A.EXPR.varX('list'), 'add', A.EXPR.constX('item'))                      | 0
+        A.EXPR.callX(A.EXPR.varX('list'), 'add', A.EXPR.constX(1))                           | 1
+        A.EXPR.callX(A.EXPR.varX('list'), 'remove', A.EXPR.constX(1))                        | 1
+        A.EXPR.callX(A.EXPR.varX('list'), 'add')                                             | null
+        A.EXPR.binX(A.EXPR.varX('a'), Types.COMPARE_EQUAL, A.EXPR.constX(null))              | 2
+        A.EXPR.binX(A.EXPR.varX('a'), Types.COMPARE_NOT_EQUAL, A.EXPR.constX(null))          | null
+        A.EXPR.propX(A.EXPR.varX('this'), A.EXPR.constX('name'))                             | 3
+        A.EXPR.propX(A.EXPR.varX('this'), A.EXPR.constX('age'))                              | null
+        A.EXPR.closureX(new EmptyStatement())                                                | 4
+        A.EXPR.constX(1)                                                                     | null
+    }
+
+    void 'pattern: captures of the pattern matched'() {
+        given: 'patterns capturing expressions with the same name'
+        PatternSet patterns = A.PATTERN.compile(
+            call(capture('target'), 'save'),
+            binary(capture('target'), '=', capture('value')))
+
+        when: 'matching the second pattern'
+        Match match = patterns.match(A.EXPR.binX(A.EXPR.varX('a'), Types.ASSIGN, A.EXPR.constX(1)))
+
+        then: 'only its captures should be kept'
+        match.index == 1
+        match.get('target').text == 'a'
+        match.get('value').text == '1'
+
+        when: 'matching the first pattern'
+        match = patterns.match(A.EXPR.callX(A.EXPR.varX('repository'), 'save'))
+
+        then: 'captures of other patterns should be null'
+        match.get('target').text == 'repository'
+        match.get('value') == null
+
+        when: 'asking for an unknown capture'
+        match.get('unknown')
+
+        then: 'an exception should be thrown'
+        thrown(IllegalArgumentException)
+    }
+
+    void 'pattern: used as an indexed criteria'() {
+        given: 'a pattern set used as criteria'
+        PatternSet patterns = A.PATTERN.compile(call(any(), 'equals', any()))
+
+        when: 'indexing the criteria'
+        CriteriaIndex<Expression> index = CriteriaIndex.of([patterns])
+
+        then: 'only method calls to equals should be candidates'
+        index.candidates(A.EXPR.callX(A.EXPR.varX('a'), 'equals', A.EXPR.varX('b'))).cardinality() == 1
+        index.candidates(A.EXPR.callX(A.EXPR.varX('a'), 'hashCode')).empty
+        index.candidates(A.EXPR.varX('a')).empty
+
+        and: 'matching criterias by argument types should still work'
+        A.CRITERIA.byExprMethodCallByArgs(String).call(A.EXPR.callX(A.EXPR.varX('a'), 'equals', A.EXPR.constX('b')))
+        !A.CRITERIA.byExprMethodCallByArgs(String).call(A.EXPR.callX(A.EXPR.varX('a'), 'equals', A.EXPR.constX(1)))
+    }
+
+    void 'pattern: invalid patterns'() {
+        when: 'capturing two expressions with the same name'
+        A.PATTERN.compile(binary(capture('same'), '==', capture('same')))
+
+        then: 'an exception should be thrown'
+        thrown(IllegalArgumentException)
+
+        when: 'compiling no patterns at all'
+        A.PATTERN.compile()
+
+        then: 'an exception should be thrown'
+        thrown(IllegalArgumentException)
+    }
+}
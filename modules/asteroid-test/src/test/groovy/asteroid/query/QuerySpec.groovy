@@ -0,0 +1,130 @@
+package asteroid.query
+
+import asteroid.A
+import spock.lang.Specification
+import spock.lang.Unroll
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.ModuleNode
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+
+/**
+ * Checks the nodes found by {@link Query} selectors
+ *
+ * @since 0.6.0
+ */
+class QuerySpec extends Specification {
+
+    static final String SOURCE = '''
+        @interface Entity {}
+
+        @Entity
+        class Person {
+            String name
+
+            def getName() {
+                repository.save(this)
+                return name
+            }
+
+            def update() {
+                repository.save(this)
+            }
+
+            static int twice(int number) {
+                if (number > 0) {
+                    return number * 2
+                }
+                return [1, 2].collect { save(it) }.size()
+            }
+        }
+
+        class Other {
+            def getValue() {
+                repository.save(1)
+            }
+        }
+    '''
+
+    ModuleNode module = compile()
+
+    void 'query: descendants of annotated classes'() {
+        when: 'looking for calls inside getters of entities'
+        List<MethodCallExpression> calls = A.QUERY.findAll(module, 'class[@Entity] > method[name^=get] call[method=save]')
+
+        then: 'only the calls in the entity getters should be found'
+        calls.size() == 1
+        calls[0].objectExpression.text == 'repository'
+        calls[0].lineNumber == 9
+    }
+
+    void 'query: direct children'() {
+        expect: 'direct children to exclude nested nodes'
+        A.QUERY.findAll(module, 'method[name=twice] return').size() == 2
+        A.QUERY.findAll(module, 'method[name=twice] > return').size() == 1
+        A.QUERY.findAll(module, 'method[name=twice] > if > return').size() == 1
+        A.QUERY.findAll(module, 'call[method=collect] > closure > call[method=save]').size() == 1
+        A.QUERY.findAll(module, 'method[name=twice] > call[method=save]').isEmpty()
+    }
+
+    @Unroll
+    void 'query: #selector finds #expected nodes'() {
+        expect: 'attributes and flags to be checked'
+        A.QUERY.findAll(module, selector).size() == expected
+
+        where: 'selectors are'
+        selector                          | expected
+        'method[static]'                  | 1
+        'method[args=1][type=int]'        | 1
+        'class[name="Person"] > property' | 1
+        'class > method[name$=Value]'     | 1
+        'call[receiver*=posit]'           | 3
+        'const[value=2]'                  | 2
+        '*[@Entity]'                      | 1
+        'class[@other.Entity]'            | 0
+        'ElvisOperatorExpression'         | 0
+    }
+
+    void 'query: nodes are found lazily'() {
+        when: 'taking the first node only'
+        MethodNode first = A.QUERY.findFirst(module, 'method')
+
+        then: 'it should be the first method declared'
+        first.name == 'getName'
+
+        and: 'streams should stop as soon as possible'
+        A.QUERY.select(module, 'method').limit(2).collect(java.util.stream.Collectors.toList())*.name == ['getName', 'update']
+    }
+
+    void 'query: classes and methods can be queried'() {
+        given: 'a class'
+        ClassNode person = module.classes.find { it.name == 'Person' }
+
+        expect: 'the root node to be checked as well'
+        A.QUERY.findAll(person, 'class').size() == 1
+        A.QUERY.findAll(person.getDeclaredMethods('update')[0], 'method call').size() == 1
+    }
+
+    @Unroll
+    void 'query: #selector is not valid'() {
+        when: 'compiling an invalid selector'
+        Query.compile(selector)
+
+        then: 'an exception should be thrown'
+        thrown(IllegalArgumentException)
+
+        where: 'invalid selectors are'
+        selector << ['', 'method[', 'method[name]', 'method[size=1]', 'unknown', 'method[name~=get]', 'method>', 'Entity']
+    }
+
+    private static ModuleNode compile() {
+        CompilationUnit unit = new CompilationUnit()
+
+        unit.addSource('Person.groovy', SOURCE)
+        unit.compile(Phases.SEMANTIC_ANALYSIS)
+
+        return unit.iterator().next().AST
+    }
+}
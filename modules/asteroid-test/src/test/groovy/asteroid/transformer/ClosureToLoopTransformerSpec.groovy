@@ -0,0 +1,143 @@
+package asteroid.transformer
+
+import spock.lang.Specification
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+
+/**
+ * Checks closures passed to each, collect, findAll and any are
+ * rewritten as loops by {@link ClosureToLoopTransformer}
+ *
+ * @since 0.6.0
+ */
+class ClosureToLoopTransformerSpec extends Specification {
+
+    static final String SOURCE = '''
+        @asteroid.LowerClosures
+        class Sample {
+            List<String> names = ['a', 'bb', 'ccc']
+
+            int each() {
+                int total = 0
+                names.each { total += it.size() }
+                return total
+            }
+
+            def collect(List<Integer> numbers) {
+                def doubled = numbers.collect { Integer n -> n * 2 }
+                return doubled
+            }
+
+            def findAll(int[] numbers) {
+                List found = numbers.findAll { it > 1 }
+                return found
+            }
+
+            def any(List<String> words) {
+                def found = words.any { it == 'b' }
+                return found
+            }
+
+            int nested(List<List<Integer>> rows) {
+                int total = 0
+                rows.each { List<Integer> row -> row.each { total += it } }
+                return total
+            }
+
+            def nulls() {
+                List<Integer> numbers = null
+                def collected = numbers.collect { it }
+                def found = numbers.any { it }
+                return [collected, found]
+            }
+
+            def untyped(numbers) {
+                def doubled = numbers.collect { it * 2 }
+                return doubled
+            }
+
+            def escaping(List<Integer> numbers) {
+                def same = numbers.collect { return it }
+                return same
+            }
+
+            def eachTail(List<String> words) {
+                words.each { it.size() }
+            }
+
+            def collectTail(List<Integer> numbers) {
+                def doubled = numbers.collect { it * 2 }
+            }
+
+            def nestedTail(List<List<Integer>> rows) {
+                rows.collect { List<Integer> row -> def incremented = row.collect { it + 1 } }
+            }
+        }
+    '''
+
+    static final String TYPED_SOURCE = '''
+        @groovy.transform.CompileStatic
+        @asteroid.LowerClosures
+        class Typed {
+            List<String> upper(List<String> names) {
+                def upper = names.collect { it.toUpperCase() }
+                return upper
+            }
+
+            int total(List<String> names) {
+                int total = 0
+                names.each { total += it.length() }
+                return total
+            }
+        }
+    '''
+
+    void 'lowering: closures are rewritten as loops'() {
+        when: 'compiling a class annotated with @LowerClosures'
+        CompilationUnit unit = new CompilationUnit(new GroovyClassLoader())
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile(Phases.CLASS_GENERATION)
+
+        then: 'only closures that could not be lowered should remain'
+        unit.classes*.name.findAll { it.contains('closure') }.collect { it - ~/\d+$/ } == [
+            'Sample$_untyped_closure',
+            'Sample$_escaping_closure',
+            'Sample$_nestedTail_closure'
+        ]
+    }
+
+    void 'lowering: loops behave like the original calls'() {
+        given: 'an instance of a class with lowered closures'
+        def sample = new GroovyClassLoader().parseClass(SOURCE).newInstance()
+
+        expect: 'the same results the closures would return'
+        sample.each() == 6
+        sample.collect([1, 2, 3]) == [2, 4, 6]
+        sample.findAll([1, 2, 3] as int[]) == [2, 3]
+        sample.any(['a', 'b'])
+        !sample.any(['a'])
+        sample.nested([[1, 2], [3]]) == 6
+        sample.nulls() == [[], false]
+        sample.untyped([1]) == [2]
+        sample.escaping([1]) == [1]
+    }
+
+    void 'lowering: values returned implicitly are kept'() {
+        given: 'an instance of a class with lowered closures'
+        def sample = new GroovyClassLoader().parseClass(SOURCE).newInstance()
+
+        expect: 'the last statement of methods and closures to keep its value'
+        sample.eachTail(['a', 'b']) == ['a', 'b']
+        sample.collectTail([1, 2]) == [2, 4]
+        sample.nestedTail([[1, 2], [3]]) == [[2, 3], [4]]
+    }
+
+    void 'lowering: statically compiled closures using it'() {
+        when: 'lowering closures of a statically compiled class'
+        def typed = new GroovyClassLoader().parseClass(TYPED_SOURCE).newInstance()
+
+        then: 'the loop variable type should be inferred from the receiver'
+        typed.upper(['a', 'b']) == ['A', 'B']
+        typed.total(['a', 'bb']) == 3
+    }
+}
@@ -0,0 +1,167 @@
+package asteroid.transformer
+
+import asteroid.A
+import asteroid.AbstractCompileStaticTransformation
+import asteroid.criteria.Criteria
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.MultipleCompilationErrorsException
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks classes are switched to static compilation by {@link
+ * AbstractCompileStaticTransformation}
+ *
+ * @since 0.6.0
+ */
+class CompileStaticTransformationSpec extends Specification {
+
+    static final String SOURCE = '''
+        package services
+
+        class Typed {
+            String name
+            String greet(String greeting) { "$greeting $name" }
+        }
+
+        class Untyped {
+            def greet(greeting) { greeting }
+        }
+
+        class Missing {
+            def methodMissing(String name, Object args) { name }
+        }
+
+        class MetaClassUser {
+            void change() { String.metaClass.hi = { 'hi' } }
+        }
+    '''
+
+    void 'compile static: switches classes without dynamic features'() {
+        given: 'a transformation for the services package'
+        ServicesTransformation transformation = new ServicesTransformation()
+
+        when: 'compiling'
+        CompilationUnit unit = compile(transformation, SOURCE)
+
+        then: 'only typed classes should be switched'
+        transformation.report.switched == ['services.Typed']
+        transformation.report.excluded == [
+            'services.Untyped'      : "untyped parameter 'greeting' in greet",
+            'services.Missing'      : 'declares methodMissing',
+            'services.MetaClassUser': 'uses metaClass in change'
+        ]
+
+        and: 'switched classes should be annotated'
+        classNamed(unit, 'services.Typed').annotations*.classNode*.name == ['groovy.transform.CompileStatic']
+        !classNamed(unit, 'services.Untyped').annotations
+    }
+
+    void 'compile static: inner classes are checked along with their outer class'() {
+        given: 'a transformation for the services package'
+        ServicesTransformation transformation = new ServicesTransformation()
+
+        when: 'compiling a typed class with an untyped inner class'
+        CompilationUnit unit = compile(transformation, """
+            package services
+
+            class Outer {
+                String name
+                static class Helper { def value }
+            }
+
+            class Wrapper {
+                String name
+                @groovy.transform.CompileDynamic
+                static class Dynamic { def value }
+            }
+        """)
+
+        then: 'the outer class should be excluded'
+        transformation.report.excluded['services.Outer'] == "inner class 'services.Outer\$Helper': untyped field 'value'"
+        !classNamed(unit, 'services.Outer').annotations
+
+        and: 'inner classes already annotated should not prevent the switch'
+        transformation.report.switched == ['services.Wrapper']
+    }
+
+    void 'compile static: classes not matching the criteria are not reported'() {
+        given: 'a transformation for the services package'
+        ServicesTransformation transformation = new ServicesTransformation()
+
+        when: 'compiling a class in a different package'
+        compile(transformation, 'package other\nclass Typed { String name }')
+
+        then: 'nothing should be reported'
+        transformation.report.switched.empty
+        transformation.report.excluded.isEmpty()
+    }
+
+    void 'compile static: dry run type checks classes'() {
+        given: 'a dry-run transformation'
+        ServicesTransformation transformation = new ServicesTransformation(dryRun: true)
+
+        when: 'compiling a class not passing type checks'
+        compile(transformation, 'package services\nclass Wrong { int size(String s) { s.notThere() } }')
+
+        then: 'compilation should fail'
+        MultipleCompilationErrorsException exception = thrown()
+        exception.message.contains('notThere')
+    }
+
+    void 'compile static: writes the report'() {
+        given: 'a transformation writing a report'
+        File file = new File(File.createTempDir(), 'static.txt')
+        ServicesTransformation transformation = new ServicesTransformation(reportFile: file)
+
+        when: 'compiling'
+        compile(transformation, SOURCE)
+
+        then: 'the report should be written'
+        file.text.readLines().first() == 'switched services.Typed'
+        file.text.contains('excluded services.Missing: declares methodMissing')
+    }
+
+    private static CompilationUnit compile(AbstractCompileStaticTransformation transformation, String source) {
+        CompilationUnit unit = new CompilationUnit()
+
+        transformation.compilationUnit = unit
+        unit.addPhaseOperation(new CompilationUnit.SourceUnitOperation() {
+            @Override
+            void call(SourceUnit sourceUnit) {
+                transformation.visit(null, sourceUnit)
+            }
+        }, Phases.CONVERSION)
+        unit.addSource('Services.groovy', source)
+        unit.compile(Phases.CLASS_GENERATION)
+
+        return unit
+    }
+
+    private static ClassNode classNamed(CompilationUnit unit, String name) {
+        return unit.AST.classes.find { it.name == name }
+    }
+
+    static class ServicesTransformation extends AbstractCompileStaticTransformation {
+
+        boolean dryRun
+        File reportFile
+
+        @Override
+        protected Criteria<? super ClassNode> getCriteria() {
+            return Criteria.from(A.CRITERIA.byClassNodeNameStartsWith('services.'))
+        }
+
+        @Override
+        protected boolean isDryRun() {
+            return dryRun
+        }
+
+        @Override
+        protected File getReportFile() {
+            return reportFile
+        }
+    }
+}
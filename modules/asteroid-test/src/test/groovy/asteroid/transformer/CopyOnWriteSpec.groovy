@@ -0,0 +1,135 @@
+package asteroid.transformer
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import org.codehaus.groovy.ast.stmt.ExpressionStatement
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks expression transformers keeping expressions whose children
+ * didn't change
+ *
+ * @since 0.6.0
+ */
+class CopyOnWriteSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def foo() {
+                println(1 + 2 * 3)
+            }
+
+            def bar() {
+                println([a: 1, b: "${2 + 3}"].collect { it } ?: (1..2))
+                println(4.plus(xxx()))
+            }
+        }
+    '''
+
+    void 'copy on write: same result as rebuilding every expression'() {
+        given: 'the same source transformed with and without copy on write'
+        SampleTransformation copyOnWrite = new SampleTransformation(fused: fused, copyOnWrite: true)
+        SampleTransformation rebuilding = new SampleTransformation(fused: fused, copyOnWrite: false)
+
+        SourceUnit copyOnWriteUnit = compile()
+        SourceUnit rebuildingUnit = compile()
+
+        when: 'applying both transformations'
+        copyOnWrite.visit([copyOnWriteUnit.AST] as ASTNode[], copyOnWriteUnit)
+        rebuilding.visit([rebuildingUnit.AST] as ASTNode[], rebuildingUnit)
+
+        then: 'both should have the same code'
+        ['foo', 'bar'].every { String name -> codeOf(copyOnWriteUnit, name) == codeOf(rebuildingUnit, name) }
+        codeOf(copyOnWriteUnit, 'bar').contains('4.plus(1)')
+
+        and: 'copy on write should have kept most expressions'
+        copyOnWrite.preservedExpressions > rebuilding.preservedExpressions
+        copyOnWrite.reallocatedExpressions < rebuilding.reallocatedExpressions
+        copyOnWrite.reallocatedExpressions > 0
+
+        where:
+        fused << [true, false]
+    }
+
+    void 'copy on write: only expressions in the path to a change are rebuilt'() {
+        given: 'a source unit'
+        SourceUnit sourceUnit = compile()
+        ClassNode classNode = sourceUnit.AST.classes.first()
+
+        and: 'the original expressions'
+        Expression unchanged = statementsOf(classNode, 'foo').first().expression
+        Expression first = statementsOf(classNode, 'bar').first().expression
+        Expression changed = statementsOf(classNode, 'bar').last().expression
+
+        when: 'applying the transformation'
+        new SampleTransformation(fused: fused, copyOnWrite: true).visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'expressions without changes should be the same instances'
+        statementsOf(classNode, 'foo').first().expression.is(unchanged)
+        statementsOf(classNode, 'bar').first().expression.is(first)
+
+        and: 'expressions with changes should have been rebuilt'
+        !statementsOf(classNode, 'bar').last().expression.is(changed)
+
+        where:
+        fused << [true, false]
+    }
+
+    private static SourceUnit compile() {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile(Phases.CONVERSION)
+
+        return unit.iterator().next()
+    }
+
+    private static String codeOf(SourceUnit sourceUnit, String method) {
+        return sourceUnit.AST.classes.first().getMethods(method).first().code.text
+    }
+
+    private static List<ExpressionStatement> statementsOf(ClassNode classNode, String method) {
+        return ((BlockStatement) classNode.getMethods(method).first().code).statements
+    }
+
+    static class SampleTransformation extends AbstractGlobalTransformation {
+        boolean fused
+        boolean copyOnWrite
+
+        @Override
+        List<TransformerFactory<? extends Transformer>> getTransformerFactories() {
+            return [{ SourceUnit sourceUnit -> new XxxToOne(sourceUnit, copyOnWrite) } as TransformerFactory]
+        }
+
+        @Override
+        protected boolean isFusedTraversal() {
+            return fused
+        }
+    }
+
+    static class XxxToOne extends AbstractExpressionTransformer<MethodCallExpression> {
+        final boolean copyOnWrite
+
+        XxxToOne(SourceUnit sourceUnit, boolean copyOnWrite) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('xxx'))
+            this.copyOnWrite = copyOnWrite
+        }
+
+        @Override
+        protected boolean isCopyOnWrite() {
+            return copyOnWrite
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.constX(1)
+        }
+    }
+}
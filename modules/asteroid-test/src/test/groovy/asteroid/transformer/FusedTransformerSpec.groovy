@@ -0,0 +1,163 @@
+package asteroid.transformer
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.MethodCallExpression
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import org.codehaus.groovy.ast.stmt.Statement
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks that applying transformers in a single traversal gives the
+ * same result as applying them one after another
+ *
+ * @since 0.6.0
+ */
+class FusedTransformerSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            def field = xxx()
+
+            def foo() {
+                println(xxx())
+            }
+
+            def bar() {
+                4.plus(xxx())
+            }
+        }
+    '''
+
+    static final String MIXED_SOURCE = '''
+        class Mixed {
+            void run() {
+                if (true) {
+                    foo()
+                }
+            }
+        }
+    '''
+
+    void 'fused traversal: same result as legacy traversal'() {
+        given: 'the same source transformed with and without fusing'
+        ClassNode fused  = transform(true)
+        ClassNode legacy = transform(false)
+
+        expect: 'methods to have the same code'
+        ['foo', 'bar'].every { String name ->
+            fused.getMethods(name).first().code.text == legacy.getMethods(name).first().code.text
+        }
+
+        and: 'fields to have the same initial value'
+        fused.getField('field').initialExpression.text == legacy.getField('field').initialExpression.text
+
+        and: 'method transformer changes to be visible to later transformers'
+        fused.getMethods('foo').first().code.text.contains('3.minus(')
+    }
+
+    void 'fused traversal: statement transformers after expression transformers'() {
+        given: 'a statement transformer declared after an expression transformer'
+        List<Class<? extends Transformer>> transformers = [FooToBar, BarToBaz]
+
+        when: 'applying them with and without fusing'
+        ClassNode fused  = transform(true, transformers, MIXED_SOURCE)
+        ClassNode legacy = transform(false, transformers, MIXED_SOURCE)
+
+        then: 'the statement transformer should find expressions already transformed'
+        fused.getMethods('run').first().code.text.contains('this.baz()')
+        legacy.getMethods('run').first().code.text == fused.getMethods('run').first().code.text
+    }
+
+    private ClassNode transform(boolean fused) {
+        return transform(fused, [XxxToPlus, AddToFoo, PlusToMinus], SOURCE)
+    }
+
+    private ClassNode transform(boolean fused, List<Class<? extends Transformer>> transformers, String source) {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', source)
+        unit.compile(Phases.CONVERSION)
+
+        SourceUnit sourceUnit = unit.iterator().next()
+        new SampleTransformation(fused: fused, transformers: transformers).visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        return sourceUnit.AST.classes.first()
+    }
+
+    static class SampleTransformation extends AbstractGlobalTransformation {
+        boolean fused
+        List<Class<? extends Transformer>> transformers
+
+        @Override
+        protected boolean isFusedTraversal() {
+            return fused
+        }
+    }
+
+    static class XxxToPlus extends AbstractExpressionTransformer<MethodCallExpression> {
+        XxxToPlus(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('xxx'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callX(A.EXPR.constX(1), 'plus', A.EXPR.constX(2))
+        }
+    }
+
+    static class PlusToMinus extends AbstractExpressionTransformer<MethodCallExpression> {
+        PlusToMinus(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('plus'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callX(expression.objectExpression, 'minus', expression.arguments)
+        }
+    }
+
+    static class AddToFoo extends AbstractMethodNodeTransformer {
+        AddToFoo(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.byMethodNodeName('foo'))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            A.UTIL.NODE.getCodeBlock(methodNode)
+                .addStatement(A.STMT.stmt(A.EXPR.callX(A.EXPR.constX(3), 'plus', A.EXPR.constX(4))))
+        }
+    }
+
+    static class FooToBar extends AbstractExpressionTransformer<MethodCallExpression> {
+        FooToBar(SourceUnit sourceUnit) {
+            super(MethodCallExpression, sourceUnit, A.CRITERIA.byExprMethodCallByName('foo'))
+        }
+
+        @Override
+        Expression transformExpression(MethodCallExpression expression) {
+            return A.EXPR.callThisX('bar')
+        }
+    }
+
+    static class BarToBaz extends AbstractStatementTransformer<BlockStatement> {
+        BarToBaz(SourceUnit sourceUnit) {
+            super(sourceUnit, { Statement statement ->
+                statement instanceof BlockStatement &&
+                    statement.statements.size() == 1 &&
+                    statement.statements.first().text == 'this.bar()'
+            })
+        }
+
+        @Override
+        void transformStatement(BlockStatement statement) {
+            statement.statements.first().expression = A.EXPR.callThisX('baz')
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package asteroid.transformer
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks global transformations applied in parallel
+ *
+ * @since 0.6.0
+ */
+class ParallelTransformationSpec extends Specification {
+
+    static final String THREAD = 'thread'
+    static final int CLASSES = 50
+
+    void 'parallel: all classes are transformed'() {
+        given: 'a source unit with many classes'
+        SourceUnit sourceUnit = compile()
+
+        when: 'applying the transformation in parallel'
+        new SampleTransformation(parallel: true, transformers: [MarkThread]).visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'every method should have been visited'
+        sourceUnit.AST.classes.every { it.methods.every { MethodNode method -> method.getNodeMetaData(THREAD) } }
+
+        and: 'inner classes should be transformed in the same thread as their outer class'
+        sourceUnit.AST.classes.findAll { it.outerClass }.every {
+            it.methods.first().getNodeMetaData(THREAD) == it.outerClass.methods.first().getNodeMetaData(THREAD)
+        }
+    }
+
+    void 'parallel: errors are collected in class order'() {
+        given: 'the same source unit transformed sequentially and in parallel'
+        SourceUnit sequential = compile()
+        SourceUnit parallel = compile()
+
+        when: 'applying a transformation adding errors'
+        new SampleTransformation(parallel: false, transformers: [AddError]).visit([sequential.AST] as ASTNode[], sequential)
+        new SampleTransformation(parallel: true, transformers: [AddError]).visit([parallel.AST] as ASTNode[], parallel)
+
+        then: 'both should have the same errors in the same order'
+        errorsOf(parallel).size() == CLASSES * 2
+        errorsOf(parallel) == errorsOf(sequential)
+    }
+
+    void 'parallel: checked exceptions are not dropped'() {
+        given: 'a source unit with many classes'
+        SourceUnit sourceUnit = compile()
+
+        when: 'applying a transformation throwing a checked exception'
+        new SampleTransformation(parallel: true, transformers: [ThrowChecked]).visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'the exception should be rethrown'
+        RuntimeException exception = thrown()
+        exception.cause instanceof IOException
+
+        and: 'errors of the other classes should be reported'
+        errorsOf(sourceUnit).any { it.startsWith("error in A$CLASSES") }
+    }
+
+    void 'parallel: sequential transformers disable parallel mode'() {
+        given: 'a source unit with many classes'
+        SourceUnit sourceUnit = compile()
+
+        when: 'applying a transformation with a sequential transformer'
+        new SampleTransformation(parallel: true, transformers: [MarkThread, SequentialMark]).visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'all classes should have been transformed by the current thread'
+        sourceUnit.AST.classes.every {
+            it.methods.every { MethodNode method -> method.getNodeMetaData(THREAD) == Thread.currentThread().name }
+        }
+    }
+
+    private SourceUnit compile() {
+        String source = (1..CLASSES).collect { int i ->
+            "class A$i { def foo() { $i }; static class B$i { def bar() { $i } } }"
+        }.join('\n')
+
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', source)
+        unit.compile(Phases.CONVERSION)
+
+        return unit.iterator().next()
+    }
+
+    private List<String> errorsOf(SourceUnit sourceUnit) {
+        return sourceUnit.errorCollector.errors*.cause*.message
+    }
+
+    static class SampleTransformation extends AbstractGlobalTransformation {
+        boolean parallel
+        List<Class<? extends Transformer>> transformers
+
+        @Override
+        protected boolean isParallel() {
+            return parallel
+        }
+    }
+
+    static class MarkThread extends AbstractMethodNodeTransformer {
+        MarkThread(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.or(A.CRITERIA.byMethodNodeName('foo'), A.CRITERIA.byMethodNodeName('bar')))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            methodNode.putNodeMetaData(THREAD, Thread.currentThread().name)
+        }
+    }
+
+    @Sequential
+    static class SequentialMark extends MarkThread {
+        SequentialMark(SourceUnit sourceUnit) {
+            super(sourceUnit)
+        }
+    }
+
+    static class AddError extends AbstractMethodNodeTransformer {
+        AddError(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.or(A.CRITERIA.byMethodNodeName('foo'), A.CRITERIA.byMethodNodeName('bar')))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            addError("error in ${methodNode.declaringClass.name}", methodNode)
+        }
+    }
+
+    static class ThrowChecked extends AddError {
+        ThrowChecked(SourceUnit sourceUnit) {
+            super(sourceUnit)
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            super.transformMethod(methodNode)
+
+            if (methodNode.declaringClass.name == 'A1') {
+                throw new IOException('checked')
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package asteroid.transformer
+
+import asteroid.A
+import asteroid.AbstractGlobalTransformation
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ASTNode
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks how transformers are created by global transformations
+ *
+ * @since 0.6.0
+ */
+class TransformerFactorySpec extends Specification {
+
+    static final String MARK = 'marked'
+
+    void 'factory: factories are cached per class'() {
+        expect:
+        TransformerFactory.of(MarkFoo).is(TransformerFactory.of(MarkFoo))
+    }
+
+    void 'factory: creates new instances with the source unit'() {
+        given: 'a source unit'
+        SourceUnit sourceUnit = compile().iterator().next()
+
+        when: 'creating two transformers'
+        TransformerFactory<MarkFoo> factory = TransformerFactory.of(MarkFoo)
+        MarkFoo first = factory.create(sourceUnit)
+        MarkFoo second = factory.create(sourceUnit)
+
+        then: 'both should be different instances of the same source unit'
+        !first.is(second)
+        first.sourceUnit.is(sourceUnit)
+        second.sourceUnit.is(sourceUnit)
+    }
+
+    void 'factory: fails with classes without a source unit constructor'() {
+        when:
+        TransformerFactory.of(WithoutSourceUnit)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    void 'global: transformation providing its own factories'() {
+        given: 'a source unit'
+        SourceUnit sourceUnit = compile().iterator().next()
+
+        when: 'applying a transformation using factories'
+        new FactoriesTransformation().visit([sourceUnit.AST] as ASTNode[], sourceUnit)
+
+        then: 'the method should have been marked'
+        sourceUnit.AST.classes.first().getMethods('foo').first().getNodeMetaData(MARK)
+    }
+
+    private CompilationUnit compile() {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', 'class Sample { def foo() { 1 } }')
+        unit.compile(Phases.CONVERSION)
+
+        return unit
+    }
+
+    static class FactoriesTransformation extends AbstractGlobalTransformation {
+        @Override
+        List<TransformerFactory<? extends Transformer>> getTransformerFactories() {
+            return [{ SourceUnit sourceUnit -> new MarkFoo(sourceUnit) } as TransformerFactory]
+        }
+    }
+
+    static class MarkFoo extends AbstractMethodNodeTransformer {
+        MarkFoo(SourceUnit sourceUnit) {
+            super(sourceUnit, A.CRITERIA.byMethodNodeName('foo'))
+        }
+
+        @Override
+        void transformMethod(MethodNode methodNode) {
+            methodNode.putNodeMetaData(MARK, true)
+        }
+    }
+
+    static class WithoutSourceUnit implements Transformer {
+        @Override
+        void visitClass(ClassNode clazzNode) { }
+    }
+}
@@ -0,0 +1,174 @@
+package asteroid.utils
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.CodeVisitorSupport
+import org.codehaus.groovy.ast.ConstructorNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.PropertyNode
+import org.codehaus.groovy.ast.expr.BinaryExpression
+import org.codehaus.groovy.ast.expr.ClosureExpression
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.expr.VariableExpression
+import org.codehaus.groovy.ast.stmt.ExpressionStatement
+import org.codehaus.groovy.ast.stmt.IfStatement
+import org.codehaus.groovy.ast.stmt.Statement
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.syntax.Types
+
+/**
+ * Checks {@link NodeUtils#deepCopy} copies
+ *
+ * @since 0.6.0
+ */
+class DeepCopySpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            @Deprecated String name = 'john'
+
+            Sample(String name) {
+                this.name = name
+            }
+
+            def greet(String greeting = 'hello') {
+                def times = [1, 2]
+                for (i in times) {
+                    try {
+                        println "$greeting $name"
+                    } catch (Exception e) {
+                        println e.message
+                    }
+                }
+                return times.collect { int t -> t * greeting.size() }
+            }
+        }
+    '''
+
+    void 'deepCopy: copies methods keeping references to copied variables'() {
+        given: 'a method'
+        MethodNode method = compile().getMethods('greet').first()
+
+        when: 'copying it'
+        MethodNode copy = A.UTIL.NODE.deepCopy(method)
+
+        then: 'the copy should have the same code'
+        copy.code.text == method.code.text
+        !copy.code.is(method.code)
+        copy.parameters[0].initialExpression.text == 'hello'
+
+        and: 'variables should point to the copied declarations'
+        List<VariableExpression> variables = variablesOf(copy.code)
+        ClosureExpression closure = closureOf(copy.code)
+
+        variables.findAll { it.name == 'greeting' }*.accessedVariable.every { it.is(copy.parameters[0]) }
+        variables.findAll { it.name == 't' }*.accessedVariable.every { it.is(closure.parameters[0]) }
+        variables.count { it.name == 'greeting' } == 2
+    }
+
+    void 'deepCopy: copies class members'() {
+        given: 'a class node'
+        ClassNode classNode = compile()
+        PropertyNode property = classNode.getProperty('name')
+
+        when: 'copying its members'
+        ConstructorNode constructor = A.UTIL.NODE.deepCopy(classNode.declaredConstructors.first())
+        PropertyNode propertyCopy = A.UTIL.NODE.deepCopy(property)
+
+        then: 'copies should be equivalent but different instances'
+        constructor.code.text == classNode.declaredConstructors.first().code.text
+        propertyCopy.field.initialExpression.text == 'john'
+        !propertyCopy.field.is(property.field)
+        propertyCopy.annotations*.classNode.name == property.annotations*.classNode.name
+        !propertyCopy.annotations.first().is(property.annotations.first())
+    }
+
+    void 'deepCopy: source positions and metadata only on request'() {
+        given: 'a method with metadata'
+        MethodNode method = compile().getMethods('greet').first()
+        method.code.setNodeMetaData('key', 'value')
+
+        when: 'copying it with and without positions and metadata'
+        MethodNode keeping = A.UTIL.NODE.deepCopy(method)
+        MethodNode dropping = A.UTIL.NODE.deepCopy(method, false, false)
+
+        then: 'only the first copy should keep them'
+        keeping.code.lineNumber == method.code.lineNumber
+        keeping.code.getNodeMetaData('key') == 'value'
+        dropping.code.lineNumber == -1
+        dropping.code.getNodeMetaData('key') == null
+    }
+
+    void 'deepCopy: deeply nested nodes do not overflow the stack'() {
+        given: 'a very deep expression and a long else-if chain'
+        Expression expression = A.EXPR.constX(0)
+        Statement statement = A.STMT.returnS(A.EXPR.constX(0))
+
+        50000.times { int i ->
+            expression = A.EXPR.binX(expression, Types.PLUS, A.EXPR.constX(i))
+            statement = new IfStatement(A.EXPR.boolX(A.EXPR.constX(true)), A.STMT.returnS(A.EXPR.constX(i)), statement)
+        }
+
+        when: 'copying both'
+        ExpressionStatement expressionCopy = A.UTIL.NODE.deepCopy(A.STMT.stmt(expression))
+        Statement statementCopy = A.UTIL.NODE.deepCopy(statement)
+
+        then: 'both should have been copied'
+        depthOf(expressionCopy.expression) == 50000
+        statementCopy instanceof IfStatement
+        !statementCopy.is(statement)
+    }
+
+    void 'deepCopy: class nodes are not supported'() {
+        when: 'trying to copy a class node'
+        A.UTIL.NODE.deepCopy(compile())
+
+        then: 'an exception should be thrown'
+        thrown(IllegalArgumentException)
+    }
+
+    private static ClassNode compile() {
+        CompilationUnit unit = new CompilationUnit()
+        unit.addSource('Sample.groovy', SOURCE)
+        unit.compile(Phases.SEMANTIC_ANALYSIS)
+
+        return unit.iterator().next().AST.classes.first()
+    }
+
+    private static List<VariableExpression> variablesOf(Statement statement) {
+        List<VariableExpression> variables = []
+        statement.visit(new CodeVisitorSupport() {
+            @Override
+            void visitVariableExpression(VariableExpression expression) {
+                variables << expression
+            }
+        })
+
+        return variables
+    }
+
+    private static ClosureExpression closureOf(Statement statement) {
+        ClosureExpression closure = null
+        statement.visit(new CodeVisitorSupport() {
+            @Override
+            void visitClosureExpression(ClosureExpression expression) {
+                closure = expression
+            }
+        })
+
+        return closure
+    }
+
+    private static int depthOf(Expression expression) {
+        int depth = 0
+
+        while (expression instanceof BinaryExpression) {
+            expression = ((BinaryExpression) expression).leftExpression
+            depth++
+        }
+
+        return depth
+    }
+}
@@ -0,0 +1,109 @@
+package asteroid.utils
+
+import asteroid.A
+import asteroid.nodes.ClassNodeRegistry
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.Phases
+import org.codehaus.groovy.control.SourceUnit
+
+/**
+ * Checks {@link HierarchyCache} caches hierarchy queries
+ *
+ * @since 0.6.0
+ */
+class HierarchyCacheSpec extends Specification {
+
+    void 'queries are cached while there is a current compilation'() {
+        given: 'a compiled source'
+        SourceUnit sourceUnit = compile()
+        ClassNode child = classNamed(sourceUnit, 'Child')
+
+        and: 'an active registry'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit)
+        HierarchyCache cache = A.UTIL.NODE.hierarchyCache
+
+        when: 'asking several times'
+        List<Boolean> results = (1..3).collect { A.UTIL.NODE.isOrExtends(child, 'Base') }
+
+        then: 'only the first query should be computed'
+        results == [true, true, true]
+        cache.hits == 2
+        cache.misses == 1
+        cache.hitRate > 0.6
+
+        and: 'placeholders should not be cached'
+        !A.UTIL.NODE.isOrExtends(ClassHelper.make('Base'), 'Child')
+        cache.misses == 1
+
+        cleanup:
+        ClassNodeRegistry.exit(previous)
+    }
+
+    void 'adding interfaces invalidates the cache'() {
+        given: 'a compiled source'
+        SourceUnit sourceUnit = compile()
+        ClassNode other = classNamed(sourceUnit, 'Other')
+
+        and: 'an active registry'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit)
+
+        when: 'adding an interface after checking it'
+        Boolean before = A.UTIL.NODE.isOrImplements(other, Serializable)
+        A.UTIL.NODE.addInterfaces(other, Serializable)
+
+        then: 'the new interface should be found'
+        !before
+        A.UTIL.NODE.isOrImplements(other, Serializable)
+        A.UTIL.NODE.isOrImplements(other, 'java.io.Serializable')
+
+        cleanup:
+        ClassNodeRegistry.exit(previous)
+    }
+
+    void 'changes made between transformations are seen'() {
+        given: 'a compiled source'
+        SourceUnit sourceUnit = compile()
+        ClassNode other = classNamed(sourceUnit, 'Other')
+
+        when: 'checking an interface while a transformation is applied'
+        ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit)
+        Boolean before = A.UTIL.NODE.isOrImplements(other, Serializable)
+        ClassNodeRegistry.exit(previous)
+
+        and: 'adding the interface directly before the next transformation'
+        other.addInterface(ClassHelper.make(Serializable))
+        previous = ClassNodeRegistry.enter(sourceUnit)
+
+        then: 'the new interface should be found'
+        !before
+        A.UTIL.NODE.isOrImplements(other, Serializable)
+
+        cleanup:
+        ClassNodeRegistry.exit(previous)
+    }
+
+    void 'there is no cache outside a compilation'() {
+        expect: 'no cache but the same results'
+        A.UTIL.NODE.hierarchyCache == null
+        A.UTIL.NODE.isOrExtends(classNamed(compile(), 'Child'), 'Base')
+    }
+
+    private static SourceUnit compile() {
+        CompilationUnit unit = new CompilationUnit()
+        SourceUnit sourceUnit = unit.addSource('Sample.groovy', '''
+            class Base {}
+            class Child extends Base {}
+            class Other {}
+        ''')
+        unit.compile(Phases.SEMANTIC_ANALYSIS)
+
+        return sourceUnit
+    }
+
+    private static ClassNode classNamed(SourceUnit sourceUnit, String name) {
+        return sourceUnit.AST.classes.find { it.name == name }
+    }
+}
@@ -0,0 +1,112 @@
+package asteroid.utils
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.AnnotationNode
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.FieldNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.Parameter
+import org.codehaus.groovy.ast.PropertyNode
+import org.codehaus.groovy.ast.stmt.BlockStatement
+
+/**
+ * Checks {@link NodeUtils} lookups and additions when class members
+ * are indexed
+ *
+ * @since 0.6.0
+ */
+class MemberIndexSpec extends Specification {
+
+    void 'indexMembers: lookups use the index'() {
+        given: 'a class with many fields'
+        ClassNode classNode = classWithFields(100)
+
+        when: 'indexing its members'
+        MemberIndex index = A.UTIL.NODE.indexMembers(classNode)
+
+        then: 'fields should be found'
+        A.UTIL.NODE.indexMembers(classNode).is(index)
+        A.UTIL.NODE.hasField(classNode, 'field50')
+        !A.UTIL.NODE.hasField(classNode, 'unknown')
+        A.UTIL.NODE.findFieldByName(classNode, 'field99').name == 'field99'
+        A.UTIL.NODE.hasFieldOfType(classNode, 'java.lang.String')
+        !A.UTIL.NODE.hasFieldOfType(classNode, 'java.util.Date')
+    }
+
+    void 'indexMembers: members added without NodeUtils are found'() {
+        given: 'an indexed class'
+        ClassNode classNode = classWithFields(10)
+        A.UTIL.NODE.indexMembers(classNode)
+
+        when: 'adding members directly to the class node'
+        classNode.addField(new FieldNode('other', A.ACC.ACC_PUBLIC, ClassHelper.make(Date), classNode, null))
+        classNode.addAnnotation(new AnnotationNode(ClassHelper.make(Deprecated)))
+
+        then: 'lookups should find them'
+        A.UTIL.NODE.hasField(classNode, 'other')
+        A.UTIL.NODE.hasFieldOfType(classNode, 'java.util.Date')
+        A.UTIL.NODE.getAnnotationFrom(classNode, 'Deprecated')
+    }
+
+    void 'addAll*IfNotPresent: adds only missing members'() {
+        given: 'a class'
+        ClassNode classNode = classWithFields(10)
+
+        when: 'adding members in bulk'
+        A.UTIL.NODE.addAllGeneratedFieldsIfNotPresent(classNode, [field('field1'), field('new'), field('new')])
+        A.UTIL.NODE.addAllMethodsIfNotPresent(classNode, [method('foo'), method('foo'), method('foo', String)])
+        A.UTIL.NODE.addAllGeneratedMethodsIfNotPresent(classNode, [method('foo', String), method('bar')])
+        A.UTIL.NODE.addAllPropertiesIfNotPresent(classNode, [property('name'), property('name')])
+
+        then: 'only missing members should have been added'
+        classNode.fields*.name.count { it == 'field1' } == 1
+        classNode.fields*.name.count { it == 'new' } == 1
+        classNode.getMethods('foo').size() == 2
+        classNode.getMethods('bar').size() == 1
+        classNode.properties*.name == ['name']
+
+        and: 'the class should not keep an index it did not have'
+        !A.UTIL.NODE.isMembersIndexed(classNode)
+    }
+
+    void 'addMethodIfNotPresent: indexed classes compare parameter types'() {
+        given: 'an indexed class'
+        ClassNode classNode = classWithFields(0)
+        A.UTIL.NODE.indexMembers(classNode)
+
+        when: 'adding methods with the same name'
+        A.UTIL.NODE.addMethodIfNotPresent(classNode, method('foo', String))
+        A.UTIL.NODE.addMethodIfNotPresent(classNode, method('foo', Integer))
+        A.UTIL.NODE.addMethodIfNotPresent(classNode, method('foo', String))
+
+        then: 'only methods with different parameter types should be added'
+        classNode.getMethods('foo').size() == 2
+        A.UTIL.NODE.isMembersIndexed(classNode)
+    }
+
+    private static ClassNode classWithFields(int count) {
+        ClassNode classNode = A.NODES.clazz('asteroid.utils.Dto').build()
+
+        count.times { int i ->
+            classNode.addField(field("field$i"))
+        }
+
+        return classNode
+    }
+
+    private static FieldNode field(String name) {
+        return new FieldNode(name, A.ACC.ACC_PUBLIC, ClassHelper.STRING_TYPE, null, null)
+    }
+
+    private static MethodNode method(String name, Class... types) {
+        Parameter[] parameters = types.collect { Class type -> new Parameter(ClassHelper.make(type), 'param') }
+
+        return new MethodNode(name, A.ACC.ACC_PUBLIC, ClassHelper.OBJECT_TYPE, parameters, ClassNode.EMPTY_ARRAY, new BlockStatement())
+    }
+
+    private static PropertyNode property(String name) {
+        return new PropertyNode(name, A.ACC.ACC_PUBLIC, ClassHelper.STRING_TYPE, null, null, null, null)
+    }
+}
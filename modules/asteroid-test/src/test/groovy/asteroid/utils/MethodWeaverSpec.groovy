@@ -0,0 +1,188 @@
+package asteroid.utils
+
+import asteroid.A
+import spock.lang.Specification
+import org.codehaus.groovy.ast.ClassHelper
+import org.codehaus.groovy.ast.ClassNode
+import org.codehaus.groovy.ast.MethodNode
+import org.codehaus.groovy.ast.Parameter
+import org.codehaus.groovy.ast.expr.Expression
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import org.codehaus.groovy.ast.stmt.Statement
+import org.codehaus.groovy.classgen.GeneratorContext
+import org.codehaus.groovy.control.CompilePhase
+import org.codehaus.groovy.control.CompilerConfiguration
+import org.codehaus.groovy.control.SourceUnit
+import org.codehaus.groovy.control.customizers.CompilationCustomizer
+import org.codehaus.groovy.syntax.Types
+
+/**
+ * Checks how {@link MethodWeaver} merges advice and moves it to
+ * private methods
+ *
+ * @since 0.6.0
+ */
+class MethodWeaverSpec extends Specification {
+
+    static final String SOURCE = '''
+        class Sample {
+            List<String> events = []
+
+            String greet(String name) {
+                events << 'greet'
+                return "hello $name"
+            }
+
+            void record(String event) {
+                events << event
+            }
+
+            static int twice(int number) {
+                number * 2
+            }
+        }
+    '''
+
+    MethodNode woven
+
+    void 'weave: advice is merged in a single block'() {
+        when: 'adding advice several times'
+        def sample = compile('greet') { MethodNode method ->
+            A.UTIL.NODE.addBeforeCodeBlock(method, event('before1'))
+            A.UTIL.NODE.addBeforeCodeBlock(method, event('before2'))
+        }
+
+        then: 'advice should be in the same block'
+        woven.code.statements.size() == 3
+        !(woven.code.statements[0] instanceof BlockStatement)
+        !(woven.code.statements[1] instanceof BlockStatement)
+
+        and: 'advice should be executed in order'
+        def instance = sample.newInstance()
+        instance.greet('john') == 'hello john'
+        instance.events == ['before2', 'before1', 'greet']
+    }
+
+    void 'weave: advice added with node utils is never moved'() {
+        when: 'adding advice bigger than the inline limit with node utils'
+        def sample = compile('record') { MethodNode method ->
+            A.UTIL.NODE.addAroundCodeBlock(method, bigAdvice(), event('after'))
+        }
+
+        then: 'no method should be added to the class'
+        A.UTIL.NODE.weaver(woven).outlinedMethods.empty
+        !woven.declaringClass.methods.any { it.name.startsWith('record$') }
+        woven.code.statements.size() == 3
+
+        and: 'the method should still work'
+        def instance = sample.newInstance()
+        instance.record('middle')
+        instance.events == ['middle', 'after']
+    }
+
+    void 'weave: big advice is moved to private methods'() {
+        when: 'adding advice bigger than the inline limit'
+        def sample = compile('greet') { MethodNode method ->
+            A.UTIL.NODE.weaver(method)
+                .before(bigAdvice())
+                .before(event('check'))
+                .weave()
+        }
+
+        then: 'only the big advice should be moved'
+        woven.code.statements.size() == 3
+        A.UTIL.NODE.weaver(woven).outlinedMethods*.name == ['greet$advice0']
+        A.UTIL.NODE.weaver(woven).outlinedMethods[0].private
+        A.UTIL.NODE.weaver(woven).estimateSize() <= MethodWeaver.FREQ_INLINE_SIZE
+
+        and: 'the method should still work'
+        def instance = sample.newInstance()
+        instance.greet('john') == 'hello john'
+        instance.events == ['check', 'greet']
+    }
+
+    void 'weave: original code is moved when there is no after advice'() {
+        when: 'adding advice assigning a parameter to a big static method'
+        def sample = compile('twice') { MethodNode method ->
+            method.code = A.STMT.blockS(bigAdvice(), method.code)
+            A.UTIL.NODE.weaver(method)
+                .before(A.STMT.stmt(A.EXPR.binX(A.EXPR.varX('number'), Types.ASSIGN, A.EXPR.binX(A.EXPR.varX('number'), Types.PLUS, A.EXPR.constX(1)))))
+                .weave()
+        }
+
+        then: 'the original code should be moved instead of the advice'
+        A.UTIL.NODE.weaver(woven).outlinedMethods*.name == ['twice$body0']
+        A.UTIL.NODE.weaver(woven).outlinedMethods[0].static
+
+        and: 'the method should still work'
+        sample.twice(2) == 6
+    }
+
+    void 'weave: advice sharing variables is not moved'() {
+        when: 'adding around advice sharing a variable'
+        def sample = compile('record') { MethodNode method ->
+            A.UTIL.NODE.weaver(method)
+                .around(A.STMT.stmt(A.EXPR.varDeclarationX('start', String, A.EXPR.constX('start'))), event('end'))
+                .around(event('begin'), A.STMT.stmt(A.EXPR.callX(A.EXPR.varX('events'), 'add', A.EXPR.varX('start'))))
+                .withSizeLimit(0)
+                .weave()
+        }
+
+        then: 'only independent advice should be moved'
+        A.UTIL.NODE.weaver(woven).outlinedMethods.size() == 2
+
+        and: 'the method should still work'
+        def instance = sample.newInstance()
+        instance.record('middle')
+        instance.events == ['begin', 'middle', 'end', 'start']
+    }
+
+    void 'weave: code changed without the weaver becomes the original code'() {
+        given: 'a woven method'
+        MethodNode method = new MethodNode('execute',
+                                           A.ACC.ACC_PUBLIC,
+                                           ClassHelper.OBJECT_TYPE,
+                                           Parameter.EMPTY_ARRAY,
+                                           ClassNode.EMPTY_ARRAY,
+                                           A.STMT.blockS())
+        A.UTIL.NODE.weaver(method).before(event('first')).weave()
+
+        when: 'changing the code and adding more advice'
+        BlockStatement changed = A.STMT.blockS(event('changed'))
+        method.code = changed
+        A.UTIL.NODE.weaver(method).before(event('second')).weave()
+
+        then: 'the changed code should be kept as the original code'
+        method.code.statements.size() == 2
+        method.code.statements[1].is(changed)
+    }
+
+    private Class compile(String methodName, Closure<?> weave) {
+        CompilerConfiguration configuration = new CompilerConfiguration()
+        configuration.addCompilationCustomizers(new CompilationCustomizer(CompilePhase.SEMANTIC_ANALYSIS) {
+            @Override
+            void call(SourceUnit source, GeneratorContext context, ClassNode classNode) {
+                MethodNode method = classNode.getDeclaredMethods(methodName).find()
+
+                if (method) {
+                    weave(method)
+                    woven = method
+                }
+            }
+        })
+
+        return new GroovyClassLoader(getClass().classLoader, configuration).parseClass(SOURCE)
+    }
+
+    private static Statement event(String name) {
+        return A.STMT.stmt(A.EXPR.callX(A.EXPR.varX('events'), 'add', valueOf(name)))
+    }
+
+    private static Statement bigAdvice() {
+        return A.STMT.blockS((1..30).collect { A.STMT.stmt(valueOf(it)) })
+    }
+
+    private static Expression valueOf(Object value) {
+        return A.EXPR.callX(A.EXPR.classX(String), 'valueOf', A.EXPR.constX(value))
+    }
+}
@@ -0,0 +1,73 @@
+package asteroid.utils
+
+import asteroid.A
+import asteroid.utils.StatementUtils.Group
+import asteroid.utils.StatementUtils.Label
+import asteroid.utils.StatementUtils.LabelHandler
+import spock.lang.Specification
+import org.codehaus.groovy.ast.builder.AstBuilder
+import org.codehaus.groovy.ast.stmt.BlockStatement
+import org.codehaus.groovy.ast.stmt.ExpressionStatement
+import org.codehaus.groovy.ast.stmt.ReturnStatement
+import org.codehaus.groovy.ast.stmt.Statement
+import org.codehaus.groovy.control.CompilePhase
+
+/**
+ * Checks label processing in {@link StatementUtils}
+ *
+ * @since 0.6.0
+ */
+class StatementUtilsSpec extends Specification {
+
+    static final String CODE = '''
+        println 'before any label'
+        first: 'returning'
+        a
+        b
+        second: 'untouched'
+        c
+    '''
+
+    void 'rewriteByLabel: applies handlers to the statements of every label'() {
+        given: 'a block with labels and a handler'
+        BlockStatement block = blockOf(CODE)
+        LabelHandler toReturn = { Label label, Statement stmt ->
+            A.STMT.returnS(((ExpressionStatement) stmt).expression)
+        } as LabelHandler
+
+        when: 'rewriting the block'
+        BlockStatement result = A.UTIL.STMT.rewriteByLabel(block, [first: toReturn])
+
+        then: 'statements before the first label and labels are discarded'
+        result.statements*.class == [ReturnStatement, ReturnStatement, ExpressionStatement]
+        result.statements*.text.join(' ').contains('c')
+    }
+
+    void 'rewriteByLabel: blocks without labels are kept'() {
+        given: 'a block without labels'
+        BlockStatement block = blockOf('println "hello"')
+
+        expect: 'the same block'
+        A.UTIL.STMT.rewriteByLabel(block, [:]).is(block)
+    }
+
+    void 'applyToStatementsByLabel: keeps groups'() {
+        given: 'groups of statements'
+        List<Group> groups = A.UTIL.STMT.groupStatementsByLabel(blockOf(CODE))
+
+        when: 'transforming the statements of the first label'
+        List<Group> result = A.UTIL.STMT.applyToStatementsByLabel(groups, [
+            first: { Group group, ExpressionStatement stmt -> A.STMT.returnS(stmt.expression) }
+        ])
+
+        then: 'there should be the same groups'
+        groups*.label*.name == ['first', 'second']
+        result*.label*.name == ['first', 'second']
+        result*.statements*.size() == [2, 1]
+        result[0].statements.every { it instanceof ReturnStatement }
+    }
+
+    private static BlockStatement blockOf(String code) {
+        return (BlockStatement) new AstBuilder().buildFromString(CompilePhase.CONVERSION, code).first()
+    }
+}
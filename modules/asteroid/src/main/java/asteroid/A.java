@@ -50,4 +50,18 @@ public final class A {
      * @since 0.2.4
      */
     public static final Criterias CRITERIA = new Criterias();
+
+    /**
+     * Entry point to find nodes using selectors
+     *
+     * @since 0.6.0
+     */
+    public static final Queries QUERY = new Queries();
+
+    /**
+     * Entry point to match expressions against structural patterns
+     *
+     * @since 0.6.0
+     */
+    public static final Patterns PATTERN = new Patterns();
 }
@@ -0,0 +1,133 @@
+package asteroid;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.SourceUnit;
+
+import asteroid.criteria.Criteria;
+import asteroid.internal.TransformationUtils;
+import asteroid.transformer.CompileStaticReport;
+import asteroid.transformer.CompileStaticTransformer;
+import asteroid.transformer.Transformer;
+import asteroid.transformer.TransformerFactory;
+
+/**
+ * Global transformation switching the classes matching a criteria to
+ * static compilation, see {@link CompileStaticTransformer}.
+ * <br><br>
+ * Annotations added after the conversion phase are not processed by
+ * the compiler, so implementations should be applied in the
+ * conversion phase:
+ *
+ * <pre class="inner"><code>
+ * {@literal @}Phase(Phase.GLOBAL.CONVERSION)
+ * class ServicesCompileStatic extends AbstractCompileStaticTransformation {
+ *     {@literal @}Override
+ *     Criteria{@literal <}ClassNode{@literal >} getCriteria() {
+ *         return Criteria.from(A.CRITERIA.byClassNodeNameStartsWith('com.acme.services.'))
+ *     }
+ * }
+ * </code></pre>
+ *
+ * Classes switched, and classes excluded because of their dynamic
+ * features, are available through {@link #getReport()}, and they're
+ * written to {@link #getReportFile()} once the compilation reaches
+ * the class generation phase.
+ *
+ * @since 0.6.0
+ */
+public abstract class AbstractCompileStaticTransformation extends AbstractGlobalTransformation {
+
+    private final CompileStaticReport report = new CompileStaticReport();
+    private boolean reportScheduled;
+
+    /**
+     * Returns the criteria classes should match to be statically
+     * compiled, e.g. a package prefix
+     *
+     * @return the criteria classes should match
+     * @since 0.6.0
+     */
+    protected abstract Criteria<? super ClassNode> getCriteria();
+
+    /**
+     * Whether classes should be annotated with {@link
+     * groovy.transform.TypeChecked} instead of {@link
+     * groovy.transform.CompileStatic}. Type checking reports the
+     * same errors static compilation would, but classes are still
+     * dynamically dispatched.
+     *
+     * @return true to type check classes, false to compile them
+     * statically. It's false by default
+     * @since 0.6.0
+     */
+    protected boolean isDryRun() {
+        return false;
+    }
+
+    /**
+     * Returns the file the report should be written to
+     *
+     * @return the report file or null if the report shouldn't be
+     * written. It's null by default
+     * @since 0.6.0
+     */
+    protected File getReportFile() {
+        return null;
+    }
+
+    /**
+     * Returns the classes switched and excluded so far
+     *
+     * @return the report of this transformation
+     * @since 0.6.0
+     */
+    public CompileStaticReport getReport() {
+        return report;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.6.0
+     */
+    @Override
+    public void visit(final ASTNode[] nodes, final SourceUnit sourceUnit) {
+        super.visit(nodes, sourceUnit);
+        scheduleReport();
+    }
+
+    /**
+     * Creates a {@link CompileStaticTransformer} with the criteria
+     * and mode of this transformation
+     *
+     * @return a list with the factory of the transformer
+     * @since 0.6.0
+     */
+    @Override
+    public List<TransformerFactory<? extends Transformer>> getTransformerFactories() {
+        final Criteria<? super ClassNode> criteria = getCriteria();
+        final boolean dryRun = isDryRun();
+        final TransformerFactory<CompileStaticTransformer> factory =
+            sourceUnit -> new CompileStaticTransformer(sourceUnit, criteria, dryRun, report);
+
+        return Collections.<TransformerFactory<? extends Transformer>>singletonList(factory);
+    }
+
+    private synchronized void scheduleReport() {
+        final File file = getReportFile();
+        final CompilationUnit compilationUnit = getCompilationUnit();
+
+        if (reportScheduled || file == null || compilationUnit == null) {
+            return;
+        }
+
+        reportScheduled = true;
+        TransformationUtils.writeAfterClassGeneration(compilationUnit, "Static compilation report to " + file, () -> report.write(file));
+    }
+}
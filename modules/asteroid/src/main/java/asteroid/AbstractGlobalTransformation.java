@@ -1,15 +1,38 @@
 package asteroid;
 
-import static org.codehaus.groovy.runtime.DefaultGroovyMethods.newInstance;
 import static asteroid.utils.InternalUtils.collect;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import groovy.transform.CompilationUnitAware;
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.messages.Message;
 import org.codehaus.groovy.transform.AbstractASTTransformation;
 
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.DeferredErrors;
+import asteroid.internal.ExpressionSummary;
+import asteroid.internal.SourceIndex;
+import asteroid.internal.FlightRecorder;
+import asteroid.internal.Profiler;
+import asteroid.nodes.ClassNodeRegistry;
+import asteroid.transformer.AbstractExpressionTransformer;
+import asteroid.transformer.AbstractMethodNodeTransformer;
+import asteroid.transformer.AbstractStatementTransformer;
+import asteroid.transformer.AbstractTransformer;
+import asteroid.transformer.FusedTransformer;
+import asteroid.transformer.Sequential;
 import asteroid.transformer.Transformer;
+import asteroid.transformer.TransformerFactory;
 
 /**
  * This class applies all transformers provided by the method
@@ -28,10 +51,33 @@ import asteroid.transformer.Transformer;
  * }
  * </code></pre>
  *
+ * Transformers are created using {@link TransformerFactory}
+ * instances. By default there's one factory per class returned by
+ * {@link #getTransformers()}, but you can provide your own factories
+ * overriding {@link #getTransformerFactories()}.
+ *
+ * By default all transformers are applied to a given class node in a
+ * single traversal (see {@link FusedTransformer}). If you would like
+ * every transformer to walk the class on its own, as it used to be,
+ * override {@link #isFusedTraversal()} and make it return false.
+ *
+ * Class nodes can also be transformed in parallel, see {@link
+ * #isParallel()}.
+ *
+ * The time spent by the transformation and its transformers can be
+ * recorded enabling profiling, see {@link Profiler}, or with Java
+ * Flight Recorder, see {@link FlightRecorder}. The bytecode size of
+ * the methods it changes can be reported with {@link BytecodeReport}.
+ *
  * @since 0.2.0
  * @see Transformer
  */
-public abstract class AbstractGlobalTransformation extends AbstractASTTransformation {
+public abstract class AbstractGlobalTransformation extends AbstractASTTransformation implements CompilationUnitAware {
+
+    private final LongAdder savedCriteriaChecks = new LongAdder();
+    private final LongAdder preservedExpressions = new LongAdder();
+    private final LongAdder reallocatedExpressions = new LongAdder();
+    private CompilationUnit compilationUnit;
 
     /**
      * {@inheritDoc}
@@ -40,24 +86,441 @@ public abstract class AbstractGlobalTransformation extends AbstractASTTransforma
      */
     @SuppressWarnings({"PMD.UnusedMethodParameter", "PMD.AvoidInstantiatingObjectsInLoops"})
     public void visit(final ASTNode[] nodes, final SourceUnit sourceUnit) {
+        if (!accepts(sourceUnit)) {
+            return;
+        }
+
+        final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.Type.GLOBAL_TRANSFORMATION);
+        final Profiler.Counters counters = Profiler.start(this, sourceUnit, compilationUnit);
+        final ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit);
+        final int classes = sourceUnit.getAST().getClasses().size();
+
+        BytecodeReport.schedule(sourceUnit, compilationUnit);
+
+        try {
+            if (counters != null) {
+                counters.visited(classes);
+            }
+
+            visitClasses(sourceUnit);
+        } finally {
+            ClassNodeRegistry.exit(previous);
+            Profiler.stop(counters);
+
+            if (event != null) {
+                event.commit(sourceUnit.getName(), null, getClass(), classes, 0);
+            }
+        }
+    }
+
+    /**
+     * Keeps the current compilation, so profiling reports could be
+     * written when it finishes
+     *
+     * @param unit the current compilation
+     * @since 0.6.0
+     */
+    @Override
+    public void setCompilationUnit(final CompilationUnit unit) {
+        this.compilationUnit = unit;
+    }
+
+    /**
+     * Returns the current compilation, if the compiler provided it
+     *
+     * @return the current compilation or null
+     * @since 0.6.0
+     */
+    protected CompilationUnit getCompilationUnit() {
+        return compilationUnit;
+    }
+
+    private void visitClasses(final SourceUnit sourceUnit) {
         final List<ClassNode> classNodeList = (List<ClassNode>) collect(sourceUnit.getAST().getClasses());
+        final List<TransformerFactory<? extends Transformer>> factories = getTransformerFactories();
+        final List<List<Transformer>> transformersByClass = new ArrayList<>(classNodeList.size());
 
         for (final ClassNode clazzNode : classNodeList) {
-            for (final Class<? extends Transformer> clazz : getTransformers()) {
-                newInstance(clazz, new Object[] { sourceUnit })
-                    .visitClass(clazzNode);
+            final List<Transformer> transformers = new ArrayList<>(factories.size());
+
+            for (final TransformerFactory<? extends Transformer> factory : factories) {
+                transformers.add(factory.create(sourceUnit));
+            }
+
+            transformersByClass.add(transformers);
+        }
+
+        if (isParallel() && classNodeList.size() > 1 && !hasSequential(transformersByClass)) {
+            visitInParallel(classNodeList, transformersByClass, sourceUnit);
+            return;
+        }
+
+        for (int i = 0; i < classNodeList.size(); i++) {
+            applyTransformers(classNodeList.get(i), transformersByClass.get(i), sourceUnit);
+        }
+    }
+
+    private void applyTransformers(final ClassNode clazzNode, final List<Transformer> transformers, final SourceUnit sourceUnit) {
+        ExpressionSummary.enable(clazzNode);
+        SourceIndex.enable(clazzNode);
+
+        try {
+            if (isFusedTraversal()) {
+                final FusedTransformer fused = new FusedTransformer(sourceUnit, transformers);
+                final List<FlightRecorder.Event> events = beginVisits(transformers);
+
+                fused.visitClass(clazzNode);
+                commitVisits(events, transformers, clazzNode, sourceUnit);
+                savedCriteriaChecks.add(fused.getSavedChecks());
+                preservedExpressions.add(fused.getPreservedExpressions());
+                reallocatedExpressions.add(fused.getReallocatedExpressions());
+            } else {
+                for (final Transformer transformer : transformers) {
+                    final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.Type.TRANSFORMER_VISIT);
+
+                    transformer.visitClass(clazzNode);
+                    commitVisit(event, transformer, clazzNode, sourceUnit);
+
+                    if (transformer instanceof AbstractExpressionTransformer) {
+                        final AbstractExpressionTransformer expressionTransformer = (AbstractExpressionTransformer) transformer;
+
+                        preservedExpressions.add(expressionTransformer.getPreservedExpressions());
+                        reallocatedExpressions.add(expressionTransformer.getReallocatedExpressions());
+                    }
+
+                    if (!keepsSummaries(transformer)) {
+                        ExpressionSummary.reset(clazzNode);
+                        SourceIndex.invalidate(clazzNode);
+                    }
+                }
+            }
+        } finally {
+            ExpressionSummary.disable(clazzNode);
+            SourceIndex.disable(clazzNode);
+        }
+    }
+
+    /**
+     * In a single traversal transformers are applied together, so
+     * the events of all of them span the whole class traversal
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static List<FlightRecorder.Event> beginVisits(final List<Transformer> transformers) {
+        if (!FlightRecorder.isEnabled(FlightRecorder.Type.TRANSFORMER_VISIT)) {
+            return Collections.emptyList();
+        }
+
+        final List<FlightRecorder.Event> events = new ArrayList<>(transformers.size());
+
+        for (int i = 0; i < transformers.size(); i++) {
+            events.add(FlightRecorder.begin(FlightRecorder.Type.TRANSFORMER_VISIT));
+        }
+
+        return events;
+    }
+
+    private static void commitVisits(final List<FlightRecorder.Event> events,
+                                     final List<Transformer> transformers,
+                                     final ClassNode clazzNode,
+                                     final SourceUnit sourceUnit) {
+        for (int i = 0; i < events.size(); i++) {
+            commitVisit(events.get(i), transformers.get(i), clazzNode, sourceUnit);
+        }
+    }
+
+    private static void commitVisit(final FlightRecorder.Event event,
+                                    final Transformer transformer,
+                                    final ClassNode clazzNode,
+                                    final SourceUnit sourceUnit) {
+        if (event == null) {
+            return;
+        }
+
+        final Profiler.Counters counters = transformer instanceof AbstractTransformer ?
+            ((AbstractTransformer) transformer).getCounters() :
+            null;
+
+        event.commit(sourceUnit.getName(),
+                     clazzNode.getName(),
+                     transformer.getClass(),
+                     counters == null ? 0 : counters.getVisited(),
+                     counters == null ? 0 : counters.getRewritten());
+    }
+
+    private static boolean keepsSummaries(final Transformer transformer) {
+        return transformer instanceof AbstractMethodNodeTransformer ||
+            transformer instanceof AbstractStatementTransformer ||
+            transformer instanceof AbstractExpressionTransformer;
+    }
+
+    private static boolean hasSequential(final List<List<Transformer>> transformersByClass) {
+        for (final List<Transformer> transformers : transformersByClass) {
+            for (final Transformer transformer : transformers) {
+                if (transformer.getClass().isAnnotationPresent(Sequential.class)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private void visitInParallel(final List<ClassNode> classNodeList,
+                                 final List<List<Transformer>> transformersByClass,
+                                 final SourceUnit sourceUnit) {
+        final Map<ClassNode, ClassGroup> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < classNodeList.size(); i++) {
+            final ClassNode clazzNode = classNodeList.get(i);
+            final ClassNode outerMost = getOuterMostClass(clazzNode);
+
+            ClassGroup group = groups.get(outerMost);
+            if (group == null) {
+                group = new ClassGroup(sourceUnit);
+                groups.put(outerMost, group);
+            }
+
+            group.classNodes.add(clazzNode);
+            group.transformers.add(transformersByClass.get(i));
+        }
+
+        final ForkJoinPool pool = getForkJoinPool();
+        for (final ClassGroup group : groups.values()) {
+            pool.execute(group);
+        }
+
+        Throwable failure = null;
+
+        for (final ClassGroup group : groups.values()) {
+            group.join();
+            DeferredErrors.flush(sourceUnit.getErrorCollector(), group.errors);
+
+            if (failure == null) {
+                failure = group.failure;
             }
         }
+
+        rethrow(failure);
+    }
+
+    /*
+     * Groovy code may throw checked exceptions without declaring
+     * them, they can't be dropped or the class would be left half
+     * transformed
+     */
+    private static void rethrow(final Throwable failure) {
+        if (failure == null) {
+            return;
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        throw new RuntimeException(failure);
+    }
+
+    private static ClassNode getOuterMostClass(final ClassNode clazzNode) {
+        ClassNode current = clazzNode;
+
+        while (current.getOuterClass() != null) {
+            current = current.getOuterClass();
+        }
+
+        return current;
+    }
+
+    /**
+     * Whether this transformation should be applied to the source
+     * unit passed as parameter or not. This method is checked before
+     * creating any transformer, so it can be used to skip source
+     * units where none of the transformers would do anything.
+     * <br><br>
+     * Keep in mind global transformations are applied to every
+     * source unit being compiled, so this method should be cheap.
+     *
+     * @param sourceUnit the source unit about to be transformed
+     * @return true if the transformation should be applied, false
+     * otherwise. It's true by default
+     * @since 0.6.0
+     */
+    protected boolean accepts(final SourceUnit sourceUnit) {
+        return true;
+    }
+
+    /**
+     * Whether class nodes should be transformed in parallel or
+     * not. When returning true, every top level class node, along
+     * with its inner classes, is transformed in a {@link
+     * ForkJoinPool}. Top level class nodes are considered
+     * independent from each other, make sure your transformers
+     * follow the thread safety contract described in {@link
+     * asteroid.transformer.AbstractTransformer}.
+     * <br><br>
+     * Errors are added to the source unit following the order of
+     * the class nodes in the source unit. If any transformer is
+     * annotated with {@link Sequential} class nodes will be
+     * transformed sequentially.
+     *
+     * @return true if class nodes should be transformed in parallel,
+     * false otherwise. It's false by default
+     * @since 0.6.0
+     * @see Sequential
+     */
+    protected boolean isParallel() {
+        return false;
+    }
+
+    /**
+     * The pool used when transforming class nodes in parallel. By
+     * default it's the {@link ForkJoinPool#commonPool()}.
+     *
+     * @return the pool used to transform class nodes in parallel
+     * @since 0.6.0
+     * @see #isParallel()
+     */
+    protected ForkJoinPool getForkJoinPool() {
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Whether all transformers should be applied to every class node
+     * in a single traversal or not. When returning false every
+     * transformer will walk every class node on its own.
+     *
+     * @return true if transformers should share the class traversal,
+     * false otherwise
+     * @since 0.6.0
+     * @see FusedTransformer
+     */
+    protected boolean isFusedTraversal() {
+        return true;
+    }
+
+    /**
+     * Returns how many criteria checks have been skipped by this
+     * transformation because, according to the criteria index, they
+     * couldn't match. Only fused traversals use criteria indexes.
+     *
+     * @return the number of criteria checks skipped so far
+     * @since 0.6.0
+     * @see asteroid.criteria.CriteriaIndex
+     */
+    public long getSavedCriteriaChecks() {
+        return savedCriteriaChecks.sum();
+    }
+
+    /**
+     * Returns how many expressions have been kept by the expression
+     * transformers of this transformation after transforming their
+     * children, because none of them changed
+     *
+     * @return the number of expressions kept so far
+     * @since 0.6.0
+     * @see asteroid.transformer.AbstractExpressionTransformer#isCopyOnWrite()
+     */
+    public long getPreservedExpressions() {
+        return preservedExpressions.sum();
+    }
+
+    /**
+     * Returns how many expressions have been rebuilt by the
+     * expression transformers of this transformation after
+     * transforming their children
+     *
+     * @return the number of expressions rebuilt so far
+     * @since 0.6.0
+     * @see asteroid.transformer.AbstractExpressionTransformer#isCopyOnWrite()
+     */
+    public long getReallocatedExpressions() {
+        return reallocatedExpressions.sum();
     }
 
     /**
      * This method should return a list of visitor classes {@link
-     * Class} instances applied globally by this AST.
+     * Class} instances applied globally by this AST. Every class
+     * should declare a constructor receiving a {@link SourceUnit}.
+     *
+     * Since 0.6.0 this method is no longer abstract, a transformation
+     * may provide its transformers overriding {@link
+     * #getTransformerFactories()} instead.
      *
      * @return all transformers that will be applied globally by this
      * AST transformation
      * @since 0.2.0
      * @see Transformer
      */
-    public abstract List<Class<? extends Transformer>> getTransformers();
+    public List<Class<? extends Transformer>> getTransformers() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * This method returns the factories used to create the
+     * transformers applied globally by this AST. By default it
+     * returns a cached {@link TransformerFactory} per every class
+     * returned by {@link #getTransformers()}, in the same order.
+     *
+     * @return the factories of all transformers that will be applied
+     * globally by this AST transformation
+     * @since 0.6.0
+     * @see TransformerFactory
+     */
+    public List<TransformerFactory<? extends Transformer>> getTransformerFactories() {
+        final List<Class<? extends Transformer>> classes = getTransformers();
+        final List<TransformerFactory<? extends Transformer>> factories = new ArrayList<>(classes.size());
+
+        for (final Class<? extends Transformer> clazz : classes) {
+            factories.add(TransformerFactory.of(clazz));
+        }
+
+        return factories;
+    }
+
+    /**
+     * A top level class node and its inner classes, transformed by
+     * the same thread
+     */
+    @SuppressWarnings({"serial", "PMD.AvoidCatchingThrowable"})
+    private final class ClassGroup extends RecursiveAction {
+
+        private final SourceUnit sourceUnit;
+        private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        private final List<ClassNode> classNodes = new ArrayList<>();
+        private final List<List<Transformer>> transformers = new ArrayList<>();
+
+        private List<Message> errors;
+        private Throwable failure;
+
+        ClassGroup(final SourceUnit sourceUnit) {
+            this.sourceUnit = sourceUnit;
+        }
+
+        @Override
+        protected void compute() {
+            final Thread thread = Thread.currentThread();
+            final ClassLoader previous = thread.getContextClassLoader();
+
+            thread.setContextClassLoader(contextClassLoader);
+            DeferredErrors.start();
+
+            final ClassNodeRegistry previousRegistry = ClassNodeRegistry.enter(sourceUnit);
+
+            try {
+                for (int i = 0; i < classNodes.size(); i++) {
+                    applyTransformers(classNodes.get(i), transformers.get(i), sourceUnit);
+                }
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                errors = DeferredErrors.stop();
+                ClassNodeRegistry.exit(previousRegistry);
+                thread.setContextClassLoader(previous);
+            }
+        }
+    }
 }
@@ -6,10 +6,17 @@ import static org.codehaus.groovy.runtime.DefaultGroovyMethods.last;
 
 import java.lang.annotation.Annotation;
 
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.FlightRecorder;
+import asteroid.internal.Profiler;
+import asteroid.nodes.ClassNodeRegistry;
+import groovy.transform.CompilationUnitAware;
+
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.AnnotatedNode;
 import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.transform.AbstractASTTransformation;
 
@@ -64,6 +71,11 @@ import org.codehaus.groovy.transform.AbstractASTTransformation;
  *     <li>No need to implement constructor ()</li>
  *     <li>No need to provide {@link org.codehaus.groovy.transform.GroovyASTTransformation}</li>
  * </ul>
+ * The time spent by every transformation can be recorded enabling
+ * profiling, see {@link Profiler}, or with Java Flight Recorder, see
+ * {@link FlightRecorder}. The bytecode size of the methods it changes
+ * can be reported with {@link BytecodeReport}.
+ *
  * @param <T> The annotation type used to mark the transformation
  * @param <S> The annotated node type. It has to be a subtype
  * of {@link AnnotatedNode}. As a rule of thumb think of any type that
@@ -72,9 +84,10 @@ import org.codehaus.groovy.transform.AbstractASTTransformation;
  *
  */
 public abstract class AbstractLocalTransformation<T extends Annotation,S extends AnnotatedNode>
-    extends AbstractASTTransformation {
+    extends AbstractASTTransformation implements CompilationUnitAware {
 
     private final Class<T> annotation;
+    private CompilationUnit compilationUnit;
 
     /**
      * Default constructor
@@ -129,7 +142,46 @@ public abstract class AbstractLocalTransformation<T extends Annotation,S extends
 
         this.sourceUnit = source;
 
-        doVisit(marker, annotated);
+        final FlightRecorder.Event event = FlightRecorder.begin(FlightRecorder.Type.LOCAL_TRANSFORMATION);
+        final Profiler.Counters counters = Profiler.start(this, source, compilationUnit);
+        final ClassNodeRegistry previous = ClassNodeRegistry.enter(source);
+
+        BytecodeReport.schedule(source, compilationUnit);
+
+        try {
+            if (counters != null) {
+                counters.visited();
+            }
+
+            doVisit(marker, annotated);
+        } finally {
+            ClassNodeRegistry.exit(previous);
+            Profiler.stop(counters);
+
+            if (event != null) {
+                event.commit(source.getName(), classNameOf(annotated), getClass(), 1, 0);
+            }
+        }
+    }
+
+    /**
+     * Keeps the current compilation, so profiling reports could be
+     * written when it finishes
+     *
+     * @param unit the current compilation
+     * @since 0.6.0
+     */
+    @Override
+    public void setCompilationUnit(final CompilationUnit unit) {
+        this.compilationUnit = unit;
+    }
+
+    private static String classNameOf(final AnnotatedNode annotated) {
+        final ClassNode classNode = annotated instanceof ClassNode ?
+            (ClassNode) annotated :
+            annotated.getDeclaringClass();
+
+        return classNode == null ? null : classNode.getName();
     }
 
     private boolean shouldSkip(final ASTNode... nodes) {
@@ -1,22 +1,27 @@
 package asteroid;
 
-import static org.codehaus.groovy.runtime.DefaultGroovyMethods.any;
-import static org.codehaus.groovy.runtime.DefaultGroovyMethods.every;
-import static asteroid.utils.InternalUtils.collect;
-
 import groovy.lang.Closure;
 import org.codehaus.groovy.ast.AnnotationNode;
 import org.codehaus.groovy.ast.AnnotatedNode;
 import org.codehaus.groovy.ast.MethodNode;
 import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.ast.expr.Expression;
 import org.codehaus.groovy.ast.expr.BinaryExpression;
 import org.codehaus.groovy.ast.expr.MethodCallExpression;
 import org.codehaus.groovy.ast.stmt.Statement;
 import org.codehaus.groovy.control.CompilePhase;
 import org.codehaus.groovy.syntax.Types;
-import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 
+import asteroid.criteria.AnnotationCriteria;
+import asteroid.criteria.Criteria;
+import asteroid.criteria.CriteriaClosure;
+import asteroid.criteria.NameCriteria;
+import asteroid.criteria.NameCriteria.Mode;
+import asteroid.criteria.NameCriteria.Target;
+import asteroid.criteria.TypeCriteria;
+import asteroid.pattern.Pattern;
+import asteroid.pattern.PatternSet;
 import asteroid.transformer.AbstractMethodNodeTransformer;
 import asteroid.transformer.AbstractClassNodeTransformer;
 
@@ -76,6 +81,15 @@ import java.util.List;
  * This last example could be a normal case in a local transformation
  * where you are interested in checking the existence of a certain
  * node in order to take a decision during the transformation.
+ * <br/>
+ * <br/>
+ * <strong>Typed criterias</strong>
+ * <br/>
+ * <br/>
+ * Since 0.6.0 all criterias returned by this class are {@link
+ * CriteriaClosure} instances wrapping a typed {@link Criteria}. They
+ * can still be used as closures, but transformers receiving them
+ * evaluate the wrapped {@link Criteria} directly.
  *
  * @since 0.2.4
  */
@@ -92,26 +106,63 @@ public final class Criterias {
      * a {@link Class}.
      * <br/>
      * <br/>
-     * <strong>ONLY</strong> use in a compilation phase where type information
-     * is available (from SEMANTIC_ANALYSIS forwards)
+     * Since 0.6.0 annotations are compared by name (see {@link
+     * #byAnnotationName(String)}), so the annotation class is never
+     * loaded and this criteria can be used in any compilation phase.
      *
      * @param annotationClazz the type of the annotation
      * @return a criteria to look for annotated nodes annotated with a given type
      * @since 0.2.4
      */
     public static <T extends AnnotatedNode> Closure<Boolean> byAnnotation(final Class annotationClazz) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return any(node.getAnnotations(), new Closure(null) {
-                        Boolean doCall(final AnnotationNode annotationNode) {
-                            return annotationNode
-                                .getClassNode()
-                                .getTypeClass()
-                                .equals(annotationClazz);
-                        }
-                    });
+        return byAnnotationName(annotationClazz.getName());
+    }
+
+    /**
+     * Criteria to find those annotated nodes with an annotation
+     * whose type has the qualified name passed as parameter. The
+     * annotation type is never resolved nor loaded, so this criteria
+     * can be used from CONVERSION forwards.
+     * <br/>
+     * <br/>
+     * While types are not resolved yet, annotations written with
+     * their simple name are matched using the module imports (see
+     * {@link asteroid.utils.NodeUtils#isAnnotationOfType}). The name
+     * found for every annotation type is kept, so it's only looked
+     * for once.
+     *
+     * @param qualifiedName the qualified name of the annotation type, e.g. "groovy.transform.ToString"
+     * @return a criteria to look for annotated nodes annotated with a given type
+     * @since 0.6.0
+     */
+    public static <T extends AnnotatedNode> Closure<Boolean> byAnnotationName(final String qualifiedName) {
+        return new CriteriaClosure<T>((final T node) -> {
+            final List<AnnotationNode> annotations = node.getAnnotations();
+
+            if (annotations.isEmpty()) {
+                return false;
+            }
+
+            final ModuleNode module = getModule(node);
+
+            for (final AnnotationNode annotationNode : annotations) {
+                if (A.UTIL.NODE.isAnnotationOfType(annotationNode, qualifiedName, module)) {
+                    return true;
+                }
             }
-        };
+
+            return false;
+        });
+    }
+
+    private static ModuleNode getModule(final AnnotatedNode node) {
+        if (node instanceof ClassNode) {
+            return ((ClassNode) node).getModule();
+        }
+
+        final ClassNode declaringClass = node.getDeclaringClass();
+
+        return declaringClass == null ? null : declaringClass.getModule();
     }
 
     /**
@@ -127,18 +178,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends AnnotatedNode> Closure<Boolean> byAnnotationSimpleName(final String annotationName) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return any(node.getAnnotations(), new Closure(null) {
-                        public boolean doCall(final AnnotationNode annotationNode) {
-                            return annotationNode
-                                .getClassNode()
-                                .getNameWithoutPackage()
-                                .equals(annotationName);
-                        }
-                    });
-            }
-        };
+        return new CriteriaClosure<T>(new AnnotationCriteria<T>(annotationName));
     }
 
     /*
@@ -155,11 +195,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends MethodNode> Closure<Boolean> byMethodNodeName(final String methodName) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().equals(methodName);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.METHOD_NODE, Mode.EQUALS, methodName));
     }
 
     /**
@@ -171,11 +207,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends MethodNode> Closure<Boolean> byMethodNodeNameContains(final String term) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().contains(term);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.METHOD_NODE, Mode.CONTAINS, term));
     }
 
     /**
@@ -187,11 +219,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends MethodNode> Closure<Boolean> byMethodNodeNameEndsWith(final String suffix) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().contains(suffix);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.METHOD_NODE, Mode.CONTAINS, suffix));
     }
 
     /**
@@ -203,11 +231,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends MethodNode> Closure<Boolean> byMethodNodeNameStartsWith(final String prefix) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().contains(prefix);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.METHOD_NODE, Mode.CONTAINS, prefix));
     }
 
     /*
@@ -225,11 +249,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends ClassNode> Closure<Boolean> byClassNodeNameContains(final String term) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().contains(term);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.CLASS_NODE, Mode.CONTAINS, term));
     }
 
     /**
@@ -241,11 +261,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends ClassNode> Closure<Boolean> byClassNodeNameEndsWith(final String term) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().endsWith(term);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.CLASS_NODE, Mode.ENDS_WITH, term));
     }
 
     /**
@@ -257,11 +273,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends ClassNode> Closure<Boolean> byClassNodeNameStartsWith(final String term) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T node) {
-                return node.getName().startsWith(term);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.CLASS_NODE, Mode.STARTS_WITH, term));
     }
 
     /*
@@ -279,17 +291,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends Expression> Closure<Boolean> byExprMethodCallByName(final String name) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T expression) {
-                if (!(expression instanceof MethodCallExpression)) {
-                    return false;
-                }
-
-                final MethodCallExpression expr = (MethodCallExpression) expression;
-
-                return expr.getMethodAsString().equals(name);
-            }
-        };
+        return new CriteriaClosure<T>(new NameCriteria<T>(Target.METHOD_CALL, Mode.EQUALS, name));
     }
 
     /**
@@ -302,15 +304,13 @@ public final class Criterias {
      * @since 0.2.9
      */
     public static Closure<Boolean> byExprMethodCallByArgs(final Class... argTypes) {
-        return byExprMethodCallByArgs(collect(argTypes, toClassNode()).toArray(new ClassNode[argTypes.length]));
-    }
+        final ClassNode[] classNodes = new ClassNode[argTypes.length];
 
-    private static Closure<ClassNode> toClassNode() {
-        return new Closure<ClassNode>(null) {
-            ClassNode doCall(final Class clazz) {
-                return A.NODES.clazz(clazz).build();
-            }
-        };
+        for (int i = 0; i < argTypes.length; i++) {
+            classNodes[i] = A.NODES.clazz(argTypes[i]).shared().build();
+        }
+
+        return byExprMethodCallByArgs(classNodes);
     }
 
     /**
@@ -323,44 +323,13 @@ public final class Criterias {
      * @since 0.2.9
      */
     private static Closure<Boolean> byExprMethodCallByArgs(final ClassNode... argTypes) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final Expression expression) {
-                if (!(expression instanceof MethodCallExpression)) {
-                    return false;
-                }
-
-                final MethodCallExpression expr = (MethodCallExpression) expression;
-                final List<Expression> args = A.UTIL.EXPR
-                    .getArgumentList(expr)
-                    .getExpressions();
-
-                if (args.size() != argTypes.length) {
-                    return false;
-                }
-
-                final List<String> left = collect(argTypes, getClassNodeName());
-                final List<String> right = collect(collect(args, extractExpressionClassNode()),
-                                                   getClassNodeName());
-
-                return DefaultGroovyMethods.equals(left, right);
-            }
-        };
-    }
+        final Pattern[] args = new Pattern[argTypes.length];
 
-    private static Closure<ClassNode> extractExpressionClassNode() {
-        return new Closure<ClassNode>(null) {
-            ClassNode doCall(final Expression expression) {
-                return expression.getType();
-            }
-        };
-    }
+        for (int i = 0; i < argTypes.length; i++) {
+            args[i] = Pattern.typed(argTypes[i]);
+        }
 
-    private static Closure<String> getClassNodeName() {
-        return new Closure<String>(null) {
-            String doCall(final ClassNode classNode) {
-                return classNode.getName();
-            }
-        };
+        return new CriteriaClosure<Expression>(PatternSet.compile(Pattern.call(Pattern.any(), null, args)));
     }
 
     /**
@@ -370,11 +339,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends Expression> Closure<Boolean> byExprAny() {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T expression) {
-                return true;
-            }
-        };
+        return new CriteriaClosure<T>((final T expression) -> true);
     }
 
     /**
@@ -388,19 +353,17 @@ public final class Criterias {
      * @see Types
      */
     public static <T extends Expression> Closure<Boolean> byExprBinaryUsingToken(final int tokenType) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T expression) {
-                if (!(expression instanceof BinaryExpression)) {
-                    return false;
-                }
+        return new CriteriaClosure<T>((final T expression) -> {
+            if (!(expression instanceof BinaryExpression)) {
+                return false;
+            }
 
-                final BinaryExpression binaryExpression = (BinaryExpression) expression;
+            final BinaryExpression binaryExpression = (BinaryExpression) expression;
 
-                return binaryExpression
-                    .getOperation()
-                    .getType() == tokenType;
-            }
-        };
+            return binaryExpression
+                .getOperation()
+                .getType() == tokenType;
+        });
     }
 
     /*
@@ -418,11 +381,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static <T extends Statement> Closure<Boolean> byStmtByType(final Class<T> stmtClass) {
-        return new Closure<Boolean>(null) {
-            public Boolean doCall(final T statement) {
-                return stmtClass != null && stmtClass.isInstance(statement);
-            }
-        };
+        return new CriteriaClosure<T>(new TypeCriteria<T>(stmtClass));
     }
 
     /*
@@ -448,16 +407,7 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static Closure<Boolean> or(final Closure<Boolean>... fns) {
-        return new Closure(null) {
-            public boolean doCall(final Object o) {
-                return any(fns,
-                           new Closure(null) {
-                               public boolean doCall(final Closure<Boolean> fn) {
-                                   return fn.call(o);
-                               }
-                           });
-            }
-        };
+        return new CriteriaClosure<Object>(Criteria.anyOf(toCriteria(fns)));
     }
 
     /**
@@ -477,15 +427,17 @@ public final class Criterias {
      * @since 0.2.4
      */
     public static Closure<Boolean> and(final Closure<Boolean>... fns) {
-        return new Closure(null) {
-            public boolean doCall(final Object o) {
-                return every(fns,
-                             new Closure(null) {
-                                 public boolean doCall(final Closure<Boolean> fn) {
-                                     return fn.call(o);
-                                 }
-                             });
-            }
-        };
+        return new CriteriaClosure<Object>(Criteria.allOf(toCriteria(fns)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Criteria<Object>[] toCriteria(final Closure<Boolean>... fns) {
+        final Criteria<Object>[] criterias = new Criteria[fns.length];
+
+        for (int i = 0; i < fns.length; i++) {
+            criterias[i] = Criteria.from(fns[i]);
+        }
+
+        return criterias;
     }
 }
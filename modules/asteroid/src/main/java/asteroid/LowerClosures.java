@@ -0,0 +1,23 @@
+package asteroid;
+
+import org.codehaus.groovy.transform.GroovyASTTransformationClass;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rewrites <b>each</b>, <b>collect</b>, <b>findAll</b> and
+ * <b>any</b> calls receiving a closure into loops, in the annotated
+ * method or in every method and constructor of the annotated class.
+ * See {@link asteroid.transformer.ClosureToLoopTransformer} for the
+ * calls that can be rewritten.
+ *
+ * @since 0.6.0
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.CONSTRUCTOR})
+@Retention(RetentionPolicy.SOURCE)
+@GroovyASTTransformationClass("asteroid.internal.LowerClosuresTransformation")
+public @interface LowerClosures {
+}
@@ -0,0 +1,195 @@
+package asteroid;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.expr.Expression;
+
+import asteroid.pattern.Pattern;
+import asteroid.pattern.PatternSet;
+
+/**
+ * This class creates structural expression patterns and compiles
+ * them into a {@link PatternSet}, which can be used as a transformer
+ * criteria. Compiling many patterns together is cheaper than
+ * combining many criterias with {@link Criterias#or(groovy.lang.Closure[])}
+ * because the patterns an expression may match are looked up by
+ * expression class, name and number of arguments.
+ * <br><br>
+ * Normally users should access this class invoking {@link A#PATTERN}:
+ * <pre><code>
+ * import static asteroid.Patterns.*
+ *
+ * PatternSet patterns = A.PATTERN.compile(
+ *     call(any(), 'equals', capture('arg')),
+ *     binary(capture('left'), '==', constant(null)))
+ *
+ * Match match = patterns.match(expression)
+ * Expression arg = match?.get('arg')
+ * </code></pre>
+ *
+ * @since 0.6.0
+ */
+public final class Patterns {
+
+    /**
+     * Returns a pattern matching any expression
+     *
+     * @return a pattern matching any expression
+     * @since 0.6.0
+     * @see Pattern#any()
+     */
+    public static Pattern any() {
+        return Pattern.any();
+    }
+
+    /**
+     * Returns a pattern matching any expression and keeping it with
+     * the name passed as parameter
+     *
+     * @param name the name of the capture
+     * @return a capturing pattern
+     * @since 0.6.0
+     * @see Pattern#capture(String)
+     */
+    public static Pattern capture(final String name) {
+        return Pattern.capture(name);
+    }
+
+    /**
+     * Returns a pattern matching the expressions the pattern passed
+     * as parameter matches, keeping them with the name passed as
+     * parameter
+     *
+     * @param name the name of the capture
+     * @param pattern the pattern the expression should match
+     * @return a capturing pattern
+     * @since 0.6.0
+     * @see Pattern#capture(String, Pattern)
+     */
+    public static Pattern capture(final String name, final Pattern pattern) {
+        return Pattern.capture(name, pattern);
+    }
+
+    /**
+     * Returns a pattern matching method calls with the receiver,
+     * name and arguments passed as parameter
+     *
+     * @param receiver the pattern of the object the method is called on
+     * @param name the method name, or null to match any name
+     * @param args the patterns of every argument
+     * @return a method call pattern
+     * @since 0.6.0
+     * @see Pattern#call(Pattern, String, Pattern[])
+     */
+    public static Pattern call(final Pattern receiver, final String name, final Pattern... args) {
+        return Pattern.call(receiver, name, args);
+    }
+
+    /**
+     * Returns a pattern matching constants with the value passed as
+     * parameter
+     *
+     * @param value the value of the constant
+     * @return a constant pattern
+     * @since 0.6.0
+     * @see Pattern#constant(Object)
+     */
+    public static Pattern constant(final Object value) {
+        return Pattern.constant(value);
+    }
+
+    /**
+     * Returns a pattern matching variables with the name passed as
+     * parameter
+     *
+     * @param name the name of the variable
+     * @return a variable pattern
+     * @since 0.6.0
+     * @see Pattern#var(String)
+     */
+    public static Pattern var(final String name) {
+        return Pattern.var(name);
+    }
+
+    /**
+     * Returns a pattern matching property expressions with the
+     * receiver and property name passed as parameter
+     *
+     * @param receiver the pattern of the object the property belongs to
+     * @param name the property name, or null to match any name
+     * @return a property pattern
+     * @since 0.6.0
+     * @see Pattern#prop(Pattern, String)
+     */
+    public static Pattern prop(final Pattern receiver, final String name) {
+        return Pattern.prop(receiver, name);
+    }
+
+    /**
+     * Returns a pattern matching binary expressions with the operator
+     * and operands passed as parameter
+     *
+     * @param left the pattern of the left operand
+     * @param operator the operator, or null to match any operator
+     * @param right the pattern of the right operand
+     * @return a binary expression pattern
+     * @since 0.6.0
+     * @see Pattern#binary(Pattern, String, Pattern)
+     */
+    public static Pattern binary(final Pattern left, final String operator, final Pattern right) {
+        return Pattern.binary(left, operator, right);
+    }
+
+    /**
+     * Returns a pattern matching expressions of the node type passed
+     * as parameter
+     *
+     * @param type the type of the expression node
+     * @return a node type pattern
+     * @since 0.6.0
+     * @see Pattern#node(Class)
+     */
+    public static Pattern node(final Class<? extends Expression> type) {
+        return Pattern.node(type);
+    }
+
+    /**
+     * Returns a pattern matching expressions whose type is the class
+     * passed as parameter
+     *
+     * @param type the type of the expression
+     * @return a typed expression pattern
+     * @since 0.6.0
+     * @see Pattern#typed(Class)
+     */
+    public static Pattern typed(final Class<?> type) {
+        return Pattern.typed(type);
+    }
+
+    /**
+     * Returns a pattern matching expressions whose type has the same
+     * name as the class node passed as parameter
+     *
+     * @param type the type of the expression
+     * @return a typed expression pattern
+     * @since 0.6.0
+     * @see Pattern#typed(ClassNode)
+     */
+    public static Pattern typed(final ClassNode type) {
+        return Pattern.typed(type);
+    }
+
+    /**
+     * Compiles the patterns passed as parameter into a single
+     * decision tree
+     *
+     * @param patterns the patterns to compile
+     * @return a compiled pattern set
+     * @throws IllegalArgumentException if there're no patterns, or a
+     * pattern captures two expressions with the same name
+     * @since 0.6.0
+     * @see PatternSet#compile(Pattern[])
+     */
+    public static PatternSet compile(final Pattern... patterns) {
+        return PatternSet.compile(patterns);
+    }
+}
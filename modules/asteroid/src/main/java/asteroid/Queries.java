@@ -0,0 +1,106 @@
+package asteroid;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.codehaus.groovy.ast.ASTNode;
+
+import asteroid.query.Query;
+
+/**
+ * This class finds nodes using selectors, instead of writing a
+ * visitor for every search (see {@link Query} for the selector
+ * syntax).
+ * <br><br>
+ * Normally users should access this class invoking {@link A#QUERY}:
+ * <pre><code>
+ * List{@literal <}MethodCallExpression{@literal >} saves = A.QUERY.findAll(moduleNode, 'class[@Entity] &gt; method[name^=get] call[method=save]')
+ * MethodNode getter = A.QUERY.findFirst(classNode, 'method[name=getName][args=0]')
+ * </code></pre>
+ *
+ * Selectors are compiled the first time they're used, and the
+ * compiled queries are kept, so the same selector is parsed only once.
+ * The number of queries kept can be changed with the
+ * <b>asteroid.queries.size</b> system property (256 by default).
+ *
+ * @since 0.6.0
+ */
+public final class Queries {
+
+    private static final int MAX_SIZE = Integer.getInteger("asteroid.queries.size", 256);
+
+    private final Map<String, Query> queries = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Query> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    /**
+     * Returns the query compiled from the selector passed as
+     * parameter
+     *
+     * @param selector the selector
+     * @return the compiled query
+     * @throws IllegalArgumentException if the selector is not valid
+     * @since 0.6.0
+     */
+    public Query compile(final String selector) {
+        synchronized (queries) {
+            Query query = queries.get(selector);
+
+            if (query == null) {
+                query = Query.compile(selector);
+                queries.put(selector, query);
+            }
+
+            return query;
+        }
+    }
+
+    /**
+     * Returns the nodes under the root node matching the selector,
+     * found lazily
+     *
+     * @param <T> the expected type of the nodes found
+     * @param root the node where to look for
+     * @param selector the selector
+     * @return a stream of the nodes matching the selector
+     * @since 0.6.0
+     * @see Query#select(ASTNode)
+     */
+    public <T extends ASTNode> Stream<T> select(final ASTNode root, final String selector) {
+        return compile(selector).select(root);
+    }
+
+    /**
+     * Returns all nodes under the root node matching the selector
+     *
+     * @param <T> the expected type of the nodes found
+     * @param root the node where to look for
+     * @param selector the selector
+     * @return a list of the nodes matching the selector
+     * @since 0.6.0
+     * @see Query#findAll(ASTNode)
+     */
+    public <T extends ASTNode> List<T> findAll(final ASTNode root, final String selector) {
+        return compile(selector).findAll(root);
+    }
+
+    /**
+     * Returns the first node under the root node matching the
+     * selector
+     *
+     * @param <T> the expected type of the node found
+     * @param root the node where to look for
+     * @param selector the selector
+     * @return the first node matching the selector, or null if there's none
+     * @since 0.6.0
+     * @see Query#findFirst(ASTNode)
+     */
+    public <T extends ASTNode> T findFirst(final ASTNode root, final String selector) {
+        return compile(selector).findFirst(root);
+    }
+}
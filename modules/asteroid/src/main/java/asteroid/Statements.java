@@ -1,21 +1,26 @@
 package asteroid;
 
 import java.util.List;
+import java.util.Map;
 
+import org.codehaus.groovy.ast.Parameter;
 import org.codehaus.groovy.ast.VariableScope;
 import org.codehaus.groovy.ast.expr.ArgumentListExpression;
 import org.codehaus.groovy.ast.expr.Expression;
 import org.codehaus.groovy.ast.stmt.Statement;
 import org.codehaus.groovy.ast.stmt.IfStatement;
 import org.codehaus.groovy.ast.stmt.WhileStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
 import org.codehaus.groovy.ast.stmt.BlockStatement;
 import org.codehaus.groovy.ast.stmt.ThrowStatement;
 import org.codehaus.groovy.ast.stmt.ReturnStatement;
 import org.codehaus.groovy.ast.stmt.AssertStatement;
 import org.codehaus.groovy.ast.stmt.DoWhileStatement;
 import org.codehaus.groovy.ast.tools.GeneralUtils;
-import org.codehaus.groovy.ast.builder.AstBuilder;
 import org.codehaus.groovy.ast.expr.BooleanExpression;
+import asteroid.internal.NodeCopier;
+import asteroid.internal.TemplateCache;
 import asteroid.statements.TryCatchStatementBuilder;
 
 /**
@@ -144,13 +149,45 @@ public final class Statements {
      * Returns an  instance of {@link BlockStatement}. The code contained
      * in the string passed as argument will be parsed and converted
      * to a {@link BlockStatement}
+     * <br><br>
+     * Since 0.6.0 the same code is only parsed once, every call
+     * returns a new copy of the parsed code.
      *
      * @param code the string representation of the code
      * @return an instance of {@link BlockStatement}
      * @since 0.1.0
      */
     public static BlockStatement blockSFromString(final String code) {
-        return (BlockStatement) new AstBuilder().buildFromString(code).get(0);
+        return new NodeCopier().copy(TemplateCache.get(code));
+    }
+
+    /**
+     * Returns an instance of {@link BlockStatement} from a code
+     * template. The template is parsed only once, and every call
+     * returns a new copy of it where placeholders have been replaced
+     * by the values passed as bindings.
+     * <br><br>
+     * A placeholder is a name starting with <b>$</b> used as a
+     * variable, a method name or a property name. {@link Expression}
+     * values are copied in place of the placeholder, any other value
+     * is used as a constant. Remember to use single quoted strings,
+     * otherwise Groovy would interpolate the placeholders.
+     * <br><br>
+     *
+     * <strong>AST</strong>
+     * <pre><code>blockSFromTemplate('return $field.getBytes()', [field: varX('name')])</code></pre>
+     *
+     * <strong>Result</strong>
+     * <pre><code>return name.getBytes()</code></pre>
+     *
+     * @param template the string representation of the code
+     * @param bindings values of the placeholders by name (without the
+     * $ prefix)
+     * @return an instance of {@link BlockStatement}
+     * @since 0.6.0
+     */
+    public static BlockStatement blockSFromTemplate(final String template, final Map<String, ?> bindings) {
+        return new NodeCopier(bindings).copy(TemplateCache.get(template));
     }
 
     /**
@@ -272,6 +309,65 @@ public final class Statements {
         return new WhileStatement(booleanExpr, loopBlock);
     }
 
+    /**
+     * Represents a for-in loop, executing the loop block once per
+     * every element of a collection or array
+     * <br><br>
+     *
+     * <strong>AST</strong>
+     * <pre><code>forS(A.NODES.param("item").build(), varX("items"), stmt(callThisX("println", varX("item"))))</code></pre>
+     *
+     * <strong>Result</strong>
+     * <pre><code>for (item in items) {
+     *     println(item)
+     * }</code></pre>
+     *
+     * @param variable the loop variable
+     * @param collection the expression returning the elements to
+     * iterate over
+     * @param loopBlock the block executed per element
+     * @return an instance of type {@link ForStatement}
+     * @since 0.6.0
+     */
+    public static ForStatement forS(final Parameter variable, final Expression collection, final Statement loopBlock) {
+        return forS(new VariableScope(), variable, collection, loopBlock);
+    }
+
+    /**
+     * Represents a for-in loop, executing the loop block once per
+     * every element of a collection or array. The loop variable is
+     * declared in the variable scope passed as parameter.
+     *
+     * @param variableScope the scope of the loop
+     * @param variable the loop variable
+     * @param collection the expression returning the elements to
+     * iterate over
+     * @param loopBlock the block executed per element
+     * @return an instance of type {@link ForStatement}
+     * @since 0.6.0
+     */
+    public static ForStatement forS(final VariableScope variableScope,
+                                    final Parameter variable,
+                                    final Expression collection,
+                                    final Statement loopBlock) {
+        final ForStatement forStatement = new ForStatement(variable, collection, loopBlock);
+
+        variableScope.putDeclaredVariable(variable);
+        forStatement.setVariableScope(variableScope);
+
+        return forStatement;
+    }
+
+    /**
+     * Represents a break statement, exiting the enclosing loop
+     *
+     * @return an instance of type {@link BreakStatement}
+     * @since 0.6.0
+     */
+    public static BreakStatement breakS() {
+        return new BreakStatement();
+    }
+
     /**
      * Represents an empty statement. It could be used when building
      * an {@link IfStatement} with an empty else part.
@@ -0,0 +1,37 @@
+package asteroid.criteria;
+
+/**
+ * Matches when all of its criterias match
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+final class AndCriteria<T> implements Criteria<T> {
+
+    private final Criteria<? super T>[] criterias;
+
+    AndCriteria(final Criteria<? super T>[] criterias) {
+        this.criterias = criterias;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        for (final Criteria<? super T> criteria : criterias) {
+            if (!criteria.matches(node)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the combined criterias
+     *
+     * @return the combined criterias
+     * @since 0.6.0
+     */
+    Criteria<? super T>[] getCriterias() {
+        return criterias;
+    }
+}
@@ -0,0 +1,54 @@
+package asteroid.criteria;
+
+import java.util.List;
+
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+
+/**
+ * Matches annotated nodes having an annotation with a given simple
+ * name. Because the simple name is known in advance, a {@link
+ * CriteriaIndex} can use it to skip nodes without such annotation.
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ * @see asteroid.Criterias#byAnnotationSimpleName(String)
+ */
+public final class AnnotationCriteria<T extends AnnotatedNode> implements Criteria<T> {
+
+    private final String simpleName;
+
+    /**
+     * Creates a criteria matching nodes annotated with an annotation
+     * with the simple name passed as parameter
+     *
+     * @param simpleName the simple name of the annotation type, e.g. "ToString"
+     * @since 0.6.0
+     */
+    public AnnotationCriteria(final String simpleName) {
+        this.simpleName = simpleName;
+    }
+
+    /**
+     * Returns the simple name of the annotation type
+     *
+     * @return the simple name of the annotation type
+     * @since 0.6.0
+     */
+    public String getSimpleName() {
+        return simpleName;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        final List<AnnotationNode> annotations = node.getAnnotations();
+
+        for (final AnnotationNode annotationNode : annotations) {
+            if (annotationNode.getClassNode().getNameWithoutPackage().equals(simpleName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
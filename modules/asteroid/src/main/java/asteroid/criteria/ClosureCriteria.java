@@ -0,0 +1,24 @@
+package asteroid.criteria;
+
+import groovy.lang.Closure;
+import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
+
+/**
+ * Adapts a {@link Closure} to the {@link Criteria} interface
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+final class ClosureCriteria<T> implements Criteria<T> {
+
+    private final Closure<Boolean> closure;
+
+    ClosureCriteria(final Closure<Boolean> closure) {
+        this.closure = closure;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        return DefaultTypeTransformation.castToBoolean(closure.call(node));
+    }
+}
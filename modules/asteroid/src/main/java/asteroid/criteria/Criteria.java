@@ -0,0 +1,139 @@
+package asteroid.criteria;
+
+import groovy.lang.Closure;
+
+/**
+ * A criteria decides whether a given node should be processed or
+ * not. Transformers use criterias to locate the nodes they're
+ * interested in.
+ * <br><br>
+ * Unlike criterias expressed as {@link Closure} instances, a {@link
+ * Criteria} is evaluated through a plain Java call, and combining
+ * criterias with {@link #and(Criteria)}, {@link #or(Criteria)} or
+ * {@link #negate()} doesn't add any dynamic dispatch.
+ *
+ * <pre class="inner"><code>
+ * Criteria{@literal <}MethodNode{@literal >} getters = { MethodNode node {@literal ->} node.name.startsWith('get') } as Criteria
+ * Criteria{@literal <}MethodNode{@literal >} publicGetters = getters.and { MethodNode node {@literal ->} node.isPublic() }
+ * </code></pre>
+ *
+ * Criterias returned by {@link asteroid.Criterias} are {@link
+ * CriteriaClosure} instances, they can still be used as closures but
+ * when passed to a transformer the underlying {@link Criteria} is
+ * used directly (see {@link #from(Closure)}).
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+@FunctionalInterface
+public interface Criteria<T> {
+
+    /**
+     * Checks whether the node passed as parameter matches this
+     * criteria or not
+     *
+     * @param node the node to check
+     * @return true if the node matches the criteria, false otherwise
+     * @since 0.6.0
+     */
+    boolean matches(T node);
+
+    /**
+     * Returns a criteria matching only when both this criteria and
+     * the one passed as parameter match. The second criteria is not
+     * checked when the first one doesn't match.
+     *
+     * @param other the other criteria
+     * @return a combined criteria
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    default Criteria<T> and(final Criteria<? super T> other) {
+        return new AndCriteria<>(new Criteria[] { this, other });
+    }
+
+    /**
+     * Returns a criteria matching when either this criteria or the
+     * one passed as parameter match. The second criteria is not
+     * checked when the first one matches.
+     *
+     * @param other the other criteria
+     * @return a combined criteria
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    default Criteria<T> or(final Criteria<? super T> other) {
+        return new OrCriteria<>(new Criteria[] { this, other });
+    }
+
+    /**
+     * Returns a criteria matching when this criteria doesn't
+     *
+     * @return the opposite criteria
+     * @since 0.6.0
+     */
+    default Criteria<T> negate() {
+        return new NotCriteria<>(this);
+    }
+
+    /**
+     * Returns this criteria as a {@link Closure}, so it can be used
+     * where a closure criteria is expected
+     *
+     * @return a {@link CriteriaClosure} wrapping this criteria
+     * @since 0.6.0
+     */
+    default CriteriaClosure<T> asClosure() {
+        return new CriteriaClosure<>(this);
+    }
+
+    /**
+     * Adapts a {@link Closure} criteria. If the closure is a {@link
+     * CriteriaClosure} the wrapped criteria is returned, otherwise
+     * the closure is called with the node and the result is
+     * evaluated using Groovy truth.
+     *
+     * @param <T> the type of the nodes checked
+     * @param closure the closure criteria
+     * @return a {@link Criteria} instance
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Criteria<T> from(final Closure<Boolean> closure) {
+        if (closure instanceof CriteriaClosure) {
+            return ((CriteriaClosure<T>) closure).getCriteria();
+        }
+
+        return new ClosureCriteria<>(closure);
+    }
+
+    /**
+     * Returns a criteria matching only when all criterias passed as
+     * parameter match. Criterias are checked in order until one of
+     * them doesn't match.
+     *
+     * @param <T> the type of the nodes checked
+     * @param criterias the criterias to combine
+     * @return a combined criteria
+     * @since 0.6.0
+     */
+    @SafeVarargs
+    static <T> Criteria<T> allOf(final Criteria<? super T>... criterias) {
+        return new AndCriteria<>(criterias.clone());
+    }
+
+    /**
+     * Returns a criteria matching when any of the criterias passed as
+     * parameter match. Criterias are checked in order until one of
+     * them matches.
+     *
+     * @param <T> the type of the nodes checked
+     * @param criterias the criterias to combine
+     * @return a combined criteria
+     * @since 0.6.0
+     */
+    @SafeVarargs
+    static <T> Criteria<T> anyOf(final Criteria<? super T>... criterias) {
+        return new OrCriteria<>(criterias.clone());
+    }
+}
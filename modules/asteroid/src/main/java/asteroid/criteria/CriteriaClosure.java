@@ -0,0 +1,59 @@
+package asteroid.criteria;
+
+import groovy.lang.Closure;
+
+/**
+ * A {@link Closure} wrapping a {@link Criteria}. It keeps criterias
+ * compatible with all methods expecting a closure, while
+ * transformers can still get the wrapped criteria and avoid calling
+ * the closure at all.
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+@SuppressWarnings("serial")
+public class CriteriaClosure<T> extends Closure<Boolean> {
+
+    private final Criteria<T> criteria;
+
+    /**
+     * Wraps the criteria passed as parameter
+     *
+     * @param criteria the criteria to wrap
+     * @since 0.6.0
+     */
+    public CriteriaClosure(final Criteria<T> criteria) {
+        super(null);
+        this.criteria = criteria;
+    }
+
+    /**
+     * Returns the wrapped criteria
+     *
+     * @return the wrapped criteria
+     * @since 0.6.0
+     */
+    public Criteria<T> getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Checks the node passed as parameter against the wrapped criteria
+     *
+     * @param node the node to check
+     * @return true if the node matches the criteria, false otherwise
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public Boolean doCall(final Object node) {
+        return criteria.matches((T) node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Boolean call(final Object arguments) {
+        return doCall(arguments);
+    }
+}
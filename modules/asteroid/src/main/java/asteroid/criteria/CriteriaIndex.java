@@ -0,0 +1,461 @@
+package asteroid.criteria;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+
+import asteroid.pattern.PatternSet;
+
+/**
+ * Given a list of criterias, this index finds out which of them may
+ * match a given node, without checking all of them.
+ * <br><br>
+ * Criterias are analyzed when building the index. Those built with
+ * {@link AnnotationCriteria}, {@link NameCriteria} or {@link
+ * TypeCriteria} (and any combination of them using {@link
+ * Criteria#and(Criteria)} or {@link Criteria#or(Criteria)}), and
+ * {@link PatternSet} instances, are indexed by annotation simple name,
+ * name, name prefix, name suffix, or node type. Any other criteria is
+ * always considered a candidate.
+ * <br><br>
+ * Candidates are not guaranteed to match, they still have to be
+ * checked, but criterias not returned as candidates are guaranteed
+ * not to match. Instances are not thread safe.
+ *
+ * <pre class="inner"><code>
+ * CriteriaIndex{@literal <}MethodNode{@literal >} index = CriteriaIndex.of([getters, setters, anyOther])
+ * BitSet candidates = index.candidates(methodNode)
+ * </code></pre>
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+public final class CriteriaIndex<T> {
+
+    private static final int RANK_EXACT = 0;
+    private static final int RANK_AFFIX = 1;
+    private static final int RANK_TYPE = 2;
+
+    private final int size;
+    private final BitSet always = new BitSet();
+    private final Map<String, BitSet> annotations = new HashMap<>();
+    private final Map<NameCriteria.Target, Map<String, BitSet>> names = new EnumMap<>(NameCriteria.Target.class);
+    private final Map<NameCriteria.Target, Trie> prefixes = new EnumMap<>(NameCriteria.Target.class);
+    private final Map<NameCriteria.Target, Trie> suffixes = new EnumMap<>(NameCriteria.Target.class);
+    private final List<Class<?>> types = new ArrayList<>();
+    private final List<Integer> typeEntries = new ArrayList<>();
+    private final Map<Class<?>, BitSet> typeCache = new HashMap<>();
+
+    private CriteriaIndex(final List<? extends Criteria<? super T>> criterias) {
+        this.size = criterias.size();
+
+        for (int i = 0; i < size; i++) {
+            final List<Key> keys = analyze(criterias.get(i));
+
+            if (keys == null) {
+                always.set(i);
+            } else {
+                for (final Key key : keys) {
+                    register(key, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds an index for the criterias passed as parameter. Entries
+     * in the index are identified by the position of the criteria in
+     * the list.
+     *
+     * @param <T> the type of the nodes checked
+     * @param criterias the criterias to index
+     * @return an index of the criterias passed as parameter
+     * @since 0.6.0
+     */
+    public static <T> CriteriaIndex<T> of(final List<? extends Criteria<? super T>> criterias) {
+        return new CriteriaIndex<>(criterias);
+    }
+
+    /**
+     * Returns the number of criterias in this index
+     *
+     * @return the number of criterias in this index
+     * @since 0.6.0
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether any of the criterias could be indexed or not. When none
+     * of the criterias could be indexed, all of them are always
+     * candidates.
+     *
+     * @return true if at least one criteria has been indexed
+     * @since 0.6.0
+     */
+    public boolean isSelective() {
+        return always.cardinality() < size;
+    }
+
+    /**
+     * Returns the positions of those criterias that may match the
+     * node passed as parameter
+     *
+     * @param node the node to check
+     * @return the positions of the criterias that may match the node
+     * @since 0.6.0
+     */
+    public BitSet candidates(final T node) {
+        final BitSet result = (BitSet) always.clone();
+
+        if (node == null) {
+            return result;
+        }
+
+        if (!annotations.isEmpty() && node instanceof AnnotatedNode) {
+            for (final AnnotationNode annotationNode : ((AnnotatedNode) node).getAnnotations()) {
+                orIfPresent(result, annotations.get(annotationNode.getClassNode().getNameWithoutPackage()));
+            }
+        }
+
+        for (final NameCriteria.Target target : NameCriteria.Target.values()) {
+            collectByName(target, node, result);
+        }
+
+        if (!types.isEmpty()) {
+            result.or(candidatesByType(node.getClass()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks whether the criteria passed as parameter may match any
+     * of the nodes described by the contents passed as parameter.
+     * Criterias that can't be indexed may always match.
+     *
+     * @param criteria the criteria to check
+     * @param contents what can be found in a set of nodes
+     * @return false only when the criteria can't match any of the nodes
+     * @since 0.6.0
+     */
+    public static boolean mayMatchAny(final Criteria<?> criteria, final Contents contents) {
+        final List<Key> keys = analyze(criteria);
+
+        if (keys == null) {
+            return true;
+        }
+
+        for (final Key key : keys) {
+            if (contains(contents, key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean contains(final Contents contents, final Key key) {
+        switch (key.kind) {
+            case ANNOTATION:
+                return contents.containsAnnotation(key.term);
+            case NAME:
+                return contents.containsName(key.target, key.mode, key.term);
+            default:
+                return contents.containsType(key.type);
+        }
+    }
+
+    private void collectByName(final NameCriteria.Target target, final T node, final BitSet result) {
+        final Map<String, BitSet> exact = names.get(target);
+        final Trie prefix = prefixes.get(target);
+        final Trie suffix = suffixes.get(target);
+
+        if (exact == null && prefix == null && suffix == null) {
+            return;
+        }
+
+        final String name = target.nameOf(node);
+
+        if (name == null) {
+            return;
+        }
+
+        if (exact != null) {
+            orIfPresent(result, exact.get(name));
+        }
+
+        if (prefix != null) {
+            prefix.collect(name, false, result);
+        }
+
+        if (suffix != null) {
+            suffix.collect(name, true, result);
+        }
+    }
+
+    private BitSet candidatesByType(final Class<?> nodeType) {
+        BitSet result = typeCache.get(nodeType);
+
+        if (result == null) {
+            result = new BitSet();
+
+            for (int i = 0; i < types.size(); i++) {
+                if (types.get(i).isAssignableFrom(nodeType)) {
+                    result.set(typeEntries.get(i));
+                }
+            }
+
+            typeCache.put(nodeType, result);
+        }
+
+        return result;
+    }
+
+    private static void orIfPresent(final BitSet result, final BitSet entries) {
+        if (entries != null) {
+            result.or(entries);
+        }
+    }
+
+    private void register(final Key key, final int entry) {
+        switch (key.kind) {
+            case ANNOTATION:
+                entriesOf(annotations, key.term).set(entry);
+                break;
+            case NAME:
+                registerName(key.target, key.mode, key.term, entry);
+                break;
+            default:
+                types.add(key.type);
+                typeEntries.add(entry);
+        }
+    }
+
+    private void registerName(final NameCriteria.Target target, final NameCriteria.Mode mode, final String term, final int entry) {
+        switch (mode) {
+            case EQUALS:
+                Map<String, BitSet> exact = names.get(target);
+                if (exact == null) {
+                    exact = new HashMap<>();
+                    names.put(target, exact);
+                }
+                entriesOf(exact, term).set(entry);
+                break;
+            case STARTS_WITH:
+                trieOf(prefixes, target).add(term, false, entry);
+                break;
+            default:
+                trieOf(suffixes, target).add(term, true, entry);
+        }
+    }
+
+    private static BitSet entriesOf(final Map<String, BitSet> map, final String term) {
+        BitSet entries = map.get(term);
+
+        if (entries == null) {
+            entries = new BitSet();
+            map.put(term, entries);
+        }
+
+        return entries;
+    }
+
+    private static Trie trieOf(final Map<NameCriteria.Target, Trie> tries, final NameCriteria.Target target) {
+        Trie trie = tries.get(target);
+
+        if (trie == null) {
+            trie = new Trie();
+            tries.put(target, trie);
+        }
+
+        return trie;
+    }
+
+    /*
+     * Returns the keys a node should have in order to match the
+     * criteria passed as parameter (any of them), or null if the
+     * criteria can't be indexed.
+     */
+    private static List<Key> analyze(final Criteria<?> criteria) {
+        if (criteria instanceof AnnotationCriteria) {
+            return single(Key.annotation(((AnnotationCriteria<?>) criteria).getSimpleName()));
+        }
+
+        if (criteria instanceof NameCriteria) {
+            final NameCriteria<?> nameCriteria = (NameCriteria<?>) criteria;
+
+            if (nameCriteria.getMode() == NameCriteria.Mode.CONTAINS) {
+                return null;
+            }
+
+            return single(Key.name(nameCriteria.getTarget(), nameCriteria.getMode(), nameCriteria.getTerm()));
+        }
+
+        if (criteria instanceof TypeCriteria) {
+            final Class<?> type = ((TypeCriteria<?>) criteria).getType();
+
+            return type == null ? new ArrayList<Key>() : single(Key.type(type));
+        }
+
+        if (criteria instanceof AndCriteria) {
+            return analyzeAnd(((AndCriteria<?>) criteria).getCriterias());
+        }
+
+        if (criteria instanceof OrCriteria) {
+            return analyzeOr(((OrCriteria<?>) criteria).getCriterias());
+        }
+
+        if (criteria instanceof PatternSet) {
+            return analyze(((PatternSet) criteria).getHint());
+        }
+
+        return null;
+    }
+
+    /*
+     * A node matching all criterias should have the keys of any of
+     * them, the most selective ones are used
+     */
+    private static List<Key> analyzeAnd(final Criteria<?>... criterias) {
+        List<Key> best = null;
+
+        for (final Criteria<?> criteria : criterias) {
+            final List<Key> keys = analyze(criteria);
+
+            if (keys != null && (best == null || rankOf(keys) < rankOf(best))) {
+                best = keys;
+            }
+        }
+
+        return best;
+    }
+
+    /*
+     * A node matching any criteria should have the keys of at least
+     * one of them, so all criterias should be indexable
+     */
+    private static List<Key> analyzeOr(final Criteria<?>... criterias) {
+        final List<Key> all = new ArrayList<>();
+
+        for (final Criteria<?> criteria : criterias) {
+            final List<Key> keys = analyze(criteria);
+
+            if (keys == null) {
+                return null;
+            }
+
+            all.addAll(keys);
+        }
+
+        return all;
+    }
+
+    private static int rankOf(final List<Key> keys) {
+        int rank = RANK_EXACT;
+
+        for (final Key key : keys) {
+            rank = Math.max(rank, key.rank());
+        }
+
+        return rank;
+    }
+
+    private static List<Key> single(final Key key) {
+        final List<Key> keys = new ArrayList<>(1);
+        keys.add(key);
+
+        return keys;
+    }
+
+    /**
+     * Describes what can be found in a set of nodes, such as all the
+     * nodes of a class (see {@link asteroid.internal.SourceIndex}),
+     * so criterias can be checked against all of them at once
+     *
+     * @since 0.6.0
+     */
+    public interface Contents {
+
+        /**
+         * Whether any node is annotated with an annotation with the
+         * simple name passed as parameter
+         *
+         * @param simpleName the annotation simple name
+         * @return true if any node has the annotation
+         * @since 0.6.0
+         */
+        boolean containsAnnotation(String simpleName);
+
+        /**
+         * Whether any node has a name matching the term passed as
+         * parameter
+         *
+         * @param target the kind of name
+         * @param mode how the name is compared with the term
+         * @param term the term to compare the name with
+         * @return true if any node has a matching name
+         * @since 0.6.0
+         */
+        boolean containsName(NameCriteria.Target target, NameCriteria.Mode mode, String term);
+
+        /**
+         * Whether any node is of the type passed as parameter
+         *
+         * @param type the type of the node
+         * @return true if any node is of the type passed as parameter
+         * @since 0.6.0
+         */
+        boolean containsType(Class<?> type);
+    }
+
+    private enum Kind {
+        ANNOTATION, NAME, TYPE
+    }
+
+    /**
+     * Something a node should have in order to match a criteria
+     */
+    private static final class Key {
+        private final Kind kind;
+        private final NameCriteria.Target target;
+        private final NameCriteria.Mode mode;
+        private final String term;
+        private final Class<?> type;
+
+        private Key(final Kind kind, final NameCriteria.Target target, final NameCriteria.Mode mode, final String term, final Class<?> type) {
+            this.kind = kind;
+            this.target = target;
+            this.mode = mode;
+            this.term = term;
+            this.type = type;
+        }
+
+        static Key annotation(final String simpleName) {
+            return new Key(Kind.ANNOTATION, null, null, simpleName, null);
+        }
+
+        static Key name(final NameCriteria.Target target, final NameCriteria.Mode mode, final String term) {
+            return new Key(Kind.NAME, target, mode, term, null);
+        }
+
+        static Key type(final Class<?> type) {
+            return new Key(Kind.TYPE, null, null, null, type);
+        }
+
+        int rank() {
+            if (kind == Kind.TYPE) {
+                return RANK_TYPE;
+            }
+
+            return kind == Kind.NAME && mode != NameCriteria.Mode.EQUALS ? RANK_AFFIX : RANK_EXACT;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package asteroid.criteria;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+
+/**
+ * Matches nodes by their name. The name and the way it's compared
+ * are known in advance, so a {@link CriteriaIndex} can use them to
+ * skip nodes that can't match (except when looking for names
+ * containing a given term).
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+public final class NameCriteria<T> implements Criteria<T> {
+
+    /**
+     * Which name of the node is checked
+     *
+     * @since 0.6.0
+     */
+    public enum Target {
+        /**
+         * The name of a {@link MethodNode}
+         *
+         * @since 0.6.0
+         */
+        METHOD_NODE,
+        /**
+         * The qualified name of a {@link ClassNode}
+         *
+         * @since 0.6.0
+         */
+        CLASS_NODE,
+        /**
+         * The method name of a {@link MethodCallExpression}
+         *
+         * @since 0.6.0
+         */
+        METHOD_CALL;
+
+        /**
+         * Returns the name of the node passed as parameter
+         *
+         * @param node the node
+         * @return the name of the node, or null if the node is not of
+         * the expected type or it doesn't have a name
+         * @since 0.6.0
+         */
+        public String nameOf(final Object node) {
+            switch (this) {
+                case METHOD_NODE:
+                    return node instanceof MethodNode ? ((MethodNode) node).getName() : null;
+                case CLASS_NODE:
+                    return node instanceof ClassNode ? ((ClassNode) node).getName() : null;
+                default:
+                    return node instanceof MethodCallExpression ? ((MethodCallExpression) node).getMethodAsString() : null;
+            }
+        }
+    }
+
+    /**
+     * How the node name is compared
+     *
+     * @since 0.6.0
+     */
+    public enum Mode {
+        /**
+         * The name should be the same
+         *
+         * @since 0.6.0
+         */
+        EQUALS,
+        /**
+         * The name should start with the term
+         *
+         * @since 0.6.0
+         */
+        STARTS_WITH,
+        /**
+         * The name should end with the term
+         *
+         * @since 0.6.0
+         */
+        ENDS_WITH,
+        /**
+         * The name should contain the term
+         *
+         * @since 0.6.0
+         */
+        CONTAINS
+    }
+
+    private final Target target;
+    private final Mode mode;
+    private final String term;
+
+    /**
+     * Creates a criteria comparing a node name with the term passed
+     * as parameter
+     *
+     * @param target which node name is checked
+     * @param mode how the name is compared
+     * @param term the term the name is compared to
+     * @since 0.6.0
+     */
+    public NameCriteria(final Target target, final Mode mode, final String term) {
+        this.target = target;
+        this.mode = mode;
+        this.term = term;
+    }
+
+    /**
+     * Returns which node name is checked
+     *
+     * @return which node name is checked
+     * @since 0.6.0
+     */
+    public Target getTarget() {
+        return target;
+    }
+
+    /**
+     * Returns how the name is compared
+     *
+     * @return how the name is compared
+     * @since 0.6.0
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the term the name is compared to
+     *
+     * @return the term the name is compared to
+     * @since 0.6.0
+     */
+    public String getTerm() {
+        return term;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        final String name = target.nameOf(node);
+
+        if (name == null) {
+            return false;
+        }
+
+        switch (mode) {
+            case EQUALS:
+                return name.equals(term);
+            case STARTS_WITH:
+                return name.startsWith(term);
+            case ENDS_WITH:
+                return name.endsWith(term);
+            default:
+                return name.contains(term);
+        }
+    }
+}
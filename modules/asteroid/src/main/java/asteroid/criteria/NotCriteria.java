@@ -0,0 +1,26 @@
+package asteroid.criteria;
+
+/**
+ * Matches when its criteria doesn't match
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+final class NotCriteria<T> implements Criteria<T> {
+
+    private final Criteria<T> criteria;
+
+    NotCriteria(final Criteria<T> criteria) {
+        this.criteria = criteria;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        return !criteria.matches(node);
+    }
+
+    @Override
+    public Criteria<T> negate() {
+        return criteria;
+    }
+}
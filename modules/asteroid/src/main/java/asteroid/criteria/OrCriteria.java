@@ -0,0 +1,37 @@
+package asteroid.criteria;
+
+/**
+ * Matches when any of its criterias matches
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ */
+final class OrCriteria<T> implements Criteria<T> {
+
+    private final Criteria<? super T>[] criterias;
+
+    OrCriteria(final Criteria<? super T>[] criterias) {
+        this.criterias = criterias;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        for (final Criteria<? super T> criteria : criterias) {
+            if (criteria.matches(node)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the combined criterias
+     *
+     * @return the combined criterias
+     * @since 0.6.0
+     */
+    Criteria<? super T>[] getCriterias() {
+        return criterias;
+    }
+}
@@ -0,0 +1,78 @@
+package asteroid.criteria;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character trie keeping the entries registered for every prefix
+ * (or suffix when walked backwards)
+ *
+ * @since 0.6.0
+ */
+final class Trie {
+
+    private final Map<Character, Trie> children = new HashMap<>();
+    private BitSet entries;
+
+    /**
+     * Registers an entry under the term passed as parameter
+     *
+     * @param term the prefix, or suffix, of the entry
+     * @param reversed whether the term is a suffix or not
+     * @param entry the entry position
+     * @since 0.6.0
+     */
+    void add(final String term, final boolean reversed, final int entry) {
+        Trie current = this;
+        final int length = term.length();
+
+        for (int i = 0; i < length; i++) {
+            final Character next = term.charAt(reversed ? length - 1 - i : i);
+
+            Trie child = current.children.get(next);
+            if (child == null) {
+                child = new Trie();
+                current.children.put(next, child);
+            }
+
+            current = child;
+        }
+
+        if (current.entries == null) {
+            current.entries = new BitSet();
+        }
+
+        current.entries.set(entry);
+    }
+
+    /**
+     * Adds to the result all entries registered under any prefix, or
+     * suffix, of the name passed as parameter
+     *
+     * @param name the node name
+     * @param reversed whether to look for suffixes or prefixes
+     * @param result where entries are added
+     * @since 0.6.0
+     */
+    void collect(final String name, final boolean reversed, final BitSet result) {
+        Trie current = this;
+        final int length = name.length();
+
+        for (int i = 0; ; i++) {
+            if (current.entries != null) {
+                result.or(current.entries);
+            }
+
+            if (i == length) {
+                return;
+            }
+
+            current = current.children.get(name.charAt(reversed ? length - 1 - i : i));
+
+            if (current == null) {
+                return;
+            }
+        }
+    }
+}
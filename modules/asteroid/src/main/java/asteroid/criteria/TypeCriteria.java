@@ -0,0 +1,39 @@
+package asteroid.criteria;
+
+/**
+ * Matches nodes of a given type. A {@link CriteriaIndex} can use the
+ * type to skip nodes of any other type.
+ *
+ * @param <T> the type of the nodes checked
+ * @since 0.6.0
+ * @see asteroid.Criterias#byStmtByType(Class)
+ */
+public final class TypeCriteria<T> implements Criteria<T> {
+
+    private final Class<?> type;
+
+    /**
+     * Creates a criteria matching nodes of the type passed as parameter
+     *
+     * @param type the type of the nodes, if null no node matches
+     * @since 0.6.0
+     */
+    public TypeCriteria(final Class<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns the type of the nodes matching this criteria
+     *
+     * @return the type of the nodes matching this criteria
+     * @since 0.6.0
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public boolean matches(final T node) {
+        return type != null && type.isInstance(node);
+    }
+}
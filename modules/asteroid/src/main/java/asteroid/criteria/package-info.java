@@ -0,0 +1,5 @@
+/**
+ * This package contains the typed {@link asteroid.criteria.Criteria}
+ * API used by transformers to locate the nodes they're interested in
+ */
+package asteroid.criteria;
@@ -0,0 +1,598 @@
+package asteroid.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CompileUnit;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.classgen.asm.BytecodeHelper;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import asteroid.utils.MethodWeaver;
+
+/**
+ * Reports the final bytecode size of the methods generated, or
+ * modified, by asteroid transformations, in order to find out which
+ * methods are too big to be inlined, or even compiled, by the JIT.
+ * <br><br>
+ * The report is disabled by default. It's enabled for every
+ * compilation setting the system property
+ * <b>asteroid.bytecodeReport</b> to <b>true</b>, or to the path of
+ * the report file, or for a given compilation adding the
+ * <b>asteroid.bytecodeReport</b> flag to the compiler configuration
+ * optimization options:
+ *
+ * <pre><code>
+ * configuration.getOptimizationOptions().put("asteroid.bytecodeReport", true);
+ * </code></pre>
+ *
+ * When there is no report path the report is written to {@value
+ * #DEFAULT_REPORT}, in the compiler target directory if there is one.
+ * Report paths ending with <b>.csv</b> are written as CSV, a line
+ * per method, any other path is written as JSON.
+ * <br><br>
+ * Reported methods are the ones marked with {@link
+ * #touched(MethodNode)}. Methods added with {@link
+ * asteroid.utils.NodeUtils}, woven with {@link MethodWeaver}, or
+ * changed by any transformer are marked automatically. Methods
+ * generated by the Groovy compiler itself, like property accessors,
+ * are not reported even if they're annotated with {@link
+ * groovy.transform.Generated}. For every
+ * method the report contains the length of its bytecode, its maximum
+ * stack size and number of local variables, and whether it exceeds
+ * HotSpot's default <b>FreqInlineSize</b> ({@value
+ * MethodWeaver#FREQ_INLINE_SIZE} bytes) and <b>HugeMethodLimit</b>
+ * ({@value MethodWeaver#HUGE_METHOD_LIMIT} bytes).
+ * <br><br>
+ * The report is written once the compilation has generated the
+ * bytecode of all classes.
+ *
+ * @since 0.6.0
+ */
+public final class BytecodeReport {
+
+    /**
+     * Name of the system property, and of the compiler configuration
+     * optimization option, enabling the report
+     *
+     * @since 0.6.0
+     */
+    public static final String PROPERTY = "asteroid.bytecodeReport";
+
+    /**
+     * Name of the report file when no path has been provided
+     *
+     * @since 0.6.0
+     */
+    public static final String DEFAULT_REPORT = "asteroid-bytecode.json";
+
+    private static final String TOUCHED = BytecodeReport.class.getName() + ".touched";
+    private static final String GENERATED = "groovy.transform.Generated";
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final Map<CompileUnit, BytecodeReport> REPORTS =
+        Collections.synchronizedMap(new WeakHashMap<CompileUnit, BytecodeReport>());
+
+    private final File report;
+    private final List<Method> methods = new ArrayList<>();
+    private boolean scheduled;
+
+    private BytecodeReport(final File report) {
+        this.report = report;
+    }
+
+    /**
+     * Bytecode numbers of a reported method
+     *
+     * @since 0.6.0
+     */
+    public static final class Method {
+
+        private final String className;
+        private final String name;
+        private final String descriptor;
+        private final String origin;
+        private final int length;
+        private final int maxStack;
+        private final int maxLocals;
+
+        Method(final String className,
+               final String name,
+               final String descriptor,
+               final String origin,
+               final int[] numbers) {
+            this.className = className;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.origin = origin;
+            this.length = numbers[0];
+            this.maxStack = numbers[1];
+            this.maxLocals = numbers[2];
+        }
+
+        /**
+         * Returns the name of the class declaring the method
+         *
+         * @return the class name
+         * @since 0.6.0
+         */
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * Returns the method name
+         *
+         * @return the method name
+         * @since 0.6.0
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the method descriptor
+         *
+         * @return the JVM descriptor of the method
+         * @since 0.6.0
+         */
+        public String getDescriptor() {
+            return descriptor;
+        }
+
+        /**
+         * Returns why the method is reported
+         *
+         * @return <b>generated</b> for methods added by a
+         * transformation and annotated with {@link
+         * groovy.transform.Generated}, <b>touched</b> otherwise
+         * @since 0.6.0
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        /**
+         * Returns the length of the method bytecode
+         *
+         * @return the length in bytes
+         * @since 0.6.0
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the maximum size of the method operand stack
+         *
+         * @return the maximum stack size
+         * @since 0.6.0
+         */
+        public int getMaxStack() {
+            return maxStack;
+        }
+
+        /**
+         * Returns the number of local variables of the method,
+         * including its parameters
+         *
+         * @return the maximum number of local variables
+         * @since 0.6.0
+         */
+        public int getMaxLocals() {
+            return maxLocals;
+        }
+
+        /**
+         * Whether the method is too big to be inlined by the JIT even
+         * if it's frequently executed
+         *
+         * @return true if the bytecode is longer than {@link
+         * MethodWeaver#FREQ_INLINE_SIZE}
+         * @since 0.6.0
+         */
+        public boolean isOverFreqInlineSize() {
+            return length > MethodWeaver.FREQ_INLINE_SIZE;
+        }
+
+        /**
+         * Whether the method is too big to be compiled by the JIT
+         *
+         * @return true if the bytecode is longer than {@link
+         * MethodWeaver#HUGE_METHOD_LIMIT}
+         * @since 0.6.0
+         */
+        public boolean isOverHugeMethodLimit() {
+            return length > MethodWeaver.HUGE_METHOD_LIMIT;
+        }
+    }
+
+    /**
+     * Marks the method passed as parameter as modified by a
+     * transformation, so it's included in the report
+     *
+     * @param methodNode the modified method
+     * @since 0.6.0
+     */
+    public static void touched(final MethodNode methodNode) {
+        if (!isTouched(methodNode)) {
+            methodNode.setNodeMetaData(TOUCHED, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns whether the method passed as parameter has been marked
+     * as modified by a transformation
+     *
+     * @param methodNode the method to check
+     * @return true if the method has been modified
+     * @since 0.6.0
+     */
+    public static boolean isTouched(final MethodNode methodNode) {
+        return methodNode.getNodeMetaData(TOUCHED) != null;
+    }
+
+    /**
+     * Schedules the report of the compilation the source unit passed
+     * as parameter belongs to, if the report is enabled
+     *
+     * @param sourceUnit a source unit being transformed
+     * @param compilationUnit the current compilation, it may be null
+     * @return the report of the compilation or null if the report is
+     * disabled
+     * @since 0.6.0
+     */
+    public static BytecodeReport schedule(final SourceUnit sourceUnit, final CompilationUnit compilationUnit) {
+        final ModuleNode module = sourceUnit == null ? null : sourceUnit.getAST();
+        final CompileUnit compileUnit = module == null ? null : module.getUnit();
+
+        if (compileUnit == null || compilationUnit == null) {
+            return null;
+        }
+
+        final File report = reportOf(sourceUnit.getConfiguration());
+
+        if (report == null) {
+            return null;
+        }
+
+        BytecodeReport bytecodeReport;
+
+        synchronized (REPORTS) {
+            bytecodeReport = REPORTS.get(compileUnit);
+
+            if (bytecodeReport == null) {
+                bytecodeReport = new BytecodeReport(report);
+                REPORTS.put(compileUnit, bytecodeReport);
+            }
+        }
+
+        bytecodeReport.scheduleOnce(compilationUnit);
+
+        return bytecodeReport;
+    }
+
+    /**
+     * Returns the file the report will be written to
+     *
+     * @return the report file
+     * @since 0.6.0
+     */
+    public File getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the methods reported so far
+     *
+     * @return the reported methods
+     * @since 0.6.0
+     */
+    public synchronized List<Method> getMethods() {
+        return Collections.unmodifiableList(new ArrayList<>(methods));
+    }
+
+    /**
+     * Returns the report as a JSON document
+     *
+     * @return the report as JSON
+     * @since 0.6.0
+     */
+    public synchronized String toJson() {
+        final StringBuilder json = new StringBuilder(256)
+            .append("{\n  \"freqInlineSize\": ").append(MethodWeaver.FREQ_INLINE_SIZE)
+            .append(",\n  \"hugeMethodLimit\": ").append(MethodWeaver.HUGE_METHOD_LIMIT)
+            .append(",\n  \"methods\": [");
+
+        String separator = "\n";
+
+        for (final Method method : methods) {
+            json.append(separator).append("    {\n      \"class\": ");
+            appendString(json, method.className);
+            json.append(",\n      \"method\": ");
+            appendString(json, method.name);
+            json.append(",\n      \"descriptor\": ");
+            appendString(json, method.descriptor);
+            json.append(",\n      \"origin\": ");
+            appendString(json, method.origin);
+            json.append(",\n      \"bytecodeLength\": ").append(method.length)
+                .append(",\n      \"maxStack\": ").append(method.maxStack)
+                .append(",\n      \"maxLocals\": ").append(method.maxLocals)
+                .append(",\n      \"overFreqInlineSize\": ").append(method.isOverFreqInlineSize())
+                .append(",\n      \"overHugeMethodLimit\": ").append(method.isOverHugeMethodLimit())
+                .append("\n    }");
+            separator = ",\n";
+        }
+
+        return json.append(methods.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    /**
+     * Returns the report as CSV, with a header line and a line per
+     * method
+     *
+     * @return the report as CSV
+     * @since 0.6.0
+     */
+    public synchronized String toCsv() {
+        final StringBuilder csv = new StringBuilder(256)
+            .append("class,method,descriptor,origin,bytecodeLength,maxStack,maxLocals,overFreqInlineSize,overHugeMethodLimit\n");
+
+        for (final Method method : methods) {
+            csv.append(method.className).append(',')
+                .append(method.name).append(',')
+                .append('"').append(method.descriptor).append("\",")
+                .append(method.origin).append(',')
+                .append(method.length).append(',')
+                .append(method.maxStack).append(',')
+                .append(method.maxLocals).append(',')
+                .append(method.isOverFreqInlineSize()).append(',')
+                .append(method.isOverHugeMethodLimit()).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    /**
+     * Writes the report, as CSV if the report file name ends with
+     * <b>.csv</b> or as JSON otherwise
+     *
+     * @throws IOException if the report couldn't be written
+     * @since 0.6.0
+     */
+    public void writeReport() throws IOException {
+        final File parent = report.getAbsoluteFile().getParentFile();
+
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        final String content = report.getName().endsWith(".csv") ? toCsv() : toJson();
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(report.toPath()), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+    private static File reportOf(final CompilerConfiguration configuration) {
+        final String property = System.getProperty(PROPERTY);
+        final boolean propertyEnabled = property != null && !"false".equalsIgnoreCase(property);
+        final Map<String, Boolean> options = configuration == null ? null : configuration.getOptimizationOptions();
+        final boolean optionEnabled = options != null && Boolean.TRUE.equals(options.get(PROPERTY));
+
+        if (!propertyEnabled && !optionEnabled) {
+            return null;
+        }
+
+        if (propertyEnabled && !"true".equalsIgnoreCase(property)) {
+            return new File(property);
+        }
+
+        final File target = configuration == null ? null : configuration.getTargetDirectory();
+
+        return target == null ? new File(DEFAULT_REPORT) : new File(target, DEFAULT_REPORT);
+    }
+
+    private synchronized void scheduleOnce(final CompilationUnit compilationUnit) {
+        if (scheduled) {
+            return;
+        }
+
+        scheduled = true;
+        TransformationUtils.writeAfterClassGeneration(compilationUnit, "Asteroid bytecode report to " + report, () -> {
+            collect(compilationUnit);
+            writeReport();
+        });
+    }
+
+    private void collect(final CompilationUnit compilationUnit) throws IOException {
+        final Map<String, byte[]> bytecode = new HashMap<>();
+
+        for (final Object generated : compilationUnit.getClasses()) {
+            final GroovyClass groovyClass = (GroovyClass) generated;
+
+            bytecode.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+
+        for (final ClassNode classNode : compilationUnit.getAST().getClasses()) {
+            final byte[] bytes = bytecode.get(classNode.getName());
+
+            if (bytes == null) {
+                continue;
+            }
+
+            final List<MethodNode> candidates = new ArrayList<>(classNode.getDeclaredConstructors());
+            candidates.addAll(classNode.getMethods());
+
+            Map<String, int[]> numbers = null;
+
+            for (final MethodNode methodNode : candidates) {
+                final String origin = originOf(methodNode);
+
+                if (origin == null) {
+                    continue;
+                }
+
+                if (numbers == null) {
+                    numbers = readMethods(bytes);
+                }
+
+                final String descriptor = BytecodeHelper.getMethodDescriptor(methodNode.getReturnType(), methodNode.getParameters());
+                final int[] found = numbers.get(methodNode.getName() + descriptor);
+
+                if (found != null) {
+                    methods.add(new Method(classNode.getName(), methodNode.getName(), descriptor, origin, found));
+                }
+            }
+        }
+    }
+
+    private static String originOf(final MethodNode methodNode) {
+        if (!isTouched(methodNode)) {
+            return null;
+        }
+
+        for (final AnnotationNode annotation : methodNode.getAnnotations()) {
+            if (GENERATED.equals(annotation.getClassNode().getName())) {
+                return "generated";
+            }
+        }
+
+        return "touched";
+    }
+
+    /**
+     * Reads the code length, max stack and max locals of every
+     * method of a class file, by method name and descriptor
+     */
+    private static Map<String, int[]> readMethods(final byte[] bytes) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        input.skipBytes(8); // magic and version
+
+        final int poolSize = input.readUnsignedShort();
+        final String[] utf8 = new String[poolSize];
+
+        for (int i = 1; i < poolSize; i++) {
+            final int tag = input.readUnsignedByte();
+
+            if (tag == CONSTANT_UTF8) {
+                utf8[i] = input.readUTF();
+            } else if (tag == CONSTANT_LONG || tag == CONSTANT_DOUBLE) {
+                input.skipBytes(8);
+                i++;
+            } else {
+                input.skipBytes(sizeOfConstant(tag));
+            }
+        }
+
+        input.skipBytes(6); // access flags, this class and super class
+        input.skipBytes(2 * input.readUnsignedShort());
+
+        final int fields = input.readUnsignedShort();
+
+        for (int i = 0; i < fields; i++) {
+            input.skipBytes(6);
+            skipAttributes(input);
+        }
+
+        final int methodCount = input.readUnsignedShort();
+        final Map<String, int[]> numbers = new HashMap<>();
+
+        for (int i = 0; i < methodCount; i++) {
+            input.skipBytes(2);
+
+            final String name = utf8[input.readUnsignedShort()];
+            final String descriptor = utf8[input.readUnsignedShort()];
+            final int attributes = input.readUnsignedShort();
+
+            for (int j = 0; j < attributes; j++) {
+                final String attribute = utf8[input.readUnsignedShort()];
+                final int length = input.readInt();
+
+                if ("Code".equals(attribute)) {
+                    final int maxStack = input.readUnsignedShort();
+                    final int maxLocals = input.readUnsignedShort();
+                    final int codeLength = input.readInt();
+
+                    numbers.put(name + descriptor, new int[] {codeLength, maxStack, maxLocals});
+                    input.skipBytes(length - 8);
+                } else {
+                    input.skipBytes(length);
+                }
+            }
+        }
+
+        return numbers;
+    }
+
+    private static int sizeOfConstant(final int tag) throws IOException {
+        switch (tag) {
+            case 7: // class
+            case 8: // string
+            case 16: // method type
+            case 19: // module
+            case 20: // package
+                return 2;
+            case 15: // method handle
+                return 3;
+            case 3: // integer
+            case 4: // float
+            case 9: // field
+            case 10: // method
+            case 11: // interface method
+            case 12: // name and type
+            case 17: // dynamic
+            case 18: // invoke dynamic
+                return 4;
+            default:
+                throw new IOException("Unknown constant pool tag " + tag);
+        }
+    }
+
+    private static void skipAttributes(final DataInputStream input) throws IOException {
+        final int attributes = input.readUnsignedShort();
+
+        for (int i = 0; i < attributes; i++) {
+            input.skipBytes(2);
+            input.skipBytes(input.readInt());
+        }
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            final char character = value.charAt(i);
+
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < ' ') {
+                json.append(String.format("\\u%04x", (int) character));
+            } else {
+                json.append(character);
+            }
+        }
+
+        json.append('"');
+    }
+}
@@ -0,0 +1,79 @@
+package asteroid.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.groovy.control.ErrorCollector;
+import org.codehaus.groovy.control.messages.Message;
+
+/**
+ * Keeps errors found by transformers applied in parallel, so they
+ * could be added later to the source unit in a deterministic order.
+ * Errors are kept per thread between calls to {@link #start()} and
+ * {@link #stop()}.
+ *
+ * @since 0.6.0
+ */
+public final class DeferredErrors {
+
+    private static final ThreadLocal<List<Message>> ERRORS = new ThreadLocal<>();
+
+    private DeferredErrors() {
+        // utility class
+    }
+
+    /**
+     * Starts keeping errors found by the current thread
+     *
+     * @since 0.6.0
+     */
+    public static void start() {
+        ERRORS.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops keeping errors in the current thread
+     *
+     * @return all errors kept since {@link #start()} was called
+     * @since 0.6.0
+     */
+    public static List<Message> stop() {
+        final List<Message> errors = ERRORS.get();
+        ERRORS.remove();
+
+        return errors == null ? new ArrayList<>() : errors;
+    }
+
+    /**
+     * Keeps the error passed as parameter if the current thread is
+     * deferring errors
+     *
+     * @param message the error
+     * @return true if the error has been kept, false if it should be
+     * added directly to the source unit
+     * @since 0.6.0
+     */
+    public static boolean defer(final Message message) {
+        final List<Message> errors = ERRORS.get();
+
+        if (errors == null) {
+            return false;
+        }
+
+        errors.add(message);
+        return true;
+    }
+
+    /**
+     * Adds all errors passed as parameter to the collector
+     *
+     * @param collector the source unit error collector
+     * @param errors errors previously kept
+     * @since 0.6.0
+     */
+    public static void flush(final ErrorCollector collector, final List<Message> errors) {
+        for (final Message message : errors) {
+            collector.addErrorAndContinue(message);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package asteroid.internal;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.BitwiseNegationExpression;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.ElvisOperatorExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.ExpressionTransformer;
+import org.codehaus.groovy.ast.expr.GStringExpression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.MethodPointerExpression;
+import org.codehaus.groovy.ast.expr.NotExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.RangeExpression;
+import org.codehaus.groovy.ast.expr.SpreadExpression;
+import org.codehaus.groovy.ast.expr.SpreadMapExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.UnaryPlusExpression;
+
+/**
+ * Knows the direct children of the most common {@link Expression}
+ * types, those passed to the transformer by {@link
+ * Expression#transformExpression(ExpressionTransformer)}, in the
+ * same order they are passed.
+ * <br><br>
+ * Only exact types are known: a subclass of a known type is
+ * considered unknown, as it may have children of its own.
+ *
+ * @since 0.6.0
+ */
+public final class ExpressionChildren {
+
+    /**
+     * Value returned by {@link #count(Expression)} for expression
+     * types without known children
+     *
+     * @since 0.6.0
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final Map<Class<?>, Children> CHILDREN = new HashMap<>();
+    private static final ClassValue<Children> BY_TYPE = new ClassValue<Children>() {
+        @Override
+        protected Children computeValue(final Class<?> type) {
+            return CHILDREN.get(type);
+        }
+    };
+
+    static {
+        register(BinaryExpression.class, new Fixed<BinaryExpression>(2) {
+            @Override
+            Expression child(final BinaryExpression expression, final int index) {
+                return index == 0 ? expression.getLeftExpression() : expression.getRightExpression();
+            }
+        });
+        register(DeclarationExpression.class, CHILDREN.get(BinaryExpression.class));
+        register(MethodCallExpression.class, new Fixed<MethodCallExpression>(3) {
+            @Override
+            Expression child(final MethodCallExpression expression, final int index) {
+                switch (index) {
+                case 0:
+                    return expression.getObjectExpression();
+                case 1:
+                    return expression.getMethod();
+                default:
+                    return expression.getArguments();
+                }
+            }
+        });
+        register(StaticMethodCallExpression.class, new Fixed<StaticMethodCallExpression>(1) {
+            @Override
+            Expression child(final StaticMethodCallExpression expression, final int index) {
+                return expression.getArguments();
+            }
+        });
+        register(ConstructorCallExpression.class, new Fixed<ConstructorCallExpression>(1) {
+            @Override
+            Expression child(final ConstructorCallExpression expression, final int index) {
+                return expression.getArguments();
+            }
+        });
+        register(PropertyExpression.class, new Fixed<PropertyExpression>(2) {
+            @Override
+            Expression child(final PropertyExpression expression, final int index) {
+                return index == 0 ? expression.getObjectExpression() : expression.getProperty();
+            }
+        });
+        register(AttributeExpression.class, CHILDREN.get(PropertyExpression.class));
+        register(TernaryExpression.class, new Fixed<TernaryExpression>(3) {
+            @Override
+            Expression child(final TernaryExpression expression, final int index) {
+                switch (index) {
+                case 0:
+                    return expression.getBooleanExpression();
+                case 1:
+                    return expression.getTrueExpression();
+                default:
+                    return expression.getFalseExpression();
+                }
+            }
+        });
+        register(ElvisOperatorExpression.class, new Fixed<ElvisOperatorExpression>(2) {
+            @Override
+            Expression child(final ElvisOperatorExpression expression, final int index) {
+                return index == 0 ? expression.getTrueExpression() : expression.getFalseExpression();
+            }
+        });
+        register(MapEntryExpression.class, new Fixed<MapEntryExpression>(2) {
+            @Override
+            Expression child(final MapEntryExpression expression, final int index) {
+                return index == 0 ? expression.getKeyExpression() : expression.getValueExpression();
+            }
+        });
+        register(RangeExpression.class, new Fixed<RangeExpression>(2) {
+            @Override
+            Expression child(final RangeExpression expression, final int index) {
+                return index == 0 ? expression.getFrom() : expression.getTo();
+            }
+        });
+        register(MethodPointerExpression.class, new Fixed<MethodPointerExpression>(2) {
+            @Override
+            Expression child(final MethodPointerExpression expression, final int index) {
+                return index == 0 ? expression.getExpression() : expression.getMethodName();
+            }
+        });
+        register(BooleanExpression.class, new Fixed<BooleanExpression>(1) {
+            @Override
+            Expression child(final BooleanExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(NotExpression.class, CHILDREN.get(BooleanExpression.class));
+        register(CastExpression.class, new Fixed<CastExpression>(1) {
+            @Override
+            Expression child(final CastExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(PrefixExpression.class, new Fixed<PrefixExpression>(1) {
+            @Override
+            Expression child(final PrefixExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(PostfixExpression.class, new Fixed<PostfixExpression>(1) {
+            @Override
+            Expression child(final PostfixExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(UnaryMinusExpression.class, new Fixed<UnaryMinusExpression>(1) {
+            @Override
+            Expression child(final UnaryMinusExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(UnaryPlusExpression.class, new Fixed<UnaryPlusExpression>(1) {
+            @Override
+            Expression child(final UnaryPlusExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(BitwiseNegationExpression.class, new Fixed<BitwiseNegationExpression>(1) {
+            @Override
+            Expression child(final BitwiseNegationExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(SpreadExpression.class, new Fixed<SpreadExpression>(1) {
+            @Override
+            Expression child(final SpreadExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(SpreadMapExpression.class, new Fixed<SpreadMapExpression>(1) {
+            @Override
+            Expression child(final SpreadMapExpression expression, final int index) {
+                return expression.getExpression();
+            }
+        });
+        register(TupleExpression.class, new Listed<TupleExpression>() {
+            @Override
+            List<? extends Expression> list(final TupleExpression expression) {
+                return expression.getExpressions();
+            }
+        });
+        register(ArgumentListExpression.class, CHILDREN.get(TupleExpression.class));
+        register(ListExpression.class, new Listed<ListExpression>() {
+            @Override
+            List<? extends Expression> list(final ListExpression expression) {
+                return expression.getExpressions();
+            }
+        });
+        register(MapExpression.class, new Listed<MapExpression>() {
+            @Override
+            List<? extends Expression> list(final MapExpression expression) {
+                return expression.getMapEntryExpressions();
+            }
+        });
+        register(GStringExpression.class, new Children() {
+            @Override
+            int count(final Expression expression) {
+                final GStringExpression gstring = (GStringExpression) expression;
+                return gstring.getStrings().size() + gstring.getValues().size();
+            }
+
+            @Override
+            Expression get(final Expression expression, final int index) {
+                final GStringExpression gstring = (GStringExpression) expression;
+                final int strings = gstring.getStrings().size();
+
+                return index < strings ? gstring.getStrings().get(index) : gstring.getValues().get(index - strings);
+            }
+        });
+    }
+
+    private ExpressionChildren() {
+        // utility class
+    }
+
+    private static void register(final Class<? extends Expression> type, final Children children) {
+        CHILDREN.put(type, children);
+    }
+
+    /**
+     * Returns the number of direct children of the expression passed
+     * as parameter, including null children
+     *
+     * @param expression the expression to check
+     * @return the number of children or {@link #UNKNOWN} if the
+     * children of the expression type are not known
+     * @since 0.6.0
+     */
+    public static int count(final Expression expression) {
+        final Children children = BY_TYPE.get(expression.getClass());
+
+        return children == null ? UNKNOWN : children.count(expression);
+    }
+
+    /**
+     * Returns all direct children of the expression passed as
+     * parameter, including null children
+     *
+     * @param expression the expression to check
+     * @return an array with the children or null if the children of
+     * the expression type are not known
+     * @since 0.6.0
+     */
+    @SuppressWarnings("PMD.ReturnEmptyArrayRatherThanNull")
+    public static Expression[] of(final Expression expression) {
+        final Children children = BY_TYPE.get(expression.getClass());
+
+        if (children == null) {
+            return null;
+        }
+
+        final Expression[] result = new Expression[children.count(expression)];
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = children.get(expression, i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the child of the expression at the given position. The
+     * expression type must be known, see {@link #count(Expression)}
+     *
+     * @param expression the parent expression
+     * @param index the position of the child
+     * @return the child at the given position, it may be null
+     * @since 0.6.0
+     */
+    public static Expression get(final Expression expression, final int index) {
+        return BY_TYPE.get(expression.getClass()).get(expression, index);
+    }
+
+    /**
+     * Knows how to get the direct children of an expression type,
+     * those passed to the transformer by {@link
+     * Expression#transformExpression(ExpressionTransformer)}
+     */
+    private abstract static class Children {
+        abstract int count(Expression expression);
+
+        abstract Expression get(Expression expression, int index);
+    }
+
+    /**
+     * Children of expressions with a fixed number of children
+     */
+    @SuppressWarnings("unchecked")
+    private abstract static class Fixed<T extends Expression> extends Children {
+        private final int count;
+
+        Fixed(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        int count(final Expression expression) {
+            return count;
+        }
+
+        @Override
+        Expression get(final Expression expression, final int index) {
+            return child((T) expression, index);
+        }
+
+        abstract Expression child(T expression, int index);
+    }
+
+    /**
+     * Children of expressions keeping their children in a list
+     */
+    @SuppressWarnings("unchecked")
+    private abstract static class Listed<T extends Expression> extends Children {
+        @Override
+        int count(final Expression expression) {
+            return list((T) expression).size();
+        }
+
+        @Override
+        Expression get(final Expression expression, final int index) {
+            return list((T) expression).get(index);
+        }
+
+        abstract List<? extends Expression> list(T expression);
+    }
+}
@@ -0,0 +1,420 @@
+package asteroid.internal;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ArrayExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.BitwiseNegationExpression;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ClosureListExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.ElvisOperatorExpression;
+import org.codehaus.groovy.ast.expr.EmptyExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.FieldExpression;
+import org.codehaus.groovy.ast.expr.GStringExpression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.MethodPointerExpression;
+import org.codehaus.groovy.ast.expr.NotExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.RangeExpression;
+import org.codehaus.groovy.ast.expr.SpreadExpression;
+import org.codehaus.groovy.ast.expr.SpreadMapExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.UnaryPlusExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.classgen.BytecodeExpression;
+
+/**
+ * Keeps, per method, which {@link Expression} types can be found in
+ * the method. Expression transformers use this summary to skip
+ * methods that can't contain the type of expression they're looking
+ * for.
+ * <br><br>
+ * Summaries are computed lazily and cached in the {@link MethodNode}
+ * metadata, but only while a class node is being transformed by a
+ * global transformation (see {@link #enable(ClassNode)}). Any
+ * transformer modifying a method should call {@link
+ * #invalidate(MethodNode)} afterwards.
+ *
+ * @since 0.6.0
+ */
+public final class ExpressionSummary {
+
+    private static final String SUMMARY = ExpressionSummary.class.getName() + ".summary";
+    private static final String ENABLED = ExpressionSummary.class.getName() + ".enabled";
+
+    private ExpressionSummary() {
+        // utility class
+    }
+
+    /**
+     * Starts caching summaries of the methods of the class node
+     * passed as parameter
+     *
+     * @param classNode the class node about to be transformed
+     * @since 0.6.0
+     */
+    public static void enable(final ClassNode classNode) {
+        classNode.setNodeMetaData(ENABLED, Boolean.TRUE);
+    }
+
+    /**
+     * Stops caching summaries of the methods of the class node passed
+     * as parameter and removes the summaries already computed
+     *
+     * @param classNode the class node already transformed
+     * @since 0.6.0
+     */
+    public static void disable(final ClassNode classNode) {
+        reset(classNode);
+        classNode.removeNodeMetaData(ENABLED);
+    }
+
+    /**
+     * Removes the summaries computed for the methods of the class
+     * node passed as parameter. It should be called after applying
+     * any transformer that may have changed the class node without
+     * invalidating the summaries.
+     *
+     * @param classNode the class node to reset
+     * @since 0.6.0
+     */
+    public static void reset(final ClassNode classNode) {
+        for (final MethodNode methodNode : classNode.getMethods()) {
+            invalidate(methodNode);
+        }
+
+        for (final MethodNode constructor : classNode.getDeclaredConstructors()) {
+            invalidate(constructor);
+        }
+    }
+
+    /**
+     * Removes the summary of the method passed as parameter, if any.
+     *
+     * @param methodNode the method that has been modified
+     * @since 0.6.0
+     */
+    public static void invalidate(final MethodNode methodNode) {
+        methodNode.removeNodeMetaData(SUMMARY);
+    }
+
+    /**
+     * Checks whether the method passed as parameter may contain any
+     * expression of the type passed as parameter. When summaries are
+     * not enabled for the method declaring class, or the type can't be
+     * summarized (such as {@link Expression} or {@link EmptyExpression})
+     * it always returns true.
+     *
+     * @param methodNode the method to check
+     * @param type the type of the expression
+     * @return false only when the method doesn't contain any
+     * expression of the type passed as parameter
+     * @since 0.6.0
+     */
+    public static boolean mayContain(final MethodNode methodNode, final Class<?> type) {
+        if (type == null || type.isAssignableFrom(EmptyExpression.class) || !isEnabled(methodNode)) {
+            return true;
+        }
+
+        for (final Class<?> found : summaryOf(methodNode)) {
+            if (type.isAssignableFrom(found)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isEnabled(final MethodNode methodNode) {
+        final ClassNode classNode = methodNode.getDeclaringClass();
+
+        return classNode != null && classNode.getNodeMetaData(ENABLED) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Class<?>> summaryOf(final MethodNode methodNode) {
+        final Set<Class<?>> cached = (Set<Class<?>>) methodNode.getNodeMetaData(SUMMARY);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Collector collector = new Collector();
+
+        collector.visitAnnotations(methodNode.getAnnotations());
+
+        for (final Parameter parameter : methodNode.getParameters()) {
+            collector.visitAnnotations(parameter.getAnnotations());
+
+            if (parameter.hasInitialExpression()) {
+                parameter.getInitialExpression().visit(collector);
+            }
+        }
+
+        final Statement code = methodNode.getCode();
+
+        if (code != null) {
+            code.visit(collector);
+        }
+
+        methodNode.setNodeMetaData(SUMMARY, collector.types);
+
+        return collector.types;
+    }
+
+    /**
+     * Collects the types of all expressions found without changing
+     * any of them. It's also used to build the {@link SourceIndex}.
+     */
+    @SuppressWarnings("PMD.TooManyMethods")
+    static class Collector extends CodeVisitorSupport {
+
+        private final Set<Class<?>> types = new HashSet<>();
+
+        void visitAnnotations(final Iterable<AnnotationNode> annotations) {
+            for (final AnnotationNode annotation : annotations) {
+                for (final Expression value : annotation.getMembers().values()) {
+                    value.visit(this);
+                }
+            }
+        }
+
+        void add(final Expression expression) {
+            types.add(expression.getClass());
+        }
+
+        @Override
+        public void visitMethodCallExpression(final MethodCallExpression call) {
+            add(call);
+            super.visitMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitStaticMethodCallExpression(final StaticMethodCallExpression call) {
+            add(call);
+            super.visitStaticMethodCallExpression(call);
+        }
+
+        @Override
+        public void visitConstructorCallExpression(final ConstructorCallExpression call) {
+            add(call);
+            super.visitConstructorCallExpression(call);
+        }
+
+        @Override
+        public void visitTernaryExpression(final TernaryExpression expression) {
+            add(expression);
+            super.visitTernaryExpression(expression);
+        }
+
+        @Override
+        public void visitShortTernaryExpression(final ElvisOperatorExpression expression) {
+            add(expression);
+            super.visitShortTernaryExpression(expression);
+        }
+
+        @Override
+        public void visitBinaryExpression(final BinaryExpression expression) {
+            add(expression);
+            super.visitBinaryExpression(expression);
+        }
+
+        @Override
+        public void visitPrefixExpression(final PrefixExpression expression) {
+            add(expression);
+            super.visitPrefixExpression(expression);
+        }
+
+        @Override
+        public void visitPostfixExpression(final PostfixExpression expression) {
+            add(expression);
+            super.visitPostfixExpression(expression);
+        }
+
+        @Override
+        public void visitBooleanExpression(final BooleanExpression expression) {
+            add(expression);
+            super.visitBooleanExpression(expression);
+        }
+
+        @Override
+        public void visitClosureExpression(final ClosureExpression expression) {
+            add(expression);
+            super.visitClosureExpression(expression);
+        }
+
+        @Override
+        public void visitTupleExpression(final TupleExpression expression) {
+            add(expression);
+            super.visitTupleExpression(expression);
+        }
+
+        @Override
+        public void visitMapExpression(final MapExpression expression) {
+            add(expression);
+            super.visitMapExpression(expression);
+        }
+
+        @Override
+        public void visitMapEntryExpression(final MapEntryExpression expression) {
+            add(expression);
+            super.visitMapEntryExpression(expression);
+        }
+
+        @Override
+        public void visitListExpression(final ListExpression expression) {
+            add(expression);
+            super.visitListExpression(expression);
+        }
+
+        @Override
+        public void visitRangeExpression(final RangeExpression expression) {
+            add(expression);
+            super.visitRangeExpression(expression);
+        }
+
+        @Override
+        public void visitPropertyExpression(final PropertyExpression expression) {
+            add(expression);
+            super.visitPropertyExpression(expression);
+        }
+
+        @Override
+        public void visitAttributeExpression(final AttributeExpression expression) {
+            add(expression);
+            super.visitAttributeExpression(expression);
+        }
+
+        @Override
+        public void visitFieldExpression(final FieldExpression expression) {
+            add(expression);
+            super.visitFieldExpression(expression);
+        }
+
+        @Override
+        public void visitMethodPointerExpression(final MethodPointerExpression expression) {
+            add(expression);
+            super.visitMethodPointerExpression(expression);
+        }
+
+        @Override
+        public void visitConstantExpression(final ConstantExpression expression) {
+            add(expression);
+            super.visitConstantExpression(expression);
+        }
+
+        @Override
+        public void visitClassExpression(final ClassExpression expression) {
+            add(expression);
+            super.visitClassExpression(expression);
+        }
+
+        @Override
+        public void visitVariableExpression(final VariableExpression expression) {
+            add(expression);
+            super.visitVariableExpression(expression);
+        }
+
+        @Override
+        public void visitDeclarationExpression(final DeclarationExpression expression) {
+            add(expression);
+            super.visitDeclarationExpression(expression);
+        }
+
+        @Override
+        public void visitGStringExpression(final GStringExpression expression) {
+            add(expression);
+            super.visitGStringExpression(expression);
+        }
+
+        @Override
+        public void visitArrayExpression(final ArrayExpression expression) {
+            add(expression);
+            super.visitArrayExpression(expression);
+        }
+
+        @Override
+        public void visitSpreadExpression(final SpreadExpression expression) {
+            add(expression);
+            super.visitSpreadExpression(expression);
+        }
+
+        @Override
+        public void visitSpreadMapExpression(final SpreadMapExpression expression) {
+            add(expression);
+            super.visitSpreadMapExpression(expression);
+        }
+
+        @Override
+        public void visitNotExpression(final NotExpression expression) {
+            add(expression);
+            super.visitNotExpression(expression);
+        }
+
+        @Override
+        public void visitUnaryMinusExpression(final UnaryMinusExpression expression) {
+            add(expression);
+            super.visitUnaryMinusExpression(expression);
+        }
+
+        @Override
+        public void visitUnaryPlusExpression(final UnaryPlusExpression expression) {
+            add(expression);
+            super.visitUnaryPlusExpression(expression);
+        }
+
+        @Override
+        public void visitBitwiseNegationExpression(final BitwiseNegationExpression expression) {
+            add(expression);
+            super.visitBitwiseNegationExpression(expression);
+        }
+
+        @Override
+        public void visitCastExpression(final CastExpression expression) {
+            add(expression);
+            super.visitCastExpression(expression);
+        }
+
+        @Override
+        public void visitArgumentlistExpression(final ArgumentListExpression expression) {
+            add(expression);
+            super.visitArgumentlistExpression(expression);
+        }
+
+        @Override
+        public void visitClosureListExpression(final ClosureListExpression expression) {
+            add(expression);
+            super.visitClosureListExpression(expression);
+        }
+
+        @Override
+        public void visitBytecodeExpression(final BytecodeExpression expression) {
+            add(expression);
+            super.visitBytecodeExpression(expression);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package asteroid.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Emits Java Flight Recorder events while asteroid transformations
+ * are applied, so their work can be correlated with garbage
+ * collections, class loading and the rest of the JVM activity
+ * recorded by JFR.
+ * <br><br>
+ * Asteroid still targets Java 8, so event types are not declared as
+ * {@code jdk.jfr.Event} subclasses. They are created at runtime
+ * using {@code jdk.jfr.EventFactory} through reflection. When the
+ * running JVM doesn't have JFR, or no recording has enabled the
+ * event types, no event is created at all.
+ * <br><br>
+ * There are three event types, all of them under the <b>Asteroid</b>
+ * category:
+ *
+ * <ul>
+ *     <li><b>asteroid.LocalTransformation</b>: a local transformation
+ *     applied to an annotated node</li>
+ *     <li><b>asteroid.GlobalTransformation</b>: a global
+ *     transformation applied to a source unit</li>
+ *     <li><b>asteroid.TransformerVisit</b>: a transformer applied to
+ *     a class node by a global transformation</li>
+ * </ul>
+ *
+ * Every event has the name of the source unit, the name of the
+ * class, the name of the transformation or transformer class, and
+ * how many nodes were visited and rewritten.
+ *
+ * @since 0.6.0
+ */
+public final class FlightRecorder {
+
+    private static final Support SUPPORT = Support.load();
+
+    private FlightRecorder() {
+        // only static access
+    }
+
+    /**
+     * Types of events emitted by asteroid
+     *
+     * @since 0.6.0
+     */
+    public enum Type {
+        /**
+         * A local transformation applied to an annotated node
+         *
+         * @since 0.6.0
+         */
+        LOCAL_TRANSFORMATION("asteroid.LocalTransformation",
+                             "Local Transformation",
+                             "Local transformation applied to an annotated node",
+                             "transformation",
+                             "Transformation"),
+        /**
+         * A global transformation applied to a source unit
+         *
+         * @since 0.6.0
+         */
+        GLOBAL_TRANSFORMATION("asteroid.GlobalTransformation",
+                              "Global Transformation",
+                              "Global transformation applied to a source unit",
+                              "transformation",
+                              "Transformation"),
+        /**
+         * A transformer applied to a class node
+         *
+         * @since 0.6.0
+         */
+        TRANSFORMER_VISIT("asteroid.TransformerVisit",
+                          "Transformer Visit",
+                          "Transformer applied to a class node by a global transformation",
+                          "transformer",
+                          "Transformer");
+
+        private final String eventName;
+        private final String label;
+        private final String description;
+        private final String nameField;
+        private final String nameLabel;
+
+        Type(final String eventName,
+             final String label,
+             final String description,
+             final String nameField,
+             final String nameLabel) {
+            this.eventName = eventName;
+            this.label = label;
+            this.description = description;
+            this.nameField = nameField;
+            this.nameLabel = nameLabel;
+        }
+
+        /**
+         * Returns the name of the event type in JFR recordings
+         *
+         * @return the name of the event type
+         * @since 0.6.0
+         */
+        public String getEventName() {
+            return eventName;
+        }
+    }
+
+    /**
+     * An event being recorded. It's committed once the work it
+     * represents has finished.
+     *
+     * @since 0.6.0
+     */
+    public static final class Event {
+
+        private final Object event;
+
+        private Event(final Object event) {
+            this.event = event;
+        }
+
+        /**
+         * Ends the event and commits it, if the recording is
+         * still interested in it
+         *
+         * @param sourceUnit the name of the source unit
+         * @param className the name of the class, it may be null
+         * @param name the class of the transformation or transformer
+         * @param visited how many nodes were visited
+         * @param rewritten how many nodes were rewritten
+         * @since 0.6.0
+         */
+        public void commit(final String sourceUnit,
+                           final String className,
+                           final Class<?> name,
+                           final long visited,
+                           final long rewritten) {
+            SUPPORT.commit(event, sourceUnit, className, name.getName(), visited, rewritten);
+        }
+    }
+
+    /**
+     * Whether events of the type passed as parameter are being
+     * recorded or not
+     *
+     * @param type the type of the event
+     * @return true if there's a recording interested in events of
+     * that type, false otherwise
+     * @since 0.6.0
+     */
+    public static boolean isEnabled(final Type type) {
+        return SUPPORT != null && SUPPORT.isEnabled(type);
+    }
+
+    /**
+     * Starts a new event of the type passed as parameter
+     *
+     * @param type the type of the event
+     * @return the event or null if events of that type are not being
+     * recorded
+     * @since 0.6.0
+     */
+    public static Event begin(final Type type) {
+        if (!isEnabled(type)) {
+            return null;
+        }
+
+        final Object event = SUPPORT.begin(type);
+
+        return event == null ? null : new Event(event);
+    }
+
+    /**
+     * Method handles to the JFR API, resolved once when the JVM has
+     * JFR. All failures invoking them are ignored, recording events
+     * should never break a compilation.
+     */
+    @SuppressWarnings({"PMD.AvoidCatchingThrowable", "PMD.SignatureDeclareThrowsException"})
+    private static final class Support {
+
+        private final MethodHandle isEnabled;
+        private final MethodHandle newEvent;
+        private final MethodHandle begin;
+        private final MethodHandle end;
+        private final MethodHandle shouldCommit;
+        private final MethodHandle set;
+        private final MethodHandle commit;
+        private final Object[] factories = new Object[Type.values().length];
+        private final Object[] eventTypes = new Object[Type.values().length];
+        private final Constructor<?> annotationElement;
+        private final Constructor<?> valueDescriptor;
+        private final Class<?> nameAnnotation;
+        private final Class<?> labelAnnotation;
+        private final Class<?> descriptionAnnotation;
+        private final Class<?> categoryAnnotation;
+
+        private Support() throws Throwable {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            final MethodHandle create = lookup.findStatic(eventFactory, "create", MethodType.methodType(eventFactory, List.class, List.class));
+            final MethodHandle getEventType = lookup.findVirtual(eventFactory, "getEventType", MethodType.methodType(eventTypeClass));
+
+            this.nameAnnotation = Class.forName("jdk.jfr.Name");
+            this.labelAnnotation = Class.forName("jdk.jfr.Label");
+            this.descriptionAnnotation = Class.forName("jdk.jfr.Description");
+            this.categoryAnnotation = Class.forName("jdk.jfr.Category");
+            this.annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            this.valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+            this.isEnabled = lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class));
+            this.newEvent = lookup.findVirtual(eventFactory, "newEvent", MethodType.methodType(eventClass));
+            this.begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+            this.end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class));
+            this.shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class));
+            this.set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+            this.commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+
+            for (final Type type : Type.values()) {
+                factories[type.ordinal()] = create.invoke(annotationsOf(type), fieldsOf(type));
+                eventTypes[type.ordinal()] = getEventType.invoke(factories[type.ordinal()]);
+            }
+        }
+
+        static Support load() {
+            try {
+                return new Support();
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        boolean isEnabled(final Type type) {
+            try {
+                return (boolean) isEnabled.invoke(eventTypes[type.ordinal()]);
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        Object begin(final Type type) {
+            try {
+                final Object event = newEvent.invoke(factories[type.ordinal()]);
+
+                begin.invoke(event);
+
+                return event;
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        void commit(final Object event,
+                    final String sourceUnit,
+                    final String className,
+                    final String name,
+                    final long visited,
+                    final long rewritten) {
+            try {
+                end.invoke(event);
+
+                if (!(boolean) shouldCommit.invoke(event)) {
+                    return;
+                }
+
+                set.invoke(event, 0, sourceUnit);
+                set.invoke(event, 1, className);
+                set.invoke(event, 2, name);
+                set.invoke(event, 3, visited);
+                set.invoke(event, 4, rewritten);
+                commit.invoke(event);
+            } catch (Throwable e) {
+                // the event is lost
+            }
+        }
+
+        private List<Object> annotationsOf(final Type type) throws ReflectiveOperationException {
+            final Object categories = Array.newInstance(String.class, 1);
+            Array.set(categories, 0, "Asteroid");
+
+            return Arrays.asList(annotationElement.newInstance(nameAnnotation, type.eventName),
+                                 annotationElement.newInstance(labelAnnotation, type.label),
+                                 annotationElement.newInstance(descriptionAnnotation, type.description),
+                                 annotationElement.newInstance(categoryAnnotation, categories));
+        }
+
+        private List<Object> fieldsOf(final Type type) throws ReflectiveOperationException {
+            final List<Object> fields = new ArrayList<>(5);
+
+            fields.add(field(String.class, "sourceUnit", "Source Unit"));
+            fields.add(field(String.class, "className", "Class"));
+            fields.add(field(String.class, type.nameField, type.nameLabel));
+            fields.add(field(long.class, "nodesVisited", "Nodes Visited"));
+            fields.add(field(long.class, "nodesRewritten", "Nodes Rewritten"));
+
+            return fields;
+        }
+
+        private Object field(final Class<?> type, final String name, final String label) throws ReflectiveOperationException {
+            final Object labelElement = annotationElement.newInstance(labelAnnotation, label);
+
+            return valueDescriptor.newInstance(type, name, Arrays.asList(labelElement));
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package asteroid.internal;
 
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.transform.GroovyASTTransformation;
 
 import java.util.List;
@@ -11,6 +15,11 @@ import asteroid.transformer.Transformer;
 
 /**
  * This transformation makes easier to declare a given global transformation.
+ * <br><br>
+ * Because this transformation is applied to every source unit
+ * compiled with asteroid in the classpath, source units without any
+ * class annotated with {@link asteroid.Phase} are skipped without
+ * creating any transformer.
  *
  * @since 0.1.2
  */
@@ -23,4 +32,40 @@ public class GlobalTransformationTransformation extends AbstractGlobalTransforma
         list.add(TranslateToGlobalTransform.class);
         return list;
     }
+
+    /**
+     * Only source units having at least a class annotated with
+     * {@link asteroid.Phase} are transformed
+     *
+     * @param sourceUnit the source unit about to be transformed
+     * @return true if any class of the source unit is annotated with
+     * {@link asteroid.Phase}
+     * @since 0.6.0
+     */
+    @Override
+    protected boolean accepts(final SourceUnit sourceUnit) {
+        final ModuleNode module = sourceUnit.getAST();
+
+        if (module == null) {
+            return false;
+        }
+
+        for (final ClassNode classNode : module.getClasses()) {
+            if (hasPhaseAnnotation(classNode)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasPhaseAnnotation(final ClassNode classNode) {
+        for (final AnnotationNode annotation : classNode.getAnnotations()) {
+            if (TranslateToGlobalTransform.TX_NAME.equals(annotation.getClassNode().getNameWithoutPackage())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
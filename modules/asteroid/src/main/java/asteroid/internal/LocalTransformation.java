@@ -6,6 +6,7 @@ import static asteroid.utils.InternalUtils.collect;
 
 import asteroid.A;
 import asteroid.Local;
+import asteroid.nodes.ClassNodeRegistry;
 import groovy.lang.Closure;
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.AnnotatedNode;
@@ -78,8 +79,13 @@ public class LocalTransformation extends AbstractASTTransformation {
 
         final AnnotationNode annotationNode = A.UTIL.NODE.getFirstNodeAs(nodes, AnnotationNode.class);
         final ClassNode      annotatedNode  = A.UTIL.NODE.getLastNodeAs(nodes, ClassNode.class);
+        final ClassNodeRegistry previous    = ClassNodeRegistry.enter(source);
 
-        addAnnotationsFromTo(annotationNode, annotatedNode);
+        try {
+            addAnnotationsFromTo(annotationNode, annotatedNode);
+        } finally {
+            ClassNodeRegistry.exit(previous);
+        }
     }
 
     private void addAnnotationsFromTo(final AnnotationNode annotationNode, final ClassNode annotatedNode) {
@@ -0,0 +1,59 @@
+package asteroid.internal;
+
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.transform.GroovyASTTransformation;
+
+import asteroid.AbstractLocalTransformation;
+import asteroid.LowerClosures;
+import asteroid.transformer.ClosureToLoopTransformer;
+
+/**
+ * Applies {@link ClosureToLoopTransformer} to the methods annotated
+ * with {@link LowerClosures}, or to all methods and constructors of
+ * the annotated classes
+ *
+ * @since 0.6.0
+ */
+@GroovyASTTransformation(phase = CompilePhase.CANONICALIZATION)
+public class LowerClosuresTransformation extends AbstractLocalTransformation<LowerClosures, AnnotatedNode> {
+
+    /**
+     * Constructor using abstraction {@link AbstractLocalTransformation}
+     *
+     * @since 0.6.0
+     */
+    public LowerClosuresTransformation() {
+        super(LowerClosures.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.6.0
+     */
+    @Override
+    public void doVisit(final AnnotationNode annotation, final AnnotatedNode annotated) {
+        final ClosureToLoopTransformer transformer = new ClosureToLoopTransformer(sourceUnit);
+
+        if (annotated instanceof MethodNode) {
+            transformer.transformMethod((MethodNode) annotated);
+            return;
+        }
+
+        if (annotated instanceof ClassNode) {
+            final ClassNode classNode = (ClassNode) annotated;
+
+            for (final MethodNode constructor : classNode.getDeclaredConstructors()) {
+                transformer.transformMethod(constructor);
+            }
+
+            for (final MethodNode method : classNode.getMethods()) {
+                transformer.transformMethod(method);
+            }
+        }
+    }
+}
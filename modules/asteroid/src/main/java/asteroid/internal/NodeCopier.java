@@ -0,0 +1,831 @@
+package asteroid.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.Variable;
+import org.codehaus.groovy.ast.VariableScope;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.ExpressionTransformer;
+import org.codehaus.groovy.ast.expr.FieldExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.AssertStatement;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
+import org.codehaus.groovy.ast.stmt.CaseStatement;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ContinueStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.EmptyStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.SwitchStatement;
+import org.codehaus.groovy.ast.stmt.SynchronizedStatement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+
+/**
+ * Copies {@link Statement} and {@link Expression} trees, and class
+ * members ({@link MethodNode}, {@link ConstructorNode}, {@link
+ * FieldNode}, {@link PropertyNode} and {@link AnnotationNode}), so
+ * the copy could be modified without affecting the original nodes.
+ * <br><br>
+ * Trees are copied using an explicit stack instead of recursion, so
+ * long blocks or deeply nested expressions can't overflow the call
+ * stack. Only expression types whose children are unknown (see
+ * {@link ExpressionChildren}) are copied recursively, using {@link
+ * Expression#transformExpression(ExpressionTransformer)}.
+ * <br><br>
+ * Variables declared within the copied tree (local variables,
+ * closure and catch parameters...) are copied as well, and the
+ * variables referencing them in the copy point to the copies. Any
+ * other reference, such as types, fields or methods, is shared.
+ * Copied members are not added to any class.
+ * <br><br>
+ * A copier may replace placeholders while copying. A placeholder is
+ * a name starting with <b>$</b> used as a variable, a method name or
+ * a property name. Its value is taken from the bindings map, using
+ * the name without the <b>$</b>.
+ *
+ * @since 0.6.0
+ */
+@SuppressWarnings({"PMD.GodClass", "PMD.CyclomaticComplexity", "PMD.ExcessiveImports", "PMD.TooManyMethods"})
+public final class NodeCopier implements ExpressionTransformer {
+
+    private static final String PLACEHOLDER_PREFIX = "$";
+    private static final ASTNode[] NO_CHILDREN = new ASTNode[0];
+
+    private final Map<String, ?> bindings;
+    private final boolean keepSourcePositions;
+    private final boolean keepMetaData;
+    private final Map<Variable, Variable> variables = new IdentityHashMap<>();
+
+    /**
+     * Creates a copier without any placeholder, keeping source
+     * positions and node metadata
+     *
+     * @since 0.6.0
+     */
+    public NodeCopier() {
+        this(Collections.<String, Object>emptyMap());
+    }
+
+    /**
+     * Creates a copier without any placeholder
+     *
+     * @param keepSourcePositions whether the copies should have the
+     * source positions of the original nodes or not
+     * @param keepMetaData whether the copies should have the node
+     * metadata of the original nodes or not
+     * @since 0.6.0
+     */
+    public NodeCopier(final boolean keepSourcePositions, final boolean keepMetaData) {
+        this(Collections.<String, Object>emptyMap(), keepSourcePositions, keepMetaData);
+    }
+
+    /**
+     * Creates a copier replacing the placeholders found with the
+     * values in the bindings map. Values being {@link Expression}
+     * instances are copied before inserting them, any other value is
+     * inserted as a {@link ConstantExpression}.
+     *
+     * @param bindings values of the placeholders by name (without the
+     * $ prefix)
+     * @since 0.6.0
+     */
+    public NodeCopier(final Map<String, ?> bindings) {
+        this(bindings, true, true);
+    }
+
+    /**
+     * Creates a copier replacing the placeholders found with the
+     * values in the bindings map
+     *
+     * @param bindings values of the placeholders by name (without the
+     * $ prefix)
+     * @param keepSourcePositions whether the copies should have the
+     * source positions of the original nodes or not
+     * @param keepMetaData whether the copies should have the node
+     * metadata of the original nodes or not
+     * @since 0.6.0
+     */
+    public NodeCopier(final Map<String, ?> bindings, final boolean keepSourcePositions, final boolean keepMetaData) {
+        this.bindings = bindings;
+        this.keepSourcePositions = keepSourcePositions;
+        this.keepMetaData = keepMetaData;
+    }
+
+    /**
+     * Copies any of the supported nodes: statements, expressions and
+     * class members
+     *
+     * @param node the node to copy
+     * @param <T> the type of the node
+     * @return a copy of the node
+     * @throws IllegalArgumentException if the node type is not supported
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ASTNode> T copyNode(final T node) {
+        final ASTNode result;
+
+        if (node == null || node instanceof Statement || node instanceof Expression) {
+            result = run(node);
+        } else if (node instanceof MethodNode) {
+            result = copy((MethodNode) node);
+        } else if (node instanceof FieldNode) {
+            result = copy((FieldNode) node);
+        } else if (node instanceof PropertyNode) {
+            result = copy((PropertyNode) node);
+        } else if (node instanceof AnnotationNode) {
+            result = copy((AnnotationNode) node);
+        } else {
+            throw new IllegalArgumentException("Node type not supported: " + node.getClass().getName());
+        }
+
+        return (T) result;
+    }
+
+    /**
+     * Copies the statement passed as parameter
+     *
+     * @param statement the statement to copy
+     * @param <T> the type of the statement
+     * @return a copy of the statement
+     * @throws IllegalArgumentException if the statement type is not supported
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Statement> T copy(final T statement) {
+        return (T) run(statement);
+    }
+
+    /**
+     * Copies the expression passed as parameter
+     *
+     * @param expression the expression to copy
+     * @param <T> the type of the expression
+     * @return a copy of the expression. When the expression is a
+     * placeholder the result may be of a different type
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Expression> T copy(final T expression) {
+        return (T) run(expression);
+    }
+
+    /**
+     * Copies the method, or constructor, passed as parameter,
+     * including its parameters, code and annotations
+     *
+     * @param method the method to copy
+     * @param <T> the type of the method
+     * @return a copy of the method not added to any class
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends MethodNode> T copy(final T method) {
+        if (method == null) {
+            return null;
+        }
+
+        final Parameter[] parameters = copy(method.getParameters());
+        final ClassNode[] exceptions = method.getExceptions() == null ? null : method.getExceptions().clone();
+        final Statement code = copy(method.getCode());
+        final MethodNode result = method instanceof ConstructorNode ?
+            new ConstructorNode(method.getModifiers(), parameters, exceptions, code) :
+            new MethodNode(method.getName(), method.getModifiers(), method.getReturnType(), parameters, exceptions, code);
+
+        result.setGenericsTypes(method.getGenericsTypes());
+        result.setAnnotationDefault(method.hasAnnotationDefault());
+        result.setVariableScope(copy(method.getVariableScope()));
+        copyMember(method, result);
+
+        return (T) result;
+    }
+
+    /**
+     * Copies the field passed as parameter, including its initial
+     * expression and annotations
+     *
+     * @param field the field to copy
+     * @return a copy of the field not added to any class
+     * @since 0.6.0
+     */
+    public FieldNode copy(final FieldNode field) {
+        if (field == null) {
+            return null;
+        }
+
+        final FieldNode result = new FieldNode(field.getName(),
+                                               field.getModifiers(),
+                                               field.getType(),
+                                               field.getOwner(),
+                                               copy(field.getInitialExpression()));
+
+        result.setOriginType(field.getOriginType());
+        copyMember(field, result);
+
+        return result;
+    }
+
+    /**
+     * Copies the property passed as parameter, including its field,
+     * getter and setter blocks and annotations
+     *
+     * @param property the property to copy
+     * @return a copy of the property not added to any class
+     * @since 0.6.0
+     */
+    public PropertyNode copy(final PropertyNode property) {
+        if (property == null) {
+            return null;
+        }
+
+        final PropertyNode result = new PropertyNode(copy(property.getField()),
+                                                     property.getModifiers(),
+                                                     copy(property.getGetterBlock()),
+                                                     copy(property.getSetterBlock()));
+
+        copyMember(property, result);
+
+        return result;
+    }
+
+    /**
+     * Copies the annotation passed as parameter, including its
+     * members
+     *
+     * @param annotation the annotation to copy
+     * @return a copy of the annotation
+     * @since 0.6.0
+     */
+    public AnnotationNode copy(final AnnotationNode annotation) {
+        if (annotation == null) {
+            return null;
+        }
+
+        final AnnotationNode result = new AnnotationNode(annotation.getClassNode());
+
+        for (final Map.Entry<String, Expression> member : annotation.getMembers().entrySet()) {
+            result.addMember(member.getKey(), copy(member.getValue()));
+        }
+
+        result.setRuntimeRetention(annotation.hasRuntimeRetention());
+        result.setSourceRetention(annotation.hasSourceRetention());
+        result.setClassRetention(annotation.hasClassRetention());
+        finish(annotation, result);
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Expression transform(final Expression expression) {
+        return (Expression) run(expression);
+    }
+
+    /**
+     * Copies the tree under the node passed as parameter. Every node
+     * is entered once, its children are pushed to the stack, and once
+     * all of them have been copied the node itself is copied using
+     * the copies of its children.
+     */
+    private ASTNode run(final ASTNode root) {
+        if (root == null) {
+            return null;
+        }
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(root, true));
+
+        while (true) {
+            final Frame frame = stack.peek();
+
+            if (frame.next < frame.children.length) {
+                final ASTNode child = frame.children[frame.next];
+
+                if (child == null) {
+                    frame.results[frame.next++] = null;
+                } else {
+                    stack.push(enter(child, frame.substitute && frame.next != frame.bound));
+                }
+
+                continue;
+            }
+
+            stack.pop();
+
+            final ASTNode copy = build(frame);
+            final Frame parent = stack.peek();
+
+            if (parent == null) {
+                return copy;
+            }
+
+            parent.results[parent.next++] = copy;
+        }
+    }
+
+    @SuppressWarnings("PMD.NcssCount")
+    private Frame enter(final ASTNode node, final boolean substitute) {
+        if (node instanceof Expression) {
+            return enterExpression((Expression) node, substitute);
+        }
+
+        final Frame frame;
+
+        if (node instanceof BlockStatement) {
+            frame = new Frame(node, substitute, ((BlockStatement) node).getStatements().toArray(NO_CHILDREN));
+        } else if (node instanceof ExpressionStatement) {
+            frame = new Frame(node, substitute, ((ExpressionStatement) node).getExpression());
+        } else if (node instanceof ReturnStatement) {
+            frame = new Frame(node, substitute, ((ReturnStatement) node).getExpression());
+        } else if (node instanceof ThrowStatement) {
+            frame = new Frame(node, substitute, ((ThrowStatement) node).getExpression());
+        } else if (node instanceof AssertStatement) {
+            final AssertStatement assertStmt = (AssertStatement) node;
+            frame = new Frame(node, substitute, assertStmt.getBooleanExpression(), assertStmt.getMessageExpression());
+        } else if (node instanceof IfStatement) {
+            final IfStatement ifStmt = (IfStatement) node;
+            frame = new Frame(node, substitute, ifStmt.getBooleanExpression(), ifStmt.getIfBlock(), ifStmt.getElseBlock());
+        } else if (node instanceof WhileStatement) {
+            final WhileStatement whileStmt = (WhileStatement) node;
+            frame = new Frame(node, substitute, whileStmt.getBooleanExpression(), whileStmt.getLoopBlock());
+        } else if (node instanceof DoWhileStatement) {
+            final DoWhileStatement doWhileStmt = (DoWhileStatement) node;
+            frame = new Frame(node, substitute, doWhileStmt.getBooleanExpression(), doWhileStmt.getLoopBlock());
+        } else if (node instanceof ForStatement) {
+            final ForStatement forStmt = (ForStatement) node;
+            frame = new Frame(node, substitute, forStmt.getCollectionExpression(), forStmt.getLoopBlock());
+            frame.parameters = new Parameter[] {copyLoopVariable(forStmt.getVariable())};
+        } else if (node instanceof TryCatchStatement) {
+            frame = enterTryCatch((TryCatchStatement) node, substitute);
+        } else if (node instanceof CatchStatement) {
+            final CatchStatement catchStmt = (CatchStatement) node;
+            frame = new Frame(node, substitute, catchStmt.getCode());
+            frame.parameters = new Parameter[] {copy(catchStmt.getVariable())};
+        } else if (node instanceof SwitchStatement) {
+            frame = enterSwitch((SwitchStatement) node, substitute);
+        } else if (node instanceof CaseStatement) {
+            final CaseStatement caseStmt = (CaseStatement) node;
+            frame = new Frame(node, substitute, caseStmt.getExpression(), caseStmt.getCode());
+        } else if (node instanceof SynchronizedStatement) {
+            final SynchronizedStatement syncStmt = (SynchronizedStatement) node;
+            frame = new Frame(node, substitute, syncStmt.getExpression(), syncStmt.getCode());
+        } else if (node instanceof BreakStatement || node instanceof ContinueStatement || node instanceof EmptyStatement) {
+            frame = new Frame(node, substitute);
+        } else {
+            throw new IllegalArgumentException("Statement type not supported: " + node.getClass().getName());
+        }
+
+        return frame;
+    }
+
+    private Frame enterTryCatch(final TryCatchStatement tryCatch, final boolean substitute) {
+        final List<CatchStatement> catches = tryCatch.getCatchStatements();
+        final ASTNode[] children = new ASTNode[catches.size() + 2];
+
+        children[0] = tryCatch.getTryStatement();
+        children[1] = tryCatch.getFinallyStatement();
+
+        for (int i = 0; i < catches.size(); i++) {
+            children[i + 2] = catches.get(i);
+        }
+
+        return new Frame(tryCatch, substitute, children);
+    }
+
+    private Frame enterSwitch(final SwitchStatement switchStmt, final boolean substitute) {
+        final List<CaseStatement> cases = switchStmt.getCaseStatements();
+        final ASTNode[] children = new ASTNode[cases.size() + 2];
+
+        children[0] = switchStmt.getExpression();
+        children[1] = switchStmt.getDefaultStatement();
+
+        for (int i = 0; i < cases.size(); i++) {
+            children[i + 2] = cases.get(i);
+        }
+
+        return new Frame(switchStmt, substitute, children);
+    }
+
+    private Frame enterExpression(final Expression expression, final boolean substitute) {
+        if (expression instanceof VariableExpression) {
+            return enterVariable((VariableExpression) expression, substitute);
+        }
+
+        if (expression.getClass() == ClosureExpression.class) {
+            final ClosureExpression closure = (ClosureExpression) expression;
+            final Parameter[] parameters = copy(closure.getParameters());
+            final Frame frame = new Frame(closure, substitute, closure.getCode());
+
+            frame.parameters = parameters;
+
+            return frame;
+        }
+
+        final Expression[] children = ExpressionChildren.of(expression);
+
+        if (children == null) {
+            return new Frame(expression, substitute);
+        }
+
+        final Frame frame = new Frame(expression, substitute, children);
+
+        if (substitute && !bindings.isEmpty()) {
+            if (expression instanceof MethodCallExpression) {
+                bindName(frame, ((MethodCallExpression) expression).getMethod());
+            } else if (expression instanceof PropertyExpression) {
+                bindName(frame, ((PropertyExpression) expression).getProperty());
+            }
+        }
+
+        return frame;
+    }
+
+    private Frame enterVariable(final VariableExpression variable, final boolean substitute) {
+        final String placeholder = substitute ? placeholderOf(variable) : null;
+
+        if (placeholder == null) {
+            return new Frame(variable, substitute);
+        }
+
+        final Object value = bindings.get(placeholder);
+        final Frame frame = new Frame(variable, false, value instanceof Expression ?
+                                      (Expression) value :
+                                      new ConstantExpression(value));
+
+        frame.bound = 0;
+
+        return frame;
+    }
+
+    private void bindName(final Frame frame, final Expression name) {
+        final String placeholder = placeholderOf(name);
+
+        if (placeholder == null) {
+            return;
+        }
+
+        for (int i = 0; i < frame.children.length; i++) {
+            if (frame.children[i] == name) {
+                final Object value = bindings.get(placeholder);
+
+                frame.children = frame.children.clone();
+                frame.children[i] = value instanceof Expression ?
+                    (Expression) value :
+                    new ConstantExpression(String.valueOf(value));
+                frame.bound = i;
+
+                return;
+            }
+        }
+    }
+
+    private String placeholderOf(final Expression expression) {
+        if (bindings.isEmpty()) {
+            return null;
+        }
+
+        String name = null;
+
+        if (expression instanceof VariableExpression) {
+            name = ((VariableExpression) expression).getName();
+        } else if (expression instanceof ConstantExpression && ((ConstantExpression) expression).getValue() instanceof String) {
+            name = (String) ((ConstantExpression) expression).getValue();
+        }
+
+        if (name == null || !name.startsWith(PLACEHOLDER_PREFIX)) {
+            return null;
+        }
+
+        final String key = name.substring(PLACEHOLDER_PREFIX.length());
+
+        return bindings.containsKey(key) ? key : null;
+    }
+
+    private ASTNode build(final Frame frame) {
+        if (frame.node instanceof Expression) {
+            return buildExpression(frame);
+        }
+
+        final Statement statement = (Statement) frame.node;
+        final Statement result = buildStatement(frame);
+
+        copyLabels(statement, result);
+        finish(statement, result);
+
+        return result;
+    }
+
+    @SuppressWarnings({"PMD.NcssCount", "PMD.NPathComplexity"})
+    private Statement buildStatement(final Frame frame) {
+        final ASTNode node = frame.node;
+        final ASTNode[] results = frame.results;
+        final Statement result;
+
+        if (node instanceof BlockStatement) {
+            final List<Statement> statements = new ArrayList<>(results.length);
+
+            for (final ASTNode statement : results) {
+                statements.add((Statement) statement);
+            }
+
+            result = new BlockStatement(statements, copy(((BlockStatement) node).getVariableScope()));
+        } else if (node instanceof ExpressionStatement) {
+            result = new ExpressionStatement((Expression) results[0]);
+        } else if (node instanceof ReturnStatement) {
+            result = new ReturnStatement((Expression) results[0]);
+        } else if (node instanceof ThrowStatement) {
+            result = new ThrowStatement((Expression) results[0]);
+        } else if (node instanceof AssertStatement) {
+            result = new AssertStatement(bool(results[0]), (Expression) results[1]);
+        } else if (node instanceof IfStatement) {
+            result = new IfStatement(bool(results[0]), (Statement) results[1], (Statement) results[2]);
+        } else if (node instanceof WhileStatement) {
+            result = new WhileStatement(bool(results[0]), (Statement) results[1]);
+        } else if (node instanceof DoWhileStatement) {
+            result = new DoWhileStatement(bool(results[0]), (Statement) results[1]);
+        } else if (node instanceof ForStatement) {
+            final ForStatement forStmt = new ForStatement(frame.parameters[0], (Expression) results[0], (Statement) results[1]);
+
+            forStmt.setVariableScope(copy(((ForStatement) node).getVariableScope()));
+            result = forStmt;
+        } else if (node instanceof TryCatchStatement) {
+            final TryCatchStatement tryCatch = new TryCatchStatement((Statement) results[0], (Statement) results[1]);
+
+            for (int i = 2; i < results.length; i++) {
+                tryCatch.addCatch((CatchStatement) results[i]);
+            }
+
+            result = tryCatch;
+        } else if (node instanceof CatchStatement) {
+            result = new CatchStatement(frame.parameters[0], (Statement) results[0]);
+        } else if (node instanceof SwitchStatement) {
+            final List<CaseStatement> cases = new ArrayList<>(results.length - 2);
+
+            for (int i = 2; i < results.length; i++) {
+                cases.add((CaseStatement) results[i]);
+            }
+
+            result = new SwitchStatement((Expression) results[0], cases, (Statement) results[1]);
+        } else if (node instanceof CaseStatement) {
+            result = new CaseStatement((Expression) results[0], (Statement) results[1]);
+        } else if (node instanceof SynchronizedStatement) {
+            result = new SynchronizedStatement((Expression) results[0], (Statement) results[1]);
+        } else if (node instanceof BreakStatement) {
+            result = new BreakStatement(((BreakStatement) node).getLabel());
+        } else if (node instanceof ContinueStatement) {
+            result = new ContinueStatement(((ContinueStatement) node).getLabel());
+        } else {
+            result = new EmptyStatement();
+        }
+
+        return result;
+    }
+
+    private Expression buildExpression(final Frame frame) {
+        final Expression expression = (Expression) frame.node;
+
+        if (frame.bound >= 0 && expression instanceof VariableExpression) {
+            return (Expression) frame.results[0];
+        }
+
+        final Expression result;
+
+        if (expression instanceof VariableExpression) {
+            result = copyVariable((VariableExpression) expression);
+        } else if (expression.getClass() == ClosureExpression.class) {
+            final ClosureExpression closure = new ClosureExpression(frame.parameters, (Statement) frame.results[0]);
+
+            closure.setVariableScope(copy(((ClosureExpression) expression).getVariableScope()));
+            result = closure;
+        } else if (expression.getClass() == ConstantExpression.class) {
+            final ConstantExpression constant = (ConstantExpression) expression;
+            final ConstantExpression copy = new ConstantExpression(constant.getValue());
+
+            copy.setType(constant.getType());
+            copy.setConstantName(constant.getConstantName());
+            result = copy;
+        } else if (expression.getClass() == ClassExpression.class) {
+            result = new ClassExpression(expression.getType());
+        } else if (expression.getClass() == FieldExpression.class) {
+            result = new FieldExpression(((FieldExpression) expression).getField());
+        } else if (frame.children.length == 0) {
+            result = expression.transformExpression(this);
+        } else {
+            result = expression.transformExpression(frame);
+        }
+
+        if (result != expression) {
+            finish(expression, result);
+        }
+
+        return result;
+    }
+
+    private Expression copyVariable(final VariableExpression variable) {
+        final VariableExpression result = new VariableExpression(variable.getName(), variable.getOriginType());
+        final Variable accessed = variable.getAccessedVariable();
+
+        variables.put(variable, result);
+
+        result.setModifiers(variable.getModifiers());
+        result.setClosureSharedVariable(variable.isClosureSharedVariable());
+        result.setInStaticContext(variable.isInStaticContext());
+        result.setUseReferenceDirectly(variable.isUseReferenceDirectly());
+        result.setAccessedVariable(accessed == variable ? result : mapped(accessed));
+
+        return result;
+    }
+
+    private Parameter[] copy(final Parameter... parameters) {
+        if (parameters == null) {
+            return null;
+        }
+
+        final Parameter[] result = new Parameter[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            result[i] = copy(parameters[i]);
+        }
+
+        return result;
+    }
+
+    private Parameter copy(final Parameter parameter) {
+        if (parameter == null) {
+            return null;
+        }
+
+        final Parameter result = new Parameter(parameter.getOriginType(), parameter.getName());
+
+        variables.put(parameter, result);
+
+        result.setInitialExpression(copy(parameter.getInitialExpression()));
+        result.setType(parameter.getType());
+        result.setModifiers(parameter.getModifiers());
+        result.setClosureSharedVariable(parameter.isClosureSharedVariable());
+        result.setInStaticContext(parameter.isInStaticContext());
+        copyAnnotations(parameter, result);
+        finish(parameter, result);
+
+        return result;
+    }
+
+    private Parameter copyLoopVariable(final Parameter variable) {
+        return variable == ForStatement.FOR_LOOP_DUMMY ? variable : copy(variable);
+    }
+
+    private VariableScope copy(final VariableScope scope) {
+        if (scope == null) {
+            return null;
+        }
+
+        final VariableScope result = scope.copy();
+
+        for (final Iterator<Variable> it = scope.getDeclaredVariablesIterator(); it.hasNext();) {
+            final Variable declared = it.next();
+            final Variable copy = variables.get(declared);
+
+            if (copy != null) {
+                result.putDeclaredVariable(copy);
+            }
+        }
+
+        for (final Iterator<Variable> it = scope.getReferencedLocalVariablesIterator(); it.hasNext();) {
+            final Variable referenced = it.next();
+            final Variable copy = variables.get(referenced);
+
+            if (copy != null) {
+                result.putReferencedLocalVariable(copy);
+            }
+        }
+
+        return result;
+    }
+
+    private Variable mapped(final Variable variable) {
+        final Variable copy = variables.get(variable);
+
+        return copy == null ? variable : copy;
+    }
+
+    private void copyMember(final AnnotatedNode source, final AnnotatedNode target) {
+        target.setSynthetic(source.isSynthetic());
+        copyAnnotations(source, target);
+        finish(source, target);
+    }
+
+    private void copyAnnotations(final AnnotatedNode source, final AnnotatedNode target) {
+        for (final AnnotationNode annotation : source.getAnnotations()) {
+            target.addAnnotation(copy(annotation));
+        }
+    }
+
+    private static BooleanExpression bool(final ASTNode node) {
+        return (BooleanExpression) node;
+    }
+
+    private static void copyLabels(final Statement source, final Statement target) {
+        final List<String> labels = source.getStatementLabels();
+
+        if (labels != null) {
+            for (final String label : labels) {
+                target.addStatementLabel(label);
+            }
+        }
+    }
+
+    private void finish(final ASTNode source, final ASTNode target) {
+        if (keepSourcePositions) {
+            target.setSourcePosition(source);
+        } else {
+            target.setLineNumber(-1);
+            target.setColumnNumber(-1);
+            target.setLastLineNumber(-1);
+            target.setLastColumnNumber(-1);
+        }
+
+        if (keepMetaData) {
+            target.copyNodeMetaData(source);
+        } else if (!source.getNodeMetaData().isEmpty() && !target.getNodeMetaData().isEmpty()) {
+            for (final Object key : new ArrayList<Object>(target.getNodeMetaData().keySet())) {
+                target.removeNodeMetaData(key);
+            }
+        }
+    }
+
+    /**
+     * A node being copied: its children, the copies of the children
+     * already copied, and the variables it declares
+     */
+    private final class Frame implements ExpressionTransformer {
+        private final ASTNode node;
+        private final ASTNode[] sources;
+        private final ASTNode[] results;
+        private final boolean substitute;
+        private ASTNode[] children;
+        private Parameter[] parameters;
+        private int next;
+        private int bound = -1;
+        private int cursor;
+
+        Frame(final ASTNode node, final boolean substitute, final ASTNode... children) {
+            this.node = node;
+            this.substitute = substitute;
+            this.sources = children;
+            this.children = children;
+            this.results = new ASTNode[children.length];
+        }
+
+        /**
+         * Used by {@link Expression#transformExpression(ExpressionTransformer)}
+         * to get the copy of every child. Children are asked in the
+         * same order they were copied, so the next one is checked
+         * first
+         */
+        @Override
+        public Expression transform(final Expression child) {
+            if (cursor < sources.length && sources[cursor] == child) {
+                return (Expression) results[cursor++];
+            }
+
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] == child) {
+                    return (Expression) results[i];
+                }
+            }
+
+            return NodeCopier.this.transform(child);
+        }
+    }
+}
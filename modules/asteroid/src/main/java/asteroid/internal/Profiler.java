@@ -0,0 +1,538 @@
+package asteroid.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.codehaus.groovy.ast.CompileUnit;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.SourceUnit;
+
+/**
+ * Records how long asteroid transformations and transformers take,
+ * and how many nodes they visit, check and rewrite, in order to find
+ * out which transformation is slowing down a build.
+ * <br><br>
+ * Profiling is disabled by default. It's enabled for every
+ * compilation setting the system property <b>asteroid.profile</b>
+ * to <b>true</b>, or to the path of the report file, or for a given
+ * compilation adding the <b>asteroid.profile</b> flag to the
+ * compiler configuration optimization options:
+ *
+ * <pre><code>
+ * configuration.getOptimizationOptions().put("asteroid.profile", true);
+ * </code></pre>
+ *
+ * When there is no report path the report is written to {@value
+ * #DEFAULT_REPORT}, in the compiler target directory if there is one.
+ * The report is a JSON document with the numbers of every
+ * transformation, and the numbers of its transformers, for the whole
+ * compilation and per source unit.
+ * <br><br>
+ * The report is written once the compilation reaches the class
+ * generation phase, after all transformations have been applied.
+ * Compilations stopping before class generation don't write any
+ * report, but {@link #writeReport()} can be called explicitly.
+ * <br><br>
+ * When profiling is disabled transformations and transformers
+ * don't record anything, they only check whether they have any
+ * {@link Counters} or not.
+ *
+ * @since 0.6.0
+ */
+public final class Profiler {
+
+    /**
+     * Name of the system property, and of the compiler configuration
+     * optimization option, enabling profiling
+     *
+     * @since 0.6.0
+     */
+    public static final String PROPERTY = "asteroid.profile";
+
+    /**
+     * Name of the report file when no path has been provided
+     *
+     * @since 0.6.0
+     */
+    public static final String DEFAULT_REPORT = "asteroid-profile.json";
+
+    private static final Map<CompileUnit, Profiler> PROFILERS =
+        Collections.synchronizedMap(new WeakHashMap<CompileUnit, Profiler>());
+    private static final ThreadLocal<Counters> CURRENT = new ThreadLocal<>();
+
+    private final File report;
+    private final List<Counters> recorded = new ArrayList<>();
+    private boolean scheduled;
+
+    private Profiler(final File report) {
+        this.report = report;
+    }
+
+    /**
+     * Numbers recorded by a transformation, or a transformer, while
+     * transforming a given source unit. Every transformer instance
+     * has its own counters, so they don't need to be thread safe.
+     *
+     * @since 0.6.0
+     */
+    public static final class Counters {
+
+        private final String source;
+        private final String name;
+        private final Counters owner;
+        private final boolean transformation;
+
+        private Counters previous;
+        private long started;
+        private long visited;
+        private long evaluations;
+        private long hits;
+        private long rewritten;
+        private long nanos;
+
+        Counters(final String source, final String name, final Counters owner, final boolean transformation) {
+            this.source = source;
+            this.name = name;
+            this.owner = owner;
+            this.transformation = transformation;
+        }
+
+        /**
+         * Returns how many nodes have been visited
+         *
+         * @return the number of nodes visited
+         * @since 0.6.0
+         */
+        public long getVisited() {
+            return visited;
+        }
+
+        /**
+         * Returns how many nodes have been rewritten
+         *
+         * @return the number of nodes rewritten
+         * @since 0.6.0
+         */
+        public long getRewritten() {
+            return rewritten;
+        }
+
+        /**
+         * Counts a node visited
+         *
+         * @since 0.6.0
+         */
+        public void visited() {
+            visited++;
+        }
+
+        /**
+         * Counts several nodes visited
+         *
+         * @param count the number of nodes visited
+         * @since 0.6.0
+         */
+        public void visited(final long count) {
+            visited += count;
+        }
+
+        /**
+         * Counts a criteria evaluation
+         *
+         * @param hit whether the criteria matched or not
+         * @param start when the evaluation started, as returned by
+         * {@link System#nanoTime()}
+         * @since 0.6.0
+         */
+        public void evaluated(final boolean hit, final long start) {
+            nanos += System.nanoTime() - start;
+            evaluations++;
+
+            if (hit) {
+                hits++;
+            }
+        }
+
+        /**
+         * Counts a node transformation
+         *
+         * @param changed whether the node has been rewritten or
+         * not. Transformations modifying the node in place always
+         * count as rewritten
+         * @param start when the transformation started, as returned
+         * by {@link System#nanoTime()}
+         * @since 0.6.0
+         */
+        public void rewritten(final boolean changed, final long start) {
+            nanos += System.nanoTime() - start;
+
+            if (changed) {
+                rewritten++;
+            }
+        }
+    }
+
+    /**
+     * Returns the profiler of the compilation the source unit passed
+     * as parameter belongs to
+     *
+     * @param sourceUnit a source unit being compiled
+     * @return the profiler of the compilation or null if profiling is
+     * disabled
+     * @since 0.6.0
+     */
+    public static Profiler of(final SourceUnit sourceUnit) {
+        final ModuleNode module = sourceUnit == null ? null : sourceUnit.getAST();
+        final CompileUnit compileUnit = module == null ? null : module.getUnit();
+
+        if (compileUnit == null) {
+            return null;
+        }
+
+        final File report = reportOf(sourceUnit.getConfiguration());
+
+        if (report == null) {
+            return null;
+        }
+
+        synchronized (PROFILERS) {
+            Profiler profiler = PROFILERS.get(compileUnit);
+
+            if (profiler == null) {
+                profiler = new Profiler(report);
+                PROFILERS.put(compileUnit, profiler);
+            }
+
+            return profiler;
+        }
+    }
+
+    /**
+     * Starts recording a transformation. Transformers created until
+     * {@link #stop(Counters)} is called in the same thread are
+     * considered part of the transformation.
+     *
+     * @param transformation the transformation being applied
+     * @param sourceUnit the source unit being transformed
+     * @param compilationUnit the current compilation, used to write
+     * the report when it finishes. It may be null
+     * @return the counters of the transformation or null if profiling
+     * is disabled
+     * @since 0.6.0
+     */
+    public static Counters start(final Object transformation,
+                                 final SourceUnit sourceUnit,
+                                 final CompilationUnit compilationUnit) {
+        final Profiler profiler = of(sourceUnit);
+
+        if (profiler == null) {
+            return null;
+        }
+
+        profiler.schedule(compilationUnit);
+
+        final Counters counters = profiler.record(sourceUnit, transformation, null, true);
+
+        counters.previous = CURRENT.get();
+        counters.started = System.nanoTime();
+        CURRENT.set(counters);
+
+        return counters;
+    }
+
+    /**
+     * Stops recording the transformation started with {@link
+     * #start(Object, SourceUnit, CompilationUnit)}
+     *
+     * @param counters the counters returned by {@link
+     * #start(Object, SourceUnit, CompilationUnit)}, it may be null
+     * @since 0.6.0
+     */
+    public static void stop(final Counters counters) {
+        if (counters == null) {
+            return;
+        }
+
+        counters.nanos += System.nanoTime() - counters.started;
+
+        if (counters.previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(counters.previous);
+        }
+    }
+
+    /**
+     * Returns new counters for the transformer passed as parameter.
+     * When profiling is disabled but transformer visits are being
+     * recorded by {@link FlightRecorder}, the counters are not part
+     * of any report, they're only used to fill in the recorded events.
+     *
+     * @param transformer the transformer
+     * @param sourceUnit the source unit the transformer is applied to
+     * @return the counters of the transformer or null if neither
+     * profiling nor flight recording are enabled
+     * @since 0.6.0
+     */
+    public static Counters countersOf(final Object transformer, final SourceUnit sourceUnit) {
+        final Profiler profiler = of(sourceUnit);
+
+        if (profiler != null) {
+            return profiler.record(sourceUnit, transformer, CURRENT.get(), false);
+        }
+
+        if (sourceUnit != null && FlightRecorder.isEnabled(FlightRecorder.Type.TRANSFORMER_VISIT)) {
+            return new Counters(sourceUnit.getName(), transformer.getClass().getName(), null, false);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the file the report will be written to
+     *
+     * @return the report file
+     * @since 0.6.0
+     */
+    public File getReport() {
+        return report;
+    }
+
+    /**
+     * Writes the report with everything recorded so far. It's done
+     * automatically when the compilation reaches the class
+     * generation phase.
+     *
+     * @throws IOException if the report couldn't be written
+     * @since 0.6.0
+     */
+    public void writeReport() throws IOException {
+        final File parent = report.getAbsoluteFile().getParentFile();
+
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(report.toPath()), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    /**
+     * Returns the report with everything recorded so far
+     *
+     * @return the report as a JSON document
+     * @since 0.6.0
+     */
+    public String toJson() {
+        final Map<String, Entry> totals = new LinkedHashMap<>();
+        final Map<String, Map<String, Entry>> bySource = new LinkedHashMap<>();
+
+        for (final Counters counters : snapshot()) {
+            Map<String, Entry> sourceEntries = bySource.get(counters.source);
+
+            if (sourceEntries == null) {
+                sourceEntries = new LinkedHashMap<>();
+                bySource.put(counters.source, sourceEntries);
+            }
+
+            add(sourceEntries, counters);
+            add(totals, counters);
+        }
+
+        final StringBuilder json = new StringBuilder(256).append("{\n  \"transformations\": ");
+
+        appendEntries(json, totals.values(), "  ");
+        json.append(",\n  \"sources\": [");
+
+        String separator = "\n";
+
+        for (final Map.Entry<String, Map<String, Entry>> source : bySource.entrySet()) {
+            json.append(separator).append("    {\n      \"source\": ");
+            appendString(json, source.getKey());
+            json.append(",\n      \"transformations\": ");
+            appendEntries(json, source.getValue().values(), "      ");
+            json.append("\n    }");
+            separator = ",\n";
+        }
+
+        return json.append(bySource.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    private static File reportOf(final CompilerConfiguration configuration) {
+        final String property = System.getProperty(PROPERTY);
+        final boolean propertyEnabled = property != null && !"false".equalsIgnoreCase(property);
+        final Map<String, Boolean> options = configuration == null ? null : configuration.getOptimizationOptions();
+        final boolean optionEnabled = options != null && Boolean.TRUE.equals(options.get(PROPERTY));
+
+        if (!propertyEnabled && !optionEnabled) {
+            return null;
+        }
+
+        if (propertyEnabled && !"true".equalsIgnoreCase(property)) {
+            return new File(property);
+        }
+
+        final File target = configuration == null ? null : configuration.getTargetDirectory();
+
+        return target == null ? new File(DEFAULT_REPORT) : new File(target, DEFAULT_REPORT);
+    }
+
+    private Counters record(final SourceUnit sourceUnit,
+                            final Object node,
+                            final Counters owner,
+                            final boolean transformation) {
+        final Counters counters = new Counters(sourceUnit.getName(), node.getClass().getName(), owner, transformation);
+
+        synchronized (recorded) {
+            recorded.add(counters);
+        }
+
+        return counters;
+    }
+
+    private List<Counters> snapshot() {
+        synchronized (recorded) {
+            return new ArrayList<>(recorded);
+        }
+    }
+
+    private synchronized void schedule(final CompilationUnit compilationUnit) {
+        if (scheduled || compilationUnit == null) {
+            return;
+        }
+
+        scheduled = true;
+        TransformationUtils.writeAfterClassGeneration(compilationUnit, "Asteroid profile report to " + report, this::writeReport);
+    }
+
+    private static void add(final Map<String, Entry> entries, final Counters counters) {
+        final Counters transformation = counters.transformation ? counters : counters.owner;
+        final String name = transformation == null ? "" : transformation.name;
+
+        Entry entry = entries.get(name);
+
+        if (entry == null) {
+            entry = new Entry(name);
+            entries.put(name, entry);
+        }
+
+        if (counters.transformation) {
+            entry.invocations++;
+            entry.nanos += counters.nanos;
+            entry.add(counters);
+            return;
+        }
+
+        Entry transformer = entry.transformers.get(counters.name);
+
+        if (transformer == null) {
+            transformer = new Entry(counters.name);
+            entry.transformers.put(counters.name, transformer);
+        }
+
+        transformer.invocations++;
+        transformer.nanos += counters.nanos;
+        transformer.add(counters);
+        entry.add(counters);
+    }
+
+    private static void appendEntries(final StringBuilder json, final Iterable<Entry> entries, final String indent) {
+        json.append('[');
+
+        String separator = "\n";
+
+        for (final Entry entry : entries) {
+            json.append(separator).append(indent).append("  {\n");
+            appendEntry(json, entry, indent + "    ", true);
+
+            if (!entry.transformers.isEmpty()) {
+                json.append(",\n").append(indent).append("    \"transformers\": [");
+
+                String transformerSeparator = "\n";
+
+                for (final Entry transformer : entry.transformers.values()) {
+                    json.append(transformerSeparator).append(indent).append("      {\n");
+                    appendEntry(json, transformer, indent + "        ", false);
+                    json.append('\n').append(indent).append("      }");
+                    transformerSeparator = ",\n";
+                }
+
+                json.append('\n').append(indent).append("    ]");
+            }
+
+            json.append('\n').append(indent).append("  }");
+            separator = ",\n";
+        }
+
+        json.append(separator.equals("\n") ? "]" : "\n" + indent + "]");
+    }
+
+    private static void appendEntry(final StringBuilder json, final Entry entry, final String indent, final boolean transformation) {
+        json.append(indent).append("\"name\": ");
+        appendString(json, entry.name);
+        json.append(",\n").append(indent).append(transformation ? "\"wallTimeNanos\": " : "\"timeNanos\": ").append(entry.nanos)
+            .append(",\n").append(indent).append("\"invocations\": ").append(entry.invocations)
+            .append(",\n").append(indent).append("\"nodesVisited\": ").append(entry.visited)
+            .append(",\n").append(indent).append("\"criteriaEvaluations\": ").append(entry.evaluations)
+            .append(",\n").append(indent).append("\"criteriaHits\": ").append(entry.hits)
+            .append(",\n").append(indent).append("\"nodesRewritten\": ").append(entry.rewritten);
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            final char character = value.charAt(i);
+
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < ' ') {
+                json.append(String.format("\\u%04x", (int) character));
+            } else {
+                json.append(character);
+            }
+        }
+
+        json.append('"');
+    }
+
+    /**
+     * Numbers of a transformation, or a transformer, added up
+     */
+    private static final class Entry {
+
+        private final String name;
+        private final Map<String, Entry> transformers = new LinkedHashMap<>();
+
+        private long invocations;
+        private long visited;
+        private long evaluations;
+        private long hits;
+        private long rewritten;
+        private long nanos;
+
+        Entry(final String name) {
+            this.name = name;
+        }
+
+        void add(final Counters counters) {
+            visited += counters.visited;
+            evaluations += counters.evaluations;
+            hits += counters.hits;
+            rewritten += counters.rewritten;
+        }
+    }
+}
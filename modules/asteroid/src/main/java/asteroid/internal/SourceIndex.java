@@ -0,0 +1,615 @@
+package asteroid.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.ImportNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.EmptyExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.stmt.AssertStatement;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
+import org.codehaus.groovy.ast.stmt.CaseStatement;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ContinueStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.EmptyStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.SwitchStatement;
+import org.codehaus.groovy.ast.stmt.SynchronizedStatement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+import org.codehaus.groovy.control.SourceUnit;
+
+import asteroid.criteria.Criteria;
+import asteroid.criteria.CriteriaIndex;
+import asteroid.criteria.NameCriteria;
+
+/**
+ * Index of the nodes of a {@link SourceUnit}: nodes by type, annotated
+ * nodes by annotation name and method calls by method name. It lets
+ * transformations jump directly to the nodes they're interested in,
+ * and transformers skip classes where their criteria can't match
+ * anything, instead of walking them.
+ * <br><br>
+ * The index of a class is only kept while a global transformation
+ * applies its transformers to it (see {@link #enable(ClassNode)}), so
+ * changes done by local transformations, or by other libraries,
+ * between two global transformations are always seen. While it's
+ * kept, asteroid transformers and mutation helpers (such as {@link
+ * asteroid.utils.NodeUtils#addMethod}) keep it up to date, and members
+ * added or removed, or method code replaced, by other means are
+ * detected, but code changing the statements of an existing method
+ * by other means should call {@link #invalidate(ClassNode)}
+ * afterwards. Outside global transformations every index is built
+ * from scratch.
+ *
+ * <pre class="inner"><code>
+ * SourceIndex index = SourceIndex.of(sourceUnit)
+ * List{@literal <}MethodCallExpression{@literal >} calls = index.getMethodCalls('println')
+ * </code></pre>
+ *
+ * Only the code of the class itself is indexed, inner classes have
+ * their own entries. Instances are not thread safe, when a
+ * transformation is applied in parallel transformers should only
+ * query the class they're visiting (see {@link #mayMatch(ClassNode, Criteria)}).
+ *
+ * @since 0.6.0
+ */
+public final class SourceIndex {
+
+    private static final String ENTRY = SourceIndex.class.getName() + ".entry";
+    private static final String ENABLED = SourceIndex.class.getName() + ".enabled";
+
+    private final SourceUnit sourceUnit;
+
+    private SourceIndex(final SourceUnit sourceUnit) {
+        this.sourceUnit = sourceUnit;
+    }
+
+    /**
+     * Returns the index of the source unit passed as parameter
+     *
+     * @param sourceUnit the source unit to index
+     * @return the index of the source unit
+     * @since 0.6.0
+     */
+    public static SourceIndex of(final SourceUnit sourceUnit) {
+        return new SourceIndex(sourceUnit);
+    }
+
+    /**
+     * Returns all nodes of the type passed as parameter, including
+     * its subtypes. Class members (classes, methods, constructors,
+     * fields and properties), statements and expressions are indexed.
+     *
+     * @param <T> the type of the nodes
+     * @param type the type of the nodes
+     * @return the nodes found, in no particular order
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ASTNode> List<T> getNodes(final Class<T> type) {
+        final List<T> result = new ArrayList<>();
+
+        for (final Entry entry : entries()) {
+            for (final Map.Entry<Class<?>, List<ASTNode>> found : entry.nodes.entrySet()) {
+                if (type.isAssignableFrom(found.getKey())) {
+                    result.addAll((List<T>) found.getValue());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns all nodes annotated with an annotation of the name
+     * passed as parameter. If the name is qualified the annotation
+     * type should have the same qualified name, otherwise only
+     * simple names are compared.
+     *
+     * @param annotationName the simple or qualified name of the annotation
+     * @return the annotated nodes
+     * @since 0.6.0
+     */
+    public List<AnnotatedNode> getAnnotatedNodes(final String annotationName) {
+        final int dot = annotationName.lastIndexOf('.');
+        final String simpleName = annotationName.substring(dot + 1);
+        final List<AnnotatedNode> result = new ArrayList<>();
+
+        for (final Entry entry : entries()) {
+            for (final AnnotatedNode annotated : entry.annotated.getOrDefault(simpleName, Collections.<AnnotatedNode>emptyList())) {
+                if (dot < 0 || hasAnnotation(annotated, annotationName)) {
+                    result.add(annotated);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns all calls to methods with the name passed as parameter
+     *
+     * @param methodName the name of the method called
+     * @return the method call expressions found
+     * @since 0.6.0
+     */
+    public List<MethodCallExpression> getMethodCalls(final String methodName) {
+        final List<MethodCallExpression> result = new ArrayList<>();
+
+        for (final Entry entry : entries()) {
+            result.addAll(entry.calls.getOrDefault(methodName, Collections.<MethodCallExpression>emptyList()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts keeping the index of the class node passed as parameter
+     *
+     * @param classNode the class node about to be transformed
+     * @since 0.6.0
+     */
+    public static void enable(final ClassNode classNode) {
+        classNode.setNodeMetaData(ENABLED, Boolean.TRUE);
+    }
+
+    /**
+     * Stops keeping the index of the class node passed as parameter
+     * and removes it
+     *
+     * @param classNode the class node already transformed
+     * @since 0.6.0
+     */
+    public static void disable(final ClassNode classNode) {
+        invalidate(classNode);
+        classNode.removeNodeMetaData(ENABLED);
+    }
+
+    /**
+     * Checks whether the criteria passed as parameter may match any
+     * node of the class passed as parameter. Classes whose index is
+     * not kept (see {@link #enable(ClassNode)}) are not indexed, and
+     * they always may match.
+     *
+     * @param classNode the class to check
+     * @param criteria the criteria to check
+     * @return false only when the criteria can't match any node of the class
+     * @since 0.6.0
+     */
+    public static boolean mayMatch(final ClassNode classNode, final Criteria<?> criteria) {
+        return !isEnabled(classNode) || CriteriaIndex.mayMatchAny(criteria, entryOf(classNode));
+    }
+
+    /**
+     * Discards the index of the class passed as parameter, it will be
+     * built again when needed
+     *
+     * @param classNode the class that has been modified
+     * @since 0.6.0
+     */
+    public static void invalidate(final ClassNode classNode) {
+        if (classNode != null) {
+            classNode.removeNodeMetaData(ENTRY);
+        }
+    }
+
+    /**
+     * Discards the index of the class declaring the method passed as
+     * parameter
+     *
+     * @param methodNode the method that has been modified
+     * @since 0.6.0
+     */
+    public static void invalidate(final MethodNode methodNode) {
+        invalidate(methodNode.getDeclaringClass());
+    }
+
+    private List<Entry> entries() {
+        final ModuleNode module = sourceUnit.getAST();
+        final List<Entry> entries = new ArrayList<>();
+
+        if (module == null) {
+            return entries;
+        }
+
+        for (final ClassNode classNode : module.getClasses()) {
+            entries.add(isEnabled(classNode) ? entryOf(classNode) : build(classNode));
+        }
+
+        return entries;
+    }
+
+    private static boolean isEnabled(final ClassNode classNode) {
+        return classNode != null && classNode.getNodeMetaData(ENABLED) != null;
+    }
+
+    private static Entry entryOf(final ClassNode classNode) {
+        final Entry cached = (Entry) classNode.getNodeMetaData(ENTRY);
+
+        if (cached != null && cached.isFresh(classNode)) {
+            return cached;
+        }
+
+        final Entry entry = build(classNode);
+
+        classNode.removeNodeMetaData(ENTRY);
+        classNode.setNodeMetaData(ENTRY, entry);
+
+        return entry;
+    }
+
+    private static Entry build(final ClassNode classNode) {
+        final Entry entry = new Entry(classNode);
+
+        new Walker(entry).visitClass(classNode);
+
+        return entry;
+    }
+
+    private static boolean hasAnnotation(final AnnotatedNode annotated, final String qualifiedName) {
+        for (final AnnotationNode annotation : annotated.getAnnotations()) {
+            if (annotation.getClassNode().getName().equals(qualifiedName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static <K, V> void put(final Map<K, List<V>> map, final K key, final V value) {
+        List<V> values = map.get(key);
+
+        if (values == null) {
+            values = new ArrayList<>();
+            map.put(key, values);
+        }
+
+        values.add(value);
+    }
+
+    /**
+     * The nodes of a single class. Like {@link asteroid.utils.MemberIndex}
+     * it keeps how many members the class had, and the code of every
+     * method, to find out whether the class changed since it was
+     * indexed.
+     */
+    private static final class Entry implements CriteriaIndex.Contents {
+
+        private final Map<Class<?>, List<ASTNode>> nodes = new HashMap<>();
+        private final Map<String, List<AnnotatedNode>> annotated = new HashMap<>();
+        private final Map<String, List<MethodCallExpression>> calls = new HashMap<>();
+        private final Map<NameCriteria.Target, Set<String>> names = new EnumMap<>(NameCriteria.Target.class);
+
+        private final int fieldCount;
+        private final int propertyCount;
+        private final int annotationCount;
+        private final int initializerCount;
+        private final List<Statement> code = new ArrayList<>();
+
+        Entry(final ClassNode classNode) {
+            this.fieldCount = classNode.getFields().size();
+            this.propertyCount = classNode.getProperties().size();
+            this.annotationCount = classNode.getAnnotations().size();
+            this.initializerCount = classNode.getObjectInitializerStatements().size();
+
+            for (final MethodNode constructor : classNode.getDeclaredConstructors()) {
+                code.add(constructor.getCode());
+            }
+
+            for (final MethodNode methodNode : classNode.getMethods()) {
+                code.add(methodNode.getCode());
+            }
+        }
+
+        boolean isFresh(final ClassNode classNode) {
+            if (fieldCount != classNode.getFields().size() ||
+                propertyCount != classNode.getProperties().size() ||
+                annotationCount != classNode.getAnnotations().size() ||
+                initializerCount != classNode.getObjectInitializerStatements().size() ||
+                code.size() != classNode.getDeclaredConstructors().size() + classNode.getMethods().size()) {
+                return false;
+            }
+
+            int index = 0;
+
+            for (final MethodNode constructor : classNode.getDeclaredConstructors()) {
+                if (code.get(index++) != constructor.getCode()) {
+                    return false;
+                }
+            }
+
+            for (final MethodNode methodNode : classNode.getMethods()) {
+                if (code.get(index++) != methodNode.getCode()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        void add(final ASTNode node) {
+            put(nodes, node.getClass(), node);
+
+            if (node instanceof AnnotatedNode) {
+                for (final AnnotationNode annotation : ((AnnotatedNode) node).getAnnotations()) {
+                    put(annotated, annotation.getClassNode().getNameWithoutPackage(), (AnnotatedNode) node);
+                }
+            }
+
+            if (node instanceof MethodCallExpression) {
+                final String name = ((MethodCallExpression) node).getMethodAsString();
+
+                if (name != null) {
+                    put(calls, name, (MethodCallExpression) node);
+                }
+            }
+
+            for (final NameCriteria.Target target : NameCriteria.Target.values()) {
+                final String name = target.nameOf(node);
+
+                if (name != null) {
+                    names.computeIfAbsent(target, key -> new HashSet<>()).add(name);
+                }
+            }
+        }
+
+        @Override
+        public boolean containsAnnotation(final String simpleName) {
+            return annotated.containsKey(simpleName);
+        }
+
+        @Override
+        public boolean containsName(final NameCriteria.Target target, final NameCriteria.Mode mode, final String term) {
+            final Set<String> found = names.getOrDefault(target, Collections.<String>emptySet());
+
+            if (mode == NameCriteria.Mode.EQUALS) {
+                return found.contains(term);
+            }
+
+            for (final String name : found) {
+                if (matches(name, mode, term)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private static boolean matches(final String name, final NameCriteria.Mode mode, final String term) {
+            switch (mode) {
+                case EQUALS:
+                    return name.equals(term);
+                case STARTS_WITH:
+                    return name.startsWith(term);
+                case ENDS_WITH:
+                    return name.endsWith(term);
+                default:
+                    return name.contains(term);
+            }
+        }
+
+        @Override
+        public boolean containsType(final Class<?> type) {
+            if (type.isAssignableFrom(EmptyExpression.class) || type.isAssignableFrom(EmptyStatement.class)) {
+                return true;
+            }
+
+            for (final Class<?> found : nodes.keySet()) {
+                if (type.isAssignableFrom(found)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Walks a class adding all its members, statements and
+     * expressions to an entry
+     */
+    @SuppressWarnings("PMD.TooManyMethods")
+    private static final class Walker extends ExpressionSummary.Collector {
+
+        private final Entry entry;
+
+        Walker(final Entry entry) {
+            this.entry = entry;
+        }
+
+        void visitClass(final ClassNode classNode) {
+            visitAnnotated(classNode);
+            visitModule(classNode.getModule());
+
+            for (final FieldNode fieldNode : classNode.getFields()) {
+                visitAnnotated(fieldNode);
+
+                if (fieldNode.hasInitialExpression()) {
+                    fieldNode.getInitialExpression().visit(this);
+                }
+            }
+
+            for (final PropertyNode propertyNode : classNode.getProperties()) {
+                visitAnnotated(propertyNode);
+                visitCode(propertyNode.getGetterBlock());
+                visitCode(propertyNode.getSetterBlock());
+            }
+
+            for (final MethodNode constructor : classNode.getDeclaredConstructors()) {
+                visitMethod(constructor);
+            }
+
+            for (final MethodNode methodNode : classNode.getMethods()) {
+                visitMethod(methodNode);
+            }
+
+            for (final Statement statement : classNode.getObjectInitializerStatements()) {
+                statement.visit(this);
+            }
+        }
+
+        private void visitModule(final ModuleNode module) {
+            if (module == null) {
+                return;
+            }
+
+            if (module.getPackage() != null) {
+                visitAnnotations(module.getPackage().getAnnotations());
+            }
+
+            for (final ImportNode importNode : module.getImports()) {
+                visitAnnotations(importNode.getAnnotations());
+            }
+        }
+
+        private void visitMethod(final MethodNode methodNode) {
+            visitAnnotated(methodNode);
+
+            for (final Parameter parameter : methodNode.getParameters()) {
+                visitAnnotations(parameter.getAnnotations());
+
+                if (parameter.hasInitialExpression()) {
+                    parameter.getInitialExpression().visit(this);
+                }
+            }
+
+            visitCode(methodNode.getCode());
+        }
+
+        private void visitAnnotated(final AnnotatedNode annotated) {
+            entry.add(annotated);
+            visitAnnotations(annotated.getAnnotations());
+        }
+
+        private void visitCode(final Statement code) {
+            if (code != null) {
+                code.visit(this);
+            }
+        }
+
+        @Override
+        void add(final Expression expression) {
+            entry.add(expression);
+        }
+
+        @Override
+        public void visitBlockStatement(final BlockStatement statement) {
+            entry.add(statement);
+            super.visitBlockStatement(statement);
+        }
+
+        @Override
+        public void visitForLoop(final ForStatement statement) {
+            entry.add(statement);
+            super.visitForLoop(statement);
+        }
+
+        @Override
+        public void visitWhileLoop(final WhileStatement statement) {
+            entry.add(statement);
+            super.visitWhileLoop(statement);
+        }
+
+        @Override
+        public void visitDoWhileLoop(final DoWhileStatement statement) {
+            entry.add(statement);
+            super.visitDoWhileLoop(statement);
+        }
+
+        @Override
+        public void visitIfElse(final IfStatement statement) {
+            entry.add(statement);
+            super.visitIfElse(statement);
+        }
+
+        @Override
+        public void visitExpressionStatement(final ExpressionStatement statement) {
+            entry.add(statement);
+            super.visitExpressionStatement(statement);
+        }
+
+        @Override
+        public void visitReturnStatement(final ReturnStatement statement) {
+            entry.add(statement);
+            super.visitReturnStatement(statement);
+        }
+
+        @Override
+        public void visitAssertStatement(final AssertStatement statement) {
+            entry.add(statement);
+            super.visitAssertStatement(statement);
+        }
+
+        @Override
+        public void visitTryCatchFinally(final TryCatchStatement statement) {
+            entry.add(statement);
+            super.visitTryCatchFinally(statement);
+        }
+
+        @Override
+        public void visitSwitch(final SwitchStatement statement) {
+            entry.add(statement);
+            super.visitSwitch(statement);
+        }
+
+        @Override
+        public void visitCaseStatement(final CaseStatement statement) {
+            entry.add(statement);
+            super.visitCaseStatement(statement);
+        }
+
+        @Override
+        public void visitBreakStatement(final BreakStatement statement) {
+            entry.add(statement);
+            super.visitBreakStatement(statement);
+        }
+
+        @Override
+        public void visitContinueStatement(final ContinueStatement statement) {
+            entry.add(statement);
+            super.visitContinueStatement(statement);
+        }
+
+        @Override
+        public void visitThrowStatement(final ThrowStatement statement) {
+            entry.add(statement);
+            super.visitThrowStatement(statement);
+        }
+
+        @Override
+        public void visitSynchronizedStatement(final SynchronizedStatement statement) {
+            entry.add(statement);
+            super.visitSynchronizedStatement(statement);
+        }
+
+        @Override
+        public void visitCatchStatement(final CatchStatement statement) {
+            entry.add(statement);
+            super.visitCatchStatement(statement);
+        }
+    }
+}
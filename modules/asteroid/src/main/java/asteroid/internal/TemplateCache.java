@@ -0,0 +1,77 @@
+package asteroid.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.builder.AstBuilder;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+
+/**
+ * Keeps the code blocks parsed from strings, so the same code is
+ * only parsed once. Blocks are kept by their source code, and only
+ * the most recently used blocks are kept. The maximum number of
+ * blocks kept can be changed with the system property
+ * <b>asteroid.templates.size</b> (256 by default).
+ * <br><br>
+ * Blocks kept by this cache should never be modified, use {@link
+ * NodeCopier} to get a copy of them.
+ *
+ * @since 0.6.0
+ */
+public final class TemplateCache {
+
+    private static final int MAX_SIZE = Integer.getInteger("asteroid.templates.size", 256);
+
+    private static final Map<String, BlockStatement> TEMPLATES = new LinkedHashMap<String, BlockStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, BlockStatement> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private TemplateCache() {
+        // utility class
+    }
+
+    /**
+     * Returns the code block resulting of parsing the code passed as
+     * parameter. The result must not be modified.
+     *
+     * @param code the code to parse
+     * @return the parsed code block
+     * @since 0.6.0
+     */
+    public static BlockStatement get(final String code) {
+        synchronized (TEMPLATES) {
+            final BlockStatement cached = TEMPLATES.get(code);
+
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final BlockStatement parsed = (BlockStatement) new AstBuilder().buildFromString(code).get(0);
+
+        synchronized (TEMPLATES) {
+            final BlockStatement cached = TEMPLATES.get(code);
+
+            if (cached != null) {
+                return cached;
+            }
+
+            TEMPLATES.put(code, parsed);
+            return parsed;
+        }
+    }
+
+    /**
+     * Removes all code blocks kept so far
+     *
+     * @since 0.6.0
+     */
+    public static void clear() {
+        synchronized (TEMPLATES) {
+            TEMPLATES.clear();
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package asteroid.internal;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import asteroid.A;
 
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.AnnotationNode;
 import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.messages.WarningMessage;
 import org.codehaus.groovy.transform.GroovyASTTransformation;
 import groovy.transform.InheritConstructors;
 
@@ -81,4 +88,62 @@ public final class TransformationUtils {
     public static AnnotationNode getInheritConstructorsAnnotation() {
         return A.NODES.annotation(InheritConstructors.class).build();
     }
+
+    /**
+     * Writes a report, e.g. to a file
+     *
+     * @since 0.6.0
+     */
+    @FunctionalInterface
+    public interface ReportWriter {
+
+        /**
+         * Writes the report
+         *
+         * @throws IOException if the report couldn't be written
+         * @since 0.6.0
+         */
+        void write() throws IOException;
+    }
+
+    /**
+     * Calls the writer passed as parameter once the compilation unit
+     * has generated the bytecode of every class, or right away if
+     * it's already past class generation. The writer is called only
+     * once, and if it fails the error is reported as a compilation
+     * warning.
+     *
+     * @param compilationUnit the compilation unit being compiled
+     * @param description what is being written, used in the warning,
+     * e.g. "Asteroid profile report to build/profile.json"
+     * @param writer the writer of the report
+     * @since 0.6.0
+     */
+    public static void writeAfterClassGeneration(final CompilationUnit compilationUnit,
+                                                 final String description,
+                                                 final ReportWriter writer) {
+        final AtomicBoolean written = new AtomicBoolean();
+
+        /* Class generation is the last phase when compiling with a
+           GroovyClassLoader. New phase operations run after the
+           operations already registered for the same phase, and
+           they can be added while the phase is being processed */
+        compilationUnit.addNewPhaseOperation(new CompilationUnit.SourceUnitOperation() {
+            @Override
+            public void call(final SourceUnit source) {
+                if (!written.compareAndSet(false, true)) {
+                    return;
+                }
+
+                try {
+                    writer.write();
+                } catch (IOException e) {
+                    source.getErrorCollector().addWarning(WarningMessage.POSSIBLE_ERRORS,
+                                                          description + " couldn't be written: " + e.getMessage(),
+                                                          null,
+                                                          source);
+                }
+            }
+        }, Math.max(Phases.CLASS_GENERATION, compilationUnit.getPhase()));
+    }
 }
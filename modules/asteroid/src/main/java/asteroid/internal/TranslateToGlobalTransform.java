@@ -26,7 +26,12 @@ import asteroid.transformer.AbstractClassNodeTransformer;
 public class TranslateToGlobalTransform extends AbstractClassNodeTransformer {
 
     private static final String BLANK = "";
-    private static final String TX_NAME = "Phase";
+    /**
+     * Simple name of the annotation marking global transformations
+     *
+     * @since 0.6.0
+     */
+    static final String TX_NAME = "Phase";
     private static final String PHASE_PFIX = "Phase.GLOBAL.";
     private static final String PHASE_PFIX_SHORT = "GLOBAL.";
     private static final String PHASE_GROOVY = "CompilePhase.";
@@ -54,7 +59,7 @@ public class TranslateToGlobalTransform extends AbstractClassNodeTransformer {
             return;
         }
 
-        final ClassNode reference = A.NODES.clazz(AbstractGlobalTransformation.class).build();
+        final ClassNode reference = A.NODES.clazz(AbstractGlobalTransformation.class).shared().build();
         final Boolean isGlobal = A.UTIL.NODE.isOrExtendsUnsafe(annotated, reference);
 
         if (!isGlobal) {
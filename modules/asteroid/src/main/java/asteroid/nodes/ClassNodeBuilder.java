@@ -7,22 +7,32 @@ import org.codehaus.groovy.ast.tools.GenericsUtils;
 
 /**
  * Builder to create instances of type {@link ClassNode}
+ * <br><br>
+ * Class nodes built from a {@link Class} are new nodes, unless the
+ * builder is asked for a node shared by the whole compilation with
+ * {@link #shared()}, see {@link ClassNodeRegistry}. Methods modifying
+ * the node, like {@link #genericsTypes(GenericsType...)}, always make
+ * the builder use a new node.
  *
  * @since 0.1.0
  */
 final public class ClassNodeBuilder {
 
-    private final ClassNode classNode;
+    private final Class<?> clazz;
+    private ClassNode classNode;
+    private boolean shared;
 
-    private ClassNodeBuilder(final Class clazz) {
-        classNode = new ClassNode(clazz);
+    private ClassNodeBuilder(final Class<?> clazz) {
+        this.clazz = clazz;
     }
 
     private ClassNodeBuilder(final String qualifiedName) {
+        this.clazz = null;
         this.classNode = ClassHelper.make(qualifiedName);
     }
 
     private ClassNodeBuilder(final ClassNode classNode) {
+        this.clazz = null;
         this.classNode = classNode;
     }
 
@@ -93,7 +103,7 @@ final public class ClassNodeBuilder {
      * @since 0.1.0
      */
     public ClassNodeBuilder usingGenerics(final Boolean useGenerics) {
-        this.classNode.setUsingGenerics(useGenerics);
+        own().classNode.setUsingGenerics(useGenerics);
         return this;
     }
 
@@ -106,7 +116,7 @@ final public class ClassNodeBuilder {
      * @since 0.1.0
      */
     public ClassNodeBuilder genericsPlaceHolder(final Boolean usePlaceholder) {
-        this.classNode.setGenericsPlaceHolder(usePlaceholder);
+        own().classNode.setGenericsPlaceHolder(usePlaceholder);
         return this;
     }
 
@@ -118,7 +128,7 @@ final public class ClassNodeBuilder {
      * @since 0.1.0
      */
     public ClassNodeBuilder genericsTypes(final GenericsType... genericsTypes) {
-        this.classNode.setGenericsTypes(genericsTypes);
+        own().classNode.setGenericsTypes(genericsTypes);
         return this;
     }
 
@@ -130,7 +140,43 @@ final public class ClassNodeBuilder {
      * @since 0.1.0
      */
     public ClassNode build() {
-        return this.classNode;
+        if (this.classNode != null) {
+            return this.classNode;
+        }
+
+        return shared ? ClassNodeRegistry.classNodeOf(clazz) : new ClassNode(clazz);
+    }
+
+    /**
+     * Makes the builder return the class node shared by the whole
+     * compilation while a transformation is applied, instead of a
+     * new node, see {@link ClassNodeRegistry}. Shared nodes should
+     * never be modified. Builders created from a qualified name, or
+     * with generics, always return a new node.
+     * <br><br>
+     *
+     * <strong>AST</strong>
+     * <pre><code>clazz(String)
+     * .shared()
+     * .build()</code></pre>
+     *
+     * @return current instance of {@link ClassNodeBuilder}
+     * @since 0.6.0
+     */
+    public ClassNodeBuilder shared() {
+        this.shared = this.classNode == null;
+
+        return this;
+    }
+
+    private ClassNodeBuilder own() {
+        if (this.classNode == null) {
+            this.classNode = new ClassNode(clazz);
+        }
+
+        this.shared = false;
+
+        return this;
     }
 
 }
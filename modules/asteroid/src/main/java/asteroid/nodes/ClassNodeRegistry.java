@@ -0,0 +1,189 @@
+package asteroid.nodes;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CompileUnit;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.control.SourceUnit;
+
+import asteroid.utils.HierarchyCache;
+
+/**
+ * Keeps a single {@link ClassNode} instance per {@link Class} during
+ * a compilation, so builders asked for a shared node (see {@link
+ * ClassNodeBuilder#shared()}) don't create a new node every time the
+ * same type is used.
+ * <br><br>
+ * Nodes belong to the registry, they're never the nodes {@link
+ * ClassHelper} caches for the whole JVM, except for primitive types,
+ * which Groovy compares by identity. They don't have generics
+ * information.
+ * <br><br>
+ * There's a registry per compilation unit. Asteroid transformations
+ * make the registry of the source unit they're transforming the
+ * current one while they're applied. When there is no current
+ * registry, e.g. when using builders outside a transformation, a new
+ * class node is created every time.
+ * <br><br>
+ * Every registry also keeps the {@link HierarchyCache} of its
+ * compilation, which is emptied every time a transformation enters
+ * or exits the registry, so hierarchy changes made by anything else
+ * between transformations are always seen.
+ * <br><br>
+ * <b>IMPORTANT</b>: Interned nodes are shared by every
+ * transformation of the compilation, they should never be modified.
+ *
+ * @since 0.6.0
+ */
+public final class ClassNodeRegistry {
+
+    private static final Map<CompileUnit, ClassNodeRegistry> REGISTRIES =
+        Collections.synchronizedMap(new WeakHashMap<CompileUnit, ClassNodeRegistry>());
+    private static final ThreadLocal<ClassNodeRegistry> CURRENT = new ThreadLocal<>();
+
+    private final Map<Class<?>, ClassNode> classNodes = new ConcurrentHashMap<>();
+    private final HierarchyCache hierarchyCache = new HierarchyCache();
+
+    private ClassNodeRegistry() {
+        // only created per compilation unit
+    }
+
+    /**
+     * Makes the registry of the compilation unit the source unit
+     * belongs to the current registry of this thread. It should
+     * always be followed by a call to {@link #exit(ClassNodeRegistry)}:
+     *
+     * <pre><code>
+     * final ClassNodeRegistry previous = ClassNodeRegistry.enter(sourceUnit);
+     * try {
+     *     // transform
+     * } finally {
+     *     ClassNodeRegistry.exit(previous);
+     * }
+     * </code></pre>
+     *
+     * @param sourceUnit the source unit being transformed
+     * @return the previous current registry, it may be null
+     * @since 0.6.0
+     */
+    public static ClassNodeRegistry enter(final SourceUnit sourceUnit) {
+        final ClassNodeRegistry previous = CURRENT.get();
+        final ModuleNode module = sourceUnit == null ? null : sourceUnit.getAST();
+        final CompileUnit compileUnit = module == null ? null : module.getUnit();
+
+        if (compileUnit != null) {
+            final ClassNodeRegistry registry = registryOf(compileUnit);
+
+            registry.hierarchyCache.invalidate();
+            CURRENT.set(registry);
+        }
+
+        return previous;
+    }
+
+    /**
+     * Restores the registry that was current before calling {@link
+     * #enter(SourceUnit)}
+     *
+     * @param previous the registry returned by {@link #enter(SourceUnit)}
+     * @since 0.6.0
+     */
+    public static void exit(final ClassNodeRegistry previous) {
+        final ClassNodeRegistry current = CURRENT.get();
+
+        if (current != null) {
+            current.hierarchyCache.invalidate();
+        }
+
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Returns a class node representing the class passed as
+     * parameter. It's the interned node if there is a current
+     * registry, or a new node otherwise
+     *
+     * @param clazz the class
+     * @return a class node representing the class
+     * @since 0.6.0
+     */
+    public static ClassNode classNodeOf(final Class<?> clazz) {
+        final ClassNodeRegistry registry = CURRENT.get();
+
+        return registry == null ? new ClassNode(clazz) : registry.get(clazz);
+    }
+
+    /**
+     * Returns the current registry of this thread
+     *
+     * @return the current registry or null if there isn't any
+     * @since 0.6.0
+     */
+    public static ClassNodeRegistry current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the interned class node of the class passed as parameter
+     *
+     * @param clazz the class
+     * @return a shared class node representing the class
+     * @since 0.6.0
+     */
+    public ClassNode get(final Class<?> clazz) {
+        final ClassNode existing = classNodes.get(clazz);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final ClassNode created = clazz.isPrimitive() ?
+            ClassHelper.make(clazz) :
+            ClassHelper.makeWithoutCaching(clazz, false);
+        final ClassNode previous = classNodes.putIfAbsent(clazz, created);
+
+        return previous == null ? created : previous;
+    }
+
+    /**
+     * Returns the cache of hierarchy queries of this compilation
+     *
+     * @return the hierarchy cache of this compilation
+     * @since 0.6.0
+     */
+    public HierarchyCache getHierarchyCache() {
+        return hierarchyCache;
+    }
+
+    /**
+     * Returns how many class nodes have been interned in this registry
+     *
+     * @return the number of interned class nodes
+     * @since 0.6.0
+     */
+    public int size() {
+        return classNodes.size();
+    }
+
+    private static ClassNodeRegistry registryOf(final CompileUnit compileUnit) {
+        synchronized (REGISTRIES) {
+            ClassNodeRegistry registry = REGISTRIES.get(compileUnit);
+
+            if (registry == null) {
+                registry = new ClassNodeRegistry();
+                REGISTRIES.put(compileUnit, registry);
+            }
+
+            return registry;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package asteroid.pattern;
+
+/**
+ * Matches any expression
+ *
+ * @since 0.6.0
+ */
+final class AnyPattern extends Pattern {
+
+    static final AnyPattern INSTANCE = new AnyPattern();
+
+    private static final Matcher ANY = (expression, slots) -> true;
+
+    private AnyPattern() {
+        super();
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        return ANY;
+    }
+}
@@ -0,0 +1,56 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * Matches binary expressions by operator and operands
+ *
+ * @since 0.6.0
+ */
+final class BinaryPattern extends Pattern {
+
+    private final Pattern left;
+    private final String operator;
+    private final Pattern right;
+
+    BinaryPattern(final Pattern left, final String operator, final Pattern right) {
+        super();
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        final Matcher leftMatcher = left.compile(slots);
+        final Matcher rightMatcher = right.compile(slots);
+
+        return (expression, found) -> {
+            if (!(expression instanceof BinaryExpression)) {
+                return false;
+            }
+
+            final BinaryExpression binary = (BinaryExpression) expression;
+
+            return (operator == null || operator.equals(binary.getOperation().getText())) &&
+                leftMatcher.match(binary.getLeftExpression(), found) &&
+                rightMatcher.match(binary.getRightExpression(), found);
+        };
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return BinaryExpression.class;
+    }
+
+    @Override
+    String getKeyName() {
+        return operator;
+    }
+
+    @Override
+    int getKeyArity() {
+        return 2;
+    }
+}
@@ -0,0 +1,87 @@
+package asteroid.pattern;
+
+import java.util.List;
+
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+
+/**
+ * Matches method calls by receiver, method name and arguments
+ *
+ * @since 0.6.0
+ */
+final class CallPattern extends Pattern {
+
+    private final Pattern receiver;
+    private final String name;
+    private final Pattern[] args;
+
+    CallPattern(final Pattern receiver, final String name, final Pattern... args) {
+        super();
+        this.receiver = receiver;
+        this.name = name;
+        this.args = args;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        final Matcher receiverMatcher = receiver.compile(slots);
+        final Matcher[] argMatchers = new Matcher[args.length];
+
+        for (int i = 0; i < args.length; i++) {
+            argMatchers[i] = args[i].compile(slots);
+        }
+
+        return (expression, found) -> {
+            if (!(expression instanceof MethodCallExpression)) {
+                return false;
+            }
+
+            final MethodCallExpression call = (MethodCallExpression) expression;
+
+            return (name == null || name.equals(call.getMethodAsString())) &&
+                matchArgs(call.getArguments(), argMatchers, found) &&
+                receiverMatcher.match(call.getObjectExpression(), found);
+        };
+    }
+
+    /*
+     * Arguments are checked by index, without creating any iterator
+     * or list
+     */
+    private static boolean matchArgs(final Expression arguments, final Matcher[] matchers, final Expression[] found) {
+        if (!(arguments instanceof TupleExpression)) {
+            return matchers.length == 1 && matchers[0].match(arguments, found);
+        }
+
+        final List<Expression> expressions = ((TupleExpression) arguments).getExpressions();
+
+        if (expressions.size() != matchers.length) {
+            return false;
+        }
+
+        for (int i = 0; i < matchers.length; i++) {
+            if (!matchers[i].match(expressions.get(i), found)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return MethodCallExpression.class;
+    }
+
+    @Override
+    String getKeyName() {
+        return name;
+    }
+
+    @Override
+    int getKeyArity() {
+        return args.length;
+    }
+}
@@ -0,0 +1,53 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * Keeps the expression matching another pattern
+ *
+ * @since 0.6.0
+ */
+final class CapturePattern extends Pattern {
+
+    private final String name;
+    private final Pattern pattern;
+
+    CapturePattern(final String name, final Pattern pattern) {
+        super();
+        this.name = name;
+        this.pattern = pattern;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        final int index = slots.indexOf(name);
+        final Matcher matcher = pattern.compile(slots);
+
+        return (expression, found) -> {
+            if (!matcher.match(expression, found)) {
+                return false;
+            }
+
+            if (found != null) {
+                found[index] = expression;
+            }
+
+            return true;
+        };
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return pattern.getKeyType();
+    }
+
+    @Override
+    String getKeyName() {
+        return pattern.getKeyName();
+    }
+
+    @Override
+    int getKeyArity() {
+        return pattern.getKeyArity();
+    }
+}
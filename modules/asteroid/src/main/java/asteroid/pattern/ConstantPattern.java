@@ -0,0 +1,32 @@
+package asteroid.pattern;
+
+import java.util.Objects;
+
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * Matches constants by value
+ *
+ * @since 0.6.0
+ */
+final class ConstantPattern extends Pattern {
+
+    private final Object value;
+
+    ConstantPattern(final Object value) {
+        super();
+        this.value = value;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        return (expression, found) -> expression instanceof ConstantExpression &&
+            Objects.equals(value, ((ConstantExpression) expression).getValue());
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return ConstantExpression.class;
+    }
+}
@@ -0,0 +1,204 @@
+package asteroid.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+
+/**
+ * Finds the patterns of a {@link PatternSet} an expression may match,
+ * looking them up by the class of the expression, then by its name
+ * (method, property, variable or operator) and then by its arity.
+ * <br><br>
+ * Every leaf keeps the indexes of all patterns compatible with its
+ * keys, in the order they were declared, including patterns without
+ * some of those keys. Looking up an expression only reads fields of
+ * the expression, nothing is allocated.
+ *
+ * @since 0.6.0
+ */
+final class DecisionTree {
+
+    private final Map<Class<?>, Branch> branches = new HashMap<>();
+    private final int[] fallback;
+
+    DecisionTree(final Pattern... patterns) {
+        this.fallback = select(patterns, null, null, Pattern.ANY_ARITY);
+
+        for (final Pattern pattern : patterns) {
+            final Class<?> type = pattern.getKeyType();
+
+            if (type != null && !branches.containsKey(type)) {
+                branches.put(type, new Branch(patterns, type));
+            }
+        }
+    }
+
+    /**
+     * Returns the indexes of the patterns the expression passed as
+     * parameter may match. The branch used is the first one found
+     * walking up the class hierarchy of the expression.
+     *
+     * @param expression the expression to check
+     * @return the indexes of the candidate patterns, in order
+     */
+    int[] candidates(final Expression expression) {
+        for (Class<?> type = expression.getClass(); type != null; type = type.getSuperclass()) {
+            final Branch branch = branches.get(type);
+
+            if (branch != null) {
+                return branch.candidates(expression);
+            }
+        }
+
+        return fallback;
+    }
+
+    /**
+     * Returns the name used as the second key of the tree
+     *
+     * @param expression the expression
+     * @return the name of the expression or null if it has none
+     */
+    static String nameOf(final Expression expression) {
+        if (expression instanceof MethodCallExpression) {
+            return ((MethodCallExpression) expression).getMethodAsString();
+        }
+
+        if (expression instanceof PropertyExpression) {
+            return ((PropertyExpression) expression).getPropertyAsString();
+        }
+
+        if (expression instanceof VariableExpression) {
+            return ((VariableExpression) expression).getName();
+        }
+
+        if (expression instanceof BinaryExpression) {
+            return ((BinaryExpression) expression).getOperation().getText();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the arity used as the third key of the tree
+     *
+     * @param expression the expression
+     * @return the number of arguments of method calls, 2 for binary
+     * expressions and 0 for any other expression
+     */
+    static int arityOf(final Expression expression) {
+        if (expression instanceof MethodCallExpression) {
+            final Expression arguments = ((MethodCallExpression) expression).getArguments();
+
+            return arguments instanceof TupleExpression ? ((TupleExpression) arguments).getExpressions().size() : 1;
+        }
+
+        return expression instanceof BinaryExpression ? 2 : 0;
+    }
+
+    /*
+     * Returns the indexes of the patterns compatible with the keys
+     * passed as parameter. A null name or ANY_ARITY stand for any
+     * other name or arity, so only patterns without them are
+     * compatible.
+     */
+    private static int[] select(final Pattern[] patterns, final Class<?> type, final String name, final int arity) {
+        final List<Integer> selected = new ArrayList<>();
+
+        for (int i = 0; i < patterns.length; i++) {
+            if (isCompatible(patterns[i], type, name, arity)) {
+                selected.add(i);
+            }
+        }
+
+        final int[] indexes = new int[selected.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = selected.get(i);
+        }
+
+        return indexes;
+    }
+
+    private static boolean isCompatible(final Pattern pattern, final Class<?> type, final String name, final int arity) {
+        final Class<?> keyType = pattern.getKeyType();
+        final String keyName = pattern.getKeyName();
+        final int keyArity = pattern.getKeyArity();
+
+        return (keyType == null || type != null && keyType.isAssignableFrom(type)) &&
+            (keyName == null || keyName.equals(name)) &&
+            (keyArity == Pattern.ANY_ARITY || keyArity == arity);
+    }
+
+    /**
+     * Patterns of a given expression class, by name
+     */
+    private static final class Branch {
+
+        private final Map<String, Leaf> byName = new HashMap<>();
+        private final Leaf otherNames;
+
+        Branch(final Pattern[] patterns, final Class<?> type) {
+            final Set<String> names = new LinkedHashSet<>();
+
+            for (final Pattern pattern : patterns) {
+                if (pattern.getKeyName() != null && isCompatible(pattern, type, pattern.getKeyName(), pattern.getKeyArity())) {
+                    names.add(pattern.getKeyName());
+                }
+            }
+
+            for (final String name : names) {
+                byName.put(name, new Leaf(patterns, type, name));
+            }
+
+            this.otherNames = new Leaf(patterns, type, null);
+        }
+
+        int[] candidates(final Expression expression) {
+            final String name = byName.isEmpty() ? null : nameOf(expression);
+            final Leaf leaf = name == null ? otherNames : byName.getOrDefault(name, otherNames);
+
+            return leaf.candidates(arityOf(expression));
+        }
+    }
+
+    /**
+     * Patterns of a given expression class and name, by arity
+     */
+    private static final class Leaf {
+
+        private final int[][] byArity;
+        private final int[] otherArities;
+
+        Leaf(final Pattern[] patterns, final Class<?> type, final String name) {
+            int max = -1;
+
+            for (final Pattern pattern : patterns) {
+                if (pattern.getKeyArity() > max && isCompatible(pattern, type, name, pattern.getKeyArity())) {
+                    max = pattern.getKeyArity();
+                }
+            }
+
+            this.otherArities = select(patterns, type, name, Pattern.ANY_ARITY);
+            this.byArity = new int[max + 1][];
+
+            for (int arity = 0; arity <= max; arity++) {
+                byArity[arity] = select(patterns, type, name, arity);
+            }
+        }
+
+        int[] candidates(final int arity) {
+            return arity < byArity.length ? byArity[arity] : otherArities;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package asteroid.pattern;
+
+import java.util.Map;
+
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * The result of matching an expression against a {@link PatternSet}:
+ * which pattern matched and the expressions it captured
+ *
+ * <pre><code>
+ * Match match = patterns.match(expression)
+ * Expression arg = match?.get('arg')
+ * </code></pre>
+ *
+ * @since 0.6.0
+ */
+public final class Match {
+
+    private final Map<String, Integer> indexes;
+    private final int index;
+    private final Expression node;
+    private final Expression[] captures;
+
+    Match(final Map<String, Integer> indexes, final int index, final Expression node, final Expression... captures) {
+        this.indexes = indexes;
+        this.index = index;
+        this.node = node;
+        this.captures = captures;
+    }
+
+    /**
+     * Returns the position of the pattern matched, in the order the
+     * patterns were passed to {@link PatternSet#compile(Pattern[])}
+     *
+     * @return the index of the pattern matched
+     * @since 0.6.0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the expression matched
+     *
+     * @param <T> the expected type of the expression
+     * @return the expression matched
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Expression> T getNode() {
+        return (T) node;
+    }
+
+    /**
+     * Returns the expression captured with the name passed as
+     * parameter
+     *
+     * @param <T> the expected type of the expression
+     * @param name the name of the capture
+     * @return the expression captured, or null if the pattern matched
+     * doesn't capture any expression with that name
+     * @throws IllegalArgumentException if no pattern of the set
+     * captures expressions with that name
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Expression> T get(final String name) {
+        final Integer slot = indexes.get(name);
+
+        if (slot == null) {
+            throw new IllegalArgumentException("There's no capture named '" + name + "'");
+        }
+
+        return (T) captures[slot];
+    }
+}
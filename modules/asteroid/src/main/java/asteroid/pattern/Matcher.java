@@ -0,0 +1,23 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * A compiled {@link Pattern}
+ *
+ * @since 0.6.0
+ */
+@FunctionalInterface
+interface Matcher {
+
+    /**
+     * Checks whether the expression passed as parameter matches the
+     * pattern
+     *
+     * @param expression the expression to check, it may be null
+     * @param slots where captured expressions are kept, or null if
+     * they're not needed
+     * @return true if the expression matches, false otherwise
+     */
+    boolean match(Expression expression, Expression[] slots);
+}
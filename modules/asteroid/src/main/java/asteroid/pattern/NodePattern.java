@@ -0,0 +1,32 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * Matches expressions by node type
+ *
+ * @since 0.6.0
+ */
+final class NodePattern extends Pattern {
+
+    private final Class<? extends Expression> type;
+
+    NodePattern(final Class<? extends Expression> type) {
+        super();
+        this.type = type;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        return (expression, found) -> type.isInstance(expression);
+    }
+
+    /*
+     * The decision tree looks for branches walking up the class
+     * hierarchy, so interfaces can't be used as keys
+     */
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return type.isInterface() ? null : type;
+    }
+}
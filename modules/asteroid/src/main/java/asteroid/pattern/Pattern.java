@@ -0,0 +1,237 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.expr.Expression;
+
+/**
+ * Describes the structure of an expression: its type, its name and
+ * the patterns its children should match. Patterns are combined in a
+ * {@link PatternSet} to check expressions against all of them at
+ * once.
+ *
+ * <pre><code>
+ * Pattern equals = Pattern.call(Pattern.any(), "equals", Pattern.capture("arg"))
+ * </code></pre>
+ *
+ * Patterns are immutable and can be shared by many pattern sets.
+ *
+ * @since 0.6.0
+ */
+public abstract class Pattern {
+
+    /**
+     * Arity of patterns accepting any number of children
+     */
+    static final int ANY_ARITY = -1;
+
+    Pattern() {
+        // only patterns from this package
+    }
+
+    /**
+     * Returns a pattern matching any expression
+     *
+     * @return a pattern matching any expression
+     * @since 0.6.0
+     */
+    public static Pattern any() {
+        return AnyPattern.INSTANCE;
+    }
+
+    /**
+     * Returns a pattern matching any expression and keeping it with
+     * the name passed as parameter (see {@link Match#get(String)})
+     *
+     * @param name the name of the capture
+     * @return a capturing pattern
+     * @since 0.6.0
+     */
+    public static Pattern capture(final String name) {
+        return capture(name, any());
+    }
+
+    /**
+     * Returns a pattern matching the expressions the pattern passed
+     * as parameter matches, keeping them with the name passed as
+     * parameter (see {@link Match#get(String)})
+     *
+     * @param name the name of the capture
+     * @param pattern the pattern the expression should match
+     * @return a capturing pattern
+     * @since 0.6.0
+     */
+    public static Pattern capture(final String name, final Pattern pattern) {
+        return new CapturePattern(checkName(name), checkPattern(pattern));
+    }
+
+    /**
+     * Returns a pattern matching method calls with the receiver,
+     * name and arguments passed as parameter
+     *
+     * @param receiver the pattern of the object the method is called on
+     * @param name the method name, or null to match any name
+     * @param args the patterns of every argument
+     * @return a method call pattern
+     * @since 0.6.0
+     */
+    public static Pattern call(final Pattern receiver, final String name, final Pattern... args) {
+        final Pattern[] checked = args.clone();
+
+        for (final Pattern arg : checked) {
+            checkPattern(arg);
+        }
+
+        return new CallPattern(checkPattern(receiver), name, checked);
+    }
+
+    /**
+     * Returns a pattern matching constants with the value passed as
+     * parameter
+     *
+     * @param value the value of the constant
+     * @return a constant pattern
+     * @since 0.6.0
+     */
+    public static Pattern constant(final Object value) {
+        return new ConstantPattern(value);
+    }
+
+    /**
+     * Returns a pattern matching variables with the name passed as
+     * parameter
+     *
+     * @param name the name of the variable
+     * @return a variable pattern
+     * @since 0.6.0
+     */
+    public static Pattern var(final String name) {
+        return new VariablePattern(checkName(name));
+    }
+
+    /**
+     * Returns a pattern matching property expressions with the
+     * receiver and property name passed as parameter
+     *
+     * @param receiver the pattern of the object the property belongs to
+     * @param name the property name, or null to match any name
+     * @return a property pattern
+     * @since 0.6.0
+     */
+    public static Pattern prop(final Pattern receiver, final String name) {
+        return new PropertyPattern(checkPattern(receiver), name);
+    }
+
+    /**
+     * Returns a pattern matching binary expressions with the operator
+     * and operands passed as parameter
+     *
+     * @param left the pattern of the left operand
+     * @param operator the operator, e.g. "==", or null to match any operator
+     * @param right the pattern of the right operand
+     * @return a binary expression pattern
+     * @since 0.6.0
+     */
+    public static Pattern binary(final Pattern left, final String operator, final Pattern right) {
+        return new BinaryPattern(checkPattern(left), operator, checkPattern(right));
+    }
+
+    /**
+     * Returns a pattern matching expressions of the node type passed
+     * as parameter, e.g. {@link org.codehaus.groovy.ast.expr.ClosureExpression}
+     *
+     * @param type the type of the expression node
+     * @return a node type pattern
+     * @since 0.6.0
+     */
+    public static Pattern node(final Class<? extends Expression> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("The node type of a pattern can't be null");
+        }
+
+        return new NodePattern(type);
+    }
+
+    /**
+     * Returns a pattern matching expressions whose type is the class
+     * passed as parameter, e.g. constants of type {@link String}
+     *
+     * @param type the type of the expression
+     * @return a typed expression pattern
+     * @since 0.6.0
+     */
+    public static Pattern typed(final Class<?> type) {
+        if (type == null) {
+            throw new IllegalArgumentException("The type of a pattern can't be null");
+        }
+
+        return typed(ClassHelper.make(type));
+    }
+
+    /**
+     * Returns a pattern matching expressions whose type has the same
+     * name as the class node passed as parameter
+     *
+     * @param type the type of the expression
+     * @return a typed expression pattern
+     * @since 0.6.0
+     */
+    public static Pattern typed(final ClassNode type) {
+        if (type == null) {
+            throw new IllegalArgumentException("The type of a pattern can't be null");
+        }
+
+        return new TypedPattern(type.getName());
+    }
+
+    /**
+     * Compiles this pattern, resolving the slot of every capture
+     *
+     * @param slots the slots of the pattern set being compiled
+     * @return the matcher of this pattern
+     */
+    abstract Matcher compile(Slots slots);
+
+    /**
+     * Returns the class every expression matching this pattern is an
+     * instance of, or null if it could be any expression. It's used
+     * as the first key of the {@link DecisionTree}.
+     */
+    Class<? extends Expression> getKeyType() {
+        return null;
+    }
+
+    /**
+     * Returns the name every expression matching this pattern has
+     * (see {@link DecisionTree#nameOf(Expression)}), or null if it
+     * could have any name
+     */
+    String getKeyName() {
+        return null;
+    }
+
+    /**
+     * Returns the number of children every expression matching this
+     * pattern has (see {@link DecisionTree#arityOf(Expression)}), or
+     * {@link #ANY_ARITY}
+     */
+    int getKeyArity() {
+        return ANY_ARITY;
+    }
+
+    private static String checkName(final String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The name of a pattern can't be empty");
+        }
+
+        return name;
+    }
+
+    private static Pattern checkPattern(final Pattern pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("A nested pattern can't be null, use Pattern.any() instead");
+        }
+
+        return pattern;
+    }
+}
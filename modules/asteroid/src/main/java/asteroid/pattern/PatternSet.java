@@ -0,0 +1,197 @@
+package asteroid.pattern;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+
+import asteroid.criteria.Criteria;
+import asteroid.criteria.NameCriteria;
+import asteroid.criteria.TypeCriteria;
+
+/**
+ * A set of {@link Pattern} compiled into a decision tree shared by
+ * all of them. The tree selects the patterns an expression may match
+ * by the class of the expression, its method, property, variable or
+ * operator name, and its number of arguments, so checking an
+ * expression against many patterns doesn't try all of them.
+ * <br><br>
+ * A pattern set is a {@link Criteria}, so it can be passed to an
+ * {@link asteroid.transformer.AbstractExpressionTransformer}, and
+ * then the captured expressions can be retrieved with {@link
+ * #match(Expression)}:
+ *
+ * <pre><code>
+ * class EqualsTransformer extends AbstractExpressionTransformer{@literal <}MethodCallExpression{@literal >} {
+ *
+ *     static final PatternSet EQUALS = A.PATTERN.compile(call(any(), 'equals', capture('arg')))
+ *
+ *     EqualsTransformer(final SourceUnit sourceUnit) {
+ *         super(MethodCallExpression, sourceUnit, EQUALS)
+ *     }
+ *
+ *     Expression transformExpression(final MethodCallExpression expression) {
+ *         Expression arg = EQUALS.match(expression).get('arg')
+ *         ...
+ *     }
+ * }
+ * </code></pre>
+ *
+ * Checking an expression doesn't allocate anything, and matching an
+ * expression only allocates the {@link Match} and its captures when
+ * a pattern matches.
+ *
+ * @since 0.6.0
+ */
+public final class PatternSet implements Criteria<Expression> {
+
+    private static final Criteria<Expression> ANY = (final Expression expression) -> true;
+
+    private final List<Pattern> patterns;
+    private final Matcher[] matchers;
+    private final Map<String, Integer> indexes;
+    private final DecisionTree tree;
+    private final Criteria<Expression> hint;
+
+    private PatternSet(final Pattern... patterns) {
+        final Slots slots = new Slots();
+
+        this.patterns = Collections.unmodifiableList(Arrays.asList(patterns));
+        this.matchers = new Matcher[patterns.length];
+
+        for (int i = 0; i < patterns.length; i++) {
+            slots.next();
+            matchers[i] = patterns[i].compile(slots);
+        }
+
+        this.indexes = Collections.unmodifiableMap(slots.getIndexes());
+        this.tree = new DecisionTree(patterns);
+        this.hint = hintOf(patterns);
+    }
+
+    /**
+     * Compiles the patterns passed as parameter. When an expression
+     * matches more than one pattern, the first one wins.
+     *
+     * @param patterns the patterns to compile
+     * @return a compiled pattern set
+     * @throws IllegalArgumentException if there're no patterns, or a
+     * pattern captures two expressions with the same name
+     * @since 0.6.0
+     */
+    public static PatternSet compile(final Pattern... patterns) {
+        if (patterns == null || patterns.length == 0) {
+            throw new IllegalArgumentException("At least one pattern is needed");
+        }
+
+        final Pattern[] checked = patterns.clone();
+
+        for (final Pattern pattern : checked) {
+            if (pattern == null) {
+                throw new IllegalArgumentException("Patterns can't be null");
+            }
+        }
+
+        return new PatternSet(checked);
+    }
+
+    /**
+     * Checks whether the expression passed as parameter matches any
+     * pattern of this set, without keeping any captured expression
+     *
+     * @param expression the expression to check
+     * @return true if any pattern matches, false otherwise
+     * @since 0.6.0
+     */
+    @Override
+    public boolean matches(final Expression expression) {
+        return expression != null && indexOf(expression) >= 0;
+    }
+
+    /**
+     * Matches the expression passed as parameter against the patterns
+     * of this set
+     *
+     * @param expression the expression to match
+     * @return the first pattern matched and its captures, or null if
+     * no pattern matches
+     * @since 0.6.0
+     */
+    public Match match(final Expression expression) {
+        if (expression == null) {
+            return null;
+        }
+
+        final int index = indexOf(expression);
+
+        if (index < 0) {
+            return null;
+        }
+
+        final Expression[] captures = new Expression[indexes.size()];
+
+        matchers[index].match(expression, captures);
+
+        return new Match(indexes, index, expression, captures);
+    }
+
+    /**
+     * Returns the patterns of this set, in order
+     *
+     * @return the patterns of this set
+     * @since 0.6.0
+     */
+    public List<Pattern> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Returns a criteria any expression matching this set also
+     * matches, built from the expression types and method names of
+     * the patterns. {@link asteroid.criteria.CriteriaIndex} uses it to
+     * skip classes and nodes this set can't match.
+     *
+     * @return a criteria less strict than this set
+     * @since 0.6.0
+     */
+    public Criteria<Expression> getHint() {
+        return hint;
+    }
+
+    /*
+     * Captures are only kept once the pattern is known to match, so
+     * checking an expression doesn't allocate anything
+     */
+    private int indexOf(final Expression expression) {
+        for (final int index : tree.candidates(expression)) {
+            if (matchers[index].match(expression, null)) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Criteria<Expression> hintOf(final Pattern... patterns) {
+        final Criteria<Expression>[] hints = new Criteria[patterns.length];
+
+        for (int i = 0; i < patterns.length; i++) {
+            final Class<?> type = patterns[i].getKeyType();
+            final String name = patterns[i].getKeyName();
+
+            if (type == null) {
+                return ANY;
+            }
+
+            hints[i] = type == MethodCallExpression.class && name != null ?
+                Criteria.allOf(new TypeCriteria<Expression>(type), new NameCriteria<Expression>(NameCriteria.Target.METHOD_CALL, NameCriteria.Mode.EQUALS, name)) :
+                new TypeCriteria<Expression>(type);
+        }
+
+        return Criteria.anyOf(hints);
+    }
+}
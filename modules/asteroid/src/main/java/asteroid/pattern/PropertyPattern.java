@@ -0,0 +1,52 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+
+/**
+ * Matches property expressions by receiver and property name
+ *
+ * @since 0.6.0
+ */
+final class PropertyPattern extends Pattern {
+
+    private final Pattern receiver;
+    private final String name;
+
+    PropertyPattern(final Pattern receiver, final String name) {
+        super();
+        this.receiver = receiver;
+        this.name = name;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        final Matcher receiverMatcher = receiver.compile(slots);
+
+        return (expression, found) -> {
+            if (!(expression instanceof PropertyExpression)) {
+                return false;
+            }
+
+            final PropertyExpression property = (PropertyExpression) expression;
+
+            return (name == null || name.equals(property.getPropertyAsString())) &&
+                receiverMatcher.match(property.getObjectExpression(), found);
+        };
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return PropertyExpression.class;
+    }
+
+    @Override
+    String getKeyName() {
+        return name;
+    }
+
+    @Override
+    int getKeyArity() {
+        return 0;
+    }
+}
@@ -0,0 +1,46 @@
+package asteroid.pattern;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns a slot to every capture name while a {@link PatternSet} is
+ * compiled. Captures with the same name in different patterns share
+ * the same slot.
+ *
+ * @since 0.6.0
+ */
+final class Slots {
+
+    private final Map<String, Integer> indexes = new LinkedHashMap<>();
+    private final Set<String> current = new HashSet<>();
+
+    /**
+     * Starts compiling a new pattern
+     */
+    void next() {
+        current.clear();
+    }
+
+    /**
+     * Returns the slot of the capture name passed as parameter
+     *
+     * @param name the capture name
+     * @return the slot index
+     * @throws IllegalArgumentException if the same pattern captures
+     * two expressions with the same name
+     */
+    int indexOf(final String name) {
+        if (!current.add(name)) {
+            throw new IllegalArgumentException("Capture '" + name + "' is used more than once in the same pattern");
+        }
+
+        return indexes.computeIfAbsent(name, key -> indexes.size());
+    }
+
+    Map<String, Integer> getIndexes() {
+        return indexes;
+    }
+}
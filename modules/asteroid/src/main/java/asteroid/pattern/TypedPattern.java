@@ -0,0 +1,21 @@
+package asteroid.pattern;
+
+/**
+ * Matches expressions by the name of their type
+ *
+ * @since 0.6.0
+ */
+final class TypedPattern extends Pattern {
+
+    private final String typeName;
+
+    TypedPattern(final String typeName) {
+        super();
+        this.typeName = typeName;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        return (expression, found) -> expression != null && typeName.equals(expression.getType().getName());
+    }
+}
@@ -0,0 +1,40 @@
+package asteroid.pattern;
+
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+
+/**
+ * Matches variables by name
+ *
+ * @since 0.6.0
+ */
+final class VariablePattern extends Pattern {
+
+    private final String name;
+
+    VariablePattern(final String name) {
+        super();
+        this.name = name;
+    }
+
+    @Override
+    Matcher compile(final Slots slots) {
+        return (expression, found) -> expression instanceof VariableExpression &&
+            name.equals(((VariableExpression) expression).getName());
+    }
+
+    @Override
+    Class<? extends Expression> getKeyType() {
+        return VariableExpression.class;
+    }
+
+    @Override
+    String getKeyName() {
+        return name;
+    }
+
+    @Override
+    int getKeyArity() {
+        return 0;
+    }
+}
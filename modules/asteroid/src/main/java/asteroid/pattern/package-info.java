@@ -0,0 +1,6 @@
+/**
+ * This package contains the {@link asteroid.pattern.Pattern} API used
+ * to match the structure of expressions, compiling many patterns
+ * into a single {@link asteroid.pattern.PatternSet}
+ */
+package asteroid.pattern;
@@ -0,0 +1,244 @@
+package asteroid.query;
+
+import java.lang.reflect.Modifier;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+
+/**
+ * Values of the attributes that can be used in query selectors
+ *
+ * @since 0.6.0
+ */
+final class Attributes {
+
+    static final String NAME = "name";
+    static final String METHOD = "method";
+    static final String TYPE = "type";
+    static final String RECEIVER = "receiver";
+    static final String ARGS = "args";
+    static final String VALUE = "value";
+    static final String TEXT = "text";
+
+    private Attributes() {
+        // utility class
+    }
+
+    /**
+     * Whether the attribute passed as parameter has a value, as
+     * opposed to flags, such as <b>static</b>
+     */
+    static boolean isValued(final String attribute) {
+        switch (attribute) {
+            case NAME:
+            case METHOD:
+            case TYPE:
+            case RECEIVER:
+            case ARGS:
+            case VALUE:
+            case TEXT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the modifier of a flag attribute, or 0 if the
+     * attribute is not a flag
+     */
+    static int modifierOf(final String attribute) {
+        switch (attribute) {
+            case "public":
+                return Modifier.PUBLIC;
+            case "protected":
+                return Modifier.PROTECTED;
+            case "private":
+                return Modifier.PRIVATE;
+            case "static":
+                return Modifier.STATIC;
+            case "final":
+                return Modifier.FINAL;
+            case "abstract":
+                return Modifier.ABSTRACT;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns the value of the attribute of the node passed as
+     * parameter, or null if the node doesn't have such attribute
+     */
+    static String valueOf(final ASTNode node, final String attribute) {
+        switch (attribute) {
+            case NAME:
+                return nameOf(node);
+            case METHOD:
+                return methodOf(node);
+            case TYPE:
+                return typeOf(node);
+            case RECEIVER:
+                return receiverOf(node);
+            case ARGS:
+                return argsOf(node);
+            case VALUE:
+                return node instanceof ConstantExpression ? String.valueOf(((ConstantExpression) node).getValue()) : null;
+            default:
+                return node.getText();
+        }
+    }
+
+    static boolean hasModifier(final ASTNode node, final int modifier) {
+        return (modifiersOf(node) & modifier) != 0;
+    }
+
+    /**
+     * Whether the node is annotated with an annotation with the
+     * qualified name passed as parameter or, if the name is not
+     * qualified, with the same simple name
+     */
+    static boolean hasAnnotation(final ASTNode node, final String annotationName) {
+        if (!(node instanceof AnnotatedNode)) {
+            return false;
+        }
+
+        final boolean qualified = annotationName.indexOf('.') >= 0;
+
+        for (final AnnotationNode annotation : ((AnnotatedNode) node).getAnnotations()) {
+            final ClassNode type = annotation.getClassNode();
+            final String name = qualified ? type.getName() : type.getNameWithoutPackage();
+
+            if (annotationName.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String nameOf(final ASTNode node) {
+        if (node instanceof ClassNode) {
+            return ((ClassNode) node).getNameWithoutPackage();
+        }
+
+        if (node instanceof MethodNode) {
+            return ((MethodNode) node).getName();
+        }
+
+        if (node instanceof FieldNode) {
+            return ((FieldNode) node).getName();
+        }
+
+        if (node instanceof PropertyNode) {
+            return ((PropertyNode) node).getName();
+        }
+
+        if (node instanceof VariableExpression) {
+            return ((VariableExpression) node).getName();
+        }
+
+        if (node instanceof PropertyExpression) {
+            return ((PropertyExpression) node).getPropertyAsString();
+        }
+
+        return methodOf(node);
+    }
+
+    private static String methodOf(final ASTNode node) {
+        if (node instanceof MethodCallExpression) {
+            return ((MethodCallExpression) node).getMethodAsString();
+        }
+
+        return node instanceof StaticMethodCallExpression ? ((StaticMethodCallExpression) node).getMethod() : null;
+    }
+
+    private static String typeOf(final ASTNode node) {
+        final ClassNode type;
+
+        if (node instanceof ClassNode) {
+            type = (ClassNode) node;
+        } else if (node instanceof MethodNode) {
+            type = ((MethodNode) node).getReturnType();
+        } else if (node instanceof FieldNode) {
+            type = ((FieldNode) node).getType();
+        } else if (node instanceof PropertyNode) {
+            type = ((PropertyNode) node).getType();
+        } else if (node instanceof VariableExpression) {
+            type = ((VariableExpression) node).getOriginType();
+        } else if (node instanceof StaticMethodCallExpression) {
+            type = ((StaticMethodCallExpression) node).getOwnerType();
+        } else if (node instanceof ConstructorCallExpression || node instanceof ClassExpression || node instanceof CastExpression) {
+            type = ((Expression) node).getType();
+        } else {
+            type = null;
+        }
+
+        return type == null ? null : type.getName();
+    }
+
+    private static String receiverOf(final ASTNode node) {
+        if (node instanceof MethodCallExpression) {
+            return ((MethodCallExpression) node).getObjectExpression().getText();
+        }
+
+        if (node instanceof PropertyExpression) {
+            return ((PropertyExpression) node).getObjectExpression().getText();
+        }
+
+        return node instanceof StaticMethodCallExpression ? ((StaticMethodCallExpression) node).getOwnerType().getName() : null;
+    }
+
+    private static String argsOf(final ASTNode node) {
+        final Expression arguments;
+
+        if (node instanceof MethodNode) {
+            return String.valueOf(((MethodNode) node).getParameters().length);
+        } else if (node instanceof MethodCallExpression) {
+            arguments = ((MethodCallExpression) node).getArguments();
+        } else if (node instanceof StaticMethodCallExpression) {
+            arguments = ((StaticMethodCallExpression) node).getArguments();
+        } else if (node instanceof ConstructorCallExpression) {
+            arguments = ((ConstructorCallExpression) node).getArguments();
+        } else {
+            return null;
+        }
+
+        if (arguments instanceof TupleExpression) {
+            return String.valueOf(((TupleExpression) arguments).getExpressions().size());
+        }
+
+        return arguments == null ? "0" : "1";
+    }
+
+    private static int modifiersOf(final ASTNode node) {
+        if (node instanceof ClassNode) {
+            return ((ClassNode) node).getModifiers();
+        }
+
+        if (node instanceof MethodNode) {
+            return ((MethodNode) node).getModifiers();
+        }
+
+        if (node instanceof FieldNode) {
+            return ((FieldNode) node).getModifiers();
+        }
+
+        return node instanceof PropertyNode ? ((PropertyNode) node).getModifiers() : 0;
+    }
+}
@@ -0,0 +1,155 @@
+package asteroid.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.codehaus.groovy.ast.ASTNode;
+
+/**
+ * A compiled selector used to find nodes without writing a visitor.
+ * A selector is a list of steps separated by a space, meaning any
+ * descendant, or by <b>&gt;</b>, meaning a direct child:
+ *
+ * <pre class="inner"><code>
+ * Query query = Query.compile('class[@Entity] &gt; method[name^=get] call[method=save]')
+ * List{@literal <}MethodCallExpression{@literal >} calls = query.findAll(moduleNode)
+ * </code></pre>
+ *
+ * Every step has a node type, or <b>*</b> for any node, followed by
+ * any number of conditions between brackets:
+ * <ul>
+ *     <li>Node types: <b>class</b>, <b>method</b>, <b>constructor</b>,
+ *     <b>field</b>, <b>property</b>, <b>call</b>, <b>static-call</b>,
+ *     <b>new</b>, <b>closure</b>, <b>var</b>, <b>const</b>,
+ *     <b>prop</b>, <b>binary</b>, <b>declaration</b>, <b>expr</b>,
+ *     <b>return</b>, <b>if</b>, <b>for</b>, <b>while</b>,
+ *     <b>try</b>, <b>throw</b>, <b>stmt</b>, or the simple name of
+ *     any node class such as <b>ElvisOperatorExpression</b></li>
+ *     <li>Annotations: <b>[@Entity]</b> or <b>[@javax.persistence.Entity]</b></li>
+ *     <li>Attributes: <b>name</b>, <b>method</b>, <b>type</b>,
+ *     <b>receiver</b>, <b>args</b>, <b>value</b> and <b>text</b>,
+ *     compared with <b>=</b>, <b>!=</b>, <b>^=</b> (starts with),
+ *     <b>$=</b> (ends with) or <b>*=</b> (contains). Values may be
+ *     quoted</li>
+ *     <li>Modifiers: <b>[public]</b>, <b>[protected]</b>,
+ *     <b>[private]</b>, <b>[static]</b>, <b>[final]</b> and
+ *     <b>[abstract]</b></li>
+ * </ul>
+ *
+ * Classes contain their members and inner classes, and members
+ * contain the statements and expressions of their code. Blocks,
+ * expression statements and argument lists can't be selected and
+ * they're not considered parents, so in <b>method &gt; return</b>
+ * the return statement may be anywhere in the method body, not
+ * nested in other statements.
+ * <br><br>
+ * Selectors are parsed only once, when compiling the query. Queries
+ * are immutable and they can be reused in any thread. Nodes are found
+ * lazily, in the order they appear in the tree, and method code is
+ * only walked when the selector looks for statements or expressions.
+ *
+ * @since 0.6.0
+ */
+public final class Query {
+
+    private final String selector;
+    private final List<Step> steps;
+
+    private Query(final String selector, final List<Step> steps) {
+        this.selector = selector;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the selector passed as parameter
+     *
+     * @param selector the selector to compile
+     * @return a query to find the nodes matching the selector
+     * @throws IllegalArgumentException if the selector is not valid
+     * @since 0.6.0
+     */
+    public static Query compile(final String selector) {
+        return new Query(selector, SelectorParser.parse(selector));
+    }
+
+    /**
+     * Returns the nodes matching the query, found lazily. The root
+     * node itself is checked as well. The root could be a {@link
+     * org.codehaus.groovy.ast.ModuleNode}, a {@link
+     * org.codehaus.groovy.ast.ClassNode}, a class member, a statement
+     * or an expression.
+     *
+     * @param <T> the expected type of the nodes found
+     * @param root the node where to look for
+     * @return a stream of the nodes matching the query
+     * @since 0.6.0
+     */
+    public <T extends ASTNode> Stream<T> select(final ASTNode root) {
+        final Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+            this.<T>iterator(root),
+            Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns all nodes matching the query
+     *
+     * @param <T> the expected type of the nodes found
+     * @param root the node where to look for
+     * @return a list of the nodes matching the query
+     * @since 0.6.0
+     * @see #select(ASTNode)
+     */
+    public <T extends ASTNode> List<T> findAll(final ASTNode root) {
+        final List<T> result = new ArrayList<>();
+        final Iterator<T> iterator = iterator(root);
+
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the first node matching the query, without looking any
+     * further
+     *
+     * @param <T> the expected type of the node found
+     * @param root the node where to look for
+     * @return the first node matching the query, or null if there's none
+     * @since 0.6.0
+     * @see #select(ASTNode)
+     */
+    public <T extends ASTNode> T findFirst(final ASTNode root) {
+        final Iterator<T> iterator = iterator(root);
+
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Returns the selector this query was compiled from
+     *
+     * @return the selector
+     * @since 0.6.0
+     */
+    public String getSelector() {
+        return selector;
+    }
+
+    @Override
+    public String toString() {
+        return selector;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ASTNode> Iterator<T> iterator(final ASTNode root) {
+        return (Iterator<T>) new QueryIterator(steps, root);
+    }
+}
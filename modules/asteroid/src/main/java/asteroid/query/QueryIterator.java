@@ -0,0 +1,636 @@
+package asteroid.query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.InnerClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ArrayExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.BitwiseNegationExpression;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ClosureListExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.ElvisOperatorExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.FieldExpression;
+import org.codehaus.groovy.ast.expr.GStringExpression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.MethodPointerExpression;
+import org.codehaus.groovy.ast.expr.NotExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.RangeExpression;
+import org.codehaus.groovy.ast.expr.SpreadExpression;
+import org.codehaus.groovy.ast.expr.SpreadMapExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.TupleExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.UnaryPlusExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.AssertStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
+import org.codehaus.groovy.ast.stmt.CaseStatement;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ContinueStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.SwitchStatement;
+import org.codehaus.groovy.ast.stmt.SynchronizedStatement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+
+/**
+ * Walks a tree looking for the nodes matching a query. Classes and
+ * their members are expanded one at a time, and the code of a
+ * member is only walked when the previous matches have been
+ * consumed, so results are found lazily.
+ *
+ * @since 0.6.0
+ */
+final class QueryIterator implements Iterator<ASTNode> {
+
+    private final List<Step> steps;
+    private final Step last;
+    private final boolean declarations;
+
+    private final Deque<Frame> pending = new ArrayDeque<>();
+    private final Deque<ASTNode> found = new ArrayDeque<>();
+
+    QueryIterator(final List<Step> steps, final ASTNode root) {
+        this.steps = steps;
+        this.last = steps.get(steps.size() - 1);
+        this.declarations = last.isDeclaration();
+        this.pending.push(new Frame(root, null));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (found.isEmpty() && !pending.isEmpty()) {
+            expand(pending.pop());
+        }
+
+        return !found.isEmpty();
+    }
+
+    @Override
+    public ASTNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return found.poll();
+    }
+
+    private void expand(final Frame frame) {
+        final ASTNode node = frame.node;
+
+        if (node instanceof ModuleNode) {
+            expandModule((ModuleNode) node, frame.parent);
+            return;
+        }
+
+        if (node instanceof Statement || node instanceof Expression) {
+            if (!declarations) {
+                new Walker(frame.parent).walk(node);
+            }
+            return;
+        }
+
+        final Path path = new Path(node, frame.parent);
+
+        check(path);
+
+        if (node instanceof ClassNode) {
+            expandClass((ClassNode) node, path);
+        } else if (!declarations) {
+            walkMember(node, path);
+        }
+    }
+
+    private void expandModule(final ModuleNode module, final Path parent) {
+        final List<Frame> children = new ArrayList<>();
+
+        for (final ClassNode classNode : module.getClasses()) {
+            if (classNode.getOuterClass() == null) {
+                children.add(new Frame(classNode, parent));
+            }
+        }
+
+        pushAll(children);
+    }
+
+    private void expandClass(final ClassNode classNode, final Path path) {
+        final List<Frame> children = new ArrayList<>();
+
+        if (!last.isClass()) {
+            addAll(children, classNode.getFields(), path);
+            addAll(children, classNode.getProperties(), path);
+            addAll(children, classNode.getDeclaredConstructors(), path);
+            addAll(children, classNode.getMethods(), path);
+
+            if (!declarations) {
+                final Walker walker = new Walker(path);
+
+                for (final Statement statement : classNode.getObjectInitializerStatements()) {
+                    walker.walk(statement);
+                }
+            }
+        }
+
+        final Iterator<InnerClassNode> inner = classNode.getInnerClasses();
+
+        while (inner.hasNext()) {
+            children.add(new Frame(inner.next(), path));
+        }
+
+        pushAll(children);
+    }
+
+    private void walkMember(final ASTNode member, final Path path) {
+        final Walker walker = new Walker(path);
+
+        if (member instanceof MethodNode) {
+            final MethodNode methodNode = (MethodNode) member;
+
+            for (final Parameter parameter : methodNode.getParameters()) {
+                if (parameter.hasInitialExpression()) {
+                    walker.walk(parameter.getInitialExpression());
+                }
+            }
+
+            walker.walk(methodNode.getCode());
+        } else if (member instanceof FieldNode) {
+            walker.walk(((FieldNode) member).getInitialExpression());
+        } else if (member instanceof PropertyNode) {
+            walker.walk(((PropertyNode) member).getGetterBlock());
+            walker.walk(((PropertyNode) member).getSetterBlock());
+        }
+    }
+
+    private static void addAll(final List<Frame> children, final List<? extends ASTNode> nodes, final Path path) {
+        for (final ASTNode node : nodes) {
+            children.add(new Frame(node, path));
+        }
+    }
+
+    private void pushAll(final List<Frame> children) {
+        for (int i = children.size() - 1; i >= 0; i--) {
+            pending.push(children.get(i));
+        }
+    }
+
+    private void check(final Path path) {
+        if (last.test(path.node) && matchesAncestors(steps.size() - 1, path)) {
+            found.add(path.node);
+        }
+    }
+
+    /*
+     * The node at the end of the path matches the step passed as
+     * parameter, checks whether its ancestors match the previous
+     * steps
+     */
+    private boolean matchesAncestors(final int step, final Path path) {
+        if (step == 0) {
+            return true;
+        }
+
+        final Step previous = steps.get(step - 1);
+
+        if (steps.get(step).isChild()) {
+            return path.parent != null &&
+                previous.test(path.parent.node) &&
+                matchesAncestors(step - 1, path.parent);
+        }
+
+        for (Path ancestor = path.parent; ancestor != null; ancestor = ancestor.parent) {
+            if (previous.test(ancestor.node) && matchesAncestors(step - 1, ancestor)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * A node waiting to be expanded and its ancestors
+     */
+    private static final class Frame {
+        private final ASTNode node;
+        private final Path parent;
+
+        Frame(final ASTNode node, final Path parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * A node and its ancestors
+     */
+    private static final class Path {
+        private final ASTNode node;
+        private final Path parent;
+
+        Path(final ASTNode node, final Path parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Walks code checking every statement and expression. Blocks,
+     * expression statements and argument lists are not part of the
+     * path, so a call is a child of the method where it's found, and
+     * a closure is a child of the call it's passed to.
+     */
+    @SuppressWarnings("PMD.TooManyMethods")
+    private final class Walker extends CodeVisitorSupport {
+
+        private Path current;
+
+        Walker(final Path parent) {
+            this.current = parent;
+        }
+
+        void walk(final ASTNode node) {
+            if (node != null) {
+                node.visit(this);
+            }
+        }
+
+        private void enter(final ASTNode node) {
+            current = new Path(node, current);
+            check(current);
+        }
+
+        private void exit() {
+            current = current.parent;
+        }
+
+        @Override
+        public void visitForLoop(final ForStatement statement) {
+            enter(statement);
+            super.visitForLoop(statement);
+            exit();
+        }
+
+        @Override
+        public void visitWhileLoop(final WhileStatement statement) {
+            enter(statement);
+            super.visitWhileLoop(statement);
+            exit();
+        }
+
+        @Override
+        public void visitDoWhileLoop(final DoWhileStatement statement) {
+            enter(statement);
+            super.visitDoWhileLoop(statement);
+            exit();
+        }
+
+        @Override
+        public void visitIfElse(final IfStatement statement) {
+            enter(statement);
+            super.visitIfElse(statement);
+            exit();
+        }
+
+        @Override
+        public void visitReturnStatement(final ReturnStatement statement) {
+            enter(statement);
+            super.visitReturnStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitAssertStatement(final AssertStatement statement) {
+            enter(statement);
+            super.visitAssertStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitTryCatchFinally(final TryCatchStatement statement) {
+            enter(statement);
+            super.visitTryCatchFinally(statement);
+            exit();
+        }
+
+        @Override
+        public void visitSwitch(final SwitchStatement statement) {
+            enter(statement);
+            super.visitSwitch(statement);
+            exit();
+        }
+
+        @Override
+        public void visitCaseStatement(final CaseStatement statement) {
+            enter(statement);
+            super.visitCaseStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitBreakStatement(final BreakStatement statement) {
+            enter(statement);
+            super.visitBreakStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitContinueStatement(final ContinueStatement statement) {
+            enter(statement);
+            super.visitContinueStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitThrowStatement(final ThrowStatement statement) {
+            enter(statement);
+            super.visitThrowStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitSynchronizedStatement(final SynchronizedStatement statement) {
+            enter(statement);
+            super.visitSynchronizedStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitCatchStatement(final CatchStatement statement) {
+            enter(statement);
+            super.visitCatchStatement(statement);
+            exit();
+        }
+
+        @Override
+        public void visitMethodCallExpression(final MethodCallExpression call) {
+            enter(call);
+            super.visitMethodCallExpression(call);
+            exit();
+        }
+
+        @Override
+        public void visitStaticMethodCallExpression(final StaticMethodCallExpression call) {
+            enter(call);
+            super.visitStaticMethodCallExpression(call);
+            exit();
+        }
+
+        @Override
+        public void visitConstructorCallExpression(final ConstructorCallExpression call) {
+            enter(call);
+            super.visitConstructorCallExpression(call);
+            exit();
+        }
+
+        @Override
+        public void visitTernaryExpression(final TernaryExpression expression) {
+            enter(expression);
+            super.visitTernaryExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitShortTernaryExpression(final ElvisOperatorExpression expression) {
+            enter(expression);
+            expression.getBooleanExpression().visit(this);
+            expression.getFalseExpression().visit(this);
+            exit();
+        }
+
+        @Override
+        public void visitBinaryExpression(final BinaryExpression expression) {
+            enter(expression);
+            super.visitBinaryExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitDeclarationExpression(final DeclarationExpression expression) {
+            enter(expression);
+            expression.getLeftExpression().visit(this);
+            expression.getRightExpression().visit(this);
+            exit();
+        }
+
+        @Override
+        public void visitPrefixExpression(final PrefixExpression expression) {
+            enter(expression);
+            super.visitPrefixExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitPostfixExpression(final PostfixExpression expression) {
+            enter(expression);
+            super.visitPostfixExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitBooleanExpression(final BooleanExpression expression) {
+            enter(expression);
+            super.visitBooleanExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitNotExpression(final NotExpression expression) {
+            enter(expression);
+            expression.getExpression().visit(this);
+            exit();
+        }
+
+        @Override
+        public void visitClosureExpression(final ClosureExpression expression) {
+            enter(expression);
+            super.visitClosureExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitTupleExpression(final TupleExpression expression) {
+            enter(expression);
+            visitListOfExpressions(expression.getExpressions());
+            exit();
+        }
+
+        @Override
+        public void visitArgumentlistExpression(final ArgumentListExpression expression) {
+            visitListOfExpressions(expression.getExpressions());
+        }
+
+        @Override
+        public void visitMapExpression(final MapExpression expression) {
+            enter(expression);
+            super.visitMapExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitMapEntryExpression(final MapEntryExpression expression) {
+            enter(expression);
+            super.visitMapEntryExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitListExpression(final ListExpression expression) {
+            enter(expression);
+            super.visitListExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitRangeExpression(final RangeExpression expression) {
+            enter(expression);
+            super.visitRangeExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitPropertyExpression(final PropertyExpression expression) {
+            enter(expression);
+            super.visitPropertyExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitAttributeExpression(final AttributeExpression expression) {
+            enter(expression);
+            expression.getObjectExpression().visit(this);
+            expression.getProperty().visit(this);
+            exit();
+        }
+
+        @Override
+        public void visitFieldExpression(final FieldExpression expression) {
+            enter(expression);
+            super.visitFieldExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitMethodPointerExpression(final MethodPointerExpression expression) {
+            enter(expression);
+            super.visitMethodPointerExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitConstantExpression(final ConstantExpression expression) {
+            enter(expression);
+            super.visitConstantExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitClassExpression(final ClassExpression expression) {
+            enter(expression);
+            super.visitClassExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitVariableExpression(final VariableExpression expression) {
+            enter(expression);
+            super.visitVariableExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitGStringExpression(final GStringExpression expression) {
+            enter(expression);
+            super.visitGStringExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitArrayExpression(final ArrayExpression expression) {
+            enter(expression);
+            super.visitArrayExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitSpreadExpression(final SpreadExpression expression) {
+            enter(expression);
+            super.visitSpreadExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitSpreadMapExpression(final SpreadMapExpression expression) {
+            enter(expression);
+            super.visitSpreadMapExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitUnaryMinusExpression(final UnaryMinusExpression expression) {
+            enter(expression);
+            super.visitUnaryMinusExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitUnaryPlusExpression(final UnaryPlusExpression expression) {
+            enter(expression);
+            super.visitUnaryPlusExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitBitwiseNegationExpression(final BitwiseNegationExpression expression) {
+            enter(expression);
+            super.visitBitwiseNegationExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitCastExpression(final CastExpression expression) {
+            enter(expression);
+            super.visitCastExpression(expression);
+            exit();
+        }
+
+        @Override
+        public void visitClosureListExpression(final ClosureListExpression expression) {
+            enter(expression);
+            visitListOfExpressions(expression.getExpressions());
+            exit();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package asteroid.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+
+/**
+ * Parses a selector into a list of {@link Step} instances
+ *
+ * @since 0.6.0
+ */
+@SuppressWarnings("PMD.GodClass")
+final class SelectorParser {
+
+    private static final String ANY = "*";
+    private static final String[] PACKAGES = {
+        "org.codehaus.groovy.ast.",
+        "org.codehaus.groovy.ast.expr.",
+        "org.codehaus.groovy.ast.stmt."
+    };
+
+    private static final Map<String, Class<?>> KINDS = new HashMap<>();
+
+    static {
+        KINDS.put("class", ClassNode.class);
+        KINDS.put("method", MethodNode.class);
+        KINDS.put("constructor", ConstructorNode.class);
+        KINDS.put("field", FieldNode.class);
+        KINDS.put("property", PropertyNode.class);
+        KINDS.put("call", MethodCallExpression.class);
+        KINDS.put("static-call", StaticMethodCallExpression.class);
+        KINDS.put("new", ConstructorCallExpression.class);
+        KINDS.put("closure", ClosureExpression.class);
+        KINDS.put("var", VariableExpression.class);
+        KINDS.put("const", ConstantExpression.class);
+        KINDS.put("prop", PropertyExpression.class);
+        KINDS.put("binary", BinaryExpression.class);
+        KINDS.put("declaration", DeclarationExpression.class);
+        KINDS.put("expr", Expression.class);
+        KINDS.put("return", ReturnStatement.class);
+        KINDS.put("if", IfStatement.class);
+        KINDS.put("for", ForStatement.class);
+        KINDS.put("while", WhileStatement.class);
+        KINDS.put("try", TryCatchStatement.class);
+        KINDS.put("throw", ThrowStatement.class);
+        KINDS.put("stmt", Statement.class);
+    }
+
+    private final String selector;
+    private int position;
+
+    private SelectorParser(final String selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Parses the selector passed as parameter
+     *
+     * @param selector the selector to parse
+     * @return the steps of the selector, in order
+     * @throws IllegalArgumentException if the selector is not valid
+     */
+    static List<Step> parse(final String selector) {
+        return new SelectorParser(selector).steps();
+    }
+
+    private List<Step> steps() {
+        final List<Step> steps = new ArrayList<>();
+
+        skipSpaces();
+
+        if (isEnd()) {
+            throw error("empty selector");
+        }
+
+        steps.add(step(false));
+
+        while (true) {
+            final boolean spaces = skipSpaces();
+
+            if (isEnd()) {
+                return steps;
+            }
+
+            final boolean child = peek() == '>';
+
+            if (child) {
+                position++;
+                skipSpaces();
+            } else if (!spaces) {
+                throw error("expected a space or '>'");
+            }
+
+            steps.add(step(child));
+        }
+    }
+
+    private Step step(final boolean child) {
+        final List<Predicate<ASTNode>> conditions = new ArrayList<>();
+        final String kind = isEnd() || peek() == '[' ? null : kind();
+        final Class<?> type = kind == null || ANY.equals(kind) ? null : typeOf(kind);
+
+        while (!isEnd() && peek() == '[') {
+            position++;
+            attribute(conditions);
+        }
+
+        if (kind == null && conditions.isEmpty()) {
+            throw error("expected a node type or an attribute");
+        }
+
+        return new Step(type, !"method".equals(kind), conditions, child);
+    }
+
+    private String kind() {
+        if (peek() == '*') {
+            position++;
+            return ANY;
+        }
+
+        return identifier("a node type");
+    }
+
+    private Class<?> typeOf(final String kind) {
+        final Class<?> known = KINDS.get(kind);
+
+        if (known != null) {
+            return known;
+        }
+
+        if (Character.isUpperCase(kind.charAt(0))) {
+            for (final String packageName : PACKAGES) {
+                try {
+                    final Class<?> type = Class.forName(packageName + kind, false, ASTNode.class.getClassLoader());
+
+                    if (ASTNode.class.isAssignableFrom(type)) {
+                        return type;
+                    }
+                } catch (ClassNotFoundException e) {
+                    continue;
+                }
+            }
+        }
+
+        throw error("unknown node type '" + kind + "'");
+    }
+
+    private void attribute(final List<Predicate<ASTNode>> conditions) {
+        skipSpaces();
+
+        if (!isEnd() && peek() == '@') {
+            position++;
+
+            final String annotation = qualifiedName();
+
+            conditions.add(node -> Attributes.hasAnnotation(node, annotation));
+            close();
+            return;
+        }
+
+        final String attribute = identifier("an attribute");
+
+        skipSpaces();
+
+        if (!isEnd() && peek() == ']') {
+            final int modifier = Attributes.modifierOf(attribute);
+
+            if (modifier == 0) {
+                throw error("unknown flag '" + attribute + "'");
+            }
+
+            position++;
+            conditions.add(node -> Attributes.hasModifier(node, modifier));
+            return;
+        }
+
+        if (!Attributes.isValued(attribute)) {
+            throw error("unknown attribute '" + attribute + "'");
+        }
+
+        final String operator = operator();
+
+        skipSpaces();
+
+        final String value = value();
+
+        conditions.add(condition(attribute, operator, value));
+        close();
+    }
+
+    private static Predicate<ASTNode> condition(final String attribute, final String operator, final String value) {
+        switch (operator) {
+            case "=":
+                return node -> value.equals(Attributes.valueOf(node, attribute));
+            case "!=":
+                return node -> !value.equals(Attributes.valueOf(node, attribute));
+            case "^=":
+                return node -> startsWith(Attributes.valueOf(node, attribute), value);
+            case "$=":
+                return node -> endsWith(Attributes.valueOf(node, attribute), value);
+            default:
+                return node -> contains(Attributes.valueOf(node, attribute), value);
+        }
+    }
+
+    private static boolean startsWith(final String found, final String value) {
+        return found != null && found.startsWith(value);
+    }
+
+    private static boolean endsWith(final String found, final String value) {
+        return found != null && found.endsWith(value);
+    }
+
+    private static boolean contains(final String found, final String value) {
+        return found != null && found.contains(value);
+    }
+
+    private String operator() {
+        if (startsWith("=")) {
+            position++;
+            return "=";
+        }
+
+        for (final String operator : new String[] {"!=", "^=", "$=", "*="}) {
+            if (startsWith(operator)) {
+                position += 2;
+                return operator;
+            }
+        }
+
+        throw error("expected one of =, !=, ^=, $=, *=");
+    }
+
+    private String value() {
+        if (isEnd()) {
+            throw error("expected a value");
+        }
+
+        final char quote = peek();
+
+        if (quote == '\'' || quote == '"') {
+            final int end = selector.indexOf(quote, position + 1);
+
+            if (end < 0) {
+                throw error("unterminated value");
+            }
+
+            final String value = selector.substring(position + 1, end);
+
+            position = end + 1;
+
+            return value;
+        }
+
+        final int start = position;
+
+        while (!isEnd() && peek() != ']' && !Character.isWhitespace(peek())) {
+            position++;
+        }
+
+        if (start == position) {
+            throw error("expected a value");
+        }
+
+        return selector.substring(start, position);
+    }
+
+    private void close() {
+        skipSpaces();
+
+        if (isEnd() || peek() != ']') {
+            throw error("expected ']'");
+        }
+
+        position++;
+    }
+
+    private String identifier(final String expected) {
+        final int start = position;
+
+        while (!isEnd() && (Character.isLetterOrDigit(peek()) || peek() == '-' || peek() == '_')) {
+            position++;
+        }
+
+        if (start == position) {
+            throw error("expected " + expected);
+        }
+
+        return selector.substring(start, position);
+    }
+
+    private String qualifiedName() {
+        final int start = position;
+
+        while (!isEnd() && (Character.isJavaIdentifierPart(peek()) || peek() == '.')) {
+            position++;
+        }
+
+        if (start == position) {
+            throw error("expected an annotation name");
+        }
+
+        return selector.substring(start, position);
+    }
+
+    private boolean skipSpaces() {
+        final int start = position;
+
+        while (!isEnd() && Character.isWhitespace(peek())) {
+            position++;
+        }
+
+        return position > start;
+    }
+
+    private boolean startsWith(final String text) {
+        return selector.startsWith(text, position);
+    }
+
+    private boolean isEnd() {
+        return position >= selector.length();
+    }
+
+    private char peek() {
+        return selector.charAt(position);
+    }
+
+    private IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException("Invalid selector '" + selector + "' at position " + position + ": " + message);
+    }
+}
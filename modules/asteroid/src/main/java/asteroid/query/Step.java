@@ -0,0 +1,77 @@
+package asteroid.query;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.PropertyNode;
+
+/**
+ * A compound selector: the type of the node and the conditions it
+ * should fulfill, and how it relates to the previous step
+ *
+ * @since 0.6.0
+ */
+final class Step {
+
+    private final Class<?> type;
+    private final boolean constructors;
+    private final List<Predicate<ASTNode>> conditions;
+    private final boolean child;
+
+    /**
+     * @param type the type of the node, null if any node is accepted
+     * @param constructors whether constructors are accepted when
+     * looking for methods
+     * @param conditions the conditions the node should fulfill
+     * @param child whether the node should be a direct child of the
+     * node matching the previous step, or any descendant
+     */
+    Step(final Class<?> type, final boolean constructors, final List<Predicate<ASTNode>> conditions, final boolean child) {
+        this.type = type;
+        this.constructors = constructors;
+        this.conditions = conditions;
+        this.child = child;
+    }
+
+    boolean test(final ASTNode node) {
+        if (type != null && (!type.isInstance(node) || !constructors && node instanceof ConstructorNode)) {
+            return false;
+        }
+
+        for (final Predicate<ASTNode> condition : conditions) {
+            if (!condition.test(node)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    boolean isChild() {
+        return child;
+    }
+
+    /**
+     * Whether the nodes matching this step can only be classes
+     */
+    boolean isClass() {
+        return type == ClassNode.class;
+    }
+
+    /**
+     * Whether the nodes matching this step can only be classes or class
+     * members, so there's no need to look into the code of any method
+     */
+    boolean isDeclaration() {
+        return type == ClassNode.class ||
+            type == MethodNode.class ||
+            type == ConstructorNode.class ||
+            type == FieldNode.class ||
+            type == PropertyNode.class;
+    }
+}
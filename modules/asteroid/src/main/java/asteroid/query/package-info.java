@@ -0,0 +1,5 @@
+/**
+ * This package contains the {@link asteroid.query.Query} API used to
+ * find nodes with selectors instead of writing visitors
+ */
+package asteroid.query;
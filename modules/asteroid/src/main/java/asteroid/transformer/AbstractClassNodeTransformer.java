@@ -4,6 +4,8 @@ import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.control.SourceUnit;
 import groovy.lang.Closure;
 
+import asteroid.criteria.Criteria;
+
 /**
  * This {@link Transformer} can be used to transform {@link ClassNode}
  * nodes. To locate the classes you want to transform, a criteria in
@@ -20,11 +22,13 @@ import groovy.lang.Closure;
  *    <li>{@link asteroid.Criterias#byClassNodeNameEndsWith(String)}</li>
  * </ul>
  *
+ * A typed {@link Criteria} can be used instead of a {@link Closure}.
+ *
  * @since 0.2.0
  */
 public abstract class AbstractClassNodeTransformer extends AbstractTransformer {
 
-    private final Closure<Boolean> criteria;
+    private final Criteria<? super ClassNode> criteria;
 
     /**
      * Every instance needs the source unit and the name of the class
@@ -49,6 +53,18 @@ public abstract class AbstractClassNodeTransformer extends AbstractTransformer {
      * @see asteroid.Criterias#byClassNodeNameContains(String)
      */
     public AbstractClassNodeTransformer(final SourceUnit sourceUnit, final Closure<Boolean> criteria) {
+        this(sourceUnit, Criteria.<ClassNode>from(criteria));
+    }
+
+    /**
+     * Every instance needs the source unit and a {@link Criteria} to
+     * find the classes it's going to transform.
+     *
+     * @param sourceUnit Needed to apply scope
+     * @param criteria used to locate target classes
+     * @since 0.6.0
+     */
+    public AbstractClassNodeTransformer(final SourceUnit sourceUnit, final Criteria<? super ClassNode> criteria) {
         super(sourceUnit);
         this.criteria = criteria;
     }
@@ -58,11 +74,66 @@ public abstract class AbstractClassNodeTransformer extends AbstractTransformer {
      */
     @Override
     public void visitClass(final ClassNode classNode) {
-        if (classNode == null || !this.criteria.call(classNode)) {
+        if (classNode == null) {
+            return;
+        }
+
+        countVisit();
+
+        if (matches(classNode)) {
+            rewrite(classNode);
+        }
+    }
+
+    /**
+     * Whether the {@link ClassNode} passed as argument should be
+     * transformed by this transformer or not
+     *
+     * @param classNode the class to check
+     * @return true if the class matches the transformer criteria
+     * @since 0.6.0
+     */
+    boolean matches(final ClassNode classNode) {
+        if (counters == null) {
+            return this.criteria.matches(classNode);
+        }
+
+        final long start = System.nanoTime();
+        final boolean result = this.criteria.matches(classNode);
+
+        counters.evaluated(result, start);
+
+        return result;
+    }
+
+    /**
+     * Transforms the {@link ClassNode} passed as argument, recording
+     * it when profiling
+     *
+     * @param classNode the class to transform
+     * @since 0.6.0
+     */
+    void rewrite(final ClassNode classNode) {
+        if (counters == null) {
+            transformClass(classNode);
             return;
         }
 
+        final long start = System.nanoTime();
+
         transformClass(classNode);
+        counters.rewritten(true, start);
+    }
+
+    /**
+     * Returns the criteria used to find the nodes this transformer is
+     * interested in
+     *
+     * @return the transformer criteria
+     * @since 0.6.0
+     */
+    Criteria<? super ClassNode> getCriteria() {
+        return criteria;
     }
 
     /**
@@ -1,6 +1,14 @@
 package asteroid.transformer;
 
 import groovy.lang.Closure;
+
+import asteroid.criteria.Criteria;
+import asteroid.criteria.TypeCriteria;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.ExpressionSummary;
+import asteroid.internal.SourceIndex;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.ast.expr.Expression;
 
@@ -12,14 +20,28 @@ import org.codehaus.groovy.ast.expr.Expression;
  * are not carefull on how you define the search criteria you could
  * get a {@link ClassCastException} at runtime. The criteria should ask
  * for the type of the expression in the first place.
+ * <br><br>
+ * When applied by a global transformation, methods that don't
+ * contain any expression of the expected type are not visited at all
+ * (see {@link ExpressionSummary}).
+ * <br><br>
+ * By default expressions not matching the criteria are rebuilt
+ * after transforming their children. Override {@link #isCopyOnWrite()}
+ * to keep the original expression whenever none of its children
+ * changed.
  *
  * @param <T> use as a hint for the {@link AbstractExpressionTransformer#transformExpression} method parameter
  * @since 0.2.0
  */
 public abstract class AbstractExpressionTransformer<T extends Expression> extends AbstractTransformer {
 
-    private final Closure<Boolean> criteria;
+    private static final Criteria<Expression> ANY = (final Expression expression) -> true;
+
+    private final Criteria<? super T> criteria;
     private final Class<T> clazz;
+    private boolean transformed;
+    private long preserved;
+    private long reallocated;
 
     /**
      * Every instance needs the source unit awareness and the name of the method
@@ -32,6 +54,20 @@ public abstract class AbstractExpressionTransformer<T extends Expression> extend
      * @since 0.2.3
      */
     public AbstractExpressionTransformer(final Class<T> clazz, final SourceUnit sourceUnit, final Closure<Boolean> criteria) {
+        this(clazz, sourceUnit, Criteria.<T>from(criteria));
+    }
+
+    /**
+     * Every instance needs the source unit awareness and a {@link
+     * Criteria} to find the expressions it's going to transform
+     *
+     * @param clazz the type of the expression we're interested in
+     * @param sourceUnit Needed to apply scope
+     * @param criteria the criteria used to search the interesting
+     * {@link Expression}
+     * @since 0.6.0
+     */
+    public AbstractExpressionTransformer(final Class<T> clazz, final SourceUnit sourceUnit, final Criteria<? super T> criteria) {
         super(sourceUnit);
         this.clazz = clazz;
         this.criteria = criteria;
@@ -47,9 +83,7 @@ public abstract class AbstractExpressionTransformer<T extends Expression> extend
      * @since 0.2.3
      */
     public AbstractExpressionTransformer(final Class<T> clazz, final SourceUnit sourceUnit) {
-        super(sourceUnit);
-        this.clazz = clazz;
-        this.criteria = everything();
+        this(clazz, sourceUnit, ANY);
     }
 
     /**
@@ -61,17 +95,164 @@ public abstract class AbstractExpressionTransformer<T extends Expression> extend
             return null;
         }
 
-        final boolean matches = isOfTypeAndMatchesCriteria(expression, clazz, criteria);
+        countVisit();
+
+        if (matches(expression)) {
+            transformed = true;
+            return rewrite((T) expression);
+        }
+
+        final Expression result = isCopyOnWrite() ?
+            CopyOnWrite.transformChildren(expression, this) :
+            expression.transformExpression(this);
+
+        if (result == expression) {
+            preserved++;
+        } else {
+            reallocated++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Whether expressions not matching the criteria should be kept
+     * when none of their children changed, or they should always be
+     * rebuilt. Keeping them saves memory when transforming big
+     * classes with a few matching expressions.
+     *
+     * @return true if expressions should only be rebuilt when any of
+     * their children changed, false otherwise
+     * @since 0.6.0
+     */
+    protected boolean isCopyOnWrite() {
+        return false;
+    }
+
+    /**
+     * Returns how many expressions not matching the criteria have
+     * been kept after transforming their children
+     *
+     * @return the number of expressions kept
+     * @since 0.6.0
+     */
+    public long getPreservedExpressions() {
+        return preserved;
+    }
+
+    /**
+     * Returns how many expressions not matching the criteria have
+     * been rebuilt after transforming their children
+     *
+     * @return the number of expressions rebuilt
+     * @since 0.6.0
+     */
+    public long getReallocatedExpressions() {
+        return reallocated;
+    }
+
+    /**
+     * When applied by a global transformation, classes where the
+     * criteria can't match any node are not walked at all (see
+     * {@link SourceIndex}). Otherwise the class is always walked.
+     *
+     * @param classNode the class to transform
+     * @since 0.6.0
+     */
+    @Override
+    public void visitClass(final ClassNode classNode) {
+        if (classNode != null && SourceIndex.mayMatch(classNode, getCriteria())) {
+            super.visitClass(classNode);
+        }
+    }
+
+    /**
+     * Methods not containing any expression of the expected type are
+     * skipped
+     *
+     * @param node the method or constructor
+     * @param isConstructor whether the node is a constructor or not
+     * @since 0.6.0
+     */
+    @Override
+    protected void visitConstructorOrMethod(final MethodNode node, final boolean isConstructor) {
+        if (!ExpressionSummary.mayContain(node, clazz)) {
+            return;
+        }
+
+        transformed = false;
+        super.visitConstructorOrMethod(node, isConstructor);
+
+        if (transformed) {
+            ExpressionSummary.invalidate(node);
+            BytecodeReport.touched(node);
+            SourceIndex.invalidate(node);
+        }
+    }
+
+    /**
+     * Whether the {@link Expression} passed as argument is of the
+     * expected type and matches the transformer criteria
+     *
+     * @param expression the expression to check
+     * @return true if the expression should be transformed
+     * @since 0.6.0
+     */
+    boolean matches(final Expression expression) {
+        if (counters == null) {
+            return isOfType(expression, clazz) && criteria.matches((T) expression);
+        }
+
+        final long start = System.nanoTime();
+        final boolean result = isOfType(expression, clazz) && criteria.matches((T) expression);
+
+        counters.evaluated(result, start);
+
+        return result;
+    }
 
-        if (matches) {
-            return this.transformExpression((T) expression);
+    /**
+     * Transforms the {@link Expression} passed as argument, recording
+     * it when profiling
+     *
+     * @param expression the expression to transform
+     * @return the transformed expression
+     * @since 0.6.0
+     */
+    Expression rewrite(final T expression) {
+        if (counters == null) {
+            return transformExpression(expression);
         }
 
-        return expression.transformExpression(this);
+        final long start = System.nanoTime();
+        final Expression result = transformExpression(expression);
+
+        counters.rewritten(result != expression, start);
+
+        return result;
     }
 
-    private static boolean isOfTypeAndMatchesCriteria(final Expression expression, final Class clazz, final Closure<Boolean> predicate) {
-        return isOfType(expression, clazz) && predicate.call(expression);
+    /**
+     * Returns the criteria used to find the expressions this
+     * transformer is interested in, including the expected type
+     *
+     * @return the transformer criteria
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    Criteria<Expression> getCriteria() {
+        return Criteria.allOf(new TypeCriteria<Expression>(clazz), (Criteria<Expression>) criteria);
+    }
+
+    /**
+     * Returns the type of the expressions this transformer is
+     * interested in
+     *
+     * @return the type of the expressions to transform
+     * @since 0.6.0
+     */
+    Class<T> getExpressionType() {
+        return clazz;
     }
 
     private static boolean isOfType(final Expression expression, final Class clazz) {
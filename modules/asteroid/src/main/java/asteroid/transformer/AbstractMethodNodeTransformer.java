@@ -1,10 +1,16 @@
 package asteroid.transformer;
 
+import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.MethodNode;
 
 import org.codehaus.groovy.control.SourceUnit;
 import groovy.lang.Closure;
 
+import asteroid.criteria.Criteria;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.ExpressionSummary;
+import asteroid.internal.SourceIndex;
+
 /**
  * This {@link Transformer} can be used to transform {@link MethodNode}
  * nodes. To locate the classes you want to transform, a criteria in
@@ -21,11 +27,13 @@ import groovy.lang.Closure;
  *    <li>{@link asteroid.Criterias#byMethodNodeNameEndsWith(String)}</li>
  * </ul>
  *
+ * A typed {@link Criteria} can be used instead of a {@link Closure}.
+ *
  * @since 0.2.0
  */
 public abstract class AbstractMethodNodeTransformer extends AbstractTransformer {
 
-    private final Closure<Boolean> criteria;
+    private final Criteria<? super MethodNode> criteria;
 
     /**
      * Every instance needs the source unit and the name of the class
@@ -51,20 +59,105 @@ public abstract class AbstractMethodNodeTransformer extends AbstractTransformer
      * @see asteroid.Criterias#byMethodNodeNameContains(String)
      */
     public AbstractMethodNodeTransformer(final SourceUnit sourceUnit, final Closure<Boolean> criteria) {
+        this(sourceUnit, Criteria.<MethodNode>from(criteria));
+    }
+
+    /**
+     * Every instance needs the source unit and a {@link Criteria} to
+     * find the methods it's going to transform.
+     *
+     * @param sourceUnit Needed to apply scope
+     * @param criteria used to locate target methods
+     * @since 0.6.0
+     */
+    public AbstractMethodNodeTransformer(final SourceUnit sourceUnit, final Criteria<? super MethodNode> criteria) {
         super(sourceUnit);
         this.criteria = criteria;
     }
 
+    /**
+     * When applied by a global transformation, classes where the
+     * criteria can't match any node are not walked at all (see
+     * {@link SourceIndex}). Otherwise the class is always walked.
+     *
+     * @param classNode the class to transform
+     * @since 0.6.0
+     */
+    @Override
+    public void visitClass(final ClassNode classNode) {
+        if (classNode != null && SourceIndex.mayMatch(classNode, getCriteria())) {
+            super.visitClass(classNode);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void visitMethod(final MethodNode methodNode) {
-        if (methodNode == null || !this.criteria.call(methodNode)) {
+        if (methodNode == null) {
+            return;
+        }
+
+        countVisit();
+
+        if (matches(methodNode)) {
+            rewrite(methodNode);
+            ExpressionSummary.invalidate(methodNode);
+            BytecodeReport.touched(methodNode);
+            SourceIndex.invalidate(methodNode);
+        }
+    }
+
+    /**
+     * Whether the {@link MethodNode} passed as argument should be
+     * transformed by this transformer or not
+     *
+     * @param methodNode the method to check
+     * @return true if the method matches the transformer criteria
+     * @since 0.6.0
+     */
+    boolean matches(final MethodNode methodNode) {
+        if (counters == null) {
+            return this.criteria.matches(methodNode);
+        }
+
+        final long start = System.nanoTime();
+        final boolean result = this.criteria.matches(methodNode);
+
+        counters.evaluated(result, start);
+
+        return result;
+    }
+
+    /**
+     * Transforms the {@link MethodNode} passed as argument, recording
+     * it when profiling
+     *
+     * @param methodNode the method to transform
+     * @since 0.6.0
+     */
+    void rewrite(final MethodNode methodNode) {
+        if (counters == null) {
+            transformMethod(methodNode);
             return;
         }
 
+        final long start = System.nanoTime();
+
         transformMethod(methodNode);
+        counters.rewritten(true, start);
+    }
+
+    /**
+     * Returns the criteria used to find the nodes this transformer is
+     * interested in
+     *
+     * @return the transformer criteria
+     * @since 0.6.0
+     */
+    Criteria<? super MethodNode> getCriteria() {
+        return criteria;
     }
 
     /**
@@ -2,6 +2,13 @@ package asteroid.transformer;
 
 import groovy.lang.Closure;
 
+import asteroid.criteria.Criteria;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.ExpressionSummary;
+import asteroid.internal.SourceIndex;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.ast.stmt.Statement;
 
@@ -19,7 +26,8 @@ import org.codehaus.groovy.ast.stmt.Statement;
  */
 public abstract class AbstractStatementTransformer<T extends Statement> extends AbstractTransformer {
 
-    private final Closure<Boolean> criteria;
+    private final Criteria<? super Statement> criteria;
+    private boolean transformed;
 
     /**
      * Every instance needs the source unit awareness and the name of the method
@@ -31,20 +39,120 @@ public abstract class AbstractStatementTransformer<T extends Statement> extends
      * @since 0.2.0
      */
     public AbstractStatementTransformer(final SourceUnit sourceUnit, final Closure<Boolean> criteria) {
+        this(sourceUnit, Criteria.<Statement>from(criteria));
+    }
+
+    /**
+     * Every instance needs the source unit awareness and a {@link
+     * Criteria} to find the statements it's going to transform
+     *
+     * @param sourceUnit Needed to apply scope
+     * @param criteria the criteria used to search the interesting
+     * {@link Statement}
+     * @since 0.6.0
+     */
+    public AbstractStatementTransformer(final SourceUnit sourceUnit, final Criteria<? super Statement> criteria) {
         super(sourceUnit);
         this.criteria = criteria;
     }
 
     /**
-     * {@inheritDoc}
+     * This hook is called before visiting every statement, the
+     * statement children are visited afterwards anyway
+     *
+     * @param statement the statement about to be visited
      */
     @Override
     public void visitStatement(final Statement statement) {
-        if (criteria.call(statement)) {
-            transformStatement((T) statement);
+        countVisit();
+
+        if (matches(statement)) {
+            transformed = true;
+            rewrite((T) statement);
+        }
+    }
+
+    /**
+     * When applied by a global transformation, classes where the
+     * criteria can't match any node are not walked at all (see
+     * {@link SourceIndex}). Otherwise the class is always walked.
+     *
+     * @param classNode the class to transform
+     * @since 0.6.0
+     */
+    @Override
+    public void visitClass(final ClassNode classNode) {
+        if (classNode != null && SourceIndex.mayMatch(classNode, getCriteria())) {
+            super.visitClass(classNode);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 0.6.0
+     */
+    @Override
+    protected void visitConstructorOrMethod(final MethodNode node, final boolean isConstructor) {
+        transformed = false;
+        super.visitConstructorOrMethod(node, isConstructor);
+
+        if (transformed) {
+            ExpressionSummary.invalidate(node);
+            BytecodeReport.touched(node);
+            SourceIndex.invalidate(node);
+        }
+    }
+
+    /**
+     * Whether the {@link Statement} passed as argument should be
+     * transformed by this transformer or not
+     *
+     * @param statement the statement to check
+     * @return true if the statement matches the transformer criteria
+     * @since 0.6.0
+     */
+    boolean matches(final Statement statement) {
+        if (counters == null) {
+            return criteria.matches(statement);
+        }
+
+        final long start = System.nanoTime();
+        final boolean result = criteria.matches(statement);
+
+        counters.evaluated(result, start);
+
+        return result;
+    }
+
+    /**
+     * Transforms the {@link Statement} passed as argument, recording
+     * it when profiling
+     *
+     * @param statement the statement to transform
+     * @since 0.6.0
+     */
+    void rewrite(final T statement) {
+        if (counters == null) {
+            transformStatement(statement);
             return;
         }
-        statement.visit(this);
+
+        final long start = System.nanoTime();
+
+        transformStatement(statement);
+        counters.rewritten(true, start);
+    }
+
+    /**
+     * Returns the criteria used to find the nodes this transformer is
+     * interested in
+     *
+     * @return the transformer criteria
+     * @since 0.6.0
+     */
+    Criteria<? super Statement> getCriteria() {
+        return criteria;
     }
 
     /**
@@ -1,15 +1,42 @@
 package asteroid.transformer;
 
 import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.messages.SyntaxErrorMessage;
+import org.codehaus.groovy.syntax.SyntaxException;
+import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.ast.ClassCodeExpressionTransformer;
 
+import asteroid.internal.DeferredErrors;
+import asteroid.internal.Profiler;
+
 /**
  * Most transformers need at some point the source unit in order to
  * fix or apply properly the scope to each variable.
  *
  * This class enforces the use of a SourceUnit instance for every
  * transformer
+ * <br><br>
+ * <b>Thread safety</b>: when a global transformation is applied in
+ * parallel (see {@link asteroid.AbstractGlobalTransformation#isParallel()})
+ * different top level classes of the same source unit may be
+ * transformed at the same time. A top level class and its inner
+ * classes are always transformed by the same thread, and every
+ * transformer instance is used by one thread only. Transformers
+ * applied in parallel should:
+ * <ul>
+ *     <li>Only modify the class node they're visiting, or its inner classes</li>
+ *     <li>Not modify shared nodes such as the {@link ModuleNode} (e.g. adding imports)</li>
+ *     <li>Not keep mutable static state</li>
+ *     <li>Report errors using {@link #addError(String, ASTNode)}</li>
+ * </ul>
+ *
+ * Transformers not following these rules should be annotated with
+ * {@link Sequential}.
+ * <br><br>
+ * When profiling is enabled (see {@link Profiler}) every transformer
+ * records the nodes it visits, its criteria evaluations and the nodes
+ * it rewrites.
  *
  * @since 0.2.0
  *
@@ -19,6 +46,12 @@ public abstract class AbstractTransformer
 
     private final SourceUnit sourceUnit;
 
+    /**
+     * Profiling counters of this transformer, null when neither
+     * profiling nor flight recording are enabled
+     */
+    final Profiler.Counters counters;
+
     /**
      * This constructor needs a source unit
      *
@@ -26,7 +59,35 @@ public abstract class AbstractTransformer
      * @since 0.2.0
      */
     public AbstractTransformer(final SourceUnit sourceUnit) {
+        this(sourceUnit, true);
+    }
+
+    /**
+     * Transformers only walking the tree for others, like the ones
+     * created by {@link FusedTransformer}, are not profiled
+     *
+     * @param sourceUnit the related source unit
+     * @param profiled whether the transformer should be profiled
+     * @since 0.6.0
+     */
+    AbstractTransformer(final SourceUnit sourceUnit, final boolean profiled) {
         this.sourceUnit = sourceUnit;
+        this.counters = profiled ? Profiler.countersOf(this, sourceUnit) : null;
+    }
+
+    /**
+     * Returns the numbers recorded by this transformer while
+     * profiling, or while recording transformer visits with Java
+     * Flight Recorder
+     *
+     * @return the counters of this transformer, or null if neither
+     * profiling nor flight recording are enabled
+     * @since 0.6.0
+     * @see Profiler
+     * @see asteroid.internal.FlightRecorder
+     */
+    public Profiler.Counters getCounters() {
+        return counters;
     }
 
     /**
@@ -66,4 +127,39 @@ public abstract class AbstractTransformer
 
         return null;
     }
+
+    /**
+     * Counts a node visited by this transformer when profiling
+     *
+     * @since 0.6.0
+     */
+    final void countVisit() {
+        if (counters != null) {
+            counters.visited();
+        }
+    }
+
+    /**
+     * Adds an error to the current source unit. When the
+     * transformer is applied in parallel the error is added once all
+     * classes have been transformed, following the order of the
+     * classes in the source unit.
+     *
+     * @param msg the error message
+     * @param expr the node where the error was found
+     * @since 0.6.0
+     */
+    @Override
+    public void addError(final String msg, final ASTNode expr) {
+        final SyntaxException cause = new SyntaxException(msg + '\n',
+                                                          expr.getLineNumber(),
+                                                          expr.getColumnNumber(),
+                                                          expr.getLastLineNumber(),
+                                                          expr.getLastColumnNumber());
+        final SyntaxErrorMessage message = new SyntaxErrorMessage(cause, sourceUnit);
+
+        if (!DeferredErrors.defer(message)) {
+            sourceUnit.getErrorCollector().addErrorAndContinue(message);
+        }
+    }
 }
@@ -0,0 +1,435 @@
+package asteroid.transformer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.GenericsType;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.Variable;
+import org.codehaus.groovy.ast.VariableScope;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.syntax.Types;
+
+import asteroid.A;
+import asteroid.criteria.Criteria;
+
+/**
+ * Rewrites calls to <b>each</b>, <b>collect</b>, <b>findAll</b> and
+ * <b>any</b> receiving a closure into plain for-in loops, so no
+ * {@link groovy.lang.Closure} is created and no method is looked up
+ * in {@link org.codehaus.groovy.runtime.DefaultGroovyMethods} every
+ * time the code runs:
+ *
+ * <pre class="inner"><code>
+ * List{@literal <}String{@literal >} names = ...
+ * def upper = names.collect { it.toUpperCase() }
+ *
+ * // becomes
+ *
+ * def upper = new ArrayList()
+ * for (it in names) {
+ *     upper.add(it.toUpperCase())
+ * }
+ * </code></pre>
+ *
+ * Only calls the transformer can prove to be equivalent are
+ * rewritten:
+ *
+ * <ul>
+ *     <li>The receiver is a variable, parameter or field declared
+ *     as a {@link List} or as an array</li>
+ *     <li><b>each</b> calls are statements, and <b>collect</b>,
+ *     <b>findAll</b> and <b>any</b> calls initialize a variable
+ *     declaration</li>
+ *     <li>The closure is declared in place, with one parameter at
+ *     most, and it doesn't escape: it doesn't contain return
+ *     statements or other closures, and it doesn't use its
+ *     delegate, owner or any other closure property</li>
+ *     <li><b>collect</b>, <b>findAll</b> and <b>any</b> closures
+ *     consist of a single expression</li>
+ * </ul>
+ *
+ * Local variables need to be resolved, so the transformer should be
+ * applied from the canonicalization phase on. It can be applied by a
+ * global transformation to the methods matching a criteria, or
+ * locally annotating classes or methods with {@link
+ * asteroid.LowerClosures}.
+ * <br><br>
+ * Results of <b>collect</b> and <b>findAll</b> are always {@link
+ * ArrayList} instances.
+ *
+ * @since 0.6.0
+ */
+public class ClosureToLoopTransformer extends AbstractMethodNodeTransformer {
+
+    private static final String EACH = "each";
+    private static final String COLLECT = "collect";
+    private static final String FIND_ALL = "findAll";
+    private static final String ANY = "any";
+    private static final Set<String> CLOSURE_PROPERTIES =
+        new HashSet<>(Arrays.asList("delegate",
+                                    "owner",
+                                    "thisObject",
+                                    "resolveStrategy",
+                                    "directive",
+                                    "maximumNumberOfParameters",
+                                    "parameterTypes"));
+
+    /**
+     * Creates a transformer lowering closures in every method
+     *
+     * @param sourceUnit the source unit being transformed
+     * @since 0.6.0
+     */
+    public ClosureToLoopTransformer(final SourceUnit sourceUnit) {
+        this(sourceUnit, methodNode -> true);
+    }
+
+    /**
+     * Creates a transformer lowering closures in the methods matching
+     * the criteria passed as parameter
+     *
+     * @param sourceUnit the source unit being transformed
+     * @param criteria the criteria methods should match
+     * @since 0.6.0
+     */
+    public ClosureToLoopTransformer(final SourceUnit sourceUnit, final Criteria<? super MethodNode> criteria) {
+        super(sourceUnit, criteria);
+    }
+
+    @Override
+    public void transformMethod(final MethodNode methodNode) {
+        final Statement code = methodNode.getCode();
+
+        if (code != null) {
+            code.visit(new Lowering());
+        }
+    }
+
+    /**
+     * Rewrites the statements of every block after visiting the
+     * blocks nested in them, so closures containing closures that
+     * can be lowered are lowered as well
+     */
+    private static final class Lowering extends CodeVisitorSupport {
+
+        @Override
+        public void visitBlockStatement(final BlockStatement block) {
+            super.visitBlockStatement(block);
+
+            final List<Statement> statements = block.getStatements();
+            int index = 0;
+
+            while (index < statements.size()) {
+                final boolean last = index == statements.size() - 1;
+                final List<Statement> lowered = lower(statements.get(index), block.getVariableScope(), last);
+
+                if (lowered.isEmpty()) {
+                    index++;
+                } else {
+                    statements.remove(index);
+                    statements.addAll(index, lowered);
+                    index += lowered.size();
+                }
+            }
+        }
+    }
+
+    /*
+     * The last statement of a block may be the value returned by a
+     * method or a closure, so when it's lowered the value it had is
+     * added back after the loop
+     */
+    private static List<Statement> lower(final Statement statement, final VariableScope scope, final boolean last) {
+        if (!(statement instanceof ExpressionStatement) || statement.getStatementLabel() != null) {
+            return Collections.emptyList();
+        }
+
+        final Expression expression = ((ExpressionStatement) statement).getExpression();
+
+        if (expression instanceof MethodCallExpression) {
+            return lowerEach(statement, (MethodCallExpression) expression, scope, last);
+        }
+
+        if (expression instanceof DeclarationExpression) {
+            return lowerDeclaration(statement, (DeclarationExpression) expression, scope, last);
+        }
+
+        return Collections.emptyList();
+    }
+
+    private static List<Statement> lowerEach(final Statement statement,
+                                             final MethodCallExpression call,
+                                             final VariableScope scope,
+                                             final boolean last) {
+        final ClosureExpression closure = closureOf(call, EACH);
+
+        if (closure == null) {
+            return Collections.emptyList();
+        }
+
+        final Statement loop = loop(statement, call, elementOf(call, closure), closure.getCode(), scope);
+
+        if (!last) {
+            return Collections.singletonList(loop);
+        }
+
+        final VariableExpression receiver = (VariableExpression) call.getObjectExpression();
+
+        return Arrays.asList(loop, A.STMT.stmt(variableOf(receiver.getAccessedVariable())));
+    }
+
+    private static List<Statement> lowerDeclaration(final Statement statement,
+                                                    final DeclarationExpression declaration,
+                                                    final VariableScope scope,
+                                                    final boolean last) {
+        if (declaration.isMultipleAssignmentDeclaration() || !(declaration.getRightExpression() instanceof MethodCallExpression)) {
+            return Collections.emptyList();
+        }
+
+        final MethodCallExpression call = (MethodCallExpression) declaration.getRightExpression();
+        final String method = call.getMethodAsString();
+        final ClosureExpression closure = COLLECT.equals(method) || FIND_ALL.equals(method) || ANY.equals(method) ?
+            closureOf(call, method) :
+            null;
+        final Expression value = closure == null ? null : singleExpressionOf(closure);
+        final VariableExpression result = declaration.getVariableExpression();
+
+        if (value == null || references(closure, result.getName())) {
+            return Collections.emptyList();
+        }
+
+        final Parameter element = elementOf(call, closure);
+        final Statement body;
+
+        if (COLLECT.equals(method)) {
+            declaration.setRightExpression(A.EXPR.newX(ArrayList.class));
+            body = A.STMT.stmt(A.EXPR.callX(variableOf(result), "add", value));
+        } else if (FIND_ALL.equals(method)) {
+            declaration.setRightExpression(A.EXPR.newX(ArrayList.class));
+            body = A.STMT.ifS(A.EXPR.boolX(value),
+                              A.STMT.stmt(A.EXPR.callX(variableOf(result), "add", variableOf(element))));
+        } else {
+            declaration.setRightExpression(A.EXPR.constX(false));
+            body = A.STMT.ifS(A.EXPR.boolX(value),
+                              A.STMT.blockS(new VariableScope(scope),
+                                            A.STMT.stmt(A.EXPR.binX(variableOf(result), Types.ASSIGN, A.EXPR.constX(true))),
+                                            A.STMT.breakS()));
+        }
+
+        final Statement loop = loop(statement, call, element, body, scope);
+
+        return last ?
+            Arrays.asList(statement, loop, A.STMT.stmt(variableOf(result))) :
+            Arrays.asList(statement, loop);
+    }
+
+    private static Statement loop(final Statement statement,
+                                  final MethodCallExpression call,
+                                  final Parameter element,
+                                  final Statement body,
+                                  final VariableScope scope) {
+        final Statement loop = A.STMT.forS(new VariableScope(scope), element, call.getObjectExpression(), body);
+
+        loop.setSourcePosition(statement);
+
+        return loop;
+    }
+
+    private static ClosureExpression closureOf(final MethodCallExpression call, final String method) {
+        if (!method.equals(call.getMethodAsString()) || call.isSpreadSafe() || call.isImplicitThis() || !isListOrArray(call.getObjectExpression())) {
+            return null;
+        }
+
+        final List<Expression> arguments = call.getArguments() instanceof ArgumentListExpression ?
+            ((ArgumentListExpression) call.getArguments()).getExpressions() :
+            Collections.<Expression>emptyList();
+
+        if (arguments.size() != 1 || !(arguments.get(0) instanceof ClosureExpression)) {
+            return null;
+        }
+
+        final ClosureExpression closure = (ClosureExpression) arguments.get(0);
+        final Parameter[] parameters = closure.getParameters();
+        final boolean implicit = !closure.isParameterSpecified();
+
+        if (parameters == null ||
+            !implicit && parameters.length != 1 ||
+            !implicit && parameters[0].hasInitialExpression() ||
+            !isContained(closure)) {
+            return null;
+        }
+
+        return closure;
+    }
+
+    private static boolean isListOrArray(final Expression receiver) {
+        if (!(receiver instanceof VariableExpression)) {
+            return false;
+        }
+
+        final Variable variable = ((VariableExpression) receiver).getAccessedVariable();
+
+        if (variable == null || variable.isDynamicTyped()) {
+            return false;
+        }
+
+        final ClassNode type = variable.getOriginType();
+
+        return type.isArray() || A.UTIL.NODE.isOrImplements(type, List.class);
+    }
+
+    private static Expression singleExpressionOf(final ClosureExpression closure) {
+        final Statement code = closure.getCode();
+        final List<Statement> statements = code instanceof BlockStatement ?
+            ((BlockStatement) code).getStatements() :
+            Collections.singletonList(code);
+
+        if (statements.size() != 1 || !(statements.get(0) instanceof ExpressionStatement)) {
+            return null;
+        }
+
+        return ((ExpressionStatement) statements.get(0)).getExpression();
+    }
+
+    /*
+     * The implicit parameter of a closure is declared as Object, and
+     * the type checker infers its type from the call. As a loop
+     * variable it would keep that type, so it's replaced by one typed
+     * after the elements of the receiver
+     */
+    private static Parameter elementOf(final MethodCallExpression call, final ClosureExpression closure) {
+        if (closure.isParameterSpecified()) {
+            return closure.getParameters()[0];
+        }
+
+        final Variable implicit = closure.getVariableScope() == null ?
+            null :
+            closure.getVariableScope().getDeclaredVariable("it");
+        final Variable receiver = ((VariableExpression) call.getObjectExpression()).getAccessedVariable();
+        final Parameter element = new Parameter(elementTypeOf(receiver.getOriginType()), "it");
+
+        if (implicit != null) {
+            closure.getCode().visit(new CodeVisitorSupport() {
+                @Override
+                public void visitVariableExpression(final VariableExpression expression) {
+                    if (expression.getAccessedVariable() == implicit) {
+                        expression.setAccessedVariable(element);
+                    }
+                }
+            });
+        }
+
+        return element;
+    }
+
+    /*
+     * Only the type argument of lists from java.util is known to be
+     * the type of their elements
+     */
+    private static ClassNode elementTypeOf(final ClassNode type) {
+        if (type.isArray()) {
+            return type.getComponentType();
+        }
+
+        final GenericsType[] generics = type.getGenericsTypes();
+
+        if (!type.getName().startsWith("java.util.") ||
+            generics == null ||
+            generics.length != 1 ||
+            generics[0].isPlaceholder() ||
+            generics[0].isWildcard()) {
+            return ClassHelper.DYNAMIC_TYPE;
+        }
+
+        return generics[0].getType();
+    }
+
+    private static VariableExpression variableOf(final Variable variable) {
+        return new VariableExpression(variable);
+    }
+
+    private static boolean isContained(final ClosureExpression closure) {
+        final EscapeFinder finder = new EscapeFinder(null);
+
+        closure.getCode().visit(finder);
+
+        return !finder.found;
+    }
+
+    private static boolean references(final ClosureExpression closure, final String name) {
+        final EscapeFinder finder = new EscapeFinder(name);
+
+        closure.getCode().visit(finder);
+
+        return finder.found;
+    }
+
+    /**
+     * Looks for anything preventing a closure from being inlined:
+     * return statements, nested closures and closure properties. When
+     * looking for a variable name it only looks for that variable.
+     */
+    private static final class EscapeFinder extends CodeVisitorSupport {
+
+        private final String name;
+        private boolean found;
+
+        EscapeFinder(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitReturnStatement(final ReturnStatement statement) {
+            found |= name == null;
+            super.visitReturnStatement(statement);
+        }
+
+        @Override
+        public void visitClosureExpression(final ClosureExpression expression) {
+            found |= name == null;
+            super.visitClosureExpression(expression);
+        }
+
+        @Override
+        public void visitVariableExpression(final VariableExpression expression) {
+            found |= name == null ?
+                CLOSURE_PROPERTIES.contains(expression.getName()) :
+                name.equals(expression.getName());
+        }
+
+        @Override
+        public void visitMethodCallExpression(final MethodCallExpression call) {
+            if (name == null && call.isImplicitThis()) {
+                final String method = call.getMethodAsString();
+
+                found |= method == null || method.startsWith("get") && CLOSURE_PROPERTIES.contains(decapitalize(method.substring(3))) ||
+                    "call".equals(method) || "doCall".equals(method) || "curry".equals(method);
+            }
+
+            super.visitMethodCallExpression(call);
+        }
+
+        private static String decapitalize(final String name) {
+            return name.isEmpty() ? name : Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package asteroid.transformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classes switched to static compilation by {@link
+ * CompileStaticTransformer}, and classes matching its criteria that
+ * were excluded because they use dynamic features.
+ * <br><br>
+ * The same report can be shared by transformers applied in parallel.
+ *
+ * @since 0.6.0
+ */
+public final class CompileStaticReport {
+
+    private final List<String> switched = new ArrayList<>();
+    private final Map<String, String> excluded = new LinkedHashMap<>();
+
+    /**
+     * Records a class switched to static compilation (or type
+     * checking)
+     *
+     * @param className the name of the class
+     * @since 0.6.0
+     */
+    public synchronized void switched(final String className) {
+        switched.add(className);
+    }
+
+    /**
+     * Records a class excluded from static compilation
+     *
+     * @param className the name of the class
+     * @param reason why the class has been excluded
+     * @since 0.6.0
+     */
+    public synchronized void excluded(final String className, final String reason) {
+        excluded.put(className, reason);
+    }
+
+    /**
+     * Returns the names of the classes switched to static
+     * compilation, in the order they were switched
+     *
+     * @return a list with the names of the switched classes
+     * @since 0.6.0
+     */
+    public synchronized List<String> getSwitched() {
+        return Collections.unmodifiableList(new ArrayList<>(switched));
+    }
+
+    /**
+     * Returns the names of the classes excluded from static
+     * compilation, along with the reason
+     *
+     * @return a map with the reason of every excluded class
+     * @since 0.6.0
+     */
+    public synchronized Map<String, String> getExcluded() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(excluded));
+    }
+
+    /**
+     * Writes the report to the file passed as parameter, a line per
+     * class
+     *
+     * @param file where to write the report
+     * @throws IOException if the report couldn't be written
+     * @since 0.6.0
+     */
+    public void write(final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            writer.write(toString());
+        }
+    }
+
+    /**
+     * Returns the report as text, a line per class:
+     *
+     * <pre><code>
+     * switched com.acme.UserService
+     * excluded com.acme.Dsl: declares methodMissing
+     * </code></pre>
+     *
+     * @return the report as text
+     * @since 0.6.0
+     */
+    @Override
+    public synchronized String toString() {
+        final StringBuilder text = new StringBuilder(64);
+
+        for (final String className : switched) {
+            text.append("switched ").append(className).append('\n');
+        }
+
+        for (final Map.Entry<String, String> entry : excluded.entrySet()) {
+            text.append("excluded ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+
+        return text.toString();
+    }
+}
@@ -0,0 +1,252 @@
+package asteroid.transformer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import groovy.transform.CompileStatic;
+import groovy.transform.TypeChecked;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.InnerClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.control.SourceUnit;
+
+import asteroid.A;
+import asteroid.criteria.Criteria;
+
+/**
+ * Adds {@link CompileStatic} to the classes matching a given
+ * criteria, or {@link TypeChecked} when running in dry-run mode, to
+ * find out which classes would compile statically without changing
+ * how they're dispatched.
+ * <br><br>
+ * Classes matching the criteria are excluded when they use any of
+ * the following dynamic features:
+ *
+ * <ul>
+ *     <li>Already annotated with {@link CompileStatic}, {@link
+ *     TypeChecked} or {@link groovy.transform.CompileDynamic}</li>
+ *     <li>Scripts</li>
+ *     <li>Implementing {@link groovy.lang.GroovyInterceptable}</li>
+ *     <li>Declaring <b>methodMissing</b>, <b>propertyMissing</b>
+ *     or <b>invokeMethod</b></li>
+ *     <li>Untyped fields, properties or method parameters</li>
+ *     <li>Accessing a <b>metaClass</b> property</li>
+ *     <li>Declaring inner classes using any of these features,
+ *     because they're checked along with their outer class</li>
+ * </ul>
+ *
+ * More features can be added overriding {@link
+ * #findDynamicFeature(ClassNode)}. Every class switched, or excluded,
+ * is recorded in a {@link CompileStaticReport}.
+ * <br><br>
+ * Annotations are only processed if they're added before the
+ * semantic analysis phase, so this transformer should be applied in
+ * the conversion phase. See {@link
+ * asteroid.AbstractCompileStaticTransformation}.
+ *
+ * @since 0.6.0
+ */
+public class CompileStaticTransformer extends AbstractClassNodeTransformer {
+
+    private static final Set<String> DECIDED_ANNOTATIONS =
+        new HashSet<>(Arrays.asList("CompileStatic", "TypeChecked", "CompileDynamic"));
+    private static final Set<String> DYNAMIC_METHODS =
+        new HashSet<>(Arrays.asList("methodMissing",
+                                    "propertyMissing",
+                                    "invokeMethod",
+                                    "$static_methodMissing",
+                                    "$static_propertyMissing"));
+
+    private final boolean dryRun;
+    private final CompileStaticReport report;
+
+    /**
+     * Creates a transformer switching the classes matching the
+     * criteria to static compilation
+     *
+     * @param sourceUnit the source unit being transformed
+     * @param criteria the criteria the classes should match
+     * @param dryRun whether to add {@link TypeChecked} instead of
+     * {@link CompileStatic}
+     * @param report where to record the classes switched and excluded
+     * @since 0.6.0
+     */
+    public CompileStaticTransformer(final SourceUnit sourceUnit,
+                                    final Criteria<? super ClassNode> criteria,
+                                    final boolean dryRun,
+                                    final CompileStaticReport report) {
+        super(sourceUnit, criteria);
+        this.dryRun = dryRun;
+        this.report = report;
+    }
+
+    @Override
+    public void transformClass(final ClassNode classNode) {
+        final String reason = findDynamicFeatureIn(classNode);
+
+        if (reason != null) {
+            report.excluded(classNode.getName(), reason);
+            return;
+        }
+
+        classNode.addAnnotation(A.NODES.annotation(dryRun ? TypeChecked.class : CompileStatic.class).build());
+        report.switched(classNode.getName());
+    }
+
+    /**
+     * Looks for dynamic features preventing the class passed as
+     * parameter from being statically compiled
+     *
+     * @param classNode the class to check
+     * @return a description of the first dynamic feature found, or
+     * null if none was found
+     * @since 0.6.0
+     */
+    protected String findDynamicFeature(final ClassNode classNode) {
+        for (final AnnotationNode annotation : classNode.getAnnotations()) {
+            final String simpleName = annotation.getClassNode().getNameWithoutPackage();
+
+            if (DECIDED_ANNOTATIONS.contains(simpleName)) {
+                return "already annotated with @" + simpleName;
+            }
+        }
+
+        if (classNode.isScript()) {
+            return "script";
+        }
+
+        for (final ClassNode interfaceNode : classNode.getInterfaces()) {
+            if ("GroovyInterceptable".equals(interfaceNode.getNameWithoutPackage())) {
+                return "implements GroovyInterceptable";
+            }
+        }
+
+        for (final FieldNode fieldNode : classNode.getFields()) {
+            if (fieldNode.isDynamicTyped()) {
+                return "untyped field '" + fieldNode.getName() + "'";
+            }
+        }
+
+        return findDynamicMethod(classNode);
+    }
+
+    /*
+     * Static compilation and type checking also apply to inner
+     * classes, unless they have already been annotated
+     */
+    private String findDynamicFeatureIn(final ClassNode classNode) {
+        final String reason = findDynamicFeature(classNode);
+
+        if (reason != null) {
+            return reason;
+        }
+
+        final Iterator<InnerClassNode> innerClasses = classNode.getInnerClasses();
+
+        while (innerClasses.hasNext()) {
+            final InnerClassNode innerClass = innerClasses.next();
+
+            if (isDecided(innerClass)) {
+                continue;
+            }
+
+            final String innerReason = findDynamicFeatureIn(innerClass);
+
+            if (innerReason != null) {
+                return "inner class '" + innerClass.getName() + "': " + innerReason;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isDecided(final ClassNode classNode) {
+        for (final AnnotationNode annotation : classNode.getAnnotations()) {
+            if (DECIDED_ANNOTATIONS.contains(annotation.getClassNode().getNameWithoutPackage())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String findDynamicMethod(final ClassNode classNode) {
+        final List<MethodNode> methods = classNode.getMethods();
+        final MetaClassFinder finder = new MetaClassFinder();
+
+        for (final MethodNode methodNode : methods) {
+            if (DYNAMIC_METHODS.contains(methodNode.getName())) {
+                return "declares " + methodNode.getName();
+            }
+        }
+
+        for (final MethodNode methodNode : classNode.getDeclaredConstructors()) {
+            final String reason = findDynamicCode(methodNode, finder);
+
+            if (reason != null) {
+                return reason;
+            }
+        }
+
+        for (final MethodNode methodNode : methods) {
+            final String reason = findDynamicCode(methodNode, finder);
+
+            if (reason != null) {
+                return reason;
+            }
+        }
+
+        return null;
+    }
+
+    private static String findDynamicCode(final MethodNode methodNode, final MetaClassFinder finder) {
+        final Parameter[] parameters = methodNode.getParameters();
+
+        if (parameters != null) {
+            for (final Parameter parameter : parameters) {
+                if (parameter.isDynamicTyped()) {
+                    return "untyped parameter '" + parameter.getName() + "' in " + methodNode.getName();
+                }
+            }
+        }
+
+        final Statement code = methodNode.getCode();
+
+        if (code != null) {
+            code.visit(finder);
+
+            if (finder.found) {
+                return "uses metaClass in " + methodNode.getName();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Looks for <b>metaClass</b> property accesses
+     */
+    private static final class MetaClassFinder extends CodeVisitorSupport {
+
+        private boolean found;
+
+        @Override
+        public void visitPropertyExpression(final PropertyExpression expression) {
+            if ("metaClass".equals(expression.getPropertyAsString())) {
+                found = true;
+                return;
+            }
+
+            super.visitPropertyExpression(expression);
+        }
+    }
+}
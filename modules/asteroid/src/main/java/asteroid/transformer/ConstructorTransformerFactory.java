@@ -0,0 +1,81 @@
+package asteroid.transformer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+import org.codehaus.groovy.control.SourceUnit;
+
+/**
+ * {@link TransformerFactory} invoking the constructor of a given
+ * transformer class through a {@link MethodHandle}. The constructor
+ * is looked up only once per class.
+ *
+ * @since 0.6.0
+ */
+final class ConstructorTransformerFactory implements TransformerFactory<Transformer> {
+
+    /**
+     * Factories already resolved, by transformer class
+     *
+     * @since 0.6.0
+     */
+    static final ClassValue<TransformerFactory<?>> FACTORIES = new ClassValue<TransformerFactory<?>>() {
+        @Override
+        protected TransformerFactory<?> computeValue(final Class<?> type) {
+            return new ConstructorTransformerFactory(type);
+        }
+    };
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Transformer.class, SourceUnit.class);
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+
+    private ConstructorTransformerFactory(final Class<?> type) {
+        this.type = type;
+        this.constructor = findConstructor(type);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    public Transformer create(final SourceUnit sourceUnit) {
+        try {
+            return (Transformer) constructor.invokeExact(sourceUnit);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Error creating transformer " + type.getName(), e);
+        }
+    }
+
+    private static MethodHandle findConstructor(final Class<?> type) {
+        if (!Transformer.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException(type.getName() + " is not a concrete Transformer class");
+        }
+
+        for (final Constructor<?> candidate : type.getDeclaredConstructors()) {
+            final Class<?>[] params = candidate.getParameterTypes();
+
+            if (params.length == 1 && params[0].isAssignableFrom(SourceUnit.class)) {
+                return unreflect(candidate);
+            }
+        }
+
+        throw new IllegalArgumentException(type.getName() + " has no constructor receiving a SourceUnit");
+    }
+
+    private static MethodHandle unreflect(final Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+
+            return MethodHandles.lookup()
+                .unreflectConstructor(constructor)
+                .asType(CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException | SecurityException e) {
+            throw new IllegalArgumentException("Constructor of " + constructor.getDeclaringClass().getName() + " is not accessible", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package asteroid.transformer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import asteroid.internal.ExpressionChildren;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.ExpressionTransformer;
+
+/**
+ * Transforms the children of an {@link Expression} keeping the
+ * original node whenever none of its children changed.
+ * <br><br>
+ * Children are transformed one by one. Only when any of them changes
+ * the expression is rebuilt, using {@link
+ * Expression#transformExpression(ExpressionTransformer)} and reusing
+ * the children already transformed. Expression types without known
+ * children are always rebuilt the usual way.
+ *
+ * @since 0.6.0
+ */
+final class CopyOnWrite {
+
+    private CopyOnWrite() {
+        // utility class
+    }
+
+    /**
+     * Transforms the children of the expression passed as parameter
+     *
+     * @param expression the expression to transform
+     * @param transformer the transformer applied to every child
+     * @return the same expression if none of its children changed, a
+     * new expression otherwise
+     * @since 0.6.0
+     */
+    static Expression transformChildren(final Expression expression, final ExpressionTransformer transformer) {
+        final int count = ExpressionChildren.count(expression);
+
+        if (count == ExpressionChildren.UNKNOWN) {
+            return expression.transformExpression(transformer);
+        }
+
+        Map<Expression, Expression> changed = null;
+
+        for (int i = 0; i < count; i++) {
+            final Expression child = ExpressionChildren.get(expression, i);
+
+            if (child == null || changed != null && changed.containsKey(child)) {
+                continue;
+            }
+
+            final Expression result = transformer.transform(child);
+
+            if (changed != null) {
+                changed.put(child, result);
+            } else if (result != child) {
+                changed = new IdentityHashMap<>();
+                changed.put(child, result);
+            }
+        }
+
+        if (changed == null) {
+            return expression;
+        }
+
+        final Map<Expression, Expression> results = changed;
+
+        return expression.transformExpression((final Expression child) -> results.containsKey(child) ? results.get(child) : child);
+    }
+}
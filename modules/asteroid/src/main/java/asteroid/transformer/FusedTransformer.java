@@ -0,0 +1,680 @@
+package asteroid.transformer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.control.SourceUnit;
+
+import asteroid.criteria.Criteria;
+import asteroid.criteria.CriteriaIndex;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.ExpressionSummary;
+import asteroid.internal.SourceIndex;
+
+/**
+ * This {@link Transformer} applies a list of transformers to a given
+ * {@link ClassNode} walking the class only once, instead of doing a
+ * complete traversal per transformer.
+ * <br><br>
+ * Transformers are applied following the order they were declared:
+ * <ul>
+ *     <li>Any {@link Transformer} implementation not extending any of
+ *     the asteroid base transformers is applied at its declared
+ *     position, the same way it was applied before</li>
+ *     <li>Consecutive {@link AbstractClassNodeTransformer} instances
+ *     are applied one after another to the class node</li>
+ *     <li>Consecutive {@link AbstractMethodNodeTransformer}, {@link
+ *     AbstractStatementTransformer} and {@link
+ *     AbstractExpressionTransformer} instances are fused in a single
+ *     traversal. Every node found is dispatched to every interested
+ *     transformer in declared order. A statement transformer declared
+ *     after an expression transformer starts a new traversal, so it
+ *     finds the statement expressions already transformed</li>
+ * </ul>
+ *
+ * A transformer overriding any of the visitor methods (those
+ * starting with <b>visit</b>, or <b>transform</b>) is considered to
+ * have its own traversal and it will be applied on its own.
+ * <br><br>
+ * Criterias of the fused transformers are indexed using a {@link
+ * CriteriaIndex}, so for every node only the criterias that may
+ * match are checked. The number of criteria checks avoided is
+ * available through {@link #getSavedChecks()}. Methods that can't
+ * contain the expressions fused expression transformers are looking
+ * for are not walked at all (see {@link ExpressionSummary}), neither
+ * are classes where none of the criterias can match any node, while
+ * the global transformation keeps the class index (see {@link
+ * SourceIndex}).
+ *
+ * @since 0.6.0
+ * @see asteroid.AbstractGlobalTransformation
+ */
+public final class FusedTransformer implements Transformer {
+
+    private static final String VISIT_PREFIX = "visit";
+    private static final String TRANSFORM = "transform";
+
+    private static final ClassValue<Boolean> FUSABLE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return hasDefaultTraversal(type);
+        }
+    };
+
+    private final List<Transformer> stages;
+
+    /**
+     * Creates a transformer applying all transformers passed as
+     * argument in order
+     *
+     * @param sourceUnit the source unit where the transformers are applied
+     * @param transformers the transformers to apply
+     * @since 0.6.0
+     */
+    public FusedTransformer(final SourceUnit sourceUnit, final List<? extends Transformer> transformers) {
+        this.stages = fuse(sourceUnit, transformers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visitClass(final ClassNode clazzNode) {
+        for (final Transformer stage : stages) {
+            stage.visitClass(clazzNode);
+
+            if (!(stage instanceof Stage)) {
+                ExpressionSummary.reset(clazzNode);
+                SourceIndex.invalidate(clazzNode);
+            }
+        }
+    }
+
+    /**
+     * Returns how many criteria checks have been avoided thanks to
+     * the criteria indexes
+     *
+     * @return the number of criteria checks avoided so far
+     * @since 0.6.0
+     */
+    public long getSavedChecks() {
+        long saved = 0;
+
+        for (final Transformer stage : stages) {
+            if (stage instanceof ClassStage) {
+                saved += ((ClassStage) stage).savedChecks;
+            } else if (stage instanceof Stage) {
+                saved += ((Stage) stage).savedChecks;
+            }
+        }
+
+        return saved;
+    }
+
+    /**
+     * Returns how many expressions have been kept after transforming
+     * their children, because none of them changed
+     *
+     * @return the number of expressions kept
+     * @since 0.6.0
+     * @see AbstractExpressionTransformer#isCopyOnWrite()
+     */
+    public long getPreservedExpressions() {
+        long count = 0;
+
+        for (final Transformer stage : stages) {
+            if (stage instanceof Stage) {
+                count += ((Stage) stage).preserved;
+            } else if (stage instanceof AbstractExpressionTransformer) {
+                count += ((AbstractExpressionTransformer) stage).getPreservedExpressions();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns how many expressions have been rebuilt after
+     * transforming their children
+     *
+     * @return the number of expressions rebuilt
+     * @since 0.6.0
+     * @see AbstractExpressionTransformer#isCopyOnWrite()
+     */
+    public long getReallocatedExpressions() {
+        long count = 0;
+
+        for (final Transformer stage : stages) {
+            if (stage instanceof Stage) {
+                count += ((Stage) stage).reallocated;
+            } else if (stage instanceof AbstractExpressionTransformer) {
+                count += ((AbstractExpressionTransformer) stage).getReallocatedExpressions();
+            }
+        }
+
+        return count;
+    }
+
+    private static List<Transformer> fuse(final SourceUnit sourceUnit, final List<? extends Transformer> transformers) {
+        final List<Transformer> result = new ArrayList<>();
+        final List<AbstractTransformer> pending = new ArrayList<>();
+        boolean pendingClasses = false;
+        boolean pendingExpressions = false;
+
+        for (final Transformer transformer : transformers) {
+            final boolean isClass = transformer instanceof AbstractClassNodeTransformer;
+            final boolean isStatement = transformer instanceof AbstractStatementTransformer;
+
+            if (isFusable(transformer) &&
+                (pending.isEmpty() || pendingClasses == isClass) &&
+                !(isStatement && pendingExpressions)) {
+                pending.add((AbstractTransformer) transformer);
+                pendingClasses = isClass;
+                pendingExpressions = nextPendingExpressions(transformer, pendingExpressions);
+                continue;
+            }
+
+            flush(sourceUnit, pending, pendingClasses, result);
+            pendingExpressions = false;
+
+            if (isFusable(transformer)) {
+                pending.add((AbstractTransformer) transformer);
+                pendingClasses = isClass;
+                pendingExpressions = nextPendingExpressions(transformer, false);
+            } else {
+                result.add(transformer);
+            }
+        }
+
+        flush(sourceUnit, pending, pendingClasses, result);
+
+        return result;
+    }
+
+    /*
+     * Statements are dispatched before their expressions are
+     * transformed, so a statement transformer can't share a walk with
+     * the expression transformers declared before it. Method
+     * transformers split the walk of the method, so the statement
+     * transformers declared after them are safe.
+     */
+    private static boolean nextPendingExpressions(final Transformer transformer, final boolean pendingExpressions) {
+        if (transformer instanceof AbstractMethodNodeTransformer) {
+            return false;
+        }
+
+        return pendingExpressions || transformer instanceof AbstractExpressionTransformer;
+    }
+
+    private static void flush(final SourceUnit sourceUnit,
+                              final List<AbstractTransformer> pending,
+                              final boolean pendingClasses,
+                              final List<Transformer> result) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (!pendingClasses) {
+            result.add(new Stage(sourceUnit, pending));
+        } else if (pending.size() == 1) {
+            result.add(pending.get(0));
+        } else {
+            result.add(new ClassStage(pending));
+        }
+
+        pending.clear();
+    }
+
+    private static boolean isFusable(final Transformer transformer) {
+        final boolean isKnownKind = transformer instanceof AbstractClassNodeTransformer ||
+            transformer instanceof AbstractMethodNodeTransformer ||
+            transformer instanceof AbstractStatementTransformer ||
+            transformer instanceof AbstractExpressionTransformer;
+
+        return isKnownKind && FUSABLE.get(transformer.getClass());
+    }
+
+    private static boolean hasDefaultTraversal(final Class<?> type) {
+        Class<?> current = type;
+
+        while (current != null && !isBaseTransformer(current)) {
+            for (final Method method : current.getDeclaredMethods()) {
+                if (!method.isSynthetic() && isTraversalMethod(method.getName())) {
+                    return false;
+                }
+            }
+            current = current.getSuperclass();
+        }
+
+        return true;
+    }
+
+    private static boolean isBaseTransformer(final Class<?> type) {
+        return type == AbstractClassNodeTransformer.class ||
+            type == AbstractMethodNodeTransformer.class ||
+            type == AbstractStatementTransformer.class ||
+            type == AbstractExpressionTransformer.class;
+    }
+
+    private static boolean isTraversalMethod(final String name) {
+        return name.startsWith(VISIT_PREFIX) || TRANSFORM.equals(name);
+    }
+
+    private static <T> CriteriaIndex<T> selectiveIndex(final List<Criteria<? super T>> criterias) {
+        final CriteriaIndex<T> index = CriteriaIndex.of(criterias);
+
+        return index.isSelective() ? index : null;
+    }
+
+    private static <T> BitSet candidatesOf(final CriteriaIndex<T> index, final T node) {
+        return index == null ? null : index.candidates(node);
+    }
+
+    /**
+     * Applies a set of consecutive class node transformers, only
+     * checking the criterias that may match
+     */
+    private static final class ClassStage implements Transformer {
+
+        private final List<AbstractClassNodeTransformer> members = new ArrayList<>();
+        private final CriteriaIndex<ClassNode> index;
+        private long savedChecks;
+
+        ClassStage(final List<AbstractTransformer> transformers) {
+            final List<Criteria<? super ClassNode>> criterias = new ArrayList<>();
+
+            for (final AbstractTransformer transformer : transformers) {
+                final AbstractClassNodeTransformer member = (AbstractClassNodeTransformer) transformer;
+
+                members.add(member);
+                criterias.add(member.getCriteria());
+            }
+
+            this.index = selectiveIndex(criterias);
+        }
+
+        @Override
+        public void visitClass(final ClassNode classNode) {
+            if (classNode == null) {
+                return;
+            }
+
+            BitSet candidates = candidatesOf(index, classNode);
+
+            for (int i = 0; i < members.size(); i++) {
+                final AbstractClassNodeTransformer member = members.get(i);
+
+                member.countVisit();
+
+                if (candidates != null && !candidates.get(i)) {
+                    savedChecks++;
+                    continue;
+                }
+
+                if (member.matches(classNode)) {
+                    member.rewrite(classNode);
+                    candidates = candidatesOf(index, classNode);
+                }
+            }
+        }
+    }
+
+    /**
+     * A fused transformer and its position in the index of the
+     * transformers of the same kind
+     */
+    private static final class Member {
+        private final AbstractTransformer transformer;
+        private final int position;
+
+        Member(final AbstractTransformer transformer, final int position) {
+            this.transformer = transformer;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Walks a {@link ClassNode} once dispatching methods, statements
+     * and expressions to a set of consecutive transformers
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class Stage extends AbstractTransformer {
+
+        private final List<Member> members = new ArrayList<>();
+        private final List<Member> allStatements = new ArrayList<>();
+        private final List<Member> allExpressions = new ArrayList<>();
+        private final boolean hasMethodTransformers;
+
+        private final List<Criteria<?>> criterias = new ArrayList<>();
+        private final CriteriaIndex<MethodNode> methodIndex;
+        private final CriteriaIndex<Statement> statementIndex;
+        private final CriteriaIndex<Expression> expressionIndex;
+
+        private List<Member> statements;
+        private List<Member> expressions;
+        private final boolean copyOnWrite;
+
+        private long savedChecks;
+        private boolean transformed;
+        private long preserved;
+        private long reallocated;
+
+        Stage(final SourceUnit sourceUnit, final List<AbstractTransformer> transformers) {
+            super(sourceUnit, false);
+
+            final List<Criteria<? super MethodNode>> methodCriterias = new ArrayList<>();
+            final List<Criteria<? super Statement>> statementCriterias = new ArrayList<>();
+            final List<Criteria<? super Expression>> expressionCriterias = new ArrayList<>();
+
+            for (final AbstractTransformer transformer : transformers) {
+                if (transformer instanceof AbstractMethodNodeTransformer) {
+                    members.add(new Member(transformer, methodCriterias.size()));
+                    methodCriterias.add(((AbstractMethodNodeTransformer) transformer).getCriteria());
+                } else if (transformer instanceof AbstractStatementTransformer) {
+                    final Member member = new Member(transformer, statementCriterias.size());
+                    members.add(member);
+                    allStatements.add(member);
+                    statementCriterias.add(((AbstractStatementTransformer) transformer).getCriteria());
+                } else {
+                    final Member member = new Member(transformer, expressionCriterias.size());
+                    members.add(member);
+                    allExpressions.add(member);
+                    expressionCriterias.add(((AbstractExpressionTransformer) transformer).getCriteria());
+                }
+            }
+
+            this.criterias.addAll(methodCriterias);
+            this.criterias.addAll(statementCriterias);
+            this.criterias.addAll(expressionCriterias);
+            this.copyOnWrite = isCopyOnWrite(allExpressions);
+            this.hasMethodTransformers = !methodCriterias.isEmpty();
+            this.methodIndex = selectiveIndex(methodCriterias);
+            this.statementIndex = selectiveIndex(statementCriterias);
+            this.expressionIndex = selectiveIndex(expressionCriterias);
+            this.statements = allStatements;
+            this.expressions = allExpressions;
+        }
+
+        @Override
+        public void visitClass(final ClassNode classNode) {
+            if (classNode == null || !mayMatch(classNode)) {
+                return;
+            }
+
+            if (allStatements.isEmpty() && allExpressions.isEmpty()) {
+                for (final MethodNode methodNode : new ArrayList<>(classNode.getMethods())) {
+                    visitMethod(methodNode);
+                }
+                return;
+            }
+
+            super.visitClass(classNode);
+        }
+
+        /*
+         * Classes where none of the criterias can match any node
+         * are not walked at all
+         */
+        private boolean mayMatch(final ClassNode classNode) {
+            for (final Criteria<?> criteria : criterias) {
+                if (SourceIndex.mayMatch(classNode, criteria)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public void visitMethod(final MethodNode methodNode) {
+            if (!hasMethodTransformers) {
+                super.visitMethod(methodNode);
+                return;
+            }
+
+            final List<Member> batch = new ArrayList<>();
+            BitSet candidates = candidatesOf(methodIndex, methodNode);
+
+            for (final Member member : members) {
+                if (!(member.transformer instanceof AbstractMethodNodeTransformer)) {
+                    batch.add(member);
+                    continue;
+                }
+
+                member.transformer.countVisit();
+
+                if (candidates != null && !candidates.get(member.position)) {
+                    savedChecks++;
+                    continue;
+                }
+
+                walkMethod(methodNode, batch);
+                batch.clear();
+
+                final AbstractMethodNodeTransformer transformer = (AbstractMethodNodeTransformer) member.transformer;
+
+                if (transformer.matches(methodNode)) {
+                    transformer.rewrite(methodNode);
+                    ExpressionSummary.invalidate(methodNode);
+                    BytecodeReport.touched(methodNode);
+                    SourceIndex.invalidate(methodNode);
+                    candidates = candidatesOf(methodIndex, methodNode);
+                }
+            }
+
+            walkMethod(methodNode, batch);
+        }
+
+        private void walkMethod(final MethodNode methodNode, final List<Member> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            final List<Member> savedStatements = statements;
+            final List<Member> savedExpressions = expressions;
+
+            statements = new ArrayList<>();
+            expressions = new ArrayList<>();
+
+            for (final Member member : batch) {
+                if (member.transformer instanceof AbstractStatementTransformer) {
+                    statements.add(member);
+                } else {
+                    expressions.add(member);
+                }
+            }
+
+            try {
+                super.visitMethod(methodNode);
+            } finally {
+                statements = savedStatements;
+                expressions = savedExpressions;
+            }
+        }
+
+        /*
+         * Leading expression transformers looking for expressions the
+         * method doesn't contain are skipped. Transformers after any
+         * transformer that may change the method are always kept, as
+         * they may match the nodes added by the former.
+         */
+        @Override
+        protected void visitConstructorOrMethod(final MethodNode node, final boolean isConstructor) {
+            final List<Member> savedExpressions = expressions;
+            int skipped = 0;
+
+            if (statements.isEmpty()) {
+                while (skipped < expressions.size() && !mayContain(node, expressions.get(skipped))) {
+                    skipped++;
+                }
+            }
+
+            if (statements.isEmpty() && skipped == expressions.size()) {
+                return;
+            }
+
+            expressions = expressions.subList(skipped, expressions.size());
+            transformed = false;
+
+            try {
+                super.visitConstructorOrMethod(node, isConstructor);
+            } finally {
+                expressions = savedExpressions;
+            }
+
+            if (transformed) {
+                ExpressionSummary.invalidate(node);
+                BytecodeReport.touched(node);
+                SourceIndex.invalidate(node);
+            }
+        }
+
+        private static boolean isCopyOnWrite(final List<Member> members) {
+            for (final Member member : members) {
+                if (!transformer(member).isCopyOnWrite()) {
+                    return false;
+                }
+            }
+
+            return !members.isEmpty();
+        }
+
+        private static boolean mayContain(final MethodNode node, final Member member) {
+            return ExpressionSummary.mayContain(node, transformer(member).getExpressionType());
+        }
+
+        @Override
+        protected void visitStatement(final Statement statement) {
+            if (statements.isEmpty()) {
+                return;
+            }
+
+            BitSet candidates = candidatesOf(statementIndex, statement);
+
+            for (final Member member : statements) {
+                member.transformer.countVisit();
+
+                if (candidates != null && !candidates.get(member.position)) {
+                    savedChecks++;
+                    continue;
+                }
+
+                final AbstractStatementTransformer transformer = (AbstractStatementTransformer) member.transformer;
+
+                if (transformer.matches(statement)) {
+                    transformed = true;
+                    transformer.rewrite(statement);
+                    candidates = candidatesOf(statementIndex, statement);
+                }
+            }
+        }
+
+        /*
+         * Every expression transformer is applied in order to the
+         * same node. Those transformers not matching the node will
+         * keep looking for candidates among the node children. In
+         * order to keep the declared order, whenever a transformer
+         * matches, the transformers declared before it that didn't
+         * match finish their work over the node children first.
+         */
+        @Override
+        public Expression transform(final Expression expression) {
+            if (expression == null || expressions.isEmpty()) {
+                return expression;
+            }
+
+            final int size = expressions.size();
+            final BitSet candidates = candidatesOf(expressionIndex, expression);
+            int firstMatch = 0;
+
+            while (firstMatch < size && !matches(expressions.get(firstMatch), expression, candidates)) {
+                firstMatch++;
+            }
+
+            if (firstMatch == size) {
+                return descend(expression, expressions);
+            }
+
+            Expression current = expression;
+            transformed = true;
+
+            if (firstMatch > 0) {
+                current = descend(current, expressions.subList(0, firstMatch));
+            }
+
+            current = transformer(expressions.get(firstMatch)).rewrite(current);
+
+            final List<Member> pending = new ArrayList<>();
+            Expression indexed = current;
+            BitSet currentCandidates = candidatesOf(expressionIndex, current);
+
+            for (int i = firstMatch + 1; i < size && current != null; i++) {
+                final Member member = expressions.get(i);
+
+                if (current != indexed) {
+                    indexed = current;
+                    currentCandidates = candidatesOf(expressionIndex, current);
+                }
+
+                if (matches(member, current, currentCandidates)) {
+                    if (!pending.isEmpty()) {
+                        current = descend(current, new ArrayList<>(pending));
+                        pending.clear();
+                    }
+                    current = transformer(member).rewrite(current);
+                } else {
+                    pending.add(member);
+                }
+            }
+
+            return current == null || pending.isEmpty() ? current : descend(current, pending);
+        }
+
+        private boolean matches(final Member member, final Expression expression, final BitSet candidates) {
+            member.transformer.countVisit();
+
+            if (candidates != null && !candidates.get(member.position)) {
+                savedChecks++;
+                return false;
+            }
+
+            return transformer(member).matches(expression);
+        }
+
+        private static AbstractExpressionTransformer transformer(final Member member) {
+            return (AbstractExpressionTransformer) member.transformer;
+        }
+
+        private Expression descend(final Expression expression, final List<Member> walkers) {
+            final List<Member> savedStatements = statements;
+            final List<Member> savedExpressions = expressions;
+
+            statements = Collections.emptyList();
+            expressions = walkers;
+
+            try {
+                final Expression result = copyOnWrite ?
+                    CopyOnWrite.transformChildren(expression, this) :
+                    expression.transformExpression(this);
+
+                if (result == expression) {
+                    preserved++;
+                } else {
+                    reallocated++;
+                }
+
+                return result;
+            } finally {
+                statements = savedStatements;
+                expressions = savedExpressions;
+            }
+        }
+    }
+}
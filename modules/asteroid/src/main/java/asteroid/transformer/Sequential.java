@@ -0,0 +1,31 @@
+package asteroid.transformer;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link Transformer} as not safe to be applied in parallel
+ * (see {@link AbstractTransformer} thread safety contract).
+ * <br><br>
+ * When a parallel {@link asteroid.AbstractGlobalTransformation}
+ * contains any transformer annotated with {@link Sequential}, all
+ * class nodes will be transformed sequentially.
+ *
+ * <pre class="inner"><code>
+ * {@literal @}Sequential
+ * class AddImportTransformer extends AbstractClassNodeTransformer {
+ *     // modifies the module, shared by all class nodes
+ * }
+ * </code></pre>
+ *
+ * @since 0.6.0
+ * @see asteroid.AbstractGlobalTransformation#isParallel()
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Sequential {
+}
@@ -0,0 +1,53 @@
+package asteroid.transformer;
+
+import org.codehaus.groovy.control.SourceUnit;
+
+/**
+ * Creates {@link Transformer} instances for a given {@link
+ * SourceUnit}. A {@link asteroid.AbstractGlobalTransformation} uses
+ * factories to create the transformers it applies to every class
+ * node, that way looking for the right constructor is done only once
+ * and not every time a new transformer is needed.
+ * <br><br>
+ * Because it's a functional interface, in Groovy a closure could be
+ * used as a factory:
+ *
+ * <pre class="inner"><code>
+ * TransformerFactory factory = { SourceUnit su {@literal ->} new AddPropertyToInnerClass(su) }
+ * </code></pre>
+ *
+ * @param <T> the type of the transformer created
+ * @since 0.6.0
+ * @see asteroid.AbstractGlobalTransformation#getTransformerFactories()
+ */
+@FunctionalInterface
+public interface TransformerFactory<T extends Transformer> {
+
+    /**
+     * Creates a new transformer instance
+     *
+     * @param sourceUnit the source unit the transformer will be applied to
+     * @return a new transformer instance
+     * @since 0.6.0
+     */
+    T create(SourceUnit sourceUnit);
+
+    /**
+     * Returns a factory creating instances of the class passed as
+     * parameter. The class should declare a constructor receiving
+     * a {@link SourceUnit}. Factories are cached, so asking twice for
+     * the factory of the same class returns the same instance.
+     *
+     * @param <T> the type of the transformer
+     * @param type the class of the transformer
+     * @return a factory creating instances of the type passed as
+     * parameter
+     * @throws IllegalArgumentException if the class doesn't have a
+     * constructor receiving a {@link SourceUnit}
+     * @since 0.6.0
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Transformer> TransformerFactory<T> of(final Class<T> type) {
+        return (TransformerFactory<T>) ConstructorTransformerFactory.FACTORIES.get(type);
+    }
+}
@@ -0,0 +1,345 @@
+package asteroid.utils;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.BooleanExpression;
+import org.codehaus.groovy.ast.expr.CastExpression;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.ConstantExpression;
+import org.codehaus.groovy.ast.expr.ConstructorCallExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.FieldExpression;
+import org.codehaus.groovy.ast.expr.GStringExpression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.ast.expr.MapEntryExpression;
+import org.codehaus.groovy.ast.expr.MapExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.MethodPointerExpression;
+import org.codehaus.groovy.ast.expr.NotExpression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.RangeExpression;
+import org.codehaus.groovy.ast.expr.StaticMethodCallExpression;
+import org.codehaus.groovy.ast.expr.TernaryExpression;
+import org.codehaus.groovy.ast.expr.UnaryMinusExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.AssertStatement;
+import org.codehaus.groovy.ast.stmt.BreakStatement;
+import org.codehaus.groovy.ast.stmt.CaseStatement;
+import org.codehaus.groovy.ast.stmt.CatchStatement;
+import org.codehaus.groovy.ast.stmt.ContinueStatement;
+import org.codehaus.groovy.ast.stmt.DoWhileStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ForStatement;
+import org.codehaus.groovy.ast.stmt.IfStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.stmt.SwitchStatement;
+import org.codehaus.groovy.ast.stmt.SynchronizedStatement;
+import org.codehaus.groovy.ast.stmt.ThrowStatement;
+import org.codehaus.groovy.ast.stmt.TryCatchStatement;
+import org.codehaus.groovy.ast.stmt.WhileStatement;
+import org.codehaus.groovy.syntax.Types;
+
+/**
+ * Estimates the size, in bytes, of the bytecode generated for a
+ * given statement or expression. The estimation is based on the
+ * instructions Groovy usually generates for dynamically dispatched
+ * code (call site lookups, boxing, runtime operators...) and it's
+ * meant to compare it with JIT limits, not to be exact.
+ * <br><br>
+ * Closures count as the instantiation of the closure class, their
+ * code is generated in a different class.
+ *
+ * @since 0.6.0
+ */
+final class BytecodeEstimator extends CodeVisitorSupport {
+
+    private static final int CALL = 12;
+    private static final int PROPERTY = 10;
+    private static final int OPERATOR = 10;
+
+    private int size;
+
+    private BytecodeEstimator() {
+        // only through estimate
+    }
+
+    /**
+     * Returns the estimated bytecode size of the node passed as
+     * parameter
+     *
+     * @param node a statement or an expression
+     * @return the estimated size in bytes
+     * @since 0.6.0
+     */
+    static int estimate(final ASTNode node) {
+        final BytecodeEstimator estimator = new BytecodeEstimator();
+
+        if (node != null) {
+            node.visit(estimator);
+        }
+
+        return estimator.size;
+    }
+
+    @Override
+    public void visitExpressionStatement(final ExpressionStatement statement) {
+        size += 1;
+        super.visitExpressionStatement(statement);
+    }
+
+    @Override
+    public void visitReturnStatement(final ReturnStatement statement) {
+        size += 2;
+        super.visitReturnStatement(statement);
+    }
+
+    @Override
+    public void visitIfElse(final IfStatement statement) {
+        size += 6;
+        super.visitIfElse(statement);
+    }
+
+    @Override
+    public void visitForLoop(final ForStatement statement) {
+        size += 20;
+        super.visitForLoop(statement);
+    }
+
+    @Override
+    public void visitWhileLoop(final WhileStatement statement) {
+        size += 6;
+        super.visitWhileLoop(statement);
+    }
+
+    @Override
+    public void visitDoWhileLoop(final DoWhileStatement statement) {
+        size += 6;
+        super.visitDoWhileLoop(statement);
+    }
+
+    @Override
+    public void visitTryCatchFinally(final TryCatchStatement statement) {
+        size += 8;
+        super.visitTryCatchFinally(statement);
+
+        // finally blocks are copied at every exit of the try and
+        // catch blocks
+        final Statement finallyStatement = statement.getFinallyStatement();
+
+        if (finallyStatement != null) {
+            for (final CatchStatement ignored : statement.getCatchStatements()) {
+                finallyStatement.visit(this);
+            }
+        }
+    }
+
+    @Override
+    public void visitCatchStatement(final CatchStatement statement) {
+        size += 6;
+        super.visitCatchStatement(statement);
+    }
+
+    @Override
+    public void visitSwitch(final SwitchStatement statement) {
+        size += 8;
+        super.visitSwitch(statement);
+    }
+
+    @Override
+    public void visitCaseStatement(final CaseStatement statement) {
+        size += CALL;
+        super.visitCaseStatement(statement);
+    }
+
+    @Override
+    public void visitBreakStatement(final BreakStatement statement) {
+        size += 3;
+        super.visitBreakStatement(statement);
+    }
+
+    @Override
+    public void visitContinueStatement(final ContinueStatement statement) {
+        size += 3;
+        super.visitContinueStatement(statement);
+    }
+
+    @Override
+    public void visitThrowStatement(final ThrowStatement statement) {
+        size += 4;
+        super.visitThrowStatement(statement);
+    }
+
+    @Override
+    public void visitAssertStatement(final AssertStatement statement) {
+        size += 30;
+        super.visitAssertStatement(statement);
+    }
+
+    @Override
+    public void visitSynchronizedStatement(final SynchronizedStatement statement) {
+        size += 16;
+        super.visitSynchronizedStatement(statement);
+    }
+
+    @Override
+    public void visitMethodCallExpression(final MethodCallExpression call) {
+        size += CALL;
+        super.visitMethodCallExpression(call);
+    }
+
+    @Override
+    public void visitStaticMethodCallExpression(final StaticMethodCallExpression call) {
+        size += CALL;
+        super.visitStaticMethodCallExpression(call);
+    }
+
+    @Override
+    public void visitConstructorCallExpression(final ConstructorCallExpression call) {
+        size += CALL + 3;
+        super.visitConstructorCallExpression(call);
+    }
+
+    @Override
+    public void visitArgumentlistExpression(final ArgumentListExpression expression) {
+        size += expression.getExpressions().size();
+        super.visitArgumentlistExpression(expression);
+    }
+
+    @Override
+    public void visitBinaryExpression(final BinaryExpression expression) {
+        size += expression.getOperation().getType() == Types.ASSIGN ? 3 : OPERATOR;
+        super.visitBinaryExpression(expression);
+    }
+
+    @Override
+    public void visitDeclarationExpression(final DeclarationExpression expression) {
+        size += 3;
+        expression.getRightExpression().visit(this);
+    }
+
+    @Override
+    public void visitBooleanExpression(final BooleanExpression expression) {
+        size += 4;
+        super.visitBooleanExpression(expression);
+    }
+
+    @Override
+    public void visitNotExpression(final NotExpression expression) {
+        size += 6;
+        super.visitNotExpression(expression);
+    }
+
+    @Override
+    public void visitTernaryExpression(final TernaryExpression expression) {
+        size += 8;
+        super.visitTernaryExpression(expression);
+    }
+
+    @Override
+    public void visitPostfixExpression(final PostfixExpression expression) {
+        size += OPERATOR;
+        super.visitPostfixExpression(expression);
+    }
+
+    @Override
+    public void visitPrefixExpression(final PrefixExpression expression) {
+        size += OPERATOR;
+        super.visitPrefixExpression(expression);
+    }
+
+    @Override
+    public void visitUnaryMinusExpression(final UnaryMinusExpression expression) {
+        size += OPERATOR;
+        super.visitUnaryMinusExpression(expression);
+    }
+
+    @Override
+    public void visitCastExpression(final CastExpression expression) {
+        size += 8;
+        super.visitCastExpression(expression);
+    }
+
+    @Override
+    public void visitPropertyExpression(final PropertyExpression expression) {
+        size += PROPERTY;
+        super.visitPropertyExpression(expression);
+    }
+
+    @Override
+    public void visitAttributeExpression(final AttributeExpression expression) {
+        size += PROPERTY;
+        super.visitAttributeExpression(expression);
+    }
+
+    @Override
+    public void visitFieldExpression(final FieldExpression expression) {
+        size += 4;
+        super.visitFieldExpression(expression);
+    }
+
+    @Override
+    public void visitMethodPointerExpression(final MethodPointerExpression expression) {
+        size += CALL;
+        super.visitMethodPointerExpression(expression);
+    }
+
+    @Override
+    public void visitVariableExpression(final VariableExpression expression) {
+        size += 2;
+        super.visitVariableExpression(expression);
+    }
+
+    @Override
+    public void visitConstantExpression(final ConstantExpression expression) {
+        size += 3;
+        super.visitConstantExpression(expression);
+    }
+
+    @Override
+    public void visitClassExpression(final ClassExpression expression) {
+        size += 3;
+        super.visitClassExpression(expression);
+    }
+
+    @Override
+    public void visitGStringExpression(final GStringExpression expression) {
+        size += 16 + 4 * expression.getValues().size();
+        super.visitGStringExpression(expression);
+    }
+
+    @Override
+    public void visitListExpression(final ListExpression expression) {
+        size += 8 + 4 * expression.getExpressions().size();
+        super.visitListExpression(expression);
+    }
+
+    @Override
+    public void visitMapExpression(final MapExpression expression) {
+        size += 8;
+        super.visitMapExpression(expression);
+    }
+
+    @Override
+    public void visitMapEntryExpression(final MapEntryExpression expression) {
+        size += 4;
+        super.visitMapEntryExpression(expression);
+    }
+
+    @Override
+    public void visitRangeExpression(final RangeExpression expression) {
+        size += CALL;
+        super.visitRangeExpression(expression);
+    }
+
+    @Override
+    public void visitClosureExpression(final ClosureExpression expression) {
+        size += 16;
+    }
+}
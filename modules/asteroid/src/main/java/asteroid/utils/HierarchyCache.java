@@ -0,0 +1,185 @@
+package asteroid.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.groovy.ast.ClassNode;
+
+import asteroid.nodes.ClassNodeRegistry;
+
+/**
+ * Caches the results of {@link NodeUtils} hierarchy queries like
+ * {@link NodeUtils#isOrExtends(ClassNode, String)} or {@link
+ * NodeUtils#isOrImplements(ClassNode, String)} by the names of the
+ * child and parent types.
+ * <br><br>
+ * There's a cache per compilation, kept by the current {@link
+ * ClassNodeRegistry}, so results are only cached while a
+ * transformation is being applied. The cache is emptied every time a
+ * transformation starts or ends, so changes made between
+ * transformations, e.g. by Groovy's own transformations, are always
+ * seen. It's also emptied whenever {@link NodeUtils} changes the
+ * interfaces of a class. Only classes already resolved, or compiled
+ * in the current compilation, are cached.
+ * <br><br>
+ * <b>IMPORTANT</b>: If a transformation changes the super class or
+ * the interfaces of a class directly, e.g. calling {@link
+ * ClassNode#addInterface(ClassNode)}, it should call {@link
+ * #invalidate()} afterwards.
+ *
+ * @since 0.6.0
+ */
+public final class HierarchyCache {
+
+    /**
+     * Kind of hierarchy query
+     *
+     * @since 0.6.0
+     */
+    enum Relation {
+        EXTENDS,
+        EXTENDS_UNSAFE,
+        IMPLEMENTS
+    }
+
+    private final Map<String, Map<String, Boolean>> extendsResults = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Boolean>> extendsUnsafeResults = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Boolean>> implementsResults = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an empty cache. Normally you don't need to create
+     * instances, {@link ClassNodeRegistry} creates one per
+     * compilation
+     *
+     * @since 0.6.0
+     */
+    public HierarchyCache() {
+        // empty cache
+    }
+
+    /**
+     * Returns the cache of the current compilation if the child type
+     * can be cached
+     *
+     * @param child the type whose hierarchy is queried
+     * @return the current cache or null if there is no current
+     * compilation or the child type can't be cached
+     * @since 0.6.0
+     */
+    static HierarchyCache of(final ClassNode child) {
+        final ClassNodeRegistry registry = ClassNodeRegistry.current();
+
+        if (registry == null) {
+            return null;
+        }
+
+        final ClassNode node = child.redirect();
+
+        return node.isResolved() || node.isPrimaryClassNode() ? registry.getHierarchyCache() : null;
+    }
+
+    /**
+     * Returns the cached result of a query
+     *
+     * @param relation the kind of query
+     * @param child the type whose hierarchy is queried
+     * @param parent the qualified name of the parent type
+     * @return the cached result or null if the query was not cached
+     * @since 0.6.0
+     */
+    Boolean find(final Relation relation, final ClassNode child, final String parent) {
+        final Map<String, Boolean> byParent = resultsOf(relation).get(child.getName());
+        final Boolean result = byParent == null ? null : byParent.get(parent);
+
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Caches the result of a query
+     *
+     * @param relation the kind of query
+     * @param child the type whose hierarchy is queried
+     * @param parent the qualified name of the parent type
+     * @param result the result of the query
+     * @return the result passed as parameter
+     * @since 0.6.0
+     */
+    Boolean put(final Relation relation, final ClassNode child, final String parent, final Boolean result) {
+        final Map<String, Map<String, Boolean>> results = resultsOf(relation);
+        Map<String, Boolean> byParent = results.get(child.getName());
+
+        if (byParent == null) {
+            final Map<String, Boolean> created = new ConcurrentHashMap<>();
+            byParent = results.putIfAbsent(child.getName(), created);
+            byParent = byParent == null ? created : byParent;
+        }
+
+        byParent.put(parent, result);
+
+        return result;
+    }
+
+    /**
+     * Removes all cached results. Hits and misses are not reset.
+     *
+     * @since 0.6.0
+     */
+    public void invalidate() {
+        extendsResults.clear();
+        extendsUnsafeResults.clear();
+        implementsResults.clear();
+    }
+
+    /**
+     * Returns how many queries have been answered from the cache
+     *
+     * @return the number of cache hits
+     * @since 0.6.0
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns how many cacheable queries had to be computed
+     *
+     * @return the number of cache misses
+     * @since 0.6.0
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the ratio of queries answered from the cache
+     *
+     * @return a number between 0 and 1, 0 if there were no queries
+     * @since 0.6.0
+     */
+    public double getHitRate() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Map<String, Map<String, Boolean>> resultsOf(final Relation relation) {
+        switch (relation) {
+            case EXTENDS:
+                return extendsResults;
+            case EXTENDS_UNSAFE:
+                return extendsUnsafeResults;
+            default:
+                return implementsResults;
+        }
+    }
+}
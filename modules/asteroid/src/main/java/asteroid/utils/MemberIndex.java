@@ -0,0 +1,273 @@
+package asteroid.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+
+/**
+ * Index of the members declared by a {@link ClassNode}: fields and
+ * properties by name, methods by name and erased parameter types,
+ * and annotations by simple name.
+ * <br><br>
+ * The index is opt-in. It's created with {@link
+ * NodeUtils#indexMembers(ClassNode)} and kept in the class node
+ * metadata. From then on {@link NodeUtils} lookups use the index
+ * instead of scanning the class members, and {@link NodeUtils}
+ * <b>add*</b> methods keep it up to date.
+ * <br><br>
+ * Members added, or removed, without using {@link NodeUtils} are not
+ * indexed right away. The index compares the number of members it
+ * knows with the number of members of the class on every lookup, and
+ * it's rebuilt whenever they don't match. Results of {@link
+ * NodeUtils#hasFieldOfType(ClassNode, String)} are cached as well,
+ * until the class fields change.
+ * <br><br>
+ * <b>IMPORTANT</b>: Like the class node itself the index is not
+ * thread safe.
+ *
+ * @since 0.6.0
+ */
+public final class MemberIndex {
+
+    private static final String KEY = MemberIndex.class.getName();
+
+    private final ClassNode classNode;
+    private final Map<String, FieldNode> fields = new HashMap<>();
+    private final Map<String, MethodNode> methods = new HashMap<>();
+    private final Map<String, PropertyNode> properties = new HashMap<>();
+    private final Map<String, List<AnnotationNode>> annotations = new HashMap<>();
+    private final Map<String, Boolean> fieldsOfType = new HashMap<>();
+
+    private int fieldCount;
+    private int methodCount;
+    private int propertyCount;
+    private int annotationCount;
+
+    private MemberIndex(final ClassNode classNode) {
+        this.classNode = classNode;
+        this.rebuild();
+    }
+
+    /**
+     * Returns the index of the class node passed as parameter,
+     * creating it if it didn't exist
+     *
+     * @param classNode the indexed class
+     * @return the index of the class members
+     * @since 0.6.0
+     */
+    static MemberIndex of(final ClassNode classNode) {
+        final MemberIndex existing = find(classNode);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final MemberIndex index = new MemberIndex(classNode.redirect());
+        classNode.redirect().setNodeMetaData(KEY, index);
+
+        return index;
+    }
+
+    /**
+     * Returns the index of the class node passed as parameter
+     *
+     * @param classNode the indexed class
+     * @return the index of the class members or null if the class
+     * members are not indexed
+     * @since 0.6.0
+     */
+    static MemberIndex find(final ClassNode classNode) {
+        return classNode.redirect().getNodeMetaData(KEY);
+    }
+
+    /**
+     * Removes the index of the class node passed as parameter, if any
+     *
+     * @param classNode the indexed class
+     * @since 0.6.0
+     */
+    static void remove(final ClassNode classNode) {
+        classNode.redirect().removeNodeMetaData(KEY);
+    }
+
+    /**
+     * Returns the first field declared with the given name
+     *
+     * @param name the name of the field
+     * @return the field or null if there is no field with that name
+     * @since 0.6.0
+     */
+    public FieldNode getField(final String name) {
+        refresh();
+
+        return fields.get(name);
+    }
+
+    /**
+     * Returns the method declared with the given name and parameter
+     * types, the same method {@link ClassNode#getDeclaredMethod(String,
+     * Parameter[])} would return
+     *
+     * @param name the name of the method
+     * @param parameters the method parameters, only their types are
+     * taken into account
+     * @return the method or null if there is no method with that
+     * signature
+     * @since 0.6.0
+     */
+    public MethodNode getMethod(final String name, final Parameter... parameters) {
+        refresh();
+
+        return methods.get(signatureOf(name, parameters));
+    }
+
+    /**
+     * Returns the property declared with the given name
+     *
+     * @param name the name of the property
+     * @return the property or null if there is no property with that
+     * name
+     * @since 0.6.0
+     */
+    public PropertyNode getProperty(final String name) {
+        refresh();
+
+        return properties.get(name);
+    }
+
+    /**
+     * Returns the annotations of the class with the given simple name
+     * (the name of the annotation type without the package)
+     *
+     * @param simpleName the simple name of the annotation type
+     * @return a list with the annotations found, it may be empty
+     * @since 0.6.0
+     */
+    public List<AnnotationNode> getAnnotations(final String simpleName) {
+        refresh();
+
+        final List<AnnotationNode> found = annotations.get(simpleName);
+
+        return found == null ? Collections.<AnnotationNode>emptyList() : Collections.unmodifiableList(found);
+    }
+
+    Boolean getFieldOfType(final String qualifiedName) {
+        refresh();
+
+        return fieldsOfType.get(qualifiedName);
+    }
+
+    void putFieldOfType(final String qualifiedName, final Boolean hasFieldOfType) {
+        fieldsOfType.put(qualifiedName, hasFieldOfType);
+    }
+
+    void added(final FieldNode fieldNode) {
+        fieldCount++;
+        fieldsOfType.clear();
+        indexField(fieldNode);
+    }
+
+    void added(final MethodNode methodNode) {
+        methodCount++;
+        indexMethod(methodNode);
+    }
+
+    void added(final PropertyNode propertyNode) {
+        propertyCount++;
+        indexProperty(propertyNode);
+    }
+
+    private void refresh() {
+        if (fieldCount != classNode.getFields().size() ||
+            methodCount != classNode.getMethods().size() ||
+            propertyCount != classNode.getProperties().size() ||
+            annotationCount != classNode.getAnnotations().size()) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        fields.clear();
+        methods.clear();
+        properties.clear();
+        annotations.clear();
+        fieldsOfType.clear();
+
+        final List<FieldNode> classFields = classNode.getFields();
+        final List<MethodNode> classMethods = classNode.getMethods();
+        final List<PropertyNode> classProperties = classNode.getProperties();
+        final List<AnnotationNode> classAnnotations = classNode.getAnnotations();
+
+        for (final FieldNode fieldNode : classFields) {
+            indexField(fieldNode);
+        }
+
+        for (final MethodNode methodNode : classMethods) {
+            indexMethod(methodNode);
+        }
+
+        for (final PropertyNode propertyNode : classProperties) {
+            indexProperty(propertyNode);
+        }
+
+        for (final AnnotationNode annotationNode : classAnnotations) {
+            final String simpleName = annotationNode.getClassNode().getNameWithoutPackage();
+
+            List<AnnotationNode> byName = annotations.get(simpleName);
+
+            if (byName == null) {
+                byName = new ArrayList<>(1);
+                annotations.put(simpleName, byName);
+            }
+
+            byName.add(annotationNode);
+        }
+
+        fieldCount = classFields.size();
+        methodCount = classMethods.size();
+        propertyCount = classProperties.size();
+        annotationCount = classAnnotations.size();
+    }
+
+    private void indexField(final FieldNode fieldNode) {
+        if (!fields.containsKey(fieldNode.getName())) {
+            fields.put(fieldNode.getName(), fieldNode);
+        }
+    }
+
+    private void indexMethod(final MethodNode methodNode) {
+        final String signature = signatureOf(methodNode.getName(), methodNode.getParameters());
+
+        if (!methods.containsKey(signature)) {
+            methods.put(signature, methodNode);
+        }
+    }
+
+    private void indexProperty(final PropertyNode propertyNode) {
+        if (!properties.containsKey(propertyNode.getName())) {
+            properties.put(propertyNode.getName(), propertyNode);
+        }
+    }
+
+    private static String signatureOf(final String name, final Parameter... parameters) {
+        final StringBuilder signature = new StringBuilder(name).append('(');
+
+        if (parameters != null) {
+            for (final Parameter parameter : parameters) {
+                signature.append(parameter.getType().redirect().getName()).append(',');
+            }
+        }
+
+        return signature.append(')').toString();
+    }
+}
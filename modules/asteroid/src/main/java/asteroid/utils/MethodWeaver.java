@@ -0,0 +1,565 @@
+package asteroid.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CodeVisitorSupport;
+import org.codehaus.groovy.ast.ConstructorNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.BinaryExpression;
+import org.codehaus.groovy.ast.expr.ClosureExpression;
+import org.codehaus.groovy.ast.expr.DeclarationExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.PostfixExpression;
+import org.codehaus.groovy.ast.expr.PrefixExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.codehaus.groovy.ast.stmt.ExpressionStatement;
+import org.codehaus.groovy.ast.stmt.ReturnStatement;
+import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.ast.tools.GeneralUtils;
+import org.codehaus.groovy.syntax.Types;
+
+import asteroid.A;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.SourceIndex;
+
+/**
+ * Weaves before and after advice into a method. Instead of wrapping
+ * the method code in a new {@link BlockStatement} every time some
+ * advice is added, all the advice added to a method is kept in the
+ * method node metadata and merged, with the original code, in a
+ * single flattened block:
+ *
+ * <pre class="inner"><code>
+ * A.UTIL.NODE.weaver(methodNode)
+ *     .around(startTimer, stopTimer)
+ *     .before(checkArguments)
+ *     .weave()
+ * </code></pre>
+ *
+ * Advice added with {@link #before(Statement)} runs before any
+ * advice added previously, and advice added with {@link
+ * #after(Statement)} runs after any advice added previously, the
+ * same way nested blocks would.
+ * <br><br>
+ * Once merged, the size of the method bytecode is estimated. When it
+ * goes beyond the limit, by default HotSpot's <b>FreqInlineSize</b>
+ * ({@value #FREQ_INLINE_SIZE} bytes), the biggest advice, or the
+ * original code, is moved to a generated private method and replaced
+ * by a call to it, until the method fits the limit or there's
+ * nothing else that could be moved. Advice can only be moved when:
+ *
+ * <ul>
+ *     <li>It doesn't return from the method</li>
+ *     <li>It doesn't declare variables used by other advice or use
+ *     variables declared by other advice</li>
+ *     <li>It doesn't assign the method parameters</li>
+ * </ul>
+ *
+ * The original code can only be moved when there's no after advice
+ * and when it doesn't use variables declared by before advice.
+ * Constructors, abstract methods and methods of interfaces or traits
+ * are never outlined.
+ * <br><br>
+ * If the method code is changed without using the weaver, the new
+ * code is considered the original code from then on.
+ * <br><br>
+ * <b>IMPORTANT</b>: Like the method node itself the weaver is not
+ * thread safe.
+ *
+ * @since 0.6.0
+ */
+public final class MethodWeaver {
+
+    /**
+     * Default HotSpot's maximum bytecode size of a frequently
+     * executed method to be inlined
+     *
+     * @since 0.6.0
+     */
+    public static final int FREQ_INLINE_SIZE = 325;
+
+    /**
+     * Default HotSpot's maximum bytecode size of a method to be
+     * compiled by the JIT
+     *
+     * @since 0.6.0
+     */
+    public static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final String KEY = MethodWeaver.class.getName();
+
+    private final MethodNode methodNode;
+    private final LinkedList<Statement> before = new LinkedList<>();
+    private final List<Statement> after = new ArrayList<>();
+    private final Map<Statement, MethodNode> outlined = new IdentityHashMap<>();
+    private final List<MethodNode> helpers = new ArrayList<>();
+
+    private Statement code;
+    private List<Statement> woven;
+    private int sizeLimit = FREQ_INLINE_SIZE;
+
+    private MethodWeaver(final MethodNode methodNode) {
+        this.methodNode = methodNode;
+        this.code = methodNode.getCode();
+    }
+
+    /**
+     * Returns the weaver of the method passed as parameter, creating
+     * it if it didn't exist
+     *
+     * @param methodNode the woven method
+     * @return the weaver of the method
+     * @since 0.6.0
+     */
+    static MethodWeaver of(final MethodNode methodNode) {
+        final MethodWeaver existing = methodNode.getNodeMetaData(KEY);
+
+        if (existing != null) {
+            existing.synchronize();
+            return existing;
+        }
+
+        final MethodWeaver weaver = new MethodWeaver(methodNode);
+        methodNode.setNodeMetaData(KEY, weaver);
+
+        return weaver;
+    }
+
+    /**
+     * Adds a statement to be executed before the method code and
+     * before any advice added previously
+     *
+     * @param statement the statement to execute before
+     * @return the current weaver
+     * @since 0.6.0
+     */
+    public MethodWeaver before(final Statement statement) {
+        synchronize();
+        before.addFirst(statement);
+
+        return this;
+    }
+
+    /**
+     * Adds a statement to be executed after the method code and after
+     * any advice added previously
+     *
+     * @param statement the statement to execute after
+     * @return the current weaver
+     * @since 0.6.0
+     */
+    public MethodWeaver after(final Statement statement) {
+        synchronize();
+        after.add(statement);
+
+        return this;
+    }
+
+    /**
+     * Adds two statements to be executed around the method code and
+     * any advice added previously
+     *
+     * @param beforeStatement the statement to execute before
+     * @param afterStatement the statement to execute after
+     * @return the current weaver
+     * @since 0.6.0
+     */
+    public MethodWeaver around(final Statement beforeStatement, final Statement afterStatement) {
+        return before(beforeStatement).after(afterStatement);
+    }
+
+    /**
+     * Sets the maximum estimated bytecode size of the method, before
+     * moving advice to other methods
+     *
+     * @param sizeLimit the size in bytes, e.g. {@link
+     * #HUGE_METHOD_LIMIT} to only keep the method compilable by the
+     * JIT. It's {@link #FREQ_INLINE_SIZE} by default
+     * @return the current weaver
+     * @since 0.6.0
+     */
+    public MethodWeaver withSizeLimit(final int sizeLimit) {
+        this.sizeLimit = sizeLimit;
+
+        return this;
+    }
+
+    /**
+     * Merges the original code and all advice added so far in the
+     * method code, moving advice to private methods when the method
+     * is estimated to be bigger than the size limit
+     *
+     * @return the estimated bytecode size of the method once woven
+     * @since 0.6.0
+     */
+    public int weave() {
+        return weave(true);
+    }
+
+    /**
+     * Merges the original code and all advice added so far in the
+     * method code, without moving anything to other methods. Used by
+     * the {@link NodeUtils} helpers adding code to a method, as they
+     * never added methods to the class.
+     *
+     * @return the estimated bytecode size of the method once merged
+     * @since 0.6.0
+     */
+    int flatten() {
+        return weave(false);
+    }
+
+    private int weave(final boolean outlining) {
+        synchronize();
+
+        final List<Statement> parts = new ArrayList<>(before);
+
+        if (code != null) {
+            parts.add(code);
+        }
+
+        parts.addAll(after);
+
+        if (outlining && isOutliningAllowed()) {
+            outline(parts);
+        }
+
+        woven = new ArrayList<>(parts.size());
+
+        for (final Statement part : parts) {
+            woven.add(resolve(part));
+        }
+
+        methodNode.setCode(A.STMT.blockS(woven));
+        BytecodeReport.touched(methodNode);
+        SourceIndex.invalidate(methodNode);
+
+        return estimateSize();
+    }
+
+    /**
+     * Returns the estimated bytecode size of the method code
+     *
+     * @return the estimated size in bytes
+     * @since 0.6.0
+     */
+    public int estimateSize() {
+        return BytecodeEstimator.estimate(methodNode.getCode());
+    }
+
+    /**
+     * Returns the private methods generated so far to hold the
+     * advice, or the original code, moved out of the method
+     *
+     * @return a list of generated methods
+     * @since 0.6.0
+     */
+    public List<MethodNode> getOutlinedMethods() {
+        return Collections.unmodifiableList(helpers);
+    }
+
+    private void synchronize() {
+        final Statement current = methodNode.getCode();
+
+        if (woven == null || isWoven(current)) {
+            return;
+        }
+
+        code = current;
+        woven = null;
+        before.clear();
+        after.clear();
+    }
+
+    private boolean isWoven(final Statement current) {
+        return current instanceof BlockStatement &&
+            ((BlockStatement) current).getStatements().equals(woven);
+    }
+
+    private boolean isOutliningAllowed() {
+        final ClassNode classNode = methodNode.getDeclaringClass();
+
+        if (classNode == null ||
+            classNode.isInterface() ||
+            methodNode instanceof ConstructorNode ||
+            methodNode.isAbstract() ||
+            methodNode.getName().startsWith("<")) {
+            return false;
+        }
+
+        for (final AnnotationNode annotation : classNode.getAnnotations()) {
+            if ("Trait".equals(annotation.getClassNode().getNameWithoutPackage())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void outline(final List<Statement> parts) {
+        final Set<String> parameters = new HashSet<>();
+
+        for (final Parameter parameter : methodNode.getParameters()) {
+            parameters.add(parameter.getName());
+        }
+
+        final Set<String> declared = new HashSet<>();
+
+        for (final Statement part : parts) {
+            if (part != code) {
+                declared.addAll(Usage.of(part, parameters).declaredAtTop);
+            }
+        }
+
+        final int callSize = BytecodeEstimator.estimate(callOf(code, "call"));
+        int size = estimate(parts);
+
+        while (size > sizeLimit) {
+            final Statement candidate = findBiggestCandidate(parts, parameters, declared, callSize);
+
+            if (candidate == null) {
+                return;
+            }
+
+            outlined.put(candidate, createHelper(candidate));
+            size = estimate(parts);
+        }
+    }
+
+    private Statement findBiggestCandidate(final List<Statement> parts,
+                                           final Set<String> parameters,
+                                           final Set<String> declared,
+                                           final int callSize) {
+        Statement candidate = null;
+        int candidateSize = callSize;
+
+        for (final Statement part : parts) {
+            final int partSize = BytecodeEstimator.estimate(part);
+
+            if (partSize > candidateSize &&
+                !outlined.containsKey(part) &&
+                isMovable(part, parameters, declared)) {
+                candidate = part;
+                candidateSize = partSize;
+            }
+        }
+
+        return candidate;
+    }
+
+    private boolean isMovable(final Statement part, final Set<String> parameters, final Set<String> declared) {
+        final Usage usage = Usage.of(part, parameters);
+
+        if (!Collections.disjoint(usage.referenced, declared)) {
+            return false;
+        }
+
+        if (part == code) {
+            return after.isEmpty();
+        }
+
+        return !usage.returns && !usage.assignsParameters && usage.declaredAtTop.isEmpty();
+    }
+
+    private int estimate(final List<Statement> parts) {
+        int size = 0;
+
+        for (final Statement part : parts) {
+            size += BytecodeEstimator.estimate(resolve(part));
+        }
+
+        return size;
+    }
+
+    private Statement resolve(final Statement part) {
+        final MethodNode helper = outlined.get(part);
+
+        return helper == null ? part : callOf(part, helper.getName());
+    }
+
+    private Statement callOf(final Statement part, final String helperName) {
+        final Parameter[] parameters = methodNode.getParameters();
+        final List<Expression> args = new ArrayList<>(parameters.length);
+
+        for (final Parameter parameter : parameters) {
+            args.add(GeneralUtils.varX(parameter));
+        }
+
+        final Expression call = methodNode.isStatic() ?
+            GeneralUtils.callX(A.EXPR.classX(methodNode.getDeclaringClass()), helperName, new ArgumentListExpression(args)) :
+            GeneralUtils.callThisX(helperName, new ArgumentListExpression(args));
+
+        if (part == code && !ClassHelper.VOID_TYPE.equals(methodNode.getReturnType())) {
+            return A.STMT.returnS(call);
+        }
+
+        return A.STMT.stmt(call);
+    }
+
+    private MethodNode createHelper(final Statement part) {
+        final ClassNode classNode = methodNode.getDeclaringClass();
+        final String prefix = methodNode.getName() + (part == code ? "$body" : "$advice");
+
+        int index = helpers.size();
+        String name = prefix + index;
+
+        while (!classNode.getDeclaredMethods(name).isEmpty()) {
+            index++;
+            name = prefix + index;
+        }
+
+        final MethodNode helper = new MethodNode(name,
+                                                 A.ACC.ACC_PRIVATE | (methodNode.isStatic() ? A.ACC.ACC_STATIC : 0),
+                                                 part == code ? methodNode.getReturnType() : ClassHelper.VOID_TYPE,
+                                                 copyOf(methodNode.getParameters()),
+                                                 methodNode.getExceptions(),
+                                                 part);
+
+        helper.setGenericsTypes(methodNode.getGenericsTypes());
+        helper.setSourcePosition(methodNode);
+
+        A.UTIL.NODE.addGeneratedMethod(classNode, helper);
+        helpers.add(helper);
+
+        return helper;
+    }
+
+    private static Parameter[] copyOf(final Parameter... parameters) {
+        final Parameter[] copies = new Parameter[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            copies[i] = new Parameter(parameters[i].getOriginType(), parameters[i].getName());
+            copies[i].setModifiers(parameters[i].getModifiers());
+            copies[i].setClosureSharedVariable(parameters[i].isClosureSharedVariable());
+        }
+
+        return copies;
+    }
+
+    /**
+     * How a given statement uses local variables and parameters
+     */
+    private static final class Usage extends CodeVisitorSupport {
+
+        private final Set<String> parameters;
+        private final Set<String> declared = new HashSet<>();
+        private final Set<String> declaredAtTop = new HashSet<>();
+        private final Set<String> referenced = new HashSet<>();
+
+        private boolean returns;
+        private boolean assignsParameters;
+        private int closures;
+
+        private Usage(final Set<String> parameters) {
+            this.parameters = parameters;
+        }
+
+        private static Usage of(final Statement statement, final Set<String> parameters) {
+            final Usage usage = new Usage(parameters);
+
+            statement.visit(usage);
+            usage.referenced.removeAll(usage.declared);
+
+            if (statement instanceof ExpressionStatement) {
+                final Expression expression = ((ExpressionStatement) statement).getExpression();
+
+                if (expression instanceof DeclarationExpression) {
+                    usage.declaredAtTop.addAll(namesOf((DeclarationExpression) expression));
+                }
+            }
+
+            return usage;
+        }
+
+        private static List<String> namesOf(final DeclarationExpression expression) {
+            final List<String> names = new ArrayList<>();
+
+            if (expression.isMultipleAssignmentDeclaration()) {
+                for (final Expression variable : expression.getTupleExpression().getExpressions()) {
+                    names.add(((VariableExpression) variable).getName());
+                }
+            } else {
+                names.add(expression.getVariableExpression().getName());
+            }
+
+            return names;
+        }
+
+        @Override
+        public void visitDeclarationExpression(final DeclarationExpression expression) {
+            declared.addAll(namesOf(expression));
+            expression.getRightExpression().visit(this);
+        }
+
+        @Override
+        public void visitBinaryExpression(final BinaryExpression expression) {
+            if (Types.ofType(expression.getOperation().getType(), Types.ASSIGNMENT_OPERATOR)) {
+                checkAssigned(expression.getLeftExpression());
+            }
+
+            super.visitBinaryExpression(expression);
+        }
+
+        @Override
+        public void visitPrefixExpression(final PrefixExpression expression) {
+            checkAssigned(expression.getExpression());
+            super.visitPrefixExpression(expression);
+        }
+
+        @Override
+        public void visitPostfixExpression(final PostfixExpression expression) {
+            checkAssigned(expression.getExpression());
+            super.visitPostfixExpression(expression);
+        }
+
+        @Override
+        public void visitVariableExpression(final VariableExpression expression) {
+            referenced.add(expression.getName());
+        }
+
+        @Override
+        public void visitReturnStatement(final ReturnStatement statement) {
+            if (closures == 0) {
+                returns = true;
+            }
+
+            super.visitReturnStatement(statement);
+        }
+
+        @Override
+        public void visitClosureExpression(final ClosureExpression expression) {
+            final Parameter[] closureParameters = expression.getParameters();
+
+            if (closureParameters != null) {
+                for (final Parameter parameter : closureParameters) {
+                    declared.add(parameter.getName());
+                }
+            }
+
+            closures++;
+            super.visitClosureExpression(expression);
+            closures--;
+        }
+
+        private void checkAssigned(final Expression expression) {
+            if (expression instanceof VariableExpression &&
+                parameters.contains(((VariableExpression) expression).getName()) &&
+                !declared.contains(((VariableExpression) expression).getName())) {
+                assignsParameters = true;
+            }
+        }
+    }
+}
@@ -6,9 +6,9 @@ import static org.codehaus.groovy.runtime.DefaultGroovyMethods.find;
 import static org.codehaus.groovy.runtime.DefaultGroovyMethods.first;
 import static org.codehaus.groovy.runtime.DefaultGroovyMethods.last;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.List;
-import java.util.HashMap;
 
 import groovy.lang.Closure;
 import groovy.transform.Generated;
@@ -17,6 +17,7 @@ import org.codehaus.groovy.ast.MethodNode;
 import org.codehaus.groovy.ast.AnnotationNode;
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.ImportNode;
 import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.ast.PropertyNode;
 import org.codehaus.groovy.ast.ClassHelper;
@@ -30,9 +31,16 @@ import org.codehaus.groovy.ast.expr.ClassExpression;
 import org.codehaus.groovy.ast.expr.ConstantExpression;
 import org.codehaus.groovy.ast.expr.PropertyExpression;
 import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.ResolveVisitor;
 import asteroid.A;
-import asteroid.utils.StatementUtils.Group;
+import asteroid.internal.BytecodeReport;
+import asteroid.internal.SourceIndex;
+import asteroid.internal.NodeCopier;
+import asteroid.utils.HierarchyCache.Relation;
+import asteroid.utils.StatementUtils.Label;
+import asteroid.utils.StatementUtils.LabelHandler;
 import asteroid.nodes.AnnotationNodeBuilder;
+import asteroid.nodes.ClassNodeRegistry;
 
 /**
  * General utility methods to deal with {@link ASTNode} instances
@@ -44,10 +52,23 @@ public class NodeUtils {
 
     public static final String ANNOTATION_VALUE = "value";
 
+    private static final String QUALIFIED_NAME = NodeUtils.class.getName() + ".qualifiedName";
+    private static final String UNKNOWN_NAME = "";
+    private static final char DOT = '.';
+    private static final char DOLLAR = '$';
+
     private static final AnnotationNode GENERATED = AnnotationNodeBuilder
         .annotation(Generated.class)
         .build();
 
+    private static final Map<String, LabelHandler> CHECK_HANDLERS =
+        Collections.<String, LabelHandler>singletonMap("check", new LabelHandler() {
+            @Override
+            public Statement handle(final Label label, final Statement stmt) {
+                return createAssertStatement(label, stmt);
+            }
+        });
+
     /**
      * Adds checks to the method node passed as parameter
      *
@@ -55,35 +76,23 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public void addCheckTo(final MethodNode methodNode) {
-        final BlockStatement blockStmt   = A.UTIL.NODE.getCodeBlock(methodNode);
-        final List<Group> groups         = A.UTIL.STMT.groupStatementsByLabel(blockStmt);
-        final List<Statement> statements = A.UTIL.STMT.applyToStatementsByLabelFlatten(groups, getMappings());
+        final BlockStatement blockStmt = A.UTIL.NODE.getCodeBlock(methodNode);
+        final BlockStatement rewritten = A.UTIL.STMT.rewriteByLabel(blockStmt, CHECK_HANDLERS);
 
         // #TODO it will remove to enforce the use of checks
-        if (!groups.isEmpty()) {
-            methodNode.setCode(A.STMT.blockS(statements));
+        if (rewritten != blockStmt) {
+            methodNode.setCode(rewritten);
         }
     }
 
-    private Map<String, Closure<Statement>> getMappings() {
-        final Map<String, Closure<Statement>> mappings = new HashMap<String, Closure<Statement>>();
-        mappings.put("check", buildAssertionStmt());
-
-        return mappings;
-    }
-
-    private Closure<Statement> buildAssertionStmt() {
-        return new Closure<Statement>(null) {
-            public Statement doCall(final Group group, final ExpressionStatement stmt) {
-                return createAssertStatement(group, stmt);
-            }
-        };
-    }
+    private static Statement createAssertStatement(final Label label, final Statement stmt) {
+        if (!(stmt instanceof ExpressionStatement)) {
+            return stmt;
+        }
 
-    private Statement createAssertStatement(final Group group, final ExpressionStatement stmt) {
-        final Expression expression = group.label.expression;
+        final Expression expression = ((ExpressionStatement) stmt).getExpression();
 
-        return A.STMT.assertS(A.EXPR.boolX(stmt.getExpression()), A.UTIL.EXPR.getText(expression));
+        return A.STMT.assertS(A.EXPR.boolX(expression), A.UTIL.EXPR.getText(label.expression));
     }
 
     /**
@@ -197,6 +206,13 @@ public class NodeUtils {
         fieldNode.addAnnotation(GENERATED);
 
         classNode.addField(fieldNode);
+        SourceIndex.invalidate(classNode);
+
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        if (index != null) {
+            index.added(fieldNode);
+        }
     }
 
     /**
@@ -223,6 +239,13 @@ public class NodeUtils {
      */
     public void addProperty(final ClassNode classNode, final PropertyNode propertyNode) {
         classNode.addProperty(propertyNode);
+        SourceIndex.invalidate(classNode);
+
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        if (index != null) {
+            index.added(propertyNode);
+        }
     }
 
     /**
@@ -234,8 +257,8 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public void addPropertyIfNotPresent(final ClassNode classNode, final PropertyNode propertyNode) {
-        if (!classNode.hasProperty(propertyNode.getName())) {
-            classNode.addProperty(propertyNode);
+        if (!hasProperty(classNode, propertyNode.getName())) {
+            addProperty(classNode, propertyNode);
         }
     }
 
@@ -248,6 +271,14 @@ public class NodeUtils {
      */
     public void addMethod(final ClassNode classNode, final MethodNode methodNode) {
         classNode.addMethod(methodNode);
+        BytecodeReport.touched(methodNode);
+        SourceIndex.invalidate(classNode);
+
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        if (index != null) {
+            index.added(methodNode);
+        }
     }
 
     /**
@@ -273,7 +304,7 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public void addMethodIfNotPresent(final ClassNode classNode, final MethodNode methodNode) {
-        if (!classNode.hasMethod(methodNode.getName(), methodNode.getParameters())) {
+        if (!hasMethod(classNode, methodNode)) {
             addMethod(classNode, methodNode);
         }
     }
@@ -288,11 +319,172 @@ public class NodeUtils {
      * @since 0.4.3
      */
     public void addGeneratedMethodIfNotPresent(final ClassNode classNode, final MethodNode methodNode) {
-        if (!classNode.hasMethod(methodNode.getName(), methodNode.getParameters())) {
+        if (!hasMethod(classNode, methodNode)) {
             addGeneratedMethod(classNode, methodNode);
         }
     }
 
+    /**
+     * Adds all fields passed as parameter, annotated with {@link
+     * Generated}, to the {@link ClassNode} passed as first argument
+     * ONLY if they weren't added before. Class members are indexed
+     * only once for all fields, see {@link #indexMembers(ClassNode)}
+     *
+     * @param classNode {@link ClassNode} to add the fields to
+     * @param fieldNodes fields to add to the class node
+     * @since 0.6.0
+     */
+    public void addAllGeneratedFieldsIfNotPresent(final ClassNode classNode, final List<FieldNode> fieldNodes) {
+        final boolean indexed = isMembersIndexed(classNode);
+
+        indexMembers(classNode);
+
+        try {
+            for (final FieldNode fieldNode : fieldNodes) {
+                addGeneratedFieldIfNotPresent(classNode, fieldNode);
+            }
+        } finally {
+            if (!indexed) {
+                removeMemberIndex(classNode);
+            }
+        }
+    }
+
+    /**
+     * Adds all properties passed as parameter to the {@link
+     * ClassNode} passed as first argument ONLY if they weren't added
+     * before. Class members are indexed only once for all
+     * properties, see {@link #indexMembers(ClassNode)}
+     *
+     * @param classNode the class we want to add the properties to
+     * @param propertyNodes the properties we want to add
+     * @since 0.6.0
+     */
+    public void addAllPropertiesIfNotPresent(final ClassNode classNode, final List<PropertyNode> propertyNodes) {
+        final boolean indexed = isMembersIndexed(classNode);
+
+        indexMembers(classNode);
+
+        try {
+            for (final PropertyNode propertyNode : propertyNodes) {
+                addPropertyIfNotPresent(classNode, propertyNode);
+            }
+        } finally {
+            if (!indexed) {
+                removeMemberIndex(classNode);
+            }
+        }
+    }
+
+    /**
+     * Adds all methods passed as parameter to the {@link ClassNode}
+     * passed as first argument ONLY if they weren't added
+     * before. Class members are indexed only once for all methods,
+     * see {@link #indexMembers(ClassNode)}
+     *
+     * @param classNode the class we want to add the methods to
+     * @param methodNodes the methods we want to add
+     * @since 0.6.0
+     */
+    public void addAllMethodsIfNotPresent(final ClassNode classNode, final List<MethodNode> methodNodes) {
+        addAllMethodsIfNotPresent(classNode, methodNodes, false);
+    }
+
+    /**
+     * Adds all methods passed as parameter, marked as {@link
+     * Generated}, to the {@link ClassNode} passed as first argument
+     * ONLY if they weren't added before. Class members are indexed
+     * only once for all methods, see {@link #indexMembers(ClassNode)}
+     *
+     * @param classNode the class we want to add the methods to
+     * @param methodNodes the methods we want to add
+     * @since 0.6.0
+     */
+    public void addAllGeneratedMethodsIfNotPresent(final ClassNode classNode, final List<MethodNode> methodNodes) {
+        addAllMethodsIfNotPresent(classNode, methodNodes, true);
+    }
+
+    private void addAllMethodsIfNotPresent(final ClassNode classNode, final List<MethodNode> methodNodes, final boolean generated) {
+        final boolean indexed = isMembersIndexed(classNode);
+
+        indexMembers(classNode);
+
+        try {
+            for (final MethodNode methodNode : methodNodes) {
+                if (generated) {
+                    addGeneratedMethodIfNotPresent(classNode, methodNode);
+                } else {
+                    addMethodIfNotPresent(classNode, methodNode);
+                }
+            }
+        } finally {
+            if (!indexed) {
+                removeMemberIndex(classNode);
+            }
+        }
+    }
+
+    /**
+     * Indexes the members of the {@link ClassNode} passed as
+     * parameter: fields and properties by name, methods by name and
+     * parameter types and annotations by simple name. From then on
+     * lookups like {@link #hasField(ClassNode, String)}, {@link
+     * #findFieldByName(ClassNode, String)} or {@link
+     * #addMethodIfNotPresent(ClassNode, MethodNode)} don't have to
+     * go through all class members, and members added with the
+     * <b>add*</b> methods of this class are added to the index as
+     * well.
+     * <br><br>
+     * It's worth indexing a class when adding, or looking for, many
+     * members, e.g. classes with hundreds of fields.
+     *
+     * @param classNode the class to index
+     * @return the index of the class members
+     * @since 0.6.0
+     */
+    public MemberIndex indexMembers(final ClassNode classNode) {
+        return MemberIndex.of(classNode);
+    }
+
+    /**
+     * Removes the members index of the {@link ClassNode} passed as
+     * parameter, if it was indexed
+     *
+     * @param classNode the indexed class
+     * @since 0.6.0
+     * @see #indexMembers(ClassNode)
+     */
+    public void removeMemberIndex(final ClassNode classNode) {
+        MemberIndex.remove(classNode);
+    }
+
+    /**
+     * Returns whether the members of the {@link ClassNode} passed as
+     * parameter are indexed or not
+     *
+     * @param classNode the class to check
+     * @return true if the class members are indexed, false otherwise
+     * @since 0.6.0
+     * @see #indexMembers(ClassNode)
+     */
+    public Boolean isMembersIndexed(final ClassNode classNode) {
+        return MemberIndex.find(classNode) != null;
+    }
+
+    private static boolean hasMethod(final ClassNode classNode, final MethodNode methodNode) {
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        return index == null ?
+            classNode.hasMethod(methodNode.getName(), methodNode.getParameters()) :
+            index.getMethod(methodNode.getName(), methodNode.getParameters()) != null;
+    }
+
+    private static boolean hasProperty(final ClassNode classNode, final String name) {
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        return index == null ? classNode.hasProperty(name) : index.getProperty(name) != null;
+    }
+
     /**
      * Makes the {@link ClassNode} to implement the interfaces passed
      * as arguments
@@ -311,6 +503,8 @@ public class NodeUtils {
             final ClassNode nextInterface = ClassHelper.make(clazz, false);
             classNode.addInterface(nextInterface);
         }
+
+        invalidateHierarchyCache();
     }
 
     /**
@@ -327,6 +521,8 @@ public class NodeUtils {
         for (final ClassNode nextInterface : interfaces) {
             classNode.addInterface(nextInterface);
         }
+
+        invalidateHierarchyCache();
     }
 
     /**
@@ -365,6 +561,12 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public AnnotationNode getAnnotationFrom(final ClassNode classNode, final String simpleName) {
+        final MemberIndex index = MemberIndex.find(classNode);
+
+        if (index != null) {
+            return find(index.getAnnotations(simpleName));
+        }
+
         return find(classNode.getAnnotations(), bySimpleName(simpleName));
     }
 
@@ -377,6 +579,143 @@ public class NodeUtils {
      */
     public void removeAnnotation(final AnnotatedNode annotated, final AnnotationNode annotation) {
         annotated.getAnnotations().remove(annotation);
+        SourceIndex.invalidate(annotated instanceof ClassNode ? (ClassNode) annotated : annotated.getDeclaringClass());
+    }
+
+    /**
+     * Returns the qualified name of the type of the annotation passed
+     * as parameter without resolving, or loading, the annotation
+     * class. When the type hasn't been resolved yet (e.g. in
+     * CONVERSION) the name is taken from the {@link ModuleNode}
+     * explicit imports (aliases included) and classes. The name
+     * found is kept in the annotation type node, so it's only looked
+     * for once.
+     *
+     * @param annotationNode the annotation
+     * @param module the module where the annotation is used, it may be null
+     * @return the qualified name of the annotation type, or null if
+     * it can't be known without resolving the type (e.g. it may come
+     * from a star import)
+     * @since 0.6.0
+     */
+    public String getQualifiedName(final AnnotationNode annotationNode, final ModuleNode module) {
+        final ClassNode type = annotationNode.getClassNode();
+
+        if (type.isResolved() || type.redirect() != type) {
+            return type.getName();
+        }
+
+        final String cached = type.getNodeMetaData(QUALIFIED_NAME);
+        if (cached != null) {
+            return UNKNOWN_NAME.equals(cached) ? null : cached;
+        }
+
+        final String qualifiedName = findQualifiedName(type.getName(), module);
+        type.setNodeMetaData(QUALIFIED_NAME, qualifiedName == null ? UNKNOWN_NAME : qualifiedName);
+
+        return qualifiedName;
+    }
+
+    /**
+     * Checks whether the annotation passed as parameter is of the
+     * type with the qualified name passed as second parameter. The
+     * annotation type is never resolved, nor loaded, so this method
+     * can be used in any compilation phase.
+     * <br><br>
+     * When the qualified name of the annotation type can't be known
+     * (see {@link #getQualifiedName(AnnotationNode, ModuleNode)}),
+     * the simple names are compared, and the package of the
+     * qualified name should be visible from the module: the module
+     * package, a star import or a Groovy default import.
+     *
+     * @param annotationNode the annotation
+     * @param qualifiedName the qualified name of the annotation type,
+     * e.g. "groovy.transform.ToString"
+     * @param module the module where the annotation is used, it may
+     * be null, then only simple names are compared
+     * @return true if the annotation is of the given type
+     * @since 0.6.0
+     */
+    public Boolean isAnnotationOfType(final AnnotationNode annotationNode, final String qualifiedName, final ModuleNode module) {
+        final String expected = qualifiedName.replace(DOLLAR, DOT);
+        final String found = getQualifiedName(annotationNode, module);
+
+        if (found != null) {
+            return found.replace(DOLLAR, DOT).equals(expected);
+        }
+
+        final String written = annotationNode.getClassNode().getName();
+
+        if (!simpleNameOf(expected).equals(written)) {
+            return false;
+        }
+
+        return module == null || isPackageVisible(packageOf(expected), module);
+    }
+
+    private static String findQualifiedName(final String name, final ModuleNode module) {
+        final int dot = name.indexOf(DOT);
+
+        if (module == null) {
+            return dot < 0 ? null : name;
+        }
+
+        final ImportNode imported = module.getImport(dot < 0 ? name : name.substring(0, dot));
+
+        if (imported != null) {
+            final String importedName = imported.getType().getName();
+            return dot < 0 ? importedName : importedName + name.substring(dot);
+        }
+
+        if (dot >= 0) {
+            return name;
+        }
+
+        for (final ClassNode classNode : module.getClasses()) {
+            if (classNode.getOuterClass() == null && classNode.getNameWithoutPackage().equals(name)) {
+                return classNode.getName();
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isPackageVisible(final String packageName, final ModuleNode module) {
+        final String modulePackage = module.getPackageName();
+
+        if (packageName.isEmpty()) {
+            return modulePackage == null;
+        }
+
+        if (packageName.equals(modulePackage)) {
+            return true;
+        }
+
+        for (final ImportNode starImport : module.getStarImports()) {
+            if (packageName.equals(starImport.getPackageName())) {
+                return true;
+            }
+        }
+
+        for (final String defaultImport : ResolveVisitor.DEFAULT_IMPORTS) {
+            if (packageName.equals(defaultImport)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String simpleNameOf(final String name) {
+        return name.substring(name.lastIndexOf(DOT) + 1);
+    }
+
+    /*
+     * Package names in the module and imports keep the last dot,
+     * e.g. "groovy.transform."
+     */
+    private static String packageOf(final String name) {
+        return name.substring(0, name.lastIndexOf(DOT) + 1);
     }
 
     private Closure<Boolean> bySimpleName(final String annotationName) {
@@ -399,6 +738,12 @@ public class NodeUtils {
      * @since 0.4.3
      */
     public Boolean hasField(final ClassNode node, final String fieldName) {
+        final MemberIndex index = MemberIndex.find(node);
+
+        if (index != null) {
+            return index.getField(fieldName) != null;
+        }
+
         final List<FieldNode> nodeFields = node.getFields();
         for (final FieldNode fieldNode: nodeFields) {
             if (fieldNode.getName().equals(fieldName)) {
@@ -419,6 +764,12 @@ public class NodeUtils {
      * @since 0.4.3
      */
     public FieldNode findFieldByName(final ClassNode node, final String name) {
+        final MemberIndex index = MemberIndex.find(node);
+
+        if (index != null) {
+            return index.getField(name);
+        }
+
         final List<FieldNode> nodeFields = node.getFields();
 
         for (final FieldNode fieldNode: nodeFields) {
@@ -442,6 +793,13 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean hasFieldOfType(final ClassNode node, final String qualifiedName) {
+        final MemberIndex index = MemberIndex.find(node);
+        final Boolean cached = index == null ? null : index.getFieldOfType(qualifiedName);
+
+        if (cached != null) {
+            return cached;
+        }
+
         final List<FieldNode> nodeFields = node.getFields();
         final Closure<Boolean> predicate = new Closure<Boolean>(null){
                 public Boolean doCall(final FieldNode fieldNode) {
@@ -449,7 +807,13 @@ public class NodeUtils {
                 }
             };
 
-        return any(nodeFields, predicate);
+        final Boolean result = any(nodeFields, predicate);
+
+        if (index != null) {
+            index.putFieldOfType(qualifiedName, result);
+        }
+
+        return result;
     }
 
     /**
@@ -475,7 +839,16 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrImplements(final ClassNode child, final Class parent) {
-        return GeneralUtils.isOrImplements(child, ClassHelper.make(parent,false));
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.IMPLEMENTS, child, parent.getName());
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Boolean result = GeneralUtils.isOrImplements(child, ClassHelper.make(parent,false));
+
+        return cache == null ? result : cache.put(Relation.IMPLEMENTS, child, parent.getName(), result);
     }
 
     /**
@@ -488,7 +861,16 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrImplements(final ClassNode child, final String parent) {
-        return GeneralUtils.isOrImplements(child, ClassHelper.make(parent));
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.IMPLEMENTS, child, parent);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Boolean result = GeneralUtils.isOrImplements(child, ClassHelper.make(parent));
+
+        return cache == null ? result : cache.put(Relation.IMPLEMENTS, child, parent, result);
     }
 
     /**
@@ -501,9 +883,17 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrExtends(final ClassNode child, final Class parent) {
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.EXTENDS, child, parent.getName());
+
+        if (cached != null) {
+            return cached;
+        }
+
         final ClassNode extendedType = ClassHelper.make(parent, false);
+        final Boolean result = child.equals(extendedType) || child.isDerivedFrom(extendedType);
 
-        return isOrExtends(child, extendedType);
+        return cache == null ? result : cache.put(Relation.EXTENDS, child, parent.getName(), result);
     }
 
     /**
@@ -516,7 +906,16 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrExtends(final ClassNode child, final ClassNode parent) {
-        return child.equals(parent) || child.isDerivedFrom(parent);
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.EXTENDS, child, parent.getName());
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Boolean result = child.equals(parent) || child.isDerivedFrom(parent);
+
+        return cache == null ? result : cache.put(Relation.EXTENDS, child, parent.getName(), result);
     }
 
     /**
@@ -529,7 +928,16 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrExtends(final ClassNode child, final String parent) {
-        return child.equals(parent) || child.isDerivedFrom(ClassHelper.make(parent));
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.EXTENDS, child, parent);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Boolean result = child.equals(parent) || child.isDerivedFrom(ClassHelper.make(parent));
+
+        return cache == null ? result : cache.put(Relation.EXTENDS, child, parent, result);
     }
 
     /**
@@ -543,11 +951,44 @@ public class NodeUtils {
      * @since 0.3.0
      */
     public Boolean isOrExtendsUnsafe(final ClassNode child, final ClassNode parent) {
-        return child.equals(parent)        ||
-               child.isDerivedFrom(parent) ||
-               child.getSuperClass()
-                   .getNameWithoutPackage()
-                   .equals(parent.getNameWithoutPackage());
+        final HierarchyCache cache = HierarchyCache.of(child);
+        final Boolean cached = cache == null ? null : cache.find(Relation.EXTENDS_UNSAFE, child, parent.getName());
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Boolean result = child.equals(parent)        ||
+                               child.isDerivedFrom(parent) ||
+                               child.getSuperClass()
+                                   .getNameWithoutPackage()
+                                   .equals(parent.getNameWithoutPackage());
+
+        return cache == null ? result : cache.put(Relation.EXTENDS_UNSAFE, child, parent.getName(), result);
+    }
+
+    /**
+     * Returns the cache used by hierarchy queries, like {@link
+     * #isOrExtends(ClassNode, String)}, in the current compilation.
+     * Call {@link HierarchyCache#invalidate()} after changing the
+     * super class or the interfaces of a class directly.
+     *
+     * @return the current {@link HierarchyCache} or null if there is
+     * no transformation being applied
+     * @since 0.6.0
+     */
+    public HierarchyCache getHierarchyCache() {
+        final ClassNodeRegistry registry = ClassNodeRegistry.current();
+
+        return registry == null ? null : registry.getHierarchyCache();
+    }
+
+    private void invalidateHierarchyCache() {
+        final HierarchyCache cache = getHierarchyCache();
+
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     /**
@@ -651,34 +1092,103 @@ public class NodeUtils {
     }
 
     /**
-     * Adds the statement passed as argument before the current method code
+     * Adds the statement passed as argument before the current method
+     * code. Since 0.6.0 the statement is merged with the advice added
+     * with {@link #weaver(MethodNode)}, but it's never moved to
+     * another method
      *
      * @param statement the statement to be executed before current code
      * @since 0.3.0
      */
     public void addBeforeCodeBlock(final MethodNode methodNode, final Statement statement) {
-        methodNode.setCode(A.STMT.blockS(statement, getCodeBlock(methodNode)));
+        weaver(methodNode).before(statement).flatten();
     }
 
     /**
-     * Adds the statement passed as argument after the current method code
+     * Adds the statement passed as argument after the current method
+     * code. Since 0.6.0 the statement is merged with the advice added
+     * with {@link #weaver(MethodNode)}, but it's never moved to
+     * another method
      *
      * @param statement the statement to be executed after current code
      * @since 0.3.0
      */
     public void addAfterCodeBlock(final MethodNode methodNode, final Statement statement) {
-        methodNode.setCode(A.STMT.blockS(getCodeBlock(methodNode), statement));
+        weaver(methodNode).after(statement).flatten();
     }
 
     /**
-     * Adds two different statements to be executed before and after the current
-     * method code
+     * Adds two different statements to be executed before and after
+     * the current method code. Since 0.6.0 the statements are merged
+     * with the advice added with {@link #weaver(MethodNode)}, but
+     * they're never moved to another method
      *
      * @param before to be executed before
      * @param after to be executed after
      * @since 0.3.0
      */
     public void addAroundCodeBlock(final MethodNode methodNode, final Statement before, final Statement after) {
-        methodNode.setCode(A.STMT.blockS(before, getCodeBlock(methodNode), after));
+        weaver(methodNode).around(before, after).flatten();
+    }
+
+    /**
+     * Returns the {@link MethodWeaver} of the method passed as
+     * parameter. The weaver merges all advice added to the method in
+     * a single block, and moves the biggest advice, or the original
+     * code, to private methods when the method bytecode is estimated
+     * to go beyond the JIT inlining limit.
+     *
+     * @param methodNode the method to add advice to
+     * @return the weaver of the method
+     * @since 0.6.0
+     */
+    public MethodWeaver weaver(final MethodNode methodNode) {
+        return MethodWeaver.of(methodNode);
+    }
+
+    /**
+     * Creates a deep copy of the node passed as parameter, so the
+     * copy could be modified, or added somewhere else in the AST,
+     * without affecting the original node. It supports statements,
+     * expressions and class members: methods, constructors, fields,
+     * properties and annotations.
+     * <br><br>
+     * Variables declared within the copied node are copied as well,
+     * and any reference to them in the copy points to the copies.
+     * Any other reference (types, fields, methods...) is shared. The
+     * copy keeps the source positions and node metadata of the
+     * original nodes.
+     * <br><br>
+     * The copy is done without recursion, so it can be used on long
+     * blocks or deeply nested expressions.
+     *
+     * @param node the node to copy
+     * @param <T> the type of the node
+     * @return a copy of the node. Copied members are not added to
+     * any class
+     * @throws IllegalArgumentException if the node type is not supported
+     * @since 0.6.0
+     */
+    public <T extends ASTNode> T deepCopy(final T node) {
+        return new NodeCopier().copyNode(node);
+    }
+
+    /**
+     * Creates a deep copy of the node passed as parameter. Works like
+     * {@link #deepCopy(ASTNode)} but lets you decide whether the
+     * copies should keep the source positions and node metadata of
+     * the original nodes or not.
+     *
+     * @param node the node to copy
+     * @param keepSourcePositions whether to keep source positions or not
+     * @param keepMetaData whether to keep node metadata or not
+     * @param <T> the type of the node
+     * @return a copy of the node. Copied members are not added to
+     * any class
+     * @throws IllegalArgumentException if the node type is not supported
+     * @since 0.6.0
+     */
+    public <T extends ASTNode> T deepCopy(final T node, final boolean keepSourcePositions, final boolean keepMetaData) {
+        return new NodeCopier(keepSourcePositions, keepMetaData).copyNode(node);
     }
 }
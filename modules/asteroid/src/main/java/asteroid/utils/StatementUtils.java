@@ -1,14 +1,11 @@
 package asteroid.utils;
 
-import static org.codehaus.groovy.runtime.DefaultGroovyMethods.inject;
-import static org.codehaus.groovy.runtime.DefaultGroovyMethods.last;
-import static asteroid.utils.InternalUtils.collect;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import asteroid.Expressions;
+import asteroid.Statements;
 import groovy.lang.Closure;
 import org.codehaus.groovy.ast.expr.ConstantExpression;
 import org.codehaus.groovy.ast.expr.Expression;
@@ -88,6 +85,26 @@ public final class StatementUtils {
         }
     }
 
+    /**
+     * Transforms the statements following a given label. Handlers are
+     * registered by label name in {@link
+     * #rewriteByLabel(BlockStatement, Map)}
+     *
+     * @since 0.6.0
+     */
+    public interface LabelHandler {
+
+        /**
+         * Transforms a statement found after the label
+         *
+         * @param label the label the statement belongs to
+         * @param statement the statement to transform
+         * @return the statement that should replace the original one
+         * @since 0.6.0
+         */
+        Statement handle(Label label, Statement statement);
+    }
+
     /**
      * Use this function to group expression statements found within a
      * given block statement. Statements will be group in {@link
@@ -99,33 +116,64 @@ public final class StatementUtils {
      * @since 0.1.5
      */
     public List<Group> groupStatementsByLabel(final BlockStatement blockStmt) {
-        return (List<Group>) inject(blockStmt.getStatements(), new ArrayList<Group>(), groupByLabel());
+        final List<Group> groups = new ArrayList<>();
+        Group currentGroup = null;
+
+        /* IMPORTANT: Statements not included in any label statement
+           will be discarded */
+        for (final Statement stmt : blockStmt.getStatements()) {
+            final Label label = extractLabelFrom(stmt);
+
+            if (label != null) {
+                currentGroup = new Group(label, new ArrayList<Statement>());
+                groups.add(currentGroup);
+            } else if (currentGroup != null) {
+                currentGroup.statements.add(stmt);
+            }
+        }
+
+        return groups;
     }
 
-    /*
-     * Creates a list of groups of statements by labels.
+    /**
+     * Walks the statements of a block only once, passing every
+     * statement following a label to the handler registered for that
+     * label name. Statements of labels without handler are kept as
+     * they are. Like {@link #groupStatementsByLabel(BlockStatement)}
+     * statements found before the first label, and labeled statements
+     * themselves, are discarded.
+     * <pre><code>
+     * check: 'is greater than'
+     * a > b
+     * </code></pre>
+     * With a handler registered for <b>check</b> the handler will
+     * receive the label <b>check</b> and the statement <b>a &gt; b</b>.
      *
-     * IMPORTANT: Statements not included in any label statement will
-     * be discarded.
+     * @param blockStmt the block statement to rewrite
+     * @param handlers handlers by label name
+     * @return a new block with the resulting statements, or the same
+     * block if it doesn't have any label
+     * @since 0.6.0
      */
-    private Closure<List<Group>> groupByLabel() {
-        return new Closure<List<Group>>(null) {
-            public List<Group> doCall(final List<Group> acc, final Statement stmt) {
-                final Label label        = extractLabelFrom(stmt);
-                final Group currentGroup = acc.isEmpty() ? null : last(acc);
-
-                /* If there is no label and there is a current group then add
-                   the statement to the current group */
-                if (label == null && currentGroup != null) {
-                    currentGroup.statements.add(stmt);
-                } else if (label != null){
-                    /* otherwise and only if there is a new label, we create a new group */
-                    acc.add(new Group(label, new ArrayList<Statement>()));
-                }
-
-                return acc;
+    public BlockStatement rewriteByLabel(final BlockStatement blockStmt, final Map<String, LabelHandler> handlers) {
+        final List<Statement> source = blockStmt.getStatements();
+        final List<Statement> result = new ArrayList<>(source.size());
+
+        Label currentLabel = null;
+        LabelHandler currentHandler = null;
+
+        for (final Statement stmt : source) {
+            final Label label = extractLabelFrom(stmt);
+
+            if (label != null) {
+                currentLabel   = label;
+                currentHandler = handlers.get(label.name);
+            } else if (currentLabel != null) {
+                result.add(currentHandler == null ? stmt : currentHandler.handle(currentLabel, stmt));
             }
-        };
+        }
+
+        return currentLabel == null ? blockStmt : Statements.blockS(result);
     }
 
     /**
@@ -178,11 +226,10 @@ public final class StatementUtils {
      * @return all statements (transformed and not transformed) returned in order.
      */
     public List<Statement> applyToStatementsByLabelFlatten(final List<Group> source, final Map<String,Closure<Statement>> mappings) {
-        final List<Group> stmtGroupList       = applyToStatementsByLabel(source, mappings);
         final List<Statement> flattenStmtList = new ArrayList<Statement>();
 
-        for (final Group group : stmtGroupList) {
-            flattenStmtList.addAll(group.statements);
+        for (final Group group : source) {
+            applyToGroup(group, mappings.get(group.label.name), flattenStmtList);
         }
 
         return flattenStmtList;
@@ -205,21 +252,22 @@ public final class StatementUtils {
      * @return all statements in their correspondent group.
      */
     public List<Group> applyToStatementsByLabel(final List<Group> source, final Map<String, Closure<Statement>> mappings) {
-        return (List<Group>) inject(source, new ArrayList<>(), transformByLabelName(mappings));
-    }
+        final List<Group> groups = new ArrayList<>(source.size());
 
-    private Closure<List<Group>> transformByLabelName(final Map<String, Closure<Statement>> mappings) {
-        return new Closure<List<Group>>(null) {
-            public List<Group> doCall(final List<Group> acc, final Group group)  {
-                final Closure<Statement> trx = mappings.get(group.label.name);
-                final List<Statement> source = group.statements;
-                final List<Statement> destin = trx == null ? collect(source) : collect(source, trx.curry(group));
+        for (final Group group : source) {
+            final List<Statement> destin = new ArrayList<>(group.statements.size());
 
-                acc.add(group.copyWithStatements(destin));
+            applyToGroup(group, mappings.get(group.label.name), destin);
+            groups.add(group.copyWithStatements(destin));
+        }
 
-                return acc;
-            }
-        };
+        return groups;
+    }
+
+    private static void applyToGroup(final Group group, final Closure<Statement> trx, final List<Statement> destin) {
+        for (final Statement stmt : group.statements) {
+            destin.add(trx == null ? stmt : trx.call(group, stmt));
+        }
     }
 
 }